@@ -21,7 +21,9 @@ import jline.console.completer.*;
 import qa.qcri.nadeef.core.datamodel.CleanPlan;
 import qa.qcri.nadeef.core.datamodel.NadeefConfiguration;
 import qa.qcri.nadeef.core.datamodel.Rule;
+import qa.qcri.nadeef.core.datamodel.TidBitmap;
 import qa.qcri.nadeef.core.pipeline.CleanExecutor;
+import qa.qcri.nadeef.core.pipeline.FusedCleanExecutor;
 import qa.qcri.nadeef.core.pipeline.UpdateExecutor;
 import qa.qcri.nadeef.core.utils.Bootstrap;
 import qa.qcri.nadeef.core.utils.CSVTools;
@@ -38,7 +40,6 @@ import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
 import java.util.Arrays;
-import java.util.HashSet;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 
@@ -275,7 +276,7 @@ public class Console {
         SQLDialectBase dialectManager =
             SQLDialectFactory.getDialectManagerInstance(dbConfig.getDialect());
 
-        HashSet<Integer> newTuples = CSVTools.append(dbConfig, dialectManager, tableName, file);
+        TidBitmap newTuples = CSVTools.append(dbConfig, dialectManager, tableName, file);
         executors.get(lastExecutorIndex).incrementalAppend(tableName, newTuples);
     }
 
@@ -318,6 +319,11 @@ public class Console {
             lastExecutorIndex = 0;
         }
 
+        if (index == -1 && executors.size() > 1 && NadeefConfiguration.getFusedDetection()) {
+            fusedDetect();
+            return;
+        }
+
         for (int i = 0; i < executors.size(); i ++) {
             if (index != -1 && i != index) {
                 continue;
@@ -343,6 +349,30 @@ public class Console {
         }
     }
 
+    /**
+     * Detects all the loaded rules together, each table is loaded once.
+     */
+    private static void fusedDetect() throws IOException {
+        FusedCleanExecutor executor = null;
+        try {
+            executor = new FusedCleanExecutor(cleanPlans);
+            executor.detect();
+            printProgress(1.0, "DETECT");
+            console.println();
+            console.flush();
+            for (CleanPlan cleanPlan : cleanPlans) {
+                String ruleName = cleanPlan.getRule().getRuleName();
+                tracer.info(PerfReport.generateDetectSummary(ruleName));
+            }
+        } catch (Exception ex) {
+            tracer.error("Fused detection failed.", ex);
+        } finally {
+            if (executor != null) {
+                executor.shutdown();
+            }
+        }
+    }
+
     private static void repair(String cmd) throws IOException, InterruptedException {
         String[] tokens = cmd.split("\\s");
         if (tokens.length > 2) {
@@ -420,42 +450,55 @@ public class Console {
         int updatedCell = 0;
         int maxIterationNumber = 0;
 
-        do {
-            try {
-                DBInstaller.cleanExecutionDB();
-            } catch (Exception ex) {
-                tracer.error("Cleaning database failed.", ex);
-            }
-            for (int i = 0; i < executors.size(); i ++) {
-                if (index != -1 && index != i) {
-                    continue;
+        // the blocks which are not touched by the fixes of an iteration are not detected
+        // again in the next one, the memo is dropped once the iterations are done.
+        boolean isBlockMemo = NadeefConfiguration.getBlockMemo();
+        NadeefConfiguration.setBlockMemo(true);
+        try {
+            do {
+                try {
+                    DBInstaller.cleanExecutionDB();
+                } catch (Exception ex) {
+                    tracer.error("Cleaning database failed.", ex);
                 }
+                for (int i = 0; i < executors.size(); i ++) {
+                    if (index != -1 && index != i) {
+                        continue;
+                    }
+
+                    CleanExecutor executor = executors.get(i);
+                    Thread thread = new Thread(new CleanRunnable(executor));
+                    thread.start();
 
-                CleanExecutor executor = executors.get(i);
-                Thread thread = new Thread(new CleanRunnable(executor));
-                thread.start();
+                    do {
+                        Thread.sleep(1000);
+                        double percentage = executor.getRepairProgress();
+                        printProgress(percentage, "CLEAN");
+                    } while (thread.isAlive());
 
-                do {
-                    Thread.sleep(1000);
+                    // print out the final result.
                     double percentage = executor.getRepairProgress();
                     printProgress(percentage, "CLEAN");
-                } while (thread.isAlive());
+                    console.println();
+                    console.flush();
+                }
 
-                // print out the final result.
-                double percentage = executor.getRepairProgress();
-                printProgress(percentage, "CLEAN");
-                console.println();
-                console.flush();
+                // do the final holistic update
+                updateExecutor.run();
+                updatedCell = updateExecutor.getUpdateCellCount();
+                maxIterationNumber ++;
+            } while (
+                updatedCell != 0 &&
+                maxIterationNumber <= NadeefConfiguration.getMaxIterationNumber()
+            );
+        } finally {
+            NadeefConfiguration.setBlockMemo(isBlockMemo);
+            if (!isBlockMemo) {
+                for (CleanExecutor executor : executors) {
+                    executor.clearBlockMemo();
+                }
             }
-
-            // do the final holistic update
-            updateExecutor.run();
-            updatedCell = updateExecutor.getUpdateCellCount();
-            maxIterationNumber ++;
-        } while (
-            updatedCell != 0 &&
-            maxIterationNumber <= NadeefConfiguration.getMaxIterationNumber()
-        );
+        }
 
         // Print overall statistics
         for (int i = 0; i < executors.size(); i ++) {
@@ -0,0 +1,128 @@
+/*
+ * QCRI, NADEEF LICENSE
+ * NADEEF is an extensible, generalized and easy-to-deploy data cleaning platform built at QCRI.
+ * NADEEF means "Clean" in Arabic
+ *
+ * Copyright (c) 2011-2013, Qatar Foundation for Education, Science and Community Development (on
+ * behalf of Qatar Computing Research Institute) having its principle place of business in Doha,
+ * Qatar with the registered address P.O box 5825 Doha, Qatar (hereinafter referred to as "QCRI")
+ *
+ * NADEEF has patent pending nevertheless the following is granted.
+ * NADEEF is released under the terms of the MIT License, (http://opensource.org/licenses/MIT).
+ */
+
+package qa.qcri.nadeef.core.datamodel;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * BlockIndex maps the block keys of a table to the tids of the tuples in the blocks. It is
+ * kept from one detection to the next, so that an incremental detection only loads the new
+ * tuples and the old tuples sharing a block with them. Tuples with null values share the
+ * block of the null key, the same way {@link Table#groupOn} groups them.
+ */
+public class BlockIndex {
+    private final String tableName;
+    private final List<Column> columns;
+    private final ColumnHandle[] handles;
+    private final HashMap<List<String>, TidBitmap> blocks;
+
+    //<editor-fold desc="Constructor">
+    /**
+     * Constructor.
+     * @param tableName table name.
+     * @param columns block columns.
+     */
+    public BlockIndex(String tableName, List<Column> columns) {
+        Preconditions.checkArgument(columns != null && columns.size() > 0);
+        this.tableName = Preconditions.checkNotNull(tableName);
+        this.columns = columns;
+        this.handles = ColumnHandle.of(columns);
+        this.blocks = Maps.newHashMap();
+    }
+    //</editor-fold>
+
+    //<editor-fold desc="Public methods">
+    /**
+     * Returns <code>True</code> when this is the index of the table on the given columns.
+     * @param tableName table name.
+     * @param columns block columns.
+     * @return <code>True</code> when this is the index of the table on the given columns.
+     */
+    public boolean isIndexOf(String tableName, List<Column> columns) {
+        return this.tableName.equalsIgnoreCase(tableName) && this.columns.equals(columns);
+    }
+
+    /**
+     * Adds a tuple into the block of its key.
+     * @param tuple tuple.
+     */
+    public synchronized void add(Tuple tuple) {
+        List<String> key = getKey(tuple);
+        TidBitmap tids = blocks.get(key);
+        if (tids == null) {
+            tids = new TidBitmap();
+            blocks.put(key, tids);
+        }
+        tids.add(tuple.getTid());
+    }
+
+    /**
+     * Gets the tids of the blocks the given tuples belong to.
+     * @param tuples tuples.
+     * @return tids of the blocks.
+     */
+    public synchronized TidBitmap getTids(List<Tuple> tuples) {
+        HashSet<List<String>> keys = Sets.newHashSet();
+        TidBitmap result = new TidBitmap();
+        for (Tuple tuple : tuples) {
+            List<String> key = getKey(tuple);
+            TidBitmap tids = blocks.get(key);
+            if (tids != null && keys.add(key)) {
+                for (int tid = tids.next(0); tid >= 0; tid = tids.next(tid + 1)) {
+                    result.add(tid);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Gets a copy of the index, which is changed without changing this index.
+     * @return a copy of the index.
+     */
+    public synchronized BlockIndex copy() {
+        BlockIndex result = new BlockIndex(tableName, columns);
+        for (Map.Entry<List<String>, TidBitmap> entry : blocks.entrySet()) {
+            result.blocks.put(entry.getKey(), entry.getValue().or(new TidBitmap()));
+        }
+        return result;
+    }
+
+    /**
+     * Gets the number of blocks.
+     * @return the number of blocks.
+     */
+    public synchronized int size() {
+        return blocks.size();
+    }
+    //</editor-fold>
+
+    //<editor-fold desc="Private methods">
+    private List<String> getKey(Tuple tuple) {
+        String[] key = new String[handles.length];
+        for (int i = 0; i < key.length; i ++) {
+            key[i] = tuple.getString(handles[i]);
+        }
+        return Arrays.asList(key);
+    }
+    //</editor-fold>
+}
@@ -0,0 +1,185 @@
+/*
+ * QCRI, NADEEF LICENSE
+ * NADEEF is an extensible, generalized and easy-to-deploy data cleaning platform built at QCRI.
+ * NADEEF means "Clean" in Arabic
+ *
+ * Copyright (c) 2011-2013, Qatar Foundation for Education, Science and Community Development (on
+ * behalf of Qatar Computing Research Institute) having its principle place of business in Doha,
+ * Qatar with the registered address P.O box 5825 Doha, Qatar (hereinafter referred to as "QCRI")
+ *
+ * NADEEF has patent pending nevertheless the following is granted.
+ * NADEEF is released under the terms of the MIT License, (http://opensource.org/licenses/MIT).
+ */
+
+package qa.qcri.nadeef.core.datamodel;
+
+import qa.qcri.nadeef.tools.PerfReport;
+
+import java.util.AbstractCollection;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CancellationException;
+
+/**
+ * BlockStream is a collection of blocks which are still being produced, e.g. cut from a
+ * sorted query by {@link SQLTable#groupOnConstrained(java.util.List)}. The iterator hands out the
+ * published blocks and waits for the next one until the stream is complete, so the blocks
+ * can be consumed while the rest is produced.
+ *
+ * The stream can only be iterated once and a consumed block is released. Once it is
+ * iterated the producer waits while the queued blocks hold more than <code>capacity</code>
+ * rows, so streaming keeps at most about two stores of unconsumed blocks in memory.
+ * {@link #size()} waits for the end of the stream, before the iteration the queue is not
+ * bounded.
+ */
+public class BlockStream extends AbstractCollection<Table> {
+    private final ArrayDeque<Table> blocks = new ArrayDeque<>();
+    private final int capacity;
+    private int count;
+    private int queuedRows;
+    private boolean isIterated;
+    private boolean isComplete;
+    private boolean isClosed;
+    private Throwable failure;
+
+    /**
+     * Constructor.
+     * @param capacity number of queued rows the producer waits at.
+     */
+    public BlockStream(int capacity) {
+        this.capacity = capacity;
+    }
+
+    //<editor-fold desc="Package methods">
+    /**
+     * Publishes new blocks, it waits while the queue is full.
+     * @param newBlocks blocks.
+     * @throws CancellationException when the stream is closed.
+     */
+    synchronized void publish(Collection<Table> newBlocks) throws InterruptedException {
+        while (isIterated && !isClosed && queuedRows >= capacity) {
+            wait();
+        }
+
+        if (isClosed) {
+            throw new CancellationException("The block stream is closed.");
+        }
+
+        for (Table block : newBlocks) {
+            blocks.add(block);
+            queuedRows += block.size();
+        }
+        count += newBlocks.size();
+        notifyAll();
+    }
+
+    /**
+     * Marks the end of the stream.
+     */
+    synchronized void complete() {
+        isComplete = true;
+        PerfReport.appendMetric(PerfReport.Metric.Blocks, count);
+        notifyAll();
+    }
+
+    /**
+     * Marks the end of the stream with a failure, the iterator throws it instead of
+     * ending early.
+     * @param cause failure.
+     */
+    synchronized void fail(Throwable cause) {
+        failure = cause;
+        complete();
+    }
+    //</editor-fold>
+
+    //<editor-fold desc="Public methods">
+    /**
+     * Returns <code>True</code> when all the blocks are published.
+     */
+    public synchronized boolean isComplete() {
+        return isComplete;
+    }
+
+    /**
+     * Closes the stream, e.g. when the consumer fails. The queued blocks are dropped and
+     * the producer stops at the next publish.
+     */
+    public synchronized void close() {
+        isClosed = true;
+        blocks.clear();
+        queuedRows = 0;
+        notifyAll();
+    }
+
+    /**
+     * Gets the number of blocks, it waits until the stream is complete.
+     * @return number of blocks.
+     */
+    @Override
+    public synchronized int size() {
+        try {
+            while (!isComplete) {
+                wait();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        return count;
+    }
+
+    /**
+     * {@inheritDoc}
+     * The blocks are handed out only once.
+     * @throws IllegalStateException when the stream is already iterated.
+     */
+    @Override
+    public synchronized Iterator<Table> iterator() {
+        if (isIterated) {
+            throw new IllegalStateException("A block stream can only be iterated once.");
+        }
+        isIterated = true;
+
+        return new Iterator<Table>() {
+            @Override
+            public boolean hasNext() {
+                synchronized (BlockStream.this) {
+                    try {
+                        while (blocks.isEmpty() && !isComplete && !isClosed) {
+                            BlockStream.this.wait();
+                        }
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                    }
+
+                    if (failure != null) {
+                        throw new RuntimeException("Streaming blocks failed.", failure);
+                    }
+                    return !blocks.isEmpty();
+                }
+            }
+
+            @Override
+            public Table next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+
+                synchronized (BlockStream.this) {
+                    Table block = blocks.poll();
+                    queuedRows -= block.size();
+                    BlockStream.this.notifyAll();
+                    return block;
+                }
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+    //</editor-fold>
+}
@@ -0,0 +1,36 @@
+/*
+ * QCRI, NADEEF LICENSE
+ * NADEEF is an extensible, generalized and easy-to-deploy data cleaning platform built at QCRI.
+ * NADEEF means "Clean" in Arabic
+ *
+ * Copyright (c) 2011-2013, Qatar Foundation for Education, Science and Community Development (on
+ * behalf of Qatar Computing Research Institute) having its principle place of business in Doha,
+ * Qatar with the registered address P.O box 5825 Doha, Qatar (hereinafter referred to as "QCRI")
+ *
+ * NADEEF has patent pending nevertheless the following is granted.
+ * NADEEF is released under the terms of the MIT License, (http://opensource.org/licenses/MIT).
+ */
+
+package qa.qcri.nadeef.core.datamodel;
+
+/**
+ * CandidateGenerator emits the candidate {@link TuplePair}s of a pair rule instead of all
+ * the pairs of a block.
+ */
+public interface CandidateGenerator {
+    /**
+     * Emits the candidate pairs of one table.
+     * @param table input table.
+     * @param handler result handler.
+     */
+    public void iterator(Table table, IteratorResultHandler handler);
+
+    /**
+     * Emits the candidate pairs across two tables, the left tuple of a pair is from the
+     * left table.
+     * @param left left table.
+     * @param right right table.
+     * @param handler result handler.
+     */
+    public void iterator(Table left, Table right, IteratorResultHandler handler);
+}
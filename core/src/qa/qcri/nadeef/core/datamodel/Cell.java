@@ -22,6 +22,9 @@ public class Cell {
     private int tid;
     private Column column;
     private Object value;
+    // packed cell key, see CellKey.
+    private long key;
+    private boolean hasKey;
     //</editor-fold>
 
     /**
@@ -45,7 +48,9 @@ public class Cell {
         }
 
         public Builder column(String column) {
-            this.column = new Column(column);
+            Column column_ = new Column(column);
+            this.column =
+                ColumnRegistry.intern(column_.getTableName(), column_.getColumnName());
             return this;
         }
 
@@ -108,6 +113,18 @@ public class Cell {
         return tid;
     }
 
+    /**
+     * Gets the packed key of the cell, see {@link CellKey}.
+     * @return cell key.
+     */
+    public long getKey() {
+        if (!hasKey) {
+            key = CellKey.of(column, tid);
+            hasKey = true;
+        }
+        return key;
+    }
+
     /**
      * Returns <code>True</code> when the Cell has the same column name as the input.
      * @param columnName column name.
@@ -134,16 +151,17 @@ public class Cell {
 
         Cell row = (Cell)obj;
 
-        return row.column.equals(column) && row.tid == tid;
+        return row.getKey() == getKey();
     }
 
     /**
-     * Returns the hash code of the column.
-     * @return the hash code of the column.
+     * Returns the hash code of the cell key.
+     * @return the hash code of the cell key.
      */
     @Override
     public int hashCode() {
-        return column.hashCode() * tid;
+        long key = getKey();
+        return (int)(key ^ (key >>> 32));
     }
     //</editor-fold>
 }
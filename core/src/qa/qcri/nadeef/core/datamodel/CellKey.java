@@ -0,0 +1,72 @@
+/*
+ * QCRI, NADEEF LICENSE
+ * NADEEF is an extensible, generalized and easy-to-deploy data cleaning platform built at QCRI.
+ * NADEEF means "Clean" in Arabic
+ *
+ * Copyright (c) 2011-2013, Qatar Foundation for Education, Science and Community Development (on
+ * behalf of Qatar Computing Research Institute) having its principle place of business in Doha,
+ * Qatar with the registered address P.O box 5825 Doha, Qatar (hereinafter referred to as "QCRI")
+ *
+ * NADEEF has patent pending nevertheless the following is granted.
+ * NADEEF is released under the terms of the MIT License, (http://opensource.org/licenses/MIT).
+ */
+
+package qa.qcri.nadeef.core.datamodel;
+
+/**
+ * CellKey packs the position of a cell into a long, 16 bits of table id, 16 bits of column
+ * id (see {@link ColumnRegistry}) and 32 bits of tuple id. Two cells have the same key when
+ * they are equal.
+ */
+public final class CellKey {
+    private CellKey() {}
+
+    /**
+     * Packs a cell key.
+     * @param column column.
+     * @param tid tuple id.
+     * @return cell key.
+     */
+    public static long of(Column column, int tid) {
+        return of(column.getTableId(), column.getColumnId(), tid);
+    }
+
+    /**
+     * Packs a cell key.
+     * @param tableId table id.
+     * @param columnId column id.
+     * @param tid tuple id.
+     * @return cell key.
+     */
+    public static long of(int tableId, int columnId, int tid) {
+        return ((long)tableId << 48) | ((long)columnId << 32) | (tid & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Gets the table id of a cell key.
+     */
+    public static int getTableId(long key) {
+        return (int)(key >>> 48);
+    }
+
+    /**
+     * Gets the column id of a cell key.
+     */
+    public static int getColumnId(long key) {
+        return (int)(key >>> 32) & 0xFFFF;
+    }
+
+    /**
+     * Gets the tuple id of a cell key.
+     */
+    public static int getTid(long key) {
+        return (int)key;
+    }
+
+    /**
+     * Gets the registered column of a cell key.
+     */
+    public static Column getColumn(long key) {
+        return ColumnRegistry.getColumn(getTableId(key), getColumnId(key));
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * QCRI, NADEEF LICENSE
+ * NADEEF is an extensible, generalized and easy-to-deploy data cleaning platform built at QCRI.
+ * NADEEF means "Clean" in Arabic
+ *
+ * Copyright (c) 2011-2013, Qatar Foundation for Education, Science and Community Development (on
+ * behalf of Qatar Computing Research Institute) having its principle place of business in Doha,
+ * Qatar with the registered address P.O box 5825 Doha, Qatar (hereinafter referred to as "QCRI")
+ *
+ * NADEEF has patent pending nevertheless the following is granted.
+ * NADEEF is released under the terms of the MIT License, (http://opensource.org/licenses/MIT).
+ */
+
+package qa.qcri.nadeef.core.datamodel;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+import java.util.AbstractCollection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * CoBlocks is the result of co-blocking two tables, see {@link Rule#coBlock(java.util.Collection)}.
+ * It holds pairs of a left and a right block, each pair is iterated independently. As a
+ * collection it contains every distinct block once, a block broadcast to several pairs is
+ * only counted once.
+ */
+public class CoBlocks extends AbstractCollection<Table> {
+    private final List<List<Table>> pairs = Lists.newArrayList();
+    private final Set<Table> blocks =
+        Sets.newSetFromMap(new IdentityHashMap<Table, Boolean>());
+
+    //<editor-fold desc="Public methods">
+    /**
+     * Adds a pair of blocks.
+     * @param left left block.
+     * @param right right block.
+     * @return this object.
+     */
+    public CoBlocks add(Table left, Table right) {
+        List<Table> pair = Lists.newArrayList(left, right);
+        pairs.add(Collections.unmodifiableList(pair));
+        blocks.add(left);
+        blocks.add(right);
+        return this;
+    }
+
+    /**
+     * Gets the pairs of blocks, the left block is the first one in a pair.
+     * @return pairs of blocks.
+     */
+    public List<List<Table>> getPairs() {
+        return Collections.unmodifiableList(pairs);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Iterator<Table> iterator() {
+        return Collections.unmodifiableSet(blocks).iterator();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int size() {
+        return blocks.size();
+    }
+    //</editor-fold>
+}
@@ -23,6 +23,13 @@ public class Column {
     private String tableName;
     private String columnName;
     private String schemaName;
+    // lower case full column name and its hash code, used in equals / hashCode.
+    private String key;
+    private int hashCode;
+    // ids assigned by the ColumnRegistry, -1 before the column is registered.
+    private volatile int tableId = -1;
+    private int columnId;
+    private int generation;
 
     //<editor-fold desc="Constructors">
     /**
@@ -45,6 +52,7 @@ public class Column {
         schemaName = "public";
         tableName = splits[0];
         columnName = splits[1];
+        initializeKey();
     }
 
     /**
@@ -60,6 +68,7 @@ public class Column {
         this.schemaName = schemaName;
         this.tableName = tableName;
         this.columnName = columnName;
+        initializeKey();
     }
     //</editor-fold>
 
@@ -103,6 +112,41 @@ public class Column {
         return getTableName() + "." + columnName;
     }
 
+    /**
+     * Gets the table id given by the {@link ColumnRegistry}.
+     * @return table id.
+     */
+    public int getTableId() {
+        if (!isRegistered()) {
+            ColumnRegistry.register(this);
+        }
+        return tableId;
+    }
+
+    /**
+     * Gets the column id inside the table given by the {@link ColumnRegistry}.
+     * @return column id.
+     */
+    public int getColumnId() {
+        if (!isRegistered()) {
+            ColumnRegistry.register(this);
+        }
+        return columnId;
+    }
+
+    void setId(int tableId, int columnId, int generation) {
+        this.columnId = columnId;
+        this.generation = generation;
+        this.tableId = tableId;
+    }
+
+    /**
+     * Returns <code>True</code> when the ids are given by the current registry.
+     */
+    private boolean isRegistered() {
+        return tableId != -1 && generation == ColumnRegistry.getGeneration();
+    }
+
     //<editor-fold desc="Custom equal / hashcode">
     @Override
     public boolean equals(Object obj) {
@@ -116,17 +160,18 @@ public class Column {
 
         Column column = (Column)obj;
 
-        return getFullColumnName().equalsIgnoreCase(column.getFullColumnName());
+        return hashCode == column.hashCode && key.equals(column.key);
     }
 
     @Override
     public int hashCode() {
-        final int root = 109;
-        return
-            root * getTableName().toLowerCase().hashCode() *
-                columnName.toLowerCase().hashCode() *
-                schemaName.toLowerCase().hashCode();
+        return hashCode;
     }
     //</editor-fold>
 
+    private void initializeKey() {
+        key = getFullColumnName().toLowerCase();
+        hashCode = 109 * key.hashCode();
+    }
+
 }
\ No newline at end of file
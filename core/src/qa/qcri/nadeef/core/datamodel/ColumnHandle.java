@@ -0,0 +1,160 @@
+/*
+ * QCRI, NADEEF LICENSE
+ * NADEEF is an extensible, generalized and easy-to-deploy data cleaning platform built at QCRI.
+ * NADEEF means "Clean" in Arabic
+ *
+ * Copyright (c) 2011-2013, Qatar Foundation for Education, Science and Community Development (on
+ * behalf of Qatar Computing Research Institute) having its principle place of business in Doha,
+ * Qatar with the registered address P.O box 5825 Doha, Qatar (hereinafter referred to as "QCRI")
+ *
+ * NADEEF has patent pending nevertheless the following is granted.
+ * NADEEF is released under the terms of the MIT License, (http://opensource.org/licenses/MIT).
+ */
+
+package qa.qcri.nadeef.core.datamodel;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+
+import java.util.List;
+
+/**
+ * ColumnHandle is a {@link Column} interned by the {@link ColumnRegistry} together with its
+ * ordinal in a {@link Schema}. Handles are created once when a rule is initialized, the
+ * ordinal is resolved on the first access of a schema and afterwards a lookup on the same
+ * schema is an array index.
+ */
+public final class ColumnHandle {
+    /**
+     * Immutable pair of a schema and the resolved ordinal.
+     */
+    private static final class Binding {
+        final Schema schema;
+        final int ordinal;
+
+        Binding(Schema schema, int ordinal) {
+            this.schema = schema;
+            this.ordinal = ordinal;
+        }
+    }
+
+    private final Column column;
+    private Binding binding;
+
+    //<editor-fold desc="Constructors">
+    private ColumnHandle(Column column) {
+        Preconditions.checkNotNull(column);
+        this.column = ColumnRegistry.intern(column.getTableName(), column.getColumnName());
+    }
+
+    /**
+     * Creates a handle of a column.
+     * @param column column.
+     * @return column handle.
+     */
+    public static ColumnHandle of(Column column) {
+        return new ColumnHandle(column);
+    }
+
+    /**
+     * Creates a handle of a column.
+     * @param tableName table name.
+     * @param columnName column name.
+     * @return column handle.
+     */
+    public static ColumnHandle of(String tableName, String columnName) {
+        return new ColumnHandle(new Column(tableName, columnName));
+    }
+
+    /**
+     * Creates handles of a list of columns.
+     * @param columns columns.
+     * @return column handles.
+     */
+    public static ColumnHandle[] of(List<Column> columns) {
+        ColumnHandle[] result = new ColumnHandle[columns.size()];
+        for (int i = 0; i < result.length; i ++) {
+            result[i] = new ColumnHandle(columns.get(i));
+        }
+        return result;
+    }
+    //</editor-fold>
+
+    //<editor-fold desc="Public methods">
+    /**
+     * Gets the column.
+     * @return column.
+     */
+    public Column getColumn() {
+        return column;
+    }
+
+    /**
+     * Gets the ordinal of the column in the given schema.
+     * @param schema schema.
+     * @return column ordinal.
+     */
+    public int getOrdinal(Schema schema) {
+        Binding binding_ = binding;
+        if (binding_ != null && binding_.schema == schema) {
+            return binding_.ordinal;
+        }
+
+        int ordinal = resolve(schema);
+        binding = new Binding(schema, ordinal);
+        return ordinal;
+    }
+
+    /**
+     * Returns <code>True</code> when the column can be found in the given schema.
+     * @param schema schema.
+     * @return <code>True</code> when the column can be found in the given schema.
+     */
+    public boolean isIn(Schema schema) {
+        return schema.hasColumn(column) || schema.hasColumn(localColumn(schema));
+    }
+
+    /**
+     * Creates a list of columns from handles.
+     * @param handles handles.
+     * @return columns.
+     */
+    public static List<Column> toColumns(ColumnHandle[] handles) {
+        List<Column> result = Lists.newArrayListWithCapacity(handles.length);
+        for (ColumnHandle handle : handles) {
+            result.add(handle.column);
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return column.getFullColumnName();
+    }
+    //</editor-fold>
+
+    //<editor-fold desc="Private methods">
+    /**
+     * Resolves the ordinal. When the column is not found by its full name, it is looked up by
+     * its column name in a table copied from the column table (e.g. TB_ tables).
+     */
+    private int resolve(Schema schema) {
+        if (schema.hasColumn(column)) {
+            return schema.get(column);
+        }
+        return schema.get(localColumn(schema));
+    }
+
+    private Column localColumn(Schema schema) {
+        String tableName = schema.getTableName();
+        if (stripPrefix(tableName).equalsIgnoreCase(stripPrefix(column.getTableName()))) {
+            return new Column(tableName, column.getColumnName());
+        }
+        return column;
+    }
+
+    private static String stripPrefix(String tableName) {
+        return tableName.startsWith("TB_") ? tableName.substring(3) : tableName;
+    }
+    //</editor-fold>
+}
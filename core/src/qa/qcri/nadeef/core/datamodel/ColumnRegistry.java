@@ -0,0 +1,133 @@
+/*
+ * QCRI, NADEEF LICENSE
+ * NADEEF is an extensible, generalized and easy-to-deploy data cleaning platform built at QCRI.
+ * NADEEF means "Clean" in Arabic
+ *
+ * Copyright (c) 2011-2013, Qatar Foundation for Education, Science and Community Development (on
+ * behalf of Qatar Computing Research Institute) having its principle place of business in Doha,
+ * Qatar with the registered address P.O box 5825 Doha, Qatar (hereinafter referred to as "QCRI")
+ *
+ * NADEEF has patent pending nevertheless the following is granted.
+ * NADEEF is released under the terms of the MIT License, (http://opensource.org/licenses/MIT).
+ */
+
+package qa.qcri.nadeef.core.datamodel;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * ColumnRegistry is a process-wide registry of {@link Column}s. It shares one
+ * {@link Column} instance per column name, and gives each table a table id and each column
+ * a column id inside its table. The ids follow the {@link Column} equality (case
+ * insensitive table and column name), they are packed into cell keys by {@link CellKey}.
+ *
+ * The ids are packed into 16 bits, so at most 65536 table names and 65536 columns of each
+ * table can be registered. The registry is cleared when NADEEF shuts down and when the job
+ * scheduler has no job left, a column of the cleared registry is registered again on its
+ * next id access, and cell keys taken before the clear are not comparable with the keys
+ * taken after it.
+ */
+public final class ColumnRegistry {
+    // ids are packed into 16 bits.
+    private static final int MAX_ID = 0xFFFF;
+
+    private static final ConcurrentMap<String, Column> columns = Maps.newConcurrentMap();
+    private static final HashMap<String, Integer> tableIds = Maps.newHashMap();
+    private static final HashMap<String, Integer> columnIds = Maps.newHashMap();
+    // registered columns of each table, indexed by the table id and the column id.
+    private static final ArrayList<ArrayList<Column>> tables = Lists.newArrayList();
+    // bumped by each clear, the ids of a column are valid in the generation it got them.
+    private static volatile int generation;
+
+    private ColumnRegistry() {}
+
+    //<editor-fold desc="Public methods">
+    /**
+     * Gets the shared {@link Column} instance of a column name.
+     * @param tableName table name.
+     * @param columnName column name.
+     * @return shared column.
+     */
+    public static Column intern(String tableName, String columnName) {
+        String name = tableName + "." + columnName;
+        Column result = columns.get(name);
+        if (result == null) {
+            Column column = new Column(tableName, columnName);
+            register(column);
+            result = columns.putIfAbsent(name, column);
+            if (result == null) {
+                result = column;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Gets the registered column of a table id and a column id.
+     * @param tableId table id.
+     * @param columnId column id.
+     * @return registered column.
+     */
+    public static synchronized Column getColumn(int tableId, int columnId) {
+        return tables.get(tableId).get(columnId);
+    }
+
+    /**
+     * Drops all the registered columns and ids.
+     */
+    public static synchronized void clear() {
+        columns.clear();
+        tableIds.clear();
+        columnIds.clear();
+        tables.clear();
+        generation ++;
+    }
+    //</editor-fold>
+
+    //<editor-fold desc="Package methods">
+    /**
+     * Gets the generation of the registry, it changes when the registry is cleared.
+     * @return generation.
+     */
+    static int getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Assigns the table id and the column id of a column.
+     * @param column column.
+     */
+    static synchronized void register(Column column) {
+        String tableName = column.getTableName().toLowerCase();
+        Integer tableId = tableIds.get(tableName);
+        if (tableId == null) {
+            tableId = tables.size();
+            if (tableId > MAX_ID) {
+                throw new IllegalStateException(
+                    "Too many tables are registered, the limit is " + (MAX_ID + 1) + "."
+                );
+            }
+            tableIds.put(tableName, tableId);
+            tables.add(Lists.<Column>newArrayList());
+        }
+
+        String key = column.getFullColumnName().toLowerCase();
+        Integer columnId = columnIds.get(key);
+        if (columnId == null) {
+            ArrayList<Column> tableColumns = tables.get(tableId);
+            columnId = tableColumns.size();
+            if (columnId > MAX_ID) {
+                throw new IllegalStateException("Too many columns are registered in " + tableName);
+            }
+            columnIds.put(key, columnId);
+            tableColumns.add(column);
+        }
+        column.setId(tableId, columnId, generation);
+    }
+    //</editor-fold>
+}
@@ -0,0 +1,742 @@
+/*
+ * QCRI, NADEEF LICENSE
+ * NADEEF is an extensible, generalized and easy-to-deploy data cleaning platform built at QCRI.
+ * NADEEF means "Clean" in Arabic
+ *
+ * Copyright (c) 2011-2013, Qatar Foundation for Education, Science and Community Development (on
+ * behalf of Qatar Computing Research Institute) having its principle place of business in Doha,
+ * Qatar with the registered address P.O box 5825 Doha, Qatar (hereinafter referred to as "QCRI")
+ *
+ * NADEEF has patent pending nevertheless the following is granted.
+ * NADEEF is released under the terms of the MIT License, (http://opensource.org/licenses/MIT).
+ */
+
+package qa.qcri.nadeef.core.datamodel;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Optional;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * ColumnStore keeps the content of a table in a column-oriented layout. Numeric columns are
+ * kept in primitive arrays and string columns are dictionary encoded into int codes, values
+ * are decoded once when they are loaded. A {@link Tuple} is a light-weight row view on top
+ * of a store.
+ */
+public class ColumnStore {
+    static final int NULL_CODE = -1;
+    private static final int SNAPSHOT_MAGIC = 0x4E534331;
+    private static final long NULL_HASH = 0x9E3779B97F4A7C15L;
+    private static final HashFunction hashFunction = Hashing.murmur3_128();
+
+    //<editor-fold desc="Private Fields">
+    private Schema schema;
+    private DataType[] types;
+    private int size;
+    private int[] tids;
+    // INTEGER / BOOL values and the dictionary codes of STRING / TIMESTAMP columns.
+    private int[][] ints;
+    // DOUBLE / FLOAT values.
+    private double[][] doubles;
+    private Dictionary[] dictionaries;
+    // null markers of numeric columns, it is null when the column has no null value.
+    private BitSet[] nulls;
+    //</editor-fold>
+
+    //<editor-fold desc="Dictionary">
+    /**
+     * Dictionary maps distinct string values of a column into dense int codes.
+     */
+    static class Dictionary {
+        private ArrayList<String> values;
+        private HashMap<String, Integer> codes;
+        private volatile long[] hashes;
+
+        Dictionary() {
+            values = Lists.newArrayList();
+            codes = Maps.newHashMap();
+        }
+
+        /**
+         * Creates a frozen dictionary of decoded values.
+         */
+        Dictionary(ArrayList<String> values) {
+            this.values = values;
+        }
+
+        synchronized int encode(String value) {
+            if (codes == null) {
+                codes = Maps.newHashMapWithExpectedSize(values.size());
+                for (int i = 0; i < values.size(); i ++) {
+                    codes.put(values.get(i), i);
+                }
+            }
+
+            Integer code = codes.get(value);
+            if (code == null) {
+                code = values.size();
+                values.add(value);
+                codes.put(value, code);
+            }
+            return code;
+        }
+
+        String decode(int code) {
+            return values.get(code);
+        }
+
+        int size() {
+            return values.size();
+        }
+
+        /**
+         * Gets the hash of the value of a code. The values are hashed once per dictionary,
+         * the codes added after the hashing are hashed when they are asked for.
+         */
+        long hash(int code) {
+            long[] result = hashes;
+            if (result == null || code >= result.length) {
+                result = updateHashes();
+            }
+            return result[code];
+        }
+
+        private synchronized long[] updateHashes() {
+            long[] result = hashes == null ? new long[0] : hashes;
+            int start = result.length;
+            if (start < values.size()) {
+                result = Arrays.copyOf(result, values.size());
+                for (int i = start; i < result.length; i ++) {
+                    result[i] = hashString(values.get(i));
+                }
+                hashes = result;
+            }
+            return result;
+        }
+
+        /**
+         * Drops the reverse lookup map once the loading is done, it is rebuilt on demand.
+         */
+        synchronized void freeze() {
+            codes = null;
+            values.trimToSize();
+        }
+    }
+    //</editor-fold>
+
+    //<editor-fold desc="Builder">
+    /**
+     * Builder which appends rows into a new {@link ColumnStore}. Values can be given either
+     * as JDBC objects or as their string representation.
+     */
+    public static class Builder {
+        private ColumnStore store;
+        private int capacity;
+        private int row;
+
+        /**
+         * Constructor for builders of other store layouts.
+         */
+        Builder() {}
+
+        /**
+         * Constructor.
+         * @param schema table schema.
+         */
+        public Builder(Schema schema) {
+            this(schema, 1024);
+        }
+
+        /**
+         * Constructor.
+         * @param schema table schema.
+         * @param capacity initial row capacity.
+         */
+        public Builder(Schema schema, int capacity) {
+            Preconditions.checkNotNull(schema);
+            this.capacity = Math.max(capacity, 1);
+            this.store = new ColumnStore(schema, this.capacity);
+            this.row = -1;
+        }
+
+        /**
+         * Starts a new row.
+         * @param tid tuple id.
+         * @return builder.
+         */
+        public Builder newRow(int tid) {
+            row ++;
+            if (row == capacity) {
+                grow();
+            }
+            store.tids[row] = tid;
+            store.size = row + 1;
+            return this;
+        }
+
+        /**
+         * Sets a value of the current row.
+         * @param column column ordinal in the schema.
+         * @param value value, either a JDBC object or its string representation.
+         * @return builder.
+         */
+        public Builder set(int column, Object value) {
+            store.set(column, row, value);
+            return this;
+        }
+
+        /**
+         * Gets the number of rows appended so far.
+         * @return row count.
+         */
+        public int size() {
+            return row + 1;
+        }
+
+        /**
+         * Builds the store.
+         * @return column store.
+         */
+        public ColumnStore build() {
+            ColumnStore result = store;
+            result.complete();
+            store = null;
+            return result;
+        }
+
+        private void grow() {
+            capacity = capacity * 2;
+            store.resize(capacity);
+        }
+    }
+    //</editor-fold>
+
+    //<editor-fold desc="Constructor">
+    /**
+     * Constructor for stores of other layouts, the column arrays are not allocated.
+     * @param schema table schema.
+     */
+    ColumnStore(Schema schema) {
+        this.schema = schema;
+        this.types = Arrays.copyOf(schema.getTypes(), schema.size());
+    }
+
+    private ColumnStore(Schema schema, int capacity) {
+        this.schema = schema;
+        int count = schema.size();
+        this.types = Arrays.copyOf(schema.getTypes(), count);
+        this.tids = new int[capacity];
+        this.ints = new int[count][];
+        this.doubles = new double[count][];
+        this.dictionaries = new Dictionary[count];
+        this.nulls = new BitSet[count];
+        for (int i = 0; i < count; i ++) {
+            switch (types[i]) {
+                case DOUBLE:
+                case FLOAT:
+                    doubles[i] = new double[capacity];
+                    break;
+                case STRING:
+                case TIMESTAMP:
+                    dictionaries[i] = new Dictionary();
+                    ints[i] = new int[capacity];
+                    break;
+                default:
+                    ints[i] = new int[capacity];
+            }
+        }
+    }
+    //</editor-fold>
+
+    //<editor-fold desc="Public methods">
+    /**
+     * Gets the number of rows.
+     * @return row count.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets the schema of the store.
+     * @return schema.
+     */
+    public Schema getSchema() {
+        return schema;
+    }
+
+    /**
+     * Gets the data type of a column.
+     * @param column column ordinal.
+     * @return data type.
+     */
+    public DataType getType(int column) {
+        return types[column];
+    }
+
+    /**
+     * Gets the tuple id of a row.
+     * @param row row index.
+     * @return tuple id.
+     */
+    public int getTid(int row) {
+        return tids[row];
+    }
+
+    /**
+     * Returns <code>True</code> when the value is null.
+     * @param column column ordinal.
+     * @param row row index.
+     * @return <code>True</code> when the value is null.
+     */
+    public boolean isNull(int column, int row) {
+        if (dictionaries[column] != null) {
+            return ints[column][row] == NULL_CODE;
+        }
+        return nulls[column] != null && nulls[column].get(row);
+    }
+
+    /**
+     * Gets the raw int value of a cell. For string columns it is the dictionary code.
+     * @param column column ordinal.
+     * @param row row index.
+     * @return int value.
+     */
+    public int getInt(int column, int row) {
+        return ints[column][row];
+    }
+
+    /**
+     * Gets the double value of a cell.
+     * @param column column ordinal.
+     * @param row row index.
+     * @return double value.
+     */
+    public double getDouble(int column, int row) {
+        if (doubles[column] != null) {
+            return doubles[column][row];
+        }
+        return ints[column][row];
+    }
+
+    /**
+     * Gets the string value of a cell.
+     * @param column column ordinal.
+     * @param row row index.
+     * @return string value, or null.
+     */
+    public String getString(int column, int row) {
+        if (isNull(column, row)) {
+            return null;
+        }
+
+        if (dictionaries[column] != null) {
+            return dictionaries[column].decode(ints[column][row]);
+        }
+        return getObject(column, row).toString();
+    }
+
+    /**
+     * Gets a 64 bit hash of the value of a cell, which does not depend on the dictionary
+     * codes of the store. Strings are hashed once per dictionary value and numerical values
+     * are taken as they are.
+     * @param column column ordinal.
+     * @param row row index.
+     * @return value hash.
+     */
+    public long getValueHash(int column, int row) {
+        if (isNull(column, row)) {
+            return NULL_HASH;
+        }
+
+        switch (getType(column)) {
+            case STRING:
+            case TIMESTAMP:
+                return getStringHash(column, getInt(column, row));
+            case DOUBLE:
+            case FLOAT:
+                return Double.doubleToLongBits(getDouble(column, row));
+            default:
+                return getInt(column, row);
+        }
+    }
+
+    /**
+     * Gets the hash of the string of a dictionary code, see {@link #hashString}.
+     * @param column column ordinal.
+     * @param code dictionary code.
+     * @return string hash.
+     */
+    long getStringHash(int column, int code) {
+        return dictionaries[column].hash(code);
+    }
+
+    /**
+     * Hashes a string value, the stores hash their strings the same way.
+     * @param value string value.
+     * @return string hash.
+     */
+    static long hashString(String value) {
+        return hashFunction.hashString(value, Charsets.UTF_8).asLong();
+    }
+
+    /**
+     * Gets the value of a cell boxed in its {@link DataType} java type.
+     * @param column column ordinal.
+     * @param row row index.
+     * @return value, or null.
+     */
+    public Object getObject(int column, int row) {
+        if (isNull(column, row)) {
+            return null;
+        }
+
+        Object result;
+        switch (types[column]) {
+            case STRING:
+            case TIMESTAMP:
+                result = dictionaries[column].decode(ints[column][row]);
+                break;
+            case INTEGER:
+                result = ints[column][row];
+                break;
+            case DOUBLE:
+                result = doubles[column][row];
+                break;
+            case FLOAT:
+                result = (float)doubles[column][row];
+                break;
+            case BOOL:
+                result = ints[column][row] != 0;
+                break;
+            default:
+                throw new UnsupportedOperationException("Unknown data type");
+        }
+        return result;
+    }
+
+    /**
+     * Gets an estimation of the heap bytes used by the store.
+     * @return estimated bytes.
+     */
+    public long getMemorySize() {
+        long result = 4L * tids.length;
+        for (int i = 0; i < types.length; i ++) {
+            if (ints[i] != null && ints[i] != tids) {
+                result += 4L * ints[i].length;
+            }
+
+            if (doubles[i] != null) {
+                result += 8L * doubles[i].length;
+            }
+
+            if (nulls[i] != null) {
+                result += nulls[i].size() / 8;
+            }
+
+            if (dictionaries[i] != null) {
+                Dictionary dictionary = dictionaries[i];
+                for (int j = 0; j < dictionary.size(); j ++) {
+                    // String object, char array header and a reference.
+                    result += 48 + 2L * dictionary.decode(j).length();
+                }
+            }
+        }
+        return result;
+    }
+    //</editor-fold>
+
+    //<editor-fold desc="Package methods">
+    /**
+     * Concatenates stores of the same schema into one store. The dictionaries are merged
+     * and the string codes of each store are remapped.
+     * @param stores column stores.
+     * @return concatenated store.
+     */
+    static ColumnStore concat(List<ColumnStore> stores) {
+        Preconditions.checkArgument(stores != null && stores.size() > 0);
+        if (stores.size() == 1) {
+            return stores.get(0);
+        }
+
+        int capacity = 0;
+        for (ColumnStore store : stores) {
+            capacity += store.size;
+        }
+
+        ColumnStore result = new ColumnStore(stores.get(0).schema, capacity);
+        int offset = 0;
+        for (ColumnStore store : stores) {
+            System.arraycopy(store.tids, 0, result.tids, offset, store.size);
+            for (int i = 0; i < result.types.length; i ++) {
+                if (result.dictionaries[i] != null) {
+                    Dictionary dictionary = store.dictionaries[i];
+                    int[] codes = new int[dictionary.size()];
+                    for (int j = 0; j < codes.length; j ++) {
+                        codes[j] = result.dictionaries[i].encode(dictionary.decode(j));
+                    }
+
+                    for (int j = 0; j < store.size; j ++) {
+                        int code = store.ints[i][j];
+                        result.ints[i][offset + j] = code == NULL_CODE ? NULL_CODE : codes[code];
+                    }
+                    continue;
+                }
+
+                if (result.ints[i] != null) {
+                    System.arraycopy(store.ints[i], 0, result.ints[i], offset, store.size);
+                } else {
+                    System.arraycopy(store.doubles[i], 0, result.doubles[i], offset, store.size);
+                }
+
+                BitSet nulls = store.nulls[i];
+                if (nulls != null) {
+                    if (result.nulls[i] == null) {
+                        result.nulls[i] = new BitSet();
+                    }
+
+                    for (int j = nulls.nextSetBit(0); j >= 0; j = nulls.nextSetBit(j + 1)) {
+                        result.nulls[i].set(offset + j);
+                    }
+                }
+            }
+            offset += store.size;
+        }
+
+        result.size = capacity;
+        result.complete();
+        return result;
+    }
+
+    /**
+     * Writes the store in the snapshot format read by {@link #read(ByteBuffer)}.
+     * @param output output stream.
+     */
+    void write(DataOutputStream output) throws IOException {
+        output.writeInt(SNAPSHOT_MAGIC);
+        writeString(output, schema.getTableName());
+        Column[] columns = schema.getColumns();
+        output.writeInt(columns.length);
+        for (int i = 0; i < columns.length; i ++) {
+            writeString(output, columns[i].getColumnName());
+            output.writeInt(types[i].ordinal());
+        }
+
+        output.writeInt(size);
+        writeInts(output, tids);
+        for (int i = 0; i < types.length; i ++) {
+            if (doubles[i] != null) {
+                for (int j = 0; j < size; j ++) {
+                    output.writeDouble(doubles[i][j]);
+                }
+            } else {
+                writeInts(output, ints[i]);
+            }
+
+            long[] bits = nulls[i] == null ? new long[0] : nulls[i].toLongArray();
+            output.writeInt(bits.length);
+            for (long bit : bits) {
+                output.writeLong(bit);
+            }
+
+            Dictionary dictionary = dictionaries[i];
+            output.writeInt(dictionary == null ? -1 : dictionary.size());
+            if (dictionary != null) {
+                for (int j = 0; j < dictionary.size(); j ++) {
+                    writeString(output, dictionary.decode(j));
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads a store written by {@link #write(DataOutputStream)}.
+     * @param buffer input buffer, e.g. a mapped snapshot file.
+     * @return column store.
+     */
+    static ColumnStore read(ByteBuffer buffer) throws IOException {
+        if (buffer.getInt() != SNAPSHOT_MAGIC) {
+            throw new IOException("Invalid snapshot format.");
+        }
+
+        String tableName = readString(buffer);
+        int count = buffer.getInt();
+        Column[] columns = new Column[count];
+        DataType[] types = new DataType[count];
+        for (int i = 0; i < count; i ++) {
+            columns[i] = ColumnRegistry.intern(tableName, readString(buffer));
+            types[i] = DataType.values()[buffer.getInt()];
+        }
+
+        int size = buffer.getInt();
+        ColumnStore result = new ColumnStore(new Schema(tableName, columns, types), size);
+        result.size = size;
+        readInts(buffer, result.tids);
+        for (int i = 0; i < count; i ++) {
+            if (result.doubles[i] != null) {
+                buffer.asDoubleBuffer().get(result.doubles[i]);
+                buffer.position(buffer.position() + 8 * size);
+            } else {
+                readInts(buffer, result.ints[i]);
+            }
+
+            long[] bits = new long[buffer.getInt()];
+            buffer.asLongBuffer().get(bits);
+            buffer.position(buffer.position() + 8 * bits.length);
+            if (bits.length > 0) {
+                result.nulls[i] = BitSet.valueOf(bits);
+            }
+
+            int dictionarySize = buffer.getInt();
+            if (dictionarySize != -1) {
+                ArrayList<String> values = Lists.newArrayListWithCapacity(dictionarySize);
+                for (int j = 0; j < dictionarySize; j ++) {
+                    values.add(readString(buffer));
+                }
+                result.dictionaries[i] = new Dictionary(values);
+            }
+        }
+        result.complete();
+        return result;
+    }
+
+    /**
+     * Sets the value of a cell.
+     * @param column column ordinal.
+     * @param row row index.
+     * @param value value, either a JDBC object or its string representation.
+     */
+    void set(int column, int row, Object value) {
+        if (value == null) {
+            if (dictionaries[column] != null) {
+                ints[column][row] = NULL_CODE;
+            } else {
+                if (nulls[column] == null) {
+                    nulls[column] = new BitSet();
+                }
+                nulls[column].set(row);
+            }
+            return;
+        }
+
+        if (nulls[column] != null) {
+            nulls[column].clear(row);
+        }
+
+        switch (types[column]) {
+            case STRING:
+            case TIMESTAMP:
+                ints[column][row] = dictionaries[column].encode(value.toString());
+                break;
+            case INTEGER:
+                if (value instanceof Number) {
+                    ints[column][row] = ((Number)value).intValue();
+                } else {
+                    ints[column][row] = Integer.parseInt(value.toString());
+                }
+                break;
+            case DOUBLE:
+                if (value instanceof Number) {
+                    doubles[column][row] = ((Number)value).doubleValue();
+                } else {
+                    doubles[column][row] = Double.parseDouble(value.toString());
+                }
+                break;
+            case FLOAT:
+                if (value instanceof Number) {
+                    doubles[column][row] = ((Number)value).floatValue();
+                } else {
+                    doubles[column][row] = Float.parseFloat(value.toString());
+                }
+                break;
+            case BOOL:
+                boolean bool;
+                if (value instanceof Boolean) {
+                    bool = (Boolean)value;
+                } else {
+                    bool = Boolean.parseBoolean(value.toString());
+                }
+                ints[column][row] = bool ? 1 : 0;
+                break;
+            default:
+                throw new UnsupportedOperationException("Unknown data type");
+        }
+    }
+    //</editor-fold>
+
+    //<editor-fold desc="Private methods">
+    private void resize(int capacity) {
+        if (tids.length != capacity) {
+            tids = Arrays.copyOf(tids, capacity);
+        }
+
+        for (int i = 0; i < types.length; i ++) {
+            if (ints[i] != null && ints[i].length != capacity) {
+                ints[i] = Arrays.copyOf(ints[i], capacity);
+            }
+
+            if (doubles[i] != null && doubles[i].length != capacity) {
+                doubles[i] = Arrays.copyOf(doubles[i], capacity);
+            }
+        }
+    }
+
+    private void writeInts(DataOutputStream output, int[] values) throws IOException {
+        for (int i = 0; i < size; i ++) {
+            output.writeInt(values[i]);
+        }
+    }
+
+    private static void readInts(ByteBuffer buffer, int[] values) {
+        buffer.asIntBuffer().get(values);
+        buffer.position(buffer.position() + 4 * values.length);
+    }
+
+    private static void writeString(DataOutputStream output, String value) throws IOException {
+        byte[] bytes = value.getBytes(Charsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, Charsets.UTF_8);
+    }
+
+    /**
+     * Finishes the loading, the arrays are trimmed and the dictionaries are frozen.
+     */
+    private void complete() {
+        resize(size);
+        // share the TID column with the tuple ids when they are the same.
+        Optional<Integer> tidIndex = schema.getTidIndex();
+        if (
+            tidIndex.isPresent() &&
+            types[tidIndex.get()] == DataType.INTEGER &&
+            Arrays.equals(tids, ints[tidIndex.get()])
+        ) {
+            tids = ints[tidIndex.get()];
+        }
+
+        for (Dictionary dictionary : dictionaries) {
+            if (dictionary != null) {
+                dictionary.freeze();
+            }
+        }
+    }
+    //</editor-fold>
+}
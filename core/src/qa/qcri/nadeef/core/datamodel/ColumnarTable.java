@@ -0,0 +1,319 @@
+/*
+ * QCRI, NADEEF LICENSE
+ * NADEEF is an extensible, generalized and easy-to-deploy data cleaning platform built at QCRI.
+ * NADEEF means "Clean" in Arabic
+ *
+ * Copyright (c) 2011-2013, Qatar Foundation for Education, Science and Community Development (on
+ * behalf of Qatar Computing Research Institute) having its principle place of business in Doha,
+ * Qatar with the registered address P.O box 5825 Doha, Qatar (hereinafter referred to as "QCRI")
+ *
+ * NADEEF has patent pending nevertheless the following is granted.
+ * NADEEF is released under the terms of the MIT License, (http://opensource.org/licenses/MIT).
+ */
+
+package qa.qcri.nadeef.core.datamodel;
+
+import com.google.common.base.Optional;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * ColumnarTable is a {@link Table} backed by a {@link ColumnStore}. Projection, ordering,
+ * filtering and grouping only build row / column index arrays, the values are never copied.
+ */
+public class ColumnarTable extends Table {
+    private ColumnStore store;
+    // row index of the table, null means all the rows in the store order.
+    private int[] rows;
+    // maps the schema ordinal to the column ordinal in the store.
+    private int[] columnMap;
+    private boolean isProjected;
+    // groups of the unfiltered rows shared by the views of the table, null when not shared.
+    private ConcurrentMap<String, int[][]> groupCache;
+
+    //<editor-fold desc="Constructors">
+    /**
+     * Constructor.
+     * @param store column store.
+     */
+    public ColumnarTable(ColumnStore store) {
+        this(
+            Preconditions.checkNotNull(store),
+            store.getSchema(),
+            Tuple.identityMap(store.getSchema().size()),
+            null
+        );
+    }
+
+    /**
+     * Constructor of a table over some rows of a store.
+     * @param store column store.
+     * @param rows row index.
+     */
+    ColumnarTable(ColumnStore store, int[] rows) {
+        this(store, store.getSchema(), Tuple.identityMap(store.getSchema().size()), rows);
+    }
+
+    private ColumnarTable(ColumnStore store, Schema schema, int[] columnMap, int[] rows) {
+        super(schema);
+        this.store = store;
+        this.columnMap = columnMap;
+        this.rows = rows;
+    }
+    //</editor-fold>
+
+    //<editor-fold desc="Public methods">
+    /**
+     * Creates a new view of the table. Views share the store and the groups of the
+     * unfiltered rows, so rules blocking on the same columns get the same row groups while
+     * each view keeps its own projection, order and filter.
+     * @return a new view.
+     */
+    public synchronized ColumnarTable newView() {
+        if (groupCache == null) {
+            groupCache = Maps.newConcurrentMap();
+        }
+        ColumnarTable view = new ColumnarTable(store, schema, columnMap, rows);
+        view.isProjected = isProjected;
+        view.groupCache = groupCache;
+        return view;
+    }
+
+    /**
+     * Returns <code>True</code> when both tables are over the same rows of the same store.
+     * @param table target table.
+     * @return <code>True</code> when both tables are over the same rows.
+     */
+    public boolean hasSameRows(ColumnarTable table) {
+        return store == table.store && rows == table.rows;
+    }
+    //</editor-fold>
+
+    //<editor-fold desc="Table override methods">
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int size() {
+        return rows == null ? store.size() : rows.length;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Tuple get(int i) {
+        return new Tuple(store, rows == null ? i : rows[i], schema, columnMap);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void recycle() {
+        store = null;
+        rows = null;
+    }
+
+    /**
+     * {@inheritDoc}
+     * Like {@link SQLTable} the TID column is always kept, and consecutive projections
+     * accumulate the projected columns.
+     */
+    @Override
+    public Table project(List<Column> columns) {
+        Preconditions.checkNotNull(columns);
+        Schema storeSchema = store.getSchema();
+        boolean[] selected = new boolean[storeSchema.size()];
+        if (isProjected) {
+            for (int column : columnMap) {
+                selected[column] = true;
+            }
+        }
+
+        for (Column column : columns) {
+            selected[storeSchema.get(column)] = true;
+        }
+
+        Optional<Integer> tidIndex = storeSchema.getTidIndex();
+        if (tidIndex.isPresent()) {
+            selected[tidIndex.get()] = true;
+        }
+
+        Schema.Builder builder = new Schema.Builder().table(storeSchema.getTableName());
+        List<Integer> newColumnMap = Lists.newArrayList();
+        for (int i = 0; i < selected.length; i ++) {
+            if (selected[i]) {
+                builder.column(storeSchema.getColumns()[i], storeSchema.getTypes()[i]);
+                newColumnMap.add(i);
+            }
+        }
+
+        schema = builder.build();
+        columnMap = new int[newColumnMap.size()];
+        for (int i = 0; i < columnMap.length; i ++) {
+            columnMap[i] = newColumnMap.get(i);
+        }
+        isProjected = true;
+        return this;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Table orderBy(List<Column> columns) {
+        int size = size();
+        List<Tuple> tuples = Lists.newArrayListWithCapacity(size);
+        for (int i = 0; i < size; i ++) {
+            tuples.add(get(i));
+        }
+
+        Collections.sort(tuples, TupleComparator.of(columns));
+        int[] newRows = new int[size];
+        for (int i = 0; i < size; i ++) {
+            newRows[i] = tuples.get(i).getRow();
+        }
+        rows = newRows;
+        return this;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Table filter(List<Predicate> expressions) {
+        int size = size();
+        int[] newRows = new int[size];
+        int count = 0;
+        for (int i = 0; i < size; i ++) {
+            Tuple tuple = get(i);
+            boolean isValid = true;
+            for (Predicate expression : expressions) {
+                if (!expression.isValid(tuple)) {
+                    isValid = false;
+                    break;
+                }
+            }
+
+            if (isValid) {
+                newRows[count ++] = tuple.getRow();
+            }
+        }
+        rows = Arrays.copyOf(newRows, count);
+        return this;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Collection<Table> groupOn(List<Column> columns) {
+        Preconditions.checkNotNull(columns);
+        int[] keyColumns = new int[columns.size()];
+        for (int i = 0; i < keyColumns.length; i ++) {
+            Column column = columns.get(i);
+            if (!schema.hasColumn(column)) {
+                throw new IllegalArgumentException("Column " + column + "does not exist.");
+            }
+            keyColumns[i] = columnMap[schema.get(column)];
+        }
+
+        int[][] groups;
+        if (groupCache != null && rows == null) {
+            String key = Arrays.toString(keyColumns);
+            groups = groupCache.get(key);
+            if (groups == null) {
+                groupCache.putIfAbsent(key, group(keyColumns));
+                groups = groupCache.get(key);
+            }
+        } else {
+            groups = group(keyColumns);
+        }
+
+        List<Table> result = Lists.newArrayListWithCapacity(groups.length);
+        for (int[] group : groups) {
+            ColumnarTable block = new ColumnarTable(store, schema, columnMap, group);
+            block.isProjected = isProjected;
+            result.add(block);
+        }
+        return result;
+    }
+    //</editor-fold>
+
+    //<editor-fold desc="Private methods">
+    /**
+     * Groups the rows on the store columns, groups follow the order of the first appearance.
+     */
+    private int[][] group(final int[] keyColumns) {
+        final DataType[] keyTypes = new DataType[keyColumns.length];
+        for (int i = 0; i < keyColumns.length; i ++) {
+            keyTypes[i] = store.getType(keyColumns[i]);
+        }
+
+        GroupPartitioner partitioner = new GroupPartitioner() {
+            @Override
+            protected long hash(int position) {
+                int row = rows == null ? position : rows[position];
+                long result = 1;
+                for (int i = 0; i < keyColumns.length; i ++) {
+                    result = result * 31 + getKey(keyColumns[i], keyTypes[i], row);
+                }
+                return result;
+            }
+
+            @Override
+            protected boolean isEqual(int position1, int position2) {
+                int row1 = rows == null ? position1 : rows[position1];
+                int row2 = rows == null ? position2 : rows[position2];
+                for (int i = 0; i < keyColumns.length; i ++) {
+                    int column = keyColumns[i];
+                    boolean isNull = store.isNull(column, row1);
+                    if (
+                        isNull != store.isNull(column, row2) ||
+                        !isNull &&
+                        getKey(column, keyTypes[i], row1) != getKey(column, keyTypes[i], row2)
+                    ) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+        };
+
+        GroupPartitioner.Groups partition = partitioner.partition(size());
+        int[][] groups = new int[partition.size()][];
+        for (int i = 0; i < groups.length; i ++) {
+            groups[i] = partition.get(i);
+            if (rows != null) {
+                for (int j = 0; j < groups[i].length; j ++) {
+                    groups[i][j] = rows[groups[i][j]];
+                }
+            }
+        }
+        return groups;
+    }
+
+    /**
+     * Gets a grouping key of a cell. String cells are keyed by their dictionary code and
+     * floating point cells by their bits, null cells are told apart by the null marker.
+     */
+    private long getKey(int column, DataType type, int row) {
+        if (store.isNull(column, row)) {
+            return 0x9E3779B97F4A7C15L;
+        }
+
+        if (type == DataType.DOUBLE || type == DataType.FLOAT) {
+            return Double.doubleToLongBits(store.getDouble(column, row));
+        }
+        return store.getInt(column, row);
+    }
+    //</editor-fold>
+}
@@ -0,0 +1,33 @@
+/*
+ * QCRI, NADEEF LICENSE
+ * NADEEF is an extensible, generalized and easy-to-deploy data cleaning platform built at QCRI.
+ * NADEEF means "Clean" in Arabic
+ *
+ * Copyright (c) 2011-2013, Qatar Foundation for Education, Science and Community Development (on
+ * behalf of Qatar Computing Research Institute) having its principle place of business in Doha,
+ * Qatar with the registered address P.O box 5825 Doha, Qatar (hereinafter referred to as "QCRI")
+ *
+ * NADEEF has patent pending nevertheless the following is granted.
+ * NADEEF is released under the terms of the MIT License, (http://opensource.org/licenses/MIT).
+ */
+
+package qa.qcri.nadeef.core.datamodel;
+
+/**
+ * ForkableResultHandler is an {@link IteratorResultHandler} which can be fed from several
+ * threads. Each thread works on its own forked handler, which is joined back once the
+ * thread is done with it.
+ */
+public interface ForkableResultHandler extends IteratorResultHandler {
+    /**
+     * Creates a handler for one thread.
+     * @return forked handler.
+     */
+    public IteratorResultHandler fork();
+
+    /**
+     * Hands the results of a forked handler over, the forked handler is not used any more.
+     * @param handler forked handler.
+     */
+    public void join(IteratorResultHandler handler);
+}
@@ -0,0 +1,306 @@
+/*
+ * QCRI, NADEEF LICENSE
+ * NADEEF is an extensible, generalized and easy-to-deploy data cleaning platform built at QCRI.
+ * NADEEF means "Clean" in Arabic
+ *
+ * Copyright (c) 2011-2013, Qatar Foundation for Education, Science and Community Development (on
+ * behalf of Qatar Computing Research Institute) having its principle place of business in Doha,
+ * Qatar with the registered address P.O box 5825 Doha, Qatar (hereinafter referred to as "QCRI")
+ *
+ * NADEEF has patent pending nevertheless the following is granted.
+ * NADEEF is released under the terms of the MIT License, (http://opensource.org/licenses/MIT).
+ */
+
+package qa.qcri.nadeef.core.datamodel;
+
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import qa.qcri.nadeef.tools.Logger;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * GroupPartitioner partitions the positions of a table into groups of equal keys. Keys are
+ * hashed from the typed values into a primitive open-addressing map of group ids, rows with
+ * the same hash are compared exactly. Large tables are partitioned in two phases, each
+ * thread groups a range of positions into a local map and the local groups are merged.
+ *
+ * Groups follow the order of the first appearance, and the positions of a group keep the
+ * table order. The result is one position array where each group is a range.
+ */
+abstract class GroupPartitioner {
+    private static Logger tracer = Logger.getLogger(GroupPartitioner.class);
+    // tables below this size are partitioned by the calling thread.
+    private static final int MIN_PARALLEL_SIZE = 1 << 16;
+    private static final int MAX_THREAD_NUM = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Groups of a partition.
+     */
+    static class Groups {
+        // positions ordered by the group.
+        final int[] positions;
+        // group i is positions[offsets[i], offsets[i + 1]).
+        final int[] offsets;
+
+        Groups(int[] positions, int[] offsets) {
+            this.positions = positions;
+            this.offsets = offsets;
+        }
+
+        int size() {
+            return offsets.length - 1;
+        }
+
+        int[] get(int group) {
+            return Arrays.copyOfRange(positions, offsets[group], offsets[group + 1]);
+        }
+    }
+
+    /**
+     * Open-addressing map of group ids, a group is represented by its first position.
+     */
+    private class GroupMap {
+        private int[] slots;
+        private int mask;
+        private long[] hashes;
+        private int[] representatives;
+        private int size;
+
+        GroupMap(int expectedSize) {
+            int capacity = Integer.highestOneBit(Math.max(expectedSize, 8) * 2 - 1) << 1;
+            slots = new int[capacity];
+            Arrays.fill(slots, -1);
+            mask = capacity - 1;
+            hashes = new long[16];
+            representatives = new int[16];
+        }
+
+        /**
+         * Gets the group id of a key, a new group is added when the key is new.
+         */
+        int findOrAdd(long hash, int position) {
+            int slot = mix(hash) & mask;
+            while (true) {
+                int group = slots[slot];
+                if (group == -1) {
+                    break;
+                }
+
+                if (hashes[group] == hash && isEqual(representatives[group], position)) {
+                    return group;
+                }
+                slot = (slot + 1) & mask;
+            }
+
+            if (size == hashes.length) {
+                hashes = Arrays.copyOf(hashes, size * 2);
+                representatives = Arrays.copyOf(representatives, size * 2);
+            }
+            hashes[size] = hash;
+            representatives[size] = position;
+            slots[slot] = size;
+            size ++;
+            if (size * 2 > slots.length) {
+                rehash();
+            }
+            return size - 1;
+        }
+
+        private void rehash() {
+            slots = new int[slots.length * 2];
+            Arrays.fill(slots, -1);
+            mask = slots.length - 1;
+            for (int group = 0; group < size; group ++) {
+                int slot = mix(hashes[group]) & mask;
+                while (slots[slot] != -1) {
+                    slot = (slot + 1) & mask;
+                }
+                slots[slot] = group;
+            }
+        }
+    }
+
+    //<editor-fold desc="Abstract methods">
+    /**
+     * Hashes the key of a position.
+     */
+    protected abstract long hash(int position);
+
+    /**
+     * Returns <code>True</code> when two positions have the same key.
+     */
+    protected abstract boolean isEqual(int position1, int position2);
+    //</editor-fold>
+
+    //<editor-fold desc="Package methods">
+    /**
+     * Partitions the positions <code>[0, size)</code>.
+     * @param size number of positions.
+     * @return groups.
+     */
+    Groups partition(int size) {
+        int threadNumber = Math.min(MAX_THREAD_NUM, size / (MIN_PARALLEL_SIZE / 2));
+        if (threadNumber <= 1) {
+            return partitionSingle(size);
+        }
+
+        ExecutorService executor =
+            Executors.newFixedThreadPool(
+                threadNumber,
+                new ThreadFactoryBuilder().setNameFormat("partition-%d").setDaemon(true).build()
+            );
+        try {
+            return partitionParallel(size, threadNumber, executor);
+        } catch (Exception ex) {
+            tracer.error("Parallel partition failed, fall back to one thread.", ex);
+            return partitionSingle(size);
+        } finally {
+            executor.shutdown();
+        }
+    }
+    //</editor-fold>
+
+    //<editor-fold desc="Private methods">
+    private Groups partitionSingle(int size) {
+        GroupMap map = new GroupMap(16);
+        int[] groupIds = new int[size];
+        int[] counts = new int[16];
+        for (int i = 0; i < size; i ++) {
+            int group = map.findOrAdd(hash(i), i);
+            if (group == counts.length) {
+                counts = Arrays.copyOf(counts, counts.length * 2);
+            }
+            groupIds[i] = group;
+            counts[group] ++;
+        }
+
+        int[] offsets = new int[map.size + 1];
+        for (int i = 0; i < map.size; i ++) {
+            offsets[i + 1] = offsets[i] + counts[i];
+        }
+
+        int[] cursors = Arrays.copyOf(offsets, map.size);
+        int[] positions = new int[size];
+        for (int i = 0; i < size; i ++) {
+            positions[cursors[groupIds[i]] ++] = i;
+        }
+        return new Groups(positions, offsets);
+    }
+
+    private Groups partitionParallel(
+        int size,
+        int threadNumber,
+        ExecutorService executor
+    ) throws Exception {
+        final int[] groupIds = new int[size];
+        final int[] starts = new int[threadNumber + 1];
+        for (int i = 0; i <= threadNumber; i ++) {
+            starts[i] = (int)((long)size * i / threadNumber);
+        }
+
+        // phase 1: each thread groups its range into a local map.
+        List<Future<GroupMap>> localFutures = Lists.newArrayList();
+        for (int i = 0; i < threadNumber; i ++) {
+            final int start = starts[i];
+            final int end = starts[i + 1];
+            localFutures.add(executor.submit(new Callable<GroupMap>() {
+                @Override
+                public GroupMap call() {
+                    GroupMap map = new GroupMap(16);
+                    for (int j = start; j < end; j ++) {
+                        groupIds[j] = map.findOrAdd(hash(j), j);
+                    }
+                    return map;
+                }
+            }));
+        }
+
+        // merge the local groups in the range order, so the groups keep the first appearance.
+        GroupMap global = new GroupMap(16);
+        final int[][] mappings = new int[threadNumber][];
+        for (int i = 0; i < threadNumber; i ++) {
+            GroupMap local = localFutures.get(i).get();
+            mappings[i] = new int[local.size];
+            for (int j = 0; j < local.size; j ++) {
+                mappings[i][j] = global.findOrAdd(local.hashes[j], local.representatives[j]);
+            }
+        }
+
+        // phase 2: relabel the positions and count the group sizes of each range.
+        final int groupNumber = global.size;
+        List<Future<int[]>> countFutures = Lists.newArrayList();
+        for (int i = 0; i < threadNumber; i ++) {
+            final int start = starts[i];
+            final int end = starts[i + 1];
+            final int[] mapping = mappings[i];
+            countFutures.add(executor.submit(new Callable<int[]>() {
+                @Override
+                public int[] call() {
+                    int[] counts = new int[groupNumber];
+                    for (int j = start; j < end; j ++) {
+                        int group = mapping[groupIds[j]];
+                        groupIds[j] = group;
+                        counts[group] ++;
+                    }
+                    return counts;
+                }
+            }));
+        }
+
+        int[][] counts = new int[threadNumber][];
+        for (int i = 0; i < threadNumber; i ++) {
+            counts[i] = countFutures.get(i).get();
+        }
+
+        // each range writes its positions after the positions of the previous ranges.
+        int[] offsets = new int[groupNumber + 1];
+        final int[][] cursors = new int[threadNumber][groupNumber];
+        for (int group = 0; group < groupNumber; group ++) {
+            int offset = offsets[group];
+            for (int i = 0; i < threadNumber; i ++) {
+                cursors[i][group] = offset;
+                offset += counts[i][group];
+            }
+            offsets[group + 1] = offset;
+        }
+
+        final int[] positions = new int[size];
+        List<Future<Integer>> fillFutures = Lists.newArrayList();
+        for (int i = 0; i < threadNumber; i ++) {
+            final int start = starts[i];
+            final int end = starts[i + 1];
+            final int[] cursor = cursors[i];
+            fillFutures.add(executor.submit(new Callable<Integer>() {
+                @Override
+                public Integer call() {
+                    for (int j = start; j < end; j ++) {
+                        positions[cursor[groupIds[j]] ++] = j;
+                    }
+                    return end - start;
+                }
+            }));
+        }
+
+        for (Future<Integer> future : fillFutures) {
+            future.get();
+        }
+        return new Groups(positions, offsets);
+    }
+
+    /**
+     * Spreads the hash bits over the slot index.
+     */
+    private static int mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return (int)hash;
+    }
+    //</editor-fold>
+}
@@ -0,0 +1,549 @@
+/*
+ * QCRI, NADEEF LICENSE
+ * NADEEF is an extensible, generalized and easy-to-deploy data cleaning platform built at QCRI.
+ * NADEEF means "Clean" in Arabic
+ *
+ * Copyright (c) 2011-2013, Qatar Foundation for Education, Science and Community Development (on
+ * behalf of Qatar Computing Research Institute) having its principle place of business in Doha,
+ * Qatar with the registered address P.O box 5825 Doha, Qatar (hereinafter referred to as "QCRI")
+ *
+ * NADEEF has patent pending nevertheless the following is granted.
+ * NADEEF is released under the terms of the MIT License, (http://opensource.org/licenses/MIT).
+ */
+
+package qa.qcri.nadeef.core.datamodel;
+
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import qa.qcri.nadeef.tools.Logger;
+import qa.qcri.nadeef.tools.PerfReport;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * IEJoin generates the candidate pairs of a denial constraint from its inequality predicates
+ * between two tuples. The tuples are sorted on the column of the first inequality and swept
+ * in that order, a bit array over the tuples sorted on the column of the second inequality
+ * marks the tuples already passed, so a tuple only scans the marked bits on the matching
+ * side of its own value. A pair is emitted once when the inequalities hold in either order,
+ * the other predicates are left to the rule.
+ *
+ * Tuples with a null value in a join column are paired with every tuple, since predicates
+ * on null values do not follow the order. The pairs are emitted while the sweep runs, and
+ * the sweep of a large table is partitioned across cores when the handler can be forked.
+ */
+public class IEJoin implements CandidateGenerator {
+    private static Logger tracer = Logger.getLogger(IEJoin.class);
+    private static final int MIN_PARALLEL_SIZE = 1 << 12;
+    private static final int MAX_THREAD_NUM = Runtime.getRuntime().availableProcessors();
+
+    private final List<Predicate> inequalities = Lists.newArrayList();
+
+    //<editor-fold desc="Constructors">
+    /**
+     * Constructor.
+     * @param predicates predicates of the denial constraint, the first two inequalities
+     *                   between two tuples are joined.
+     */
+    public IEJoin(List<Predicate> predicates) {
+        for (Predicate predicate : predicates) {
+            if (isInequality(predicate) && inequalities.size() < 2) {
+                inequalities.add(predicate);
+            }
+        }
+    }
+    //</editor-fold>
+
+    //<editor-fold desc="Public methods">
+    /**
+     * Returns <code>True</code> when there is an inequality to join on.
+     */
+    public boolean hasInequality() {
+        return inequalities.size() > 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void iterator(Table table, IteratorResultHandler handler) {
+        Tuple[] tuples = new Tuple[table.size()];
+        for (int i = 0; i < tuples.length; i ++) {
+            tuples[i] = table.get(i);
+        }
+        iterate(tuples, 0, handler);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void iterator(Table left, Table right, IteratorResultHandler handler) {
+        Tuple[] tuples = new Tuple[left.size() + right.size()];
+        for (int i = 0; i < left.size(); i ++) {
+            tuples[i] = left.get(i);
+        }
+
+        for (int i = 0; i < right.size(); i ++) {
+            tuples[left.size() + i] = right.get(i);
+        }
+        iterate(tuples, left.size(), handler);
+    }
+    //</editor-fold>
+
+    //<editor-fold desc="Join">
+    /**
+     * One sweep of the join, pairs each tuple of <code>r</code> as the left operand with the
+     * tuples of <code>s</code> as the right operand.
+     */
+    private static class Sweep {
+        private final Tuple[] tuples;
+        private final Predicate first;
+        private final Predicate second;
+        private final int[] r;
+        private final int[] s;
+        private final boolean isSelf;
+        // positions of s sorted on the right column of the second inequality.
+        private final int[] sOrder;
+        // bit of each s position in the bit array.
+        private final int[] bits;
+        // sweep order, the tuple of r is encoded as -(position + 1).
+        private final int[] events;
+
+        Sweep(Tuple[] tuples, List<Predicate> inequalities, int[] r, int[] s, boolean isSelf) {
+            this.tuples = tuples;
+            this.first = inequalities.get(0);
+            this.second = inequalities.size() > 1 ? inequalities.get(1) : null;
+            this.r = r;
+            this.s = s;
+            this.isSelf = isSelf;
+
+            sOrder = second == null ? s : sort(tuples, s, getRightOrdinal(second));
+            bits = new int[tuples.length];
+            for (int i = 0; i < sOrder.length; i ++) {
+                bits[sOrder[i]] = i;
+            }
+            events = getEvents();
+        }
+
+        /**
+         * Sweeps the events in <code>[start, end)</code> and emits the pairs as they are
+         * found.
+         * @param isReverse the sweep pairs right tuples as the left operand, the pairs which
+         *                  are already emitted by the forward sweep are skipped.
+         * @return the number of emitted pairs.
+         */
+        long sweep(int start, int end, boolean isReverse, IteratorResultHandler handler) {
+            long[] marks = new long[(sOrder.length + 63) >>> 6];
+            for (int i = 0; i < start; i ++) {
+                if (events[i] >= 0) {
+                    mark(marks, bits[events[i]]);
+                }
+            }
+
+            int ordinal = second == null ? 0 : getLeftOrdinal(second);
+            int rightOrdinal = second == null ? 0 : getRightOrdinal(second);
+            long count = 0;
+            for (int i = start; i < end; i ++) {
+                int event = events[i];
+                if (event >= 0) {
+                    mark(marks, bits[event]);
+                    continue;
+                }
+
+                int x = -event - 1;
+                int lo = 0;
+                int hi = sOrder.length;
+                if (second != null) {
+                    switch (second.getOperation()) {
+                        case GT:
+                            hi = search(x, ordinal, rightOrdinal, false);
+                            break;
+                        case GTE:
+                            hi = search(x, ordinal, rightOrdinal, true);
+                            break;
+                        case LT:
+                            lo = search(x, ordinal, rightOrdinal, true);
+                            break;
+                        default:
+                            lo = search(x, ordinal, rightOrdinal, false);
+                    }
+                }
+                count += scan(marks, lo, hi, x, isReverse, handler);
+            }
+            return count;
+        }
+
+        /**
+         * Emits the marked tuples in <code>[lo, hi)</code> of the sorted s.
+         */
+        private long scan(
+            long[] marks,
+            int lo,
+            int hi,
+            int x,
+            boolean isReverse,
+            IteratorResultHandler handler
+        ) {
+            long count = 0;
+            for (int word = lo >>> 6; word < marks.length && word << 6 < hi; word ++) {
+                long value = marks[word];
+                while (value != 0) {
+                    int bit = (word << 6) + Long.numberOfTrailingZeros(value);
+                    value &= value - 1;
+                    if (bit < lo) {
+                        continue;
+                    }
+
+                    if (bit >= hi) {
+                        break;
+                    }
+
+                    int y = sOrder[bit];
+                    if (x == y || !isFirst(x, y)) {
+                        continue;
+                    }
+
+                    if (isReverse) {
+                        if (isValid(y, x)) {
+                            continue;
+                        }
+                        handler.handle(new TuplePair(tuples[y], tuples[x]));
+                    } else {
+                        handler.handle(new TuplePair(tuples[x], tuples[y]));
+                    }
+                    count ++;
+                }
+            }
+            return count;
+        }
+
+        /**
+         * Returns <code>True</code> when the pair is emitted in this order, a pair which also
+         * holds the other way round is only emitted from its smaller position.
+         */
+        private boolean isFirst(int x, int y) {
+            if (isSelf) {
+                return x < y || !isValid(y, x);
+            }
+            return true;
+        }
+
+        private boolean isValid(int x, int y) {
+            return first.isValid(tuples[x], tuples[y]) &&
+                (second == null || second.isValid(tuples[x], tuples[y]));
+        }
+
+        /**
+         * Binary search of the first sorted s whose value is larger, or not smaller when
+         * <code>isUpper</code> is false, than the left value of tuple x.
+         */
+        private int search(int x, int leftOrdinal, int rightOrdinal, boolean isUpper) {
+            int lo = 0;
+            int hi = sOrder.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                int compare =
+                    Tuple.compareValue(tuples[sOrder[mid]], rightOrdinal, tuples[x], leftOrdinal);
+                if (compare < 0 || isUpper && compare == 0) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+
+        /**
+         * Orders r and s on the first inequality, every s which pairs with a tuple of r comes
+         * before it.
+         */
+        private int[] getEvents() {
+            final int leftOrdinal = getLeftOrdinal(first);
+            final int rightOrdinal = getRightOrdinal(first);
+            final Operation operation = first.getOperation();
+            // r > s sweeps ascending, r < s descending.
+            final int direction =
+                operation == Operation.GT || operation == Operation.GTE ? 1 : -1;
+            // on equal values strict operations put r first, so the equal s is not marked yet.
+            final boolean isStrict = operation == Operation.GT || operation == Operation.LT;
+
+            Integer[] order = new Integer[r.length + s.length];
+            for (int i = 0; i < r.length; i ++) {
+                order[i] = -r[i] - 1;
+            }
+
+            for (int i = 0; i < s.length; i ++) {
+                order[r.length + i] = s[i];
+            }
+
+            Arrays.sort(order, new Comparator<Integer>() {
+                @Override
+                public int compare(Integer o1, Integer o2) {
+                    boolean isR1 = o1 < 0;
+                    boolean isR2 = o2 < 0;
+                    int x = isR1 ? -o1 - 1 : o1;
+                    int y = isR2 ? -o2 - 1 : o2;
+                    int result =
+                        Tuple.compareValue(
+                            tuples[x],
+                            isR1 ? leftOrdinal : rightOrdinal,
+                            tuples[y],
+                            isR2 ? leftOrdinal : rightOrdinal
+                        ) * direction;
+                    if (result != 0 || isR1 == isR2) {
+                        return result;
+                    }
+                    return isR1 == isStrict ? -1 : 1;
+                }
+            });
+
+            int[] result = new int[order.length];
+            for (int i = 0; i < order.length; i ++) {
+                result[i] = order[i];
+            }
+            return result;
+        }
+
+        private int getLeftOrdinal(Predicate predicate) {
+            return predicate.getLeftHandle().getOrdinal(tuples[r[0]].getSchema());
+        }
+
+        private int getRightOrdinal(Predicate predicate) {
+            return predicate.getRightHandle().getOrdinal(tuples[s[0]].getSchema());
+        }
+
+        private static void mark(long[] marks, int bit) {
+            marks[bit >>> 6] |= 1L << bit;
+        }
+
+        private static int[] sort(final Tuple[] tuples, int[] positions, final int ordinal) {
+            Integer[] order = new Integer[positions.length];
+            for (int i = 0; i < positions.length; i ++) {
+                order[i] = positions[i];
+            }
+
+            Arrays.sort(order, new Comparator<Integer>() {
+                @Override
+                public int compare(Integer o1, Integer o2) {
+                    return Tuple.compareValue(tuples[o1], ordinal, tuples[o2], ordinal);
+                }
+            });
+
+            int[] result = new int[order.length];
+            for (int i = 0; i < order.length; i ++) {
+                result[i] = order[i];
+            }
+            return result;
+        }
+    }
+    //</editor-fold>
+
+    //<editor-fold desc="Private methods">
+    /**
+     * Joins the tuples.
+     * @param tuples input tuples.
+     * @param leftSize number of the left tuples, 0 when the pairs are within one table.
+     * @param handler result handler.
+     */
+    private void iterate(Tuple[] tuples, int leftSize, IteratorResultHandler handler) {
+        long total =
+            leftSize > 0 ?
+                (long)leftSize * (tuples.length - leftSize) :
+                (long)tuples.length * (tuples.length - 1) / 2;
+        if (tuples.length == 0) {
+            return;
+        }
+
+        List<Predicate> joined = getJoinable(tuples, leftSize);
+        long count = 0;
+        if (leftSize == 0) {
+            int[][] split = split(tuples, 0, tuples.length, joined);
+            count += pairAll(tuples, split[1], split[0], false, handler);
+            count += pairAll(tuples, split[1], split[1], true, handler);
+            if (joined.size() > 0 && split[0].length > 1) {
+                Sweep sweep = new Sweep(tuples, joined, split[0], split[0], true);
+                count += emit(sweep, false, handler);
+            } else {
+                count += pairAll(tuples, split[0], split[0], true, handler);
+            }
+        } else {
+            int[][] left = split(tuples, 0, leftSize, joined);
+            int[][] right = split(tuples, leftSize, tuples.length, joined);
+            count += pairAll(tuples, left[1], concat(right[0], right[1]), false, handler);
+            count += pairAll(tuples, left[0], right[1], false, handler);
+            if (joined.size() > 0 && left[0].length > 0 && right[0].length > 0) {
+                Sweep forward = new Sweep(tuples, joined, left[0], right[0], false);
+                count += emit(forward, false, handler);
+                Sweep reverse = new Sweep(tuples, joined, right[0], left[0], false);
+                count += emit(reverse, true, handler);
+            } else {
+                count += pairAll(tuples, left[0], right[0], false, handler);
+            }
+        }
+
+        long reduction = total == 0 ? 0 : 100 - count * 100 / total;
+        PerfReport.appendMetric(PerfReport.Metric.CandidatePairs, count);
+        PerfReport.appendMetric(PerfReport.Metric.CandidateReduction, reduction);
+        tracer.fine("IEJoin found " + count + " candidates out of " + total + " pairs.");
+    }
+
+    /**
+     * Runs the sweep and emits the pairs. Large sweeps are partitioned across cores when the
+     * handler can be forked, each partition emits into its own forked handler.
+     * @param isReverse the sweep pairs right tuples as the left operand, the pairs which
+     *                  are already emitted by the forward sweep are skipped.
+     */
+    private long emit(
+        final Sweep sweep,
+        final boolean isReverse,
+        IteratorResultHandler handler
+    ) {
+        final int n = sweep.events.length;
+        int threadNumber = Math.min(MAX_THREAD_NUM, n / MIN_PARALLEL_SIZE);
+        if (threadNumber <= 1 || !(handler instanceof ForkableResultHandler)) {
+            return sweep.sweep(0, n, isReverse, handler);
+        }
+
+        ForkableResultHandler forkable = (ForkableResultHandler)handler;
+        ExecutorService executor =
+            Executors.newFixedThreadPool(
+                threadNumber,
+                new ThreadFactoryBuilder().setNameFormat("iejoin-%d").setDaemon(true).build()
+            );
+        try {
+            List<IteratorResultHandler> forks = Lists.newArrayList();
+            List<Future<Long>> futures = Lists.newArrayList();
+            for (int i = 0; i < threadNumber; i ++) {
+                final int start = (int)((long)n * i / threadNumber);
+                final int end = (int)((long)n * (i + 1) / threadNumber);
+                final IteratorResultHandler forked = forkable.fork();
+                forks.add(forked);
+                futures.add(executor.submit(new Callable<Long>() {
+                    @Override
+                    public Long call() {
+                        return sweep.sweep(start, end, isReverse, forked);
+                    }
+                }));
+            }
+
+            long count = 0;
+            for (Future<Long> future : futures) {
+                count += future.get();
+            }
+
+            for (IteratorResultHandler forked : forks) {
+                forkable.join(forked);
+            }
+            return count;
+        } catch (Exception ex) {
+            throw new RuntimeException("IEJoin failed.", ex);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Emits all the pairs of the positions, once per pair when the positions are the same.
+     */
+    private static long pairAll(
+        Tuple[] tuples,
+        int[] left,
+        int[] right,
+        boolean isSelf,
+        IteratorResultHandler handler
+    ) {
+        long count = 0;
+        for (int i = 0; i < left.length; i ++) {
+            for (int j = isSelf ? i + 1 : 0; j < right.length; j ++) {
+                handler.handle(new TuplePair(tuples[left[i]], tuples[right[j]]));
+                count ++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Splits the positions in <code>[start, end)</code> into the tuples without and with
+     * null join values.
+     */
+    private static int[][] split(Tuple[] tuples, int start, int end, List<Predicate> joined) {
+        int[] values = new int[end - start];
+        int[] nulls = new int[end - start];
+        int valueSize = 0;
+        int nullSize = 0;
+        for (int i = start; i < end; i ++) {
+            if (hasNull(tuples[i], joined)) {
+                nulls[nullSize ++] = i;
+            } else {
+                values[valueSize ++] = i;
+            }
+        }
+        return new int[][] { Arrays.copyOf(values, valueSize), Arrays.copyOf(nulls, nullSize) };
+    }
+
+    private static boolean hasNull(Tuple tuple, List<Predicate> joined) {
+        for (Predicate predicate : joined) {
+            if (
+                tuple.isNull(predicate.getLeftHandle().getOrdinal(tuple.getSchema())) ||
+                tuple.isNull(predicate.getRightHandle().getOrdinal(tuple.getSchema()))
+            ) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the inequalities whose two columns are ordered the same way, values of
+     * different kinds are compared as strings and can not be swept.
+     */
+    private List<Predicate> getJoinable(Tuple[] tuples, int leftSize) {
+        List<Predicate> result = Lists.newArrayList();
+        Tuple left = tuples[0];
+        Tuple right = tuples[tuples.length - 1];
+        for (Predicate predicate : inequalities) {
+            if (
+                isComparable(left, right, predicate) &&
+                (leftSize == 0 || isComparable(right, left, predicate))
+            ) {
+                result.add(predicate);
+            }
+        }
+        return result;
+    }
+
+    private static boolean isComparable(Tuple left, Tuple right, Predicate predicate) {
+        DataType leftType =
+            left.getType(predicate.getLeftHandle().getOrdinal(left.getSchema()));
+        DataType rightType =
+            right.getType(predicate.getRightHandle().getOrdinal(right.getSchema()));
+        return leftType == rightType ||
+            Tuple.isNumerical(leftType) && Tuple.isNumerical(rightType);
+    }
+
+    private static boolean isInequality(Predicate predicate) {
+        if (predicate.isSingle() || predicate.isRightConstant()) {
+            return false;
+        }
+
+        Operation operation = predicate.getOperation();
+        return operation == Operation.GT ||
+            operation == Operation.GTE ||
+            operation == Operation.LT ||
+            operation == Operation.LTE;
+    }
+
+    private static int[] concat(int[] first, int[] second) {
+        int[] result = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, result, first.length, second.length);
+        return result;
+    }
+    //</editor-fold>
+}
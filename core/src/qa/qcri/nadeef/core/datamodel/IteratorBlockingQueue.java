@@ -24,7 +24,7 @@ import java.util.concurrent.TimeUnit;
 /**
  * Streaming output (Bounded Queued Buffer).
  */
-public class IteratorBlockingQueue implements IteratorResultHandler {
+public class IteratorBlockingQueue implements ForkableResultHandler {
     private static final long TIMEOUT;
     private static final int BUFFER_BOUNDARY;
     private static final int MAX_QUEUE_BOUNDARY;
@@ -91,6 +91,22 @@ public class IteratorBlockingQueue implements IteratorResultHandler {
         buffer.add(item);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public IteratorResultHandler fork() {
+        return new IteratorBlockingQueue();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void join(IteratorResultHandler handler) {
+        ((IteratorBlockingQueue)handler).flush();
+    }
+
     /**
      * Flush the remaining buffer.
      */
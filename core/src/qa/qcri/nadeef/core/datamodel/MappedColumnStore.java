@@ -0,0 +1,729 @@
+/*
+ * QCRI, NADEEF LICENSE
+ * NADEEF is an extensible, generalized and easy-to-deploy data cleaning platform built at QCRI.
+ * NADEEF means "Clean" in Arabic
+ *
+ * Copyright (c) 2011-2013, Qatar Foundation for Education, Science and Community Development (on
+ * behalf of Qatar Computing Research Institute) having its principle place of business in Doha,
+ * Qatar with the registered address P.O box 5825 Doha, Qatar (hereinafter referred to as "QCRI")
+ *
+ * NADEEF has patent pending nevertheless the following is granted.
+ * NADEEF is released under the terms of the MIT License, (http://opensource.org/licenses/MIT).
+ */
+
+package qa.qcri.nadeef.core.datamodel;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import qa.qcri.nadeef.tools.Logger;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * MappedColumnStore is a {@link ColumnStore} kept off-heap in memory-mapped files, so a
+ * table larger than the JVM heap can be loaded. Rows are written into a fixed-width file,
+ * each record holds the tuple id, the null markers and one 4 bytes (INTEGER, BOOL and the
+ * dictionary codes of STRING / TIMESTAMP) or 8 bytes (DOUBLE / FLOAT) slot per column.
+ * Distinct strings are written once into a variable-length file. Cells are read in place
+ * from the mapping, only the offsets of the distinct strings stay on the heap.
+ *
+ * While building, the strings are deduplicated through an open addressing table of each
+ * column which is kept in a memory-mapped file, equal hashes are compared against the bytes
+ * in the string file. Only the offsets and a small cache of the most recent strings of each
+ * column are on the heap, so the heap used by a build does not grow with the string bytes.
+ *
+ * The files are created under the output path and removed once they are mapped. The store
+ * is read-only.
+ */
+public class MappedColumnStore extends ColumnStore {
+    private static Logger tracer = Logger.getLogger(MappedColumnStore.class);
+    // a mapping is limited to 2GB, the files are mapped in segments of 1GB.
+    private static final long SEGMENT_SIZE = 1L << 30;
+    // number of the most recent strings of a column which are looked up on the heap.
+    private static final int RECENT_STRING_COUNT = 1024;
+    private static final int STRING_BUFFER_SIZE = 1 << 16;
+    private static final HashFunction HASH = Hashing.murmur3_32();
+
+    //<editor-fold desc="Private Fields">
+    private int size;
+    private int recordSize;
+    // byte offset of each column in a record.
+    private int[] offsets;
+    private int rowsPerSegment;
+    private MappedByteBuffer[] rowSegments;
+    private MappedByteBuffer[] stringSegments;
+    // file offsets of the distinct strings of each column, indexed by the dictionary code.
+    private long[][] stringOffsets;
+    // hashes of the distinct strings of each column, a column is hashed on its first use.
+    private volatile long[][] stringHashes;
+    //</editor-fold>
+
+    //<editor-fold desc="CodeTable">
+    /**
+     * CodeTable is an open addressing table of the dictionary codes of a column, kept in a
+     * memory-mapped file. A slot holds the hash and the code + 1 of a string, an empty slot
+     * is 0. The table doubles when it is half full.
+     */
+    private static class CodeTable {
+        private static final long SLOTS_PER_SEGMENT = SEGMENT_SIZE / 8;
+        private MappedByteBuffer[] segments;
+        private long capacity;
+        private long count;
+
+        CodeTable(long capacity) throws IOException {
+            this.capacity = capacity;
+            File file = File.createTempFile("offheap", ".code", getDirectory());
+            file.deleteOnExit();
+            try (
+                RandomAccessFile output = new RandomAccessFile(file, "rw");
+                FileChannel channel = output.getChannel()
+            ) {
+                long length = capacity * 8;
+                output.setLength(length);
+                segments = new MappedByteBuffer[(int)((length + SEGMENT_SIZE - 1) / SEGMENT_SIZE)];
+                for (int i = 0; i < segments.length; i ++) {
+                    long position = i * SEGMENT_SIZE;
+                    segments[i] =
+                        channel.map(
+                            FileChannel.MapMode.READ_WRITE,
+                            position,
+                            Math.min(SEGMENT_SIZE, length - position)
+                        );
+                }
+            } finally {
+                deleteFile(file);
+            }
+        }
+
+        long getSlot(int hash) {
+            return (hash & 0xFFFFFFFFL) & (capacity - 1);
+        }
+
+        long next(long slot) {
+            return (slot + 1) & (capacity - 1);
+        }
+
+        boolean isEmpty(long slot) {
+            return getCode(slot) < 0;
+        }
+
+        int getHash(long slot) {
+            return getSegment(slot).getInt(getPosition(slot));
+        }
+
+        int getCode(long slot) {
+            return getSegment(slot).getInt(getPosition(slot) + 4) - 1;
+        }
+
+        /**
+         * Puts a code into an empty slot.
+         * @return the table, a new one when it is grown.
+         */
+        CodeTable put(long slot, int hash, int code) throws IOException {
+            getSegment(slot).putInt(getPosition(slot), hash);
+            getSegment(slot).putInt(getPosition(slot) + 4, code + 1);
+            count ++;
+            if (count * 2 <= capacity) {
+                return this;
+            }
+
+            CodeTable result = new CodeTable(capacity * 2);
+            for (long i = 0; i < capacity; i ++) {
+                if (!isEmpty(i)) {
+                    int slotHash = getHash(i);
+                    long newSlot = result.getSlot(slotHash);
+                    while (!result.isEmpty(newSlot)) {
+                        newSlot = result.next(newSlot);
+                    }
+                    result.put(newSlot, slotHash, getCode(i));
+                }
+            }
+            return result;
+        }
+
+        private MappedByteBuffer getSegment(long slot) {
+            return segments[(int)(slot / SLOTS_PER_SEGMENT)];
+        }
+
+        private int getPosition(long slot) {
+            return (int)(slot % SLOTS_PER_SEGMENT) * 8;
+        }
+    }
+    //</editor-fold>
+
+    //<editor-fold desc="Builder">
+    /**
+     * Builder which streams rows into the files of a new {@link MappedColumnStore}.
+     */
+    public static class Builder extends ColumnStore.Builder {
+        private MappedColumnStore store;
+        private File rowFile;
+        private File stringFile;
+        private DataOutputStream rowOutput;
+        private RandomAccessFile stringOutput;
+        private FileChannel stringChannel;
+        // the strings after flushedPosition are still in the buffer.
+        private ByteBuffer stringBuffer;
+        private long flushedPosition;
+        private long stringPosition;
+        private ByteBuffer record;
+        private CodeTable[] codeTables;
+        private List<Map<String, Integer>> recentCodes;
+        private int[] stringCounts;
+        private int row;
+
+        /**
+         * Constructor.
+         * @param schema table schema.
+         */
+        public Builder(Schema schema) throws IOException {
+            Preconditions.checkNotNull(schema);
+            store = new MappedColumnStore(schema);
+            int count = schema.size();
+            store.stringOffsets = new long[count][];
+            stringCounts = new int[count];
+            codeTables = new CodeTable[count];
+            recentCodes = Lists.newArrayList();
+            for (int i = 0; i < count; i ++) {
+                if (store.isString(i)) {
+                    codeTables[i] = new CodeTable(1024);
+                    recentCodes.add(new LinkedHashMap<String, Integer>(16, 0.75f, true) {
+                        @Override
+                        protected boolean removeEldestEntry(Map.Entry<String, Integer> eldest) {
+                            return size() > RECENT_STRING_COUNT;
+                        }
+                    });
+                    store.stringOffsets[i] = new long[16];
+                } else {
+                    recentCodes.add(null);
+                }
+            }
+
+            record = ByteBuffer.allocate(store.recordSize);
+            File directory = getDirectory();
+            rowFile = File.createTempFile("offheap", ".row", directory);
+            stringFile = File.createTempFile("offheap", ".str", directory);
+            rowFile.deleteOnExit();
+            stringFile.deleteOnExit();
+            rowOutput =
+                new DataOutputStream(new BufferedOutputStream(new FileOutputStream(rowFile)));
+            stringOutput = new RandomAccessFile(stringFile, "rw");
+            stringChannel = stringOutput.getChannel();
+            stringBuffer = ByteBuffer.allocate(STRING_BUFFER_SIZE);
+            row = -1;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public Builder newRow(int tid) {
+            if (row >= 0) {
+                writeRecord();
+            }
+
+            row ++;
+            Arrays.fill(record.array(), (byte)0);
+            record.putInt(0, tid);
+            for (int i = 0; i < store.offsets.length; i ++) {
+                if (store.isString(i)) {
+                    record.putInt(store.offsets[i], NULL_CODE);
+                }
+            }
+            return this;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public Builder set(int column, Object value) {
+            int offset = store.offsets[column];
+            if (value == null) {
+                if (store.isString(column)) {
+                    record.putInt(offset, NULL_CODE);
+                } else {
+                    int index = 4 + column / 8;
+                    record.put(index, (byte)(record.get(index) | (1 << (column % 8))));
+                }
+                return this;
+            }
+
+            switch (store.getType(column)) {
+                case STRING:
+                case TIMESTAMP:
+                    record.putInt(offset, encode(column, value.toString()));
+                    break;
+                case INTEGER:
+                    if (value instanceof Number) {
+                        record.putInt(offset, ((Number)value).intValue());
+                    } else {
+                        record.putInt(offset, Integer.parseInt(value.toString()));
+                    }
+                    break;
+                case DOUBLE:
+                    if (value instanceof Number) {
+                        record.putDouble(offset, ((Number)value).doubleValue());
+                    } else {
+                        record.putDouble(offset, Double.parseDouble(value.toString()));
+                    }
+                    break;
+                case FLOAT:
+                    if (value instanceof Number) {
+                        record.putDouble(offset, ((Number)value).floatValue());
+                    } else {
+                        record.putDouble(offset, Float.parseFloat(value.toString()));
+                    }
+                    break;
+                case BOOL:
+                    boolean bool;
+                    if (value instanceof Boolean) {
+                        bool = (Boolean)value;
+                    } else {
+                        bool = Boolean.parseBoolean(value.toString());
+                    }
+                    record.putInt(offset, bool ? 1 : 0);
+                    break;
+                default:
+                    throw new UnsupportedOperationException("Unknown data type");
+            }
+            return this;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int size() {
+            return row + 1;
+        }
+
+        /**
+         * Builds the store, the files are mapped and the build time lookups are dropped.
+         * @return column store.
+         */
+        @Override
+        public ColumnStore build() {
+            MappedColumnStore result = store;
+            try {
+                if (row >= 0) {
+                    writeRecord();
+                }
+                rowOutput.close();
+                flush();
+                stringOutput.close();
+
+                result.size = row + 1;
+                for (int i = 0; i < stringCounts.length; i ++) {
+                    if (result.stringOffsets[i] != null) {
+                        result.stringOffsets[i] =
+                            Arrays.copyOf(result.stringOffsets[i], stringCounts[i]);
+                    }
+                }
+
+                long rowSegmentSize = (long)result.rowsPerSegment * result.recordSize;
+                result.rowSegments =
+                    map(rowFile, (long)result.size * result.recordSize, rowSegmentSize);
+                result.stringSegments = map(stringFile, stringPosition, SEGMENT_SIZE);
+            } catch (IOException ex) {
+                throw new RuntimeException("Building the off-heap store failed.", ex);
+            } finally {
+                // a mapping stays valid after its file is removed.
+                deleteFile(rowFile);
+                deleteFile(stringFile);
+                codeTables = null;
+                recentCodes = null;
+                stringBuffer = null;
+                store = null;
+            }
+            return result;
+        }
+
+        private void writeRecord() {
+            try {
+                rowOutput.write(record.array());
+            } catch (IOException ex) {
+                throw new RuntimeException("Writing the off-heap store failed.", ex);
+            }
+        }
+
+        /**
+         * Gets the dictionary code of a string, it is looked up in the recent strings and
+         * then in the code table of the column. A new string is appended into the string
+         * file.
+         */
+        private int encode(int column, String value) {
+            Map<String, Integer> columnRecentCodes = recentCodes.get(column);
+            Integer code = columnRecentCodes.get(value);
+            if (code != null) {
+                return code;
+            }
+
+            byte[] bytes = value.getBytes(Charsets.UTF_8);
+            int hash = HASH.hashBytes(bytes).asInt();
+            try {
+                CodeTable table = codeTables[column];
+                long slot = table.getSlot(hash);
+                while (!table.isEmpty(slot)) {
+                    if (table.getHash(slot) == hash && isSame(column, table.getCode(slot), bytes)) {
+                        code = table.getCode(slot);
+                        break;
+                    }
+                    slot = table.next(slot);
+                }
+
+                if (code == null) {
+                    code = append(column, bytes);
+                    codeTables[column] = table.put(slot, hash, code);
+                }
+            } catch (IOException ex) {
+                throw new RuntimeException("Writing the off-heap store failed.", ex);
+            }
+            columnRecentCodes.put(value, code);
+            return code;
+        }
+
+        /**
+         * Appends a new string into the string file without crossing a segment boundary.
+         * @return the dictionary code of the string.
+         */
+        private int append(int column, byte[] bytes) throws IOException {
+            long length = 4L + bytes.length;
+            Preconditions.checkArgument(length <= SEGMENT_SIZE, "String value is too large.");
+            long remaining = SEGMENT_SIZE - stringPosition % SEGMENT_SIZE;
+            if (length > remaining) {
+                // the gap is left as a hole of the file.
+                flush();
+                stringPosition += remaining;
+                flushedPosition = stringPosition;
+            }
+
+            if (length > stringBuffer.remaining()) {
+                flush();
+            }
+
+            if (length > stringBuffer.capacity()) {
+                ByteBuffer buffer = ByteBuffer.allocate((int)length);
+                buffer.putInt(bytes.length);
+                buffer.put(bytes);
+                buffer.flip();
+                write(buffer);
+            } else {
+                stringBuffer.putInt(bytes.length);
+                stringBuffer.put(bytes);
+            }
+
+            int code = stringCounts[column] ++;
+            long[] columnOffsets = store.stringOffsets[column];
+            if (code == columnOffsets.length) {
+                columnOffsets = Arrays.copyOf(columnOffsets, columnOffsets.length * 2);
+                store.stringOffsets[column] = columnOffsets;
+            }
+            columnOffsets[code] = stringPosition;
+            stringPosition += length;
+            return code;
+        }
+
+        /**
+         * Returns <code>True</code> when the string of a code has the given bytes.
+         */
+        private boolean isSame(int column, int code, byte[] bytes) throws IOException {
+            long offset = store.stringOffsets[column][code];
+            ByteBuffer length = read(offset, 4);
+            if (length.getInt(0) != bytes.length) {
+                return false;
+            }
+            return Arrays.equals(read(offset + 4, bytes.length).array(), bytes);
+        }
+
+        /**
+         * Reads bytes of the string file, a string is either in the buffer or in the file.
+         */
+        private ByteBuffer read(long position, int length) throws IOException {
+            ByteBuffer result = ByteBuffer.allocate(length);
+            if (position >= flushedPosition) {
+                int start = (int)(position - flushedPosition);
+                result.put(stringBuffer.array(), start, length);
+            } else {
+                while (result.hasRemaining()) {
+                    int count = stringChannel.read(result, position + result.position());
+                    if (count < 0) {
+                        throw new IOException("Unexpected end of the string file.");
+                    }
+                }
+            }
+            return result;
+        }
+
+        private void flush() throws IOException {
+            stringBuffer.flip();
+            write(stringBuffer);
+            stringBuffer.clear();
+        }
+
+        private void write(ByteBuffer buffer) throws IOException {
+            while (buffer.hasRemaining()) {
+                flushedPosition += stringChannel.write(buffer, flushedPosition);
+            }
+        }
+    }
+    //</editor-fold>
+
+    //<editor-fold desc="Constructor">
+    private MappedColumnStore(Schema schema) {
+        super(schema);
+        int count = schema.size();
+        offsets = new int[count];
+        // tid and the null markers.
+        int offset = 4 + (count + 7) / 8;
+        for (int i = 0; i < count; i ++) {
+            offsets[i] = offset;
+            DataType type = getType(i);
+            offset += type == DataType.DOUBLE || type == DataType.FLOAT ? 8 : 4;
+        }
+        recordSize = offset;
+        rowsPerSegment = (int)(SEGMENT_SIZE / recordSize);
+    }
+    //</editor-fold>
+
+    //<editor-fold desc="ColumnStore override methods">
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getTid(int row) {
+        return getSegment(row).getInt(getPosition(row));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isNull(int column, int row) {
+        if (isString(column)) {
+            return getInt(column, row) == NULL_CODE;
+        }
+        byte bits = getSegment(row).get(getPosition(row) + 4 + column / 8);
+        return (bits & (1 << (column % 8))) != 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getInt(int column, int row) {
+        return getSegment(row).getInt(getPosition(row) + offsets[column]);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double getDouble(int column, int row) {
+        DataType type = getType(column);
+        if (type == DataType.DOUBLE || type == DataType.FLOAT) {
+            return getSegment(row).getDouble(getPosition(row) + offsets[column]);
+        }
+        return getInt(column, row);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getString(int column, int row) {
+        if (isNull(column, row)) {
+            return null;
+        }
+
+        if (isString(column)) {
+            return decode(column, getInt(column, row));
+        }
+        return getObject(column, row).toString();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object getObject(int column, int row) {
+        if (isNull(column, row)) {
+            return null;
+        }
+
+        Object result;
+        switch (getType(column)) {
+            case STRING:
+            case TIMESTAMP:
+                result = decode(column, getInt(column, row));
+                break;
+            case INTEGER:
+                result = getInt(column, row);
+                break;
+            case DOUBLE:
+                result = getDouble(column, row);
+                break;
+            case FLOAT:
+                result = (float)getDouble(column, row);
+                break;
+            case BOOL:
+                result = getInt(column, row) != 0;
+                break;
+            default:
+                throw new UnsupportedOperationException("Unknown data type");
+        }
+        return result;
+    }
+
+    /**
+     * Gets an estimation of the heap bytes used by the store, the mapped files are not
+     * counted.
+     * @return estimated bytes.
+     */
+    @Override
+    public long getMemorySize() {
+        long result = 0;
+        for (long[] columnOffsets : stringOffsets) {
+            if (columnOffsets != null) {
+                result += 8L * columnOffsets.length;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc} The strings of a column are hashed once, the hashes are kept on the heap.
+     */
+    @Override
+    long getStringHash(int column, int code) {
+        long[][] hashes = stringHashes;
+        if (hashes == null || hashes[column] == null) {
+            hashes = hashStrings(column);
+        }
+        return hashes[column][code];
+    }
+
+    /**
+     * The store is read-only.
+     */
+    @Override
+    void set(int column, int row, Object value) {
+        throw new UnsupportedOperationException("Off-heap store is read-only.");
+    }
+
+    /**
+     * Off-heap stores are not written into snapshots.
+     */
+    @Override
+    void write(DataOutputStream output) throws IOException {
+        throw new IOException("Off-heap store cannot be written into a snapshot.");
+    }
+    //</editor-fold>
+
+    //<editor-fold desc="Private methods">
+    private synchronized long[][] hashStrings(int column) {
+        long[][] result =
+            stringHashes == null ? new long[stringOffsets.length][] : stringHashes.clone();
+        if (result[column] == null) {
+            long[] hashes = new long[stringOffsets[column].length];
+            for (int i = 0; i < hashes.length; i ++) {
+                hashes[i] = hashString(decode(column, i));
+            }
+            result[column] = hashes;
+            stringHashes = result;
+        }
+        return result;
+    }
+
+    private boolean isString(int column) {
+        DataType type = getType(column);
+        return type == DataType.STRING || type == DataType.TIMESTAMP;
+    }
+
+    private MappedByteBuffer getSegment(int row) {
+        return rowSegments[row / rowsPerSegment];
+    }
+
+    private int getPosition(int row) {
+        return (row % rowsPerSegment) * recordSize;
+    }
+
+    private String decode(int column, int code) {
+        long offset = stringOffsets[column][code];
+        // a duplicate keeps the concurrent reads independent.
+        ByteBuffer buffer = stringSegments[(int)(offset / SEGMENT_SIZE)].duplicate();
+        int position = (int)(offset % SEGMENT_SIZE);
+        byte[] bytes = new byte[buffer.getInt(position)];
+        buffer.position(position + 4);
+        buffer.get(bytes);
+        return new String(bytes, Charsets.UTF_8);
+    }
+
+    /**
+     * Maps a file in read-only segments.
+     */
+    private static MappedByteBuffer[] map(File file, long length, long segmentSize)
+        throws IOException {
+        int count = (int)((length + segmentSize - 1) / segmentSize);
+        MappedByteBuffer[] result = new MappedByteBuffer[count];
+        try (
+            RandomAccessFile input = new RandomAccessFile(file, "r");
+            FileChannel channel = input.getChannel()
+        ) {
+            for (int i = 0; i < count; i ++) {
+                long position = i * segmentSize;
+                result[i] =
+                    channel.map(
+                        FileChannel.MapMode.READ_ONLY,
+                        position,
+                        Math.min(segmentSize, length - position)
+                    );
+            }
+        }
+        return result;
+    }
+
+    private static File getDirectory() throws IOException {
+        Path outputPath = NadeefConfiguration.getOutputPath();
+        File directory =
+            new File(
+                outputPath == null ? System.getProperty("java.io.tmpdir") : outputPath.toString(),
+                "offheap"
+            );
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IOException("Cannot create directory " + directory);
+        }
+        return directory;
+    }
+
+    private static void deleteFile(File file) {
+        if (file != null && file.exists() && !file.delete()) {
+            tracer.info("Cannot delete " + file + ", it is deleted on exit.");
+        }
+    }
+    //</editor-fold>
+}
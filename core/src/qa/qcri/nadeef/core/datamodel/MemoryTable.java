@@ -136,35 +136,68 @@ public class MemoryTable extends Table {
             }
         }
 
-        HashMap<String, List<Tuple>> map = new HashMap<>();
-        for (int i = 0; i < size(); i ++) {
-            Tuple tuple = get(i);
-            StringBuilder builder = new StringBuilder();
-            for (Column column : columns) {
-                Object obj = tuple.get(column);
-                if (obj != null) {
-                    builder.append(obj.toString());
+        final ColumnHandle[] handles = ColumnHandle.of(columns);
+        GroupPartitioner partitioner = new GroupPartitioner() {
+            @Override
+            protected long hash(int position) {
+                Tuple tuple = tuples.get(position);
+                Schema tupleSchema = tuple.getSchema();
+                long result = 1;
+                for (ColumnHandle handle : handles) {
+                    result = result * 31 + getKey(tuple, handle.getOrdinal(tupleSchema));
                 }
-                builder.append("_");
+                return result;
             }
 
-            String hash = builder.toString();
-            // TODO: double-check the correctness
-            if (map.containsKey(hash)) {
-                List<Tuple> tupleList = map.get(hash);
-                tupleList.add(tuple);
-            } else {
-                List<Tuple> newGroup = new ArrayList<>();
-                newGroup.add(tuple);
-                map.put(hash, newGroup);
+            @Override
+            protected boolean isEqual(int position1, int position2) {
+                Tuple tuple1 = tuples.get(position1);
+                Tuple tuple2 = tuples.get(position2);
+                for (ColumnHandle handle : handles) {
+                    int ordinal1 = handle.getOrdinal(tuple1.getSchema());
+                    int ordinal2 = handle.getOrdinal(tuple2.getSchema());
+                    boolean isNull = tuple1.isNull(ordinal1);
+                    if (
+                        isNull != tuple2.isNull(ordinal2) ||
+                        !isNull && !Tuple.isSameValue(tuple1, ordinal1, tuple2, ordinal2)
+                    ) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+        };
+
+        GroupPartitioner.Groups groups = partitioner.partition(size());
+        List<Table> result = Lists.newArrayListWithCapacity(groups.size());
+        for (int i = 0; i < groups.size(); i ++) {
+            List<Tuple> group = Lists.newArrayListWithCapacity(groups.offsets[i + 1] - groups.offsets[i]);
+            for (int j = groups.offsets[i]; j < groups.offsets[i + 1]; j ++) {
+                group.add(tuples.get(groups.positions[j]));
             }
+            result.add(MemoryTable.of(group));
+        }
+        return result;
+    }
+
+    /**
+     * Gets a grouping key of a value, numerical values are keyed by the value and the others
+     * by the hash of the string value.
+     */
+    private static long getKey(Tuple tuple, int ordinal) {
+        if (tuple.isNull(ordinal)) {
+            return 0x9E3779B97F4A7C15L;
         }
 
-        List<Table> lists = new ArrayList<>();
-        for (List<Tuple> group : map.values()) {
-            MemoryTable newTable = MemoryTable.of(group);
-            lists.add(newTable);
+        switch (tuple.getType(ordinal)) {
+            case INTEGER:
+            case BOOL:
+                return tuple.getInt(ordinal);
+            case DOUBLE:
+            case FLOAT:
+                return Double.doubleToLongBits(tuple.getDouble(ordinal));
+            default:
+                return tuple.getString(ordinal).hashCode();
         }
-        return lists;
     }
 }
@@ -0,0 +1,313 @@
+/*
+ * QCRI, NADEEF LICENSE
+ * NADEEF is an extensible, generalized and easy-to-deploy data cleaning platform built at QCRI.
+ * NADEEF means "Clean" in Arabic
+ *
+ * Copyright (c) 2011-2013, Qatar Foundation for Education, Science and Community Development (on
+ * behalf of Qatar Computing Research Institute) having its principle place of business in Doha,
+ * Qatar with the registered address P.O box 5825 Doha, Qatar (hereinafter referred to as "QCRI")
+ *
+ * NADEEF has patent pending nevertheless the following is granted.
+ * NADEEF is released under the terms of the MIT License, (http://opensource.org/licenses/MIT).
+ */
+
+package qa.qcri.nadeef.core.datamodel;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import qa.qcri.nadeef.tools.Logger;
+import qa.qcri.nadeef.tools.PerfReport;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * MinHashLSH generates the candidate pairs of a similarity predicate through locality
+ * sensitive hashing. Each value is turned into the set of its padded q-grams and a MinHash
+ * signature of <code>bands * rows</code> hashes, two tuples are a candidate pair when the
+ * signatures agree on all the rows of at least one band. More bands or fewer rows trade
+ * throughput for recall, see <code>general.lshBands</code> and <code>general.lshRows</code>.
+ *
+ * Null values have no signature and are never paired. Signatures of large tables are
+ * computed in parallel.
+ */
+public class MinHashLSH implements CandidateGenerator {
+    private static Logger tracer = Logger.getLogger(MinHashLSH.class);
+    private static final int Q = 3;
+    private static final int MIN_PARALLEL_SIZE = 1 << 12;
+    private static final int MAX_THREAD_NUM = Runtime.getRuntime().availableProcessors();
+
+    private final String leftTable;
+    private final ColumnHandle leftHandle;
+    private final ColumnHandle rightHandle;
+    private final int bands;
+    private final int rows;
+    private final long[] seeds;
+
+    //<editor-fold desc="Constructors">
+    /**
+     * Constructor with the configured bands and rows.
+     * @param leftTable table of the left column.
+     * @param leftColumn compared column of the left table.
+     * @param rightTable table of the right column.
+     * @param rightColumn compared column of the right table.
+     */
+    public MinHashLSH(
+        String leftTable,
+        String leftColumn,
+        String rightTable,
+        String rightColumn
+    ) {
+        this(
+            leftTable,
+            leftColumn,
+            rightTable,
+            rightColumn,
+            NadeefConfiguration.getLshBands(),
+            NadeefConfiguration.getLshRows()
+        );
+    }
+
+    /**
+     * Constructor.
+     * @param leftTable table of the left column.
+     * @param leftColumn compared column of the left table.
+     * @param rightTable table of the right column.
+     * @param rightColumn compared column of the right table.
+     * @param bands number of bands.
+     * @param rows number of rows in one band.
+     */
+    public MinHashLSH(
+        String leftTable,
+        String leftColumn,
+        String rightTable,
+        String rightColumn,
+        int bands,
+        int rows
+    ) {
+        Preconditions.checkArgument(bands > 0 && rows > 0);
+        this.leftTable = leftTable;
+        this.leftHandle = ColumnHandle.of(leftTable, leftColumn);
+        this.rightHandle = ColumnHandle.of(rightTable, rightColumn);
+        this.bands = bands;
+        this.rows = rows;
+
+        // fixed seeds keep the candidates of a rule stable across runs.
+        Random random = new Random(bands * 31 + rows);
+        seeds = new long[bands * rows];
+        for (int i = 0; i < seeds.length; i ++) {
+            seeds[i] = random.nextLong();
+        }
+    }
+    //</editor-fold>
+
+    //<editor-fold desc="Public methods">
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void iterator(Table table, IteratorResultHandler handler) {
+        Tuple[] tuples = new Tuple[table.size()];
+        for (int i = 0; i < tuples.length; i ++) {
+            tuples[i] = table.get(i);
+        }
+        iterate(tuples, 0, handler);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void iterator(Table left, Table right, IteratorResultHandler handler) {
+        Tuple[] tuples = new Tuple[left.size() + right.size()];
+        for (int i = 0; i < left.size(); i ++) {
+            tuples[i] = left.get(i);
+        }
+
+        for (int i = 0; i < right.size(); i ++) {
+            tuples[left.size() + i] = right.get(i);
+        }
+        iterate(tuples, left.size(), handler);
+    }
+    //</editor-fold>
+
+    //<editor-fold desc="Private methods">
+    /**
+     * Bands the signatures into buckets and emits the colliding pairs once. A pair is
+     * emitted by the first band it collides in, so no pair has to be remembered.
+     * @param tuples input tuples.
+     * @param leftSize number of the left tuples, 0 when the pairs are within one table.
+     * @param handler result handler.
+     */
+    private void iterate(Tuple[] tuples, int leftSize, IteratorResultHandler handler) {
+        int[][] signatures = sign(tuples);
+        long[][] keys = new long[tuples.length][];
+        for (int i = 0; i < tuples.length; i ++) {
+            if (signatures[i] == null) {
+                continue;
+            }
+
+            keys[i] = new long[bands];
+            for (int band = 0; band < bands; band ++) {
+                long key = band;
+                for (int row = band * rows; row < (band + 1) * rows; row ++) {
+                    key = key * 31 + signatures[i][row];
+                }
+                keys[i][band] = key;
+            }
+        }
+
+        long count = 0;
+        for (int band = 0; band < bands; band ++) {
+            HashMap<Long, List<Integer>> buckets = Maps.newHashMap();
+            for (int i = 0; i < tuples.length; i ++) {
+                if (keys[i] == null) {
+                    continue;
+                }
+
+                List<Integer> bucket = buckets.get(keys[i][band]);
+                if (bucket == null) {
+                    bucket = Lists.newArrayList();
+                    buckets.put(keys[i][band], bucket);
+                }
+                bucket.add(i);
+            }
+
+            for (List<Integer> bucket : buckets.values()) {
+                for (int i = 0; i < bucket.size(); i ++) {
+                    for (int j = i + 1; j < bucket.size(); j ++) {
+                        int first = bucket.get(i);
+                        int second = bucket.get(j);
+                        if (leftSize > 0 && (first < leftSize) == (second < leftSize)) {
+                            continue;
+                        }
+
+                        // positions within a bucket are ascending, so the left tuple is first.
+                        if (!isPaired(keys[first], keys[second], band)) {
+                            handler.handle(new TuplePair(tuples[first], tuples[second]));
+                            count ++;
+                        }
+                    }
+                }
+            }
+        }
+
+        long total =
+            leftSize > 0 ?
+                (long)leftSize * (tuples.length - leftSize) :
+                (long)tuples.length * (tuples.length - 1) / 2;
+        long reduction = total == 0 ? 0 : 100 - count * 100 / total;
+        PerfReport.appendMetric(PerfReport.Metric.CandidatePairs, count);
+        PerfReport.appendMetric(PerfReport.Metric.CandidateReduction, reduction);
+        tracer.fine("LSH generated " + count + " candidates out of " + total + " pairs.");
+    }
+
+    /**
+     * Returns <code>True</code> when the pair is already emitted by one of the earlier bands.
+     */
+    private static boolean isPaired(long[] left, long[] right, int band) {
+        for (int i = 0; i < band; i ++) {
+            if (left[i] == right[i]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Computes the signatures of the tuples, in parallel for large inputs.
+     */
+    private int[][] sign(final Tuple[] tuples) {
+        final int[][] result = new int[tuples.length][];
+        int threadNumber = Math.min(MAX_THREAD_NUM, tuples.length / MIN_PARALLEL_SIZE);
+        if (threadNumber <= 1) {
+            sign(tuples, result, 0, tuples.length);
+            return result;
+        }
+
+        ExecutorService executor =
+            Executors.newFixedThreadPool(
+                threadNumber,
+                new ThreadFactoryBuilder().setNameFormat("minhash-%d").setDaemon(true).build()
+            );
+        try {
+            List<Future<Integer>> futures = Lists.newArrayList();
+            for (int i = 0; i < threadNumber; i ++) {
+                final int start = (int)((long)tuples.length * i / threadNumber);
+                final int end = (int)((long)tuples.length * (i + 1) / threadNumber);
+                futures.add(executor.submit(new Callable<Integer>() {
+                    @Override
+                    public Integer call() {
+                        sign(tuples, result, start, end);
+                        return end - start;
+                    }
+                }));
+            }
+
+            for (Future<Integer> future : futures) {
+                future.get();
+            }
+        } catch (Exception ex) {
+            tracer.error("Parallel MinHash failed, fall back to one thread.", ex);
+            sign(tuples, result, 0, tuples.length);
+        } finally {
+            executor.shutdown();
+        }
+        return result;
+    }
+
+    private void sign(Tuple[] tuples, int[][] result, int start, int end) {
+        for (int i = start; i < end; i ++) {
+            Tuple tuple = tuples[i];
+            String value =
+                tuple.getString(tuple.isFromTable(leftTable) ? leftHandle : rightHandle);
+            result[i] = value == null ? null : getSignature(value);
+        }
+    }
+
+    /**
+     * Computes the MinHash signature over the padded q-grams of a value.
+     */
+    private int[] getSignature(String value) {
+        StringBuilder builder = new StringBuilder(value.length() + 2 * (Q - 1));
+        for (int i = 0; i < Q - 1; i ++) {
+            builder.append('#');
+        }
+        builder.append(value);
+        for (int i = 0; i < Q - 1; i ++) {
+            builder.append('#');
+        }
+
+        String padded = builder.toString();
+        int[] signature = new int[seeds.length];
+        Arrays.fill(signature, Integer.MAX_VALUE);
+        for (int i = 0; i + Q <= padded.length(); i ++) {
+            int gram = padded.substring(i, i + Q).hashCode();
+            for (int j = 0; j < seeds.length; j ++) {
+                int hash = mix(gram ^ seeds[j]);
+                if (hash < signature[j]) {
+                    signature[j] = hash;
+                }
+            }
+        }
+        return signature;
+    }
+
+    private static int mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return (int)hash;
+    }
+    //</editor-fold>
+}
@@ -125,6 +125,61 @@ public final class NadeefConfiguration {
         properties.setProperty("general.maxIterationNumber", Integer.toString(maxIterationNumber));
     }
 
+    public static void setLoadPartitionNumber(int loadPartitionNumber) {
+        properties.setProperty("general.loadPartition", Integer.toString(loadPartitionNumber));
+    }
+
+    public static void setFetchSize(int fetchSize) {
+        properties.setProperty("general.fetchSize", Integer.toString(fetchSize));
+    }
+
+    public static void setLshBands(int lshBands) {
+        properties.setProperty("general.lshBands", Integer.toString(lshBands));
+    }
+
+    public static void setLshRows(int lshRows) {
+        properties.setProperty("general.lshRows", Integer.toString(lshRows));
+    }
+
+    public static void setExactSimilarityJoin(boolean isExactSimilarityJoin) {
+        properties.setProperty(
+            "general.exactSimilarityJoin",
+            Boolean.toString(isExactSimilarityJoin)
+        );
+    }
+
+    public static void setTilePairs(int tilePairs) {
+        properties.setProperty("general.tilePairs", Integer.toString(tilePairs));
+    }
+
+    public static void setBulkExport(boolean isBulkExport) {
+        properties.setProperty("general.bulkExport", Boolean.toString(isBulkExport));
+    }
+
+    public static void setSnapshotCacheSize(int snapshotCacheSize) {
+        properties.setProperty("general.snapshotCacheSize", Integer.toString(snapshotCacheSize));
+    }
+
+    public static void setSnapshotSpill(boolean isSnapshotSpill) {
+        properties.setProperty("general.snapshotSpill", Boolean.toString(isSnapshotSpill));
+    }
+
+    public static void setFusedDetection(boolean isFusedDetection) {
+        properties.setProperty("general.fusedDetection", Boolean.toString(isFusedDetection));
+    }
+
+    public static void setOffHeap(boolean isOffHeap) {
+        properties.setProperty("general.offHeap", Boolean.toString(isOffHeap));
+    }
+
+    public static void setBlockIndex(boolean isBlockIndex) {
+        properties.setProperty("general.blockIndex", Boolean.toString(isBlockIndex));
+    }
+
+    public static void setBlockMemo(boolean isBlockMemo) {
+        properties.setProperty("general.blockMemo", Boolean.toString(isBlockMemo));
+    }
+
     public static void setAlwaysCompile(boolean isAlwaysCompile) {
         properties.setProperty("general.alwaysCompile", Boolean.toString(isAlwaysCompile));
     }
@@ -177,6 +232,144 @@ public final class NadeefConfiguration {
         );
     }
 
+    /**
+     * Gets the number of rows fetched from the database in one round trip, it is also the
+     * batch size of streaming scans.
+     * @return fetch size.
+     */
+    public static int getFetchSize() {
+        return Integer.parseInt(
+            properties.getProperty("general.fetchSize", "4096")
+        );
+    }
+
+    /**
+     * Gets the number of MinHash bands of the LSH candidate generation, more bands find
+     * more candidates.
+     * @return band number.
+     */
+    public static int getLshBands() {
+        return Integer.parseInt(
+            properties.getProperty("general.lshBands", "20")
+        );
+    }
+
+    /**
+     * Gets the number of MinHash rows in one LSH band, more rows find fewer candidates.
+     * @return row number.
+     */
+    public static int getLshRows() {
+        return Integer.parseInt(
+            properties.getProperty("general.lshRows", "3")
+        );
+    }
+
+    /**
+     * Gets ExactSimilarityJoin option, ER rules generate the candidates of the similarity
+     * predicates through an exact similarity join instead of LSH.
+     * @return <code>True</code> when the exact similarity join is used.
+     */
+    public static boolean getExactSimilarityJoin() {
+        return Boolean.parseBoolean(
+            properties.getProperty("general.exactSimilarityJoin", "false")
+        );
+    }
+
+    /**
+     * Gets the number of tuple pairs in one tile of a large block, pair rules split the
+     * blocks with more pairs into tiles which run in parallel.
+     * @return pair number of a tile.
+     */
+    public static int getTilePairs() {
+        return Integer.parseInt(
+            properties.getProperty("general.tilePairs", "1048576")
+        );
+    }
+
+    /**
+     * Gets the number of partitions a source table is split into when it is loaded.
+     * @return partition number, by default the number of processors.
+     */
+    public static int getLoadPartitionNumber() {
+        return Integer.parseInt(
+            properties.getProperty(
+                "general.loadPartition",
+                Integer.toString(Runtime.getRuntime().availableProcessors())
+            )
+        );
+    }
+
+    /**
+     * Gets BulkExport option, source tables are loaded through the bulk export of the
+     * dialect when it is supported.
+     * @return bulkExport value.
+     */
+    public static boolean getBulkExport() {
+        return Boolean.parseBoolean(
+            properties.getProperty("general.bulkExport", "true"));
+    }
+
+    /**
+     * Gets the size of the table snapshot cache in MB, 0 disables the cache. The cache is
+     * disabled by default.
+     * @return snapshot cache size.
+     */
+    public static int getSnapshotCacheSize() {
+        return Integer.parseInt(
+            properties.getProperty("general.snapshotCacheSize", "0")
+        );
+    }
+
+    /**
+     * Gets SnapshotSpill option, evicted table snapshots are written into files.
+     * @return snapshotSpill value.
+     */
+    public static boolean getSnapshotSpill() {
+        return Boolean.parseBoolean(
+            properties.getProperty("general.snapshotSpill", "false"));
+    }
+
+    /**
+     * Gets FusedDetection option, the rules on the same tables are detected together.
+     * @return fusedDetection value.
+     */
+    public static boolean getFusedDetection() {
+        return Boolean.parseBoolean(
+            properties.getProperty("general.fusedDetection", "false"));
+    }
+
+    /**
+     * Gets OffHeap option, source tables are loaded into memory-mapped files instead of
+     * the heap.
+     * @return offHeap value.
+     */
+    public static boolean getOffHeap() {
+        return Boolean.parseBoolean(
+            properties.getProperty("general.offHeap", "false"));
+    }
+
+    /**
+     * Gets BlockIndex option, the block index of a table is built by the first incremental
+     * detection and kept so that the next ones only load the blocks of the new tuples.
+     * @return blockIndex value.
+     */
+    public static boolean getBlockIndex() {
+        return Boolean.parseBoolean(
+            properties.getProperty("general.blockIndex", "true"));
+    }
+
+    /**
+     * Gets BlockMemo option, the violations of the blocks are kept between detections and
+     * the unchanged blocks are not detected again. It is off by default since the memo keeps
+     * every violation of the last detection, the console turns it on for the iterations of
+     * a run.
+     * @return blockMemo value.
+     */
+    public static boolean getBlockMemo() {
+        return Boolean.parseBoolean(
+            properties.getProperty("general.blockMemo", "false"));
+    }
+
     /**
      * Gets notebook URL.
      * @return Notebook URL.
@@ -0,0 +1,31 @@
+/*
+ * QCRI, NADEEF LICENSE
+ * NADEEF is an extensible, generalized and easy-to-deploy data cleaning platform built at QCRI.
+ * NADEEF means "Clean" in Arabic
+ *
+ * Copyright (c) 2011-2013, Qatar Foundation for Education, Science and Community Development (on
+ * behalf of Qatar Computing Research Institute) having its principle place of business in Doha,
+ * Qatar with the registered address P.O box 5825 Doha, Qatar (hereinafter referred to as "QCRI")
+ *
+ * NADEEF has patent pending nevertheless the following is granted.
+ * NADEEF is released under the terms of the MIT License, (http://opensource.org/licenses/MIT).
+ */
+
+package qa.qcri.nadeef.core.datamodel;
+
+/**
+ * PairResultHandler is an {@link IteratorResultHandler} which takes a pair as the positions
+ * of the two tuples in their blocks, so that no {@link TuplePair} is created for the pairs
+ * which do not violate the rule.
+ */
+public interface PairResultHandler extends IteratorResultHandler {
+    /**
+     * Handles the pair of the i-th tuple of the left block and the j-th tuple of the right
+     * block. Both blocks are the same block for the pairs within a block.
+     * @param left left block.
+     * @param i position in the left block.
+     * @param right right block.
+     * @param j position in the right block.
+     */
+    public void handlePair(Table left, int i, Table right, int j);
+}
@@ -14,18 +14,191 @@
 package qa.qcri.nadeef.core.datamodel;
 
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashSet;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * PairTupleRule represents a rule which deals with pair of tuples.
  *
  */
 public abstract class PairTupleRule extends Rule<TuplePair> {
+    // grouping one tuple costs about as much as checking this number of pairs.
+    private static final int GROUP_COST = 4;
+    private static final int MAX_THREAD_NUM = Runtime.getRuntime().availableProcessors();
+    private static final ForkJoinPool tilePool =
+        new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+    /**
+     * A tile of the pairs of a block, either the pairs within a row range or the pairs
+     * across two row ranges. Tiles with too many pairs are split and run with work stealing.
+     */
+    private static class Tile extends RecursiveAction {
+        private final Table left;
+        private final Table right;
+        private final int leftStart;
+        private final int leftEnd;
+        private final int rightStart;
+        private final int rightEnd;
+        private final boolean isTriangle;
+        private final long maxPairs;
+        private final ForkableResultHandler handler;
+
+        Tile(
+            Table left,
+            int leftStart,
+            int leftEnd,
+            Table right,
+            int rightStart,
+            int rightEnd,
+            boolean isTriangle,
+            long maxPairs,
+            ForkableResultHandler handler
+        ) {
+            this.left = left;
+            this.right = right;
+            this.leftStart = leftStart;
+            this.leftEnd = leftEnd;
+            this.rightStart = rightStart;
+            this.rightEnd = rightEnd;
+            this.isTriangle = isTriangle;
+            this.maxPairs = maxPairs;
+            this.handler = handler;
+        }
+
+        static long getPairCount(int size) {
+            return (long)size * (size - 1) / 2;
+        }
+
+        @Override
+        protected void compute() {
+            int leftSize = leftEnd - leftStart;
+            int rightSize = rightEnd - rightStart;
+            if (isTriangle) {
+                if (getPairCount(leftSize) <= maxPairs) {
+                    IteratorResultHandler forked = handler.fork();
+                    PairResultHandler pairs = asPairHandler(forked);
+                    for (int i = leftStart; i < leftEnd; i ++) {
+                        for (int j = i + 1; j < leftEnd; j ++) {
+                            pairs.handlePair(left, i, left, j);
+                        }
+                    }
+                    handler.join(forked);
+                    return;
+                }
+
+                int mid = leftStart + leftSize / 2;
+                invokeAll(
+                    new Tile(left, leftStart, mid, left, leftStart, mid, true, maxPairs, handler),
+                    new Tile(left, mid, leftEnd, left, mid, leftEnd, true, maxPairs, handler),
+                    new Tile(left, leftStart, mid, left, mid, leftEnd, false, maxPairs, handler)
+                );
+                return;
+            }
+
+            if ((long)leftSize * rightSize <= maxPairs || leftSize <= 1 && rightSize <= 1) {
+                IteratorResultHandler forked = handler.fork();
+                PairResultHandler pairs = asPairHandler(forked);
+                for (int i = leftStart; i < leftEnd; i ++) {
+                    for (int j = rightStart; j < rightEnd; j ++) {
+                        pairs.handlePair(left, i, right, j);
+                    }
+                }
+                handler.join(forked);
+                return;
+            }
+
+            // split the longer side.
+            if (leftSize >= rightSize) {
+                int mid = leftStart + leftSize / 2;
+                invokeAll(
+                    new Tile(
+                        left, leftStart, mid, right, rightStart, rightEnd, false, maxPairs, handler
+                    ),
+                    new Tile(
+                        left, mid, leftEnd, right, rightStart, rightEnd, false, maxPairs, handler
+                    )
+                );
+            } else {
+                int mid = rightStart + rightSize / 2;
+                invokeAll(
+                    new Tile(
+                        left, leftStart, leftEnd, right, rightStart, mid, false, maxPairs, handler
+                    ),
+                    new Tile(
+                        left, leftStart, leftEnd, right, mid, rightEnd, false, maxPairs, handler
+                    )
+                );
+            }
+        }
+    }
+
+    /**
+     * The pairs of a sorted block whose tuples are in different runs of equal tuples, given
+     * as the pairs of each run with all the tuples after it. Runs are grouped into tiles of
+     * about <code>maxPairs</code> pairs, a run with more pairs is split as a {@link Tile}.
+     */
+    private static class RunTile extends RecursiveAction {
+        private final Table table;
+        private final int[] bounds;
+        private final long[] prefix;
+        private final int first;
+        private final int last;
+        private final long maxPairs;
+        private final ForkableResultHandler handler;
+
+        RunTile(
+            Table table,
+            int[] bounds,
+            long[] prefix,
+            int first,
+            int last,
+            long maxPairs,
+            ForkableResultHandler handler
+        ) {
+            this.table = table;
+            this.bounds = bounds;
+            this.prefix = prefix;
+            this.first = first;
+            this.last = last;
+            this.maxPairs = maxPairs;
+            this.handler = handler;
+        }
+
+        @Override
+        protected void compute() {
+            int size = table.size();
+            if (prefix[last] - prefix[first] <= maxPairs) {
+                IteratorResultHandler forked = handler.fork();
+                iterateRuns(table, bounds, first, last, asPairHandler(forked));
+                handler.join(forked);
+                return;
+            }
+
+            if (last - first == 1) {
+                int end = bounds[last];
+                new Tile(
+                    table, bounds[first], end, table, end, size, false, maxPairs, handler
+                ).compute();
+                return;
+            }
+
+            int mid = first + (last - first) / 2;
+            invokeAll(
+                new RunTile(table, bounds, prefix, first, mid, maxPairs, handler),
+                new RunTile(table, bounds, prefix, mid, last, maxPairs, handler)
+            );
+        }
+    }
+
     /**
      * Detect rule with pair tuple.
      *
@@ -34,6 +207,25 @@ public abstract class PairTupleRule extends Rule<TuplePair> {
      */
     public abstract Collection<Violation> detect(TuplePair pair);
 
+    /**
+     * Detect rule with the i-th tuple of the left block and the j-th tuple of the right
+     * block, the violations are added to the sink. By default the pair goes through
+     * {@link #detect(TuplePair)}, rules override it to avoid allocating for the pairs which
+     * do not violate the rule.
+     *
+     * @param left left block.
+     * @param i position in the left block.
+     * @param right right block.
+     * @param j position in the right block.
+     * @param sink violation output.
+     */
+    public void detect(Table left, int i, Table right, int j, ViolationSink sink) {
+        Collection<Violation> result = detect(new TuplePair(left.get(i), right.get(j)));
+        for (Violation violation : result) {
+            sink.add(violation);
+        }
+    }
+
     /**
      * Block operation.
      * @param table a collection of tables.
@@ -45,20 +237,173 @@ public abstract class PairTupleRule extends Rule<TuplePair> {
     }
 
     /**
-     * Iterator operation.
+     * Blocks a single table on the columns which the pairs must agree on. The table is left
+     * as a whole when grouping would save fewer pair checks than it costs, which is the case
+     * for small tables and for keys with a few dominant values.
+     * @param tables a collection of tables.
+     * @param columns key columns.
+     * @return a collection of blocked tables.
+     */
+    protected Collection<Table> blockOn(Collection<Table> tables, List<Column> columns) {
+        if (tables.size() != 1 || columns.size() == 0) {
+            return tables;
+        }
+
+        Table table = tables.iterator().next();
+        int size = table.size();
+        double selectivity = table.getPairSelectivity(columns);
+        if ((1.0 - selectivity) * (size - 1) / 2 < GROUP_COST) {
+            return tables;
+        }
+        return table.groupOn(columns);
+    }
+
+    /**
+     * Gets the columns which {@link #block} groups a single table on. When it is not empty
+     * the blocks of an incremental detection are built only from the new tuples and the
+     * old tuples sharing a key with them. By default the rule is not blocked on columns.
+     * @return block columns.
+     */
+    public List<Column> getBlockColumns() {
+        return Collections.emptyList();
+    }
+
+    /**
+     * Co-block operation. When the two tables have more pairs than
+     * <code>general.tilePairs</code> the larger table is split into row ranges, each range
+     * is paired with the whole smaller table.
+     * @param tables the left and the right table.
+     * @return the tables, or the co-blocks of the tables.
+     */
+    @Override
+    public Collection<Table> coBlock(Collection<Table> tables) {
+        return coBlockOnRange(tables);
+    }
+
+    /**
+     * Co-blocks two tables on the columns which the pairs must agree on, a left block is
+     * paired with the right block of the same key. Null values are one key value, like
+     * {@link Table#groupOn} groups them and the predicates compare them, so the blocks with
+     * null keys are paired as well. The ER rule template calls it from {@link #coBlock} when
+     * the rule has equality predicates between the two tables.
+     * @param tables the left and the right table.
+     * @param leftColumns key columns of the left table.
+     * @param rightColumns key columns of the right table, in the order of the left columns.
+     * @return the co-blocks of the tables.
+     */
+    protected Collection<Table> coBlockOn(
+        Collection<Table> tables,
+        List<Column> leftColumns,
+        List<Column> rightColumns
+    ) {
+        if (tables.size() != 2 || leftColumns.size() == 0) {
+            return coBlockOnRange(tables);
+        }
+
+        Iterator<Table> iterator = tables.iterator();
+        Table left = iterator.next();
+        Table right = iterator.next();
+        HashMap<List<String>, Table> rightBlocks = Maps.newHashMap();
+        for (Table block : right.groupOn(rightColumns)) {
+            if (block.size() > 0) {
+                rightBlocks.put(getKey(block, rightColumns), block);
+            }
+        }
+
+        CoBlocks result = new CoBlocks();
+        for (Table block : left.groupOn(leftColumns)) {
+            if (block.size() == 0) {
+                continue;
+            }
+
+            Table rightBlock = rightBlocks.get(getKey(block, leftColumns));
+            if (rightBlock != null) {
+                result.add(block, rightBlock);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Splits the larger of the two tables into row ranges when the tables have too many
+     * pairs, the smaller table is broadcast to every range.
+     */
+    private static Collection<Table> coBlockOnRange(Collection<Table> tables) {
+        if (tables.size() != 2) {
+            return tables;
+        }
+
+        Iterator<Table> iterator = tables.iterator();
+        Table left = iterator.next();
+        Table right = iterator.next();
+        long pairs = (long)left.size() * right.size();
+        long maxPairs = Math.max(1, NadeefConfiguration.getTilePairs());
+        if (pairs <= maxPairs) {
+            return tables;
+        }
+
+        boolean isLeftLarger = left.size() >= right.size();
+        Table larger = isLeftLarger ? left : right;
+        long partitionNumber = Math.min(MAX_THREAD_NUM * 4, (pairs - 1) / maxPairs + 1);
+        partitionNumber = Math.min(partitionNumber, larger.size());
+        CoBlocks result = new CoBlocks();
+        for (int i = 0; i < partitionNumber; i ++) {
+            int start = (int)((long)larger.size() * i / partitionNumber);
+            int end = (int)((long)larger.size() * (i + 1) / partitionNumber);
+            List<Tuple> tuples = Lists.newArrayListWithCapacity(end - start);
+            for (int j = start; j < end; j ++) {
+                tuples.add(larger.get(j));
+            }
+
+            Table slice = MemoryTable.of(tuples);
+            if (isLeftLarger) {
+                result.add(slice, right);
+            } else {
+                result.add(left, slice);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Iterator operation. Blocks with more pairs than <code>general.tilePairs</code> are
+     * split into tiles which run in parallel when the handler can be forked.
      *
      * @param tables input tuple
      */
     @Override
     public void iterator(Collection<Table> tables, IteratorResultHandler iteratorResultHandler) {
         List<Table> collectionList = Lists.newArrayList(tables);
+        long maxPairs = NadeefConfiguration.getTilePairs();
+        if (iteratorResultHandler instanceof ForkableResultHandler) {
+            ForkableResultHandler handler = (ForkableResultHandler)iteratorResultHandler;
+            Table left = collectionList.get(0);
+            if (collectionList.size() == 1 && Tile.getPairCount(left.size()) > maxPairs) {
+                tilePool.invoke(
+                    new Tile(left, 0, left.size(), left, 0, left.size(), true, maxPairs, handler)
+                );
+                return;
+            }
 
+            if (collectionList.size() > 1) {
+                Table right = collectionList.get(1);
+                if ((long)left.size() * right.size() > maxPairs) {
+                    tilePool.invoke(
+                        new Tile(
+                            left, 0, left.size(), right, 0, right.size(), false, maxPairs, handler
+                        )
+                    );
+                    return;
+                }
+            }
+        }
+
+        PairResultHandler pairs = asPairHandler(iteratorResultHandler);
         if (collectionList.size() == 1) {
             Table tuples = collectionList.get(0);
             for (int i = 0; i < tuples.size(); i ++) {
                 for (int j = i + 1; j < tuples.size(); j ++) {
-                    TuplePair pair = new TuplePair(tuples.get(i), tuples.get(j));
-                    iteratorResultHandler.handle(pair);
+                    pairs.handlePair(tuples, i, tuples, j);
                 }
             }
         } else {
@@ -66,8 +411,81 @@ public abstract class PairTupleRule extends Rule<TuplePair> {
             Table right = collectionList.get(1);
             for (int i = 0; i < left.size(); i ++) {
                 for (int j = 0; j < right.size(); j ++) {
-                    TuplePair pair = new TuplePair(left.get(i), right.get(j));
-                    iteratorResultHandler.handle(pair);
+                    pairs.handlePair(left, i, right, j);
+                }
+            }
+        }
+    }
+
+    /**
+     * Iterates the pairs of a block sorted on the compared columns whose tuples do not have
+     * the same value, which are the pairs across the runs of equal tuples. Blocks with more
+     * pairs than <code>general.tilePairs</code> are split into tiles on the runs which run in
+     * parallel when the handler can be forked.
+     *
+     * @param table sorted block.
+     * @param iteratorResultHandler output stream.
+     */
+    protected final void iteratorAcrossRuns(
+        Table table,
+        IteratorResultHandler iteratorResultHandler
+    ) {
+        int size = table.size();
+        List<Integer> starts = Lists.newArrayList();
+        int start = 0;
+        for (int i = 0; i < size; i ++) {
+            if (i == 0 || !table.get(start).hasSameValue(table.get(i))) {
+                start = i;
+                starts.add(i);
+            }
+        }
+
+        int runCount = starts.size();
+        int[] bounds = new int[runCount + 1];
+        long[] prefix = new long[runCount + 1];
+        for (int k = 0; k < runCount; k ++) {
+            bounds[k] = starts.get(k);
+        }
+        bounds[runCount] = size;
+        for (int k = 0; k < runCount; k ++) {
+            long runSize = bounds[k + 1] - bounds[k];
+            prefix[k + 1] = prefix[k] + runSize * (size - bounds[k + 1]);
+        }
+
+        long maxPairs = Math.max(1, NadeefConfiguration.getTilePairs());
+        if (
+            iteratorResultHandler instanceof ForkableResultHandler &&
+            prefix[runCount] > maxPairs
+        ) {
+            tilePool.invoke(
+                new RunTile(
+                    table,
+                    bounds,
+                    prefix,
+                    0,
+                    runCount,
+                    maxPairs,
+                    (ForkableResultHandler)iteratorResultHandler
+                )
+            );
+            return;
+        }
+
+        iterateRuns(table, bounds, 0, runCount, asPairHandler(iteratorResultHandler));
+    }
+
+    private static void iterateRuns(
+        Table table,
+        int[] bounds,
+        int first,
+        int last,
+        PairResultHandler pairs
+    ) {
+        int size = table.size();
+        for (int k = first; k < last; k ++) {
+            for (int i = bounds[k]; i < bounds[k + 1]; i ++) {
+                for (int j = bounds[k + 1]; j < size; j ++) {
+                    pairs.handlePair(table, i, table, j);
                 }
             }
         }
@@ -81,37 +499,31 @@ public abstract class PairTupleRule extends Rule<TuplePair> {
      */
     public final void iterator(
         Collection<Table> blocks,
-        ConcurrentMap<String, HashSet<Integer>> newTuples,
+        ConcurrentMap<String, TidBitmap> newTuples,
         IteratorResultHandler iteratorResultHandler
     ) {
+        PairResultHandler pairs = asPairHandler(iteratorResultHandler);
         // We are dealing with two table rule.
         if (blocks.size() > 1) {
             Iterator<Table> iterator = blocks.iterator();
             Table table1 = iterator.next();
             Table table2 = iterator.next();
-            String tableName1 = table1.getSchema().getTableName();
-            String tableName2 = table2.getSchema().getTableName();
-            HashSet<Integer> tableSet1 = newTuples.get(tableName1);
-            HashSet<Integer> tableSet2 = newTuples.get(tableName2);
-            for (int i = 0; i < table1.size(); i ++) {
-                Tuple tuple1 = table1.get(i);
-                if (!tableSet1.contains(tuple1.getTid()))
-                    continue;
+            int[][] positions1 =
+                splitOnTids(table1, newTuples.get(table1.getSchema().getTableName()));
+            int[][] positions2 =
+                splitOnTids(table2, newTuples.get(table2.getSchema().getTableName()));
+
+            // new tuples of the first table with all the tuples of the second table.
+            for (int i : positions1[0]) {
                 for (int j = 0; j < table2.size(); j ++) {
-                    Tuple tuple2 = table2.get(j);
-                    iteratorResultHandler.handle(new TuplePair(tuple1, tuple2));
+                    pairs.handlePair(table1, i, table2, j);
                 }
             }
 
-            for (int i = 0; i < table2.size(); i ++) {
-                Tuple tuple2 = table2.get(i);
-                if (!tableSet2.contains(tuple2.getTid()))
-                    continue;
-                for (int j = 0; j < table1.size(); j ++) {
-                    Tuple tuple1 = table1.get(j);
-                    if (tableSet1.contains(tuple1.getTid()))
-                        continue;
-                    iteratorResultHandler.handle(new TuplePair(tuple1, tuple2));
+            // new tuples of the second table with the old tuples of the first table.
+            for (int j : positions2[0]) {
+                for (int i : positions1[1]) {
+                    pairs.handlePair(table1, i, table2, j);
                 }
             }
         } else {
@@ -119,32 +531,87 @@ public abstract class PairTupleRule extends Rule<TuplePair> {
             Table block = blocks.iterator().next();
             String tableName = block.getSchema().getTableName();
             if (newTuples.containsKey(tableName)) {
-                HashSet<Integer> newTuplesIDs = newTuples.get(tableName);
-
-                // iterating all the tuples
-                for (int i = 0; i < block.size(); i++) {
-                    Tuple tuple1 = block.get(i);
-                    if (newTuplesIDs.contains(tuple1.getTid())) {
-                        for (int j = 0; j < block.size(); j++) {
-                            if (j != i) {
-                                Tuple tuple2 = block.get(j);
-                                if (newTuplesIDs.contains(tuple2.getTid())) {
-                                    // Both are new tuples, check once
-                                    if (j > i) {
-                                        iteratorResultHandler.handle(new TuplePair(tuple1, tuple2));
-                                    }
-                                } else {
-                                    // Compare with old tuples
-                                    iteratorResultHandler.handle(new TuplePair(tuple1, tuple2));
-                                }
-                            }
-                        }
+                int[][] positions = splitOnTids(block, newTuples.get(tableName));
+                int[] newPositions = positions[0];
+
+                // Both are new tuples, check once
+                for (int i = 0; i < newPositions.length; i ++) {
+                    for (int j = i + 1; j < newPositions.length; j ++) {
+                        pairs.handlePair(block, newPositions[i], block, newPositions[j]);
+                    }
+                }
+
+                // Compare with old tuples
+                for (int i : newPositions) {
+                    for (int j : positions[1]) {
+                        pairs.handlePair(block, i, block, j);
                     }
                 }
             }
         }
     }
 
+    /**
+     * Splits the positions of a block into the positions of the new tuples and the
+     * positions of the old tuples, so that each tuple is probed once.
+     * @param block block.
+     * @param newTids new tids, or null when there is no new tuple.
+     * @return the new positions and the old positions.
+     */
+    private static int[][] splitOnTids(Table block, TidBitmap newTids) {
+        int[] newPositions = new int[block.size()];
+        int[] oldPositions = new int[block.size()];
+        int newSize = 0;
+        int oldSize = 0;
+        for (int i = 0; i < block.size(); i ++) {
+            if (newTids != null && newTids.contains(block.get(i).getTid())) {
+                newPositions[newSize ++] = i;
+            } else {
+                oldPositions[oldSize ++] = i;
+            }
+        }
+        return new int[][] {
+            Arrays.copyOf(newPositions, newSize),
+            Arrays.copyOf(oldPositions, oldSize)
+        };
+    }
+
+    /**
+     * Gets the pair handler of an iterator output. Pairs are handed over as
+     * {@link TuplePair} when the output does not take the positions of the tuples.
+     * @param handler iterator output.
+     * @return pair handler.
+     */
+    protected static PairResultHandler asPairHandler(final IteratorResultHandler handler) {
+        if (handler instanceof PairResultHandler) {
+            return (PairResultHandler)handler;
+        }
+
+        return new PairResultHandler() {
+            @Override
+            public void handlePair(Table left, int i, Table right, int j) {
+                handler.handle(new TuplePair(left.get(i), right.get(j)));
+            }
+
+            @Override
+            public <T> void handle(T item) {
+                handler.handle(item);
+            }
+        };
+    }
+
+    /**
+     * Gets the key of a non-empty block, a null value stays in the key.
+     */
+    private static List<String> getKey(Table block, List<Column> columns) {
+        Tuple tuple = block.get(0);
+        String[] key = new String[columns.size()];
+        for (int i = 0; i < key.length; i ++) {
+            key[i] = tuple.getString(ColumnHandle.of(columns.get(i)));
+        }
+        return Arrays.asList(key);
+    }
+
     /**
      * Default scope operation.
      * @param table input tuple collections.
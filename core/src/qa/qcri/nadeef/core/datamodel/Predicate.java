@@ -50,9 +50,16 @@ public class Predicate {
     private Operation operation;
     private Column left;
     private Column right;
+    private ColumnHandle leftHandle;
+    private ColumnHandle rightHandle;
     private Object value;
     private boolean isSingle;
 
+    // constant value parsed on the first use.
+    private Integer intValue;
+    private Float floatValue;
+    private Double doubleValue;
+
     public static class PredicateBuilder {
         private Operation operation;
         private Column left;
@@ -106,6 +113,8 @@ public class Predicate {
             Predicate exp = new Predicate();
             exp.left = left;
             exp.right = right;
+            exp.leftHandle = left == null ? null : ColumnHandle.of(left);
+            exp.rightHandle = right == null ? null : ColumnHandle.of(right);
             exp.value = value;
             exp.operation = operation;
             exp.isSingle = isSingle;
@@ -229,57 +238,9 @@ public class Predicate {
      * @param tuple tuple.
      * @return <code>True</code> when the tuple matches the given predicate.
      */
-    @SuppressWarnings("unchecked")
     public boolean isValid(Tuple tuple) {
         Preconditions.checkArgument(isSingle());
-        Object leftValue = tuple.get(left);
-        Comparable leftComparable = (Comparable)leftValue;
-        int compareResult;
-        if (!isRightConstant()) {
-            Object rightValue = tuple.get(right);
-
-            if (leftValue == null || rightValue == null) {
-                tracer.info("Tuple attribute contains NULL value.");
-            }
-
-            if (leftValue == null && rightValue == null) {
-                compareResult = 0;
-            } else if (leftValue == null || rightValue == null) {
-                compareResult = 1;
-            } else {
-                compareResult = leftComparable.compareTo(rightValue);
-            }
-        } else {
-            if (leftValue == null) {
-                tracer.info("Tuple attribute contains NULL value.");
-                compareResult = 1;
-            } else {
-                DataType type = tuple.getSchema().getType(left);
-                // TODO: should move during parsing?
-                switch (type) {
-                    case INTEGER:
-                        compareResult =
-                            leftComparable.compareTo(Integer.parseInt((String)value));
-                        break;
-                    case FLOAT:
-                        // special case for postgres when reading real is always DOUBLE.
-                        if (leftValue instanceof Double) {
-                            compareResult =
-                                leftComparable.compareTo(Double.parseDouble((String) value));
-                        } else {
-                            compareResult =
-                                leftComparable.compareTo(Float.parseFloat((String)value));
-                        }
-                        break;
-                    case DOUBLE:
-                        compareResult = leftComparable.compareTo(Double.parseDouble((String)value));
-                        break;
-                    default:
-                        compareResult = leftComparable.compareTo(value);
-                }
-            }
-        }
-        return validResult(compareResult);
+        return isValid(tuple, tuple);
     }
 
     /**
@@ -288,47 +249,31 @@ public class Predicate {
      * @param tupleRight right tuple.
      * @return <code>True</code> when the tuple matches the given predicate.
      */
-    @SuppressWarnings("unchecked")
     public boolean isValid(Tuple tupleLeft, Tuple tupleRight) {
-        Object leftValue = tupleLeft.get(left);
-        Comparable leftComparable = (Comparable)leftValue;
+        int leftOrdinal = leftHandle.getOrdinal(tupleLeft.getSchema());
+        boolean isLeftNull = tupleLeft.isNull(leftOrdinal);
         int compareResult;
         if (isRightConstant()) {
-            if (leftValue == null) {
+            if (isLeftNull) {
                 tracer.info("Tuple attribute contains NULL value.");
                 compareResult = 1;
             } else {
-                DataType type = tupleLeft.getSchema().getType(left);
-                // TODO: should move during parsing?
-                switch (type) {
-                    case INTEGER:
-                        compareResult =
-                            leftComparable.compareTo(Integer.parseInt((String)value));
-                        break;
-                    case FLOAT:
-                        compareResult =
-                            leftComparable.compareTo(Float.parseFloat((String)value));
-                        break;
-                    case DOUBLE:
-                        compareResult =
-                            leftComparable.compareTo(Double.parseDouble((String)value));
-                        break;
-                    default:
-                        compareResult = leftComparable.compareTo(value);
-                }
+                compareResult = compareConstant(tupleLeft, leftOrdinal);
             }
         } else {
-            Object rightValue = tupleRight.get(right);
-            if (leftValue == null || rightValue == null) {
+            int rightOrdinal = rightHandle.getOrdinal(tupleRight.getSchema());
+            boolean isRightNull = tupleRight.isNull(rightOrdinal);
+            if (isLeftNull || isRightNull) {
                 tracer.info("Tuple attribute contains NULL value.");
             }
 
-            if (leftValue == null && rightValue == null) {
+            if (isLeftNull && isRightNull) {
                 compareResult = 0;
-            } else if (leftValue == null || rightValue == null) {
+            } else if (isLeftNull || isRightNull) {
                 compareResult = 1;
             } else {
-                compareResult = ((Comparable)leftValue).compareTo(rightValue);
+                compareResult =
+                    Tuple.compareValue(tupleLeft, leftOrdinal, tupleRight, rightOrdinal);
             }
         }
         return validResult(compareResult);
@@ -359,6 +304,22 @@ public class Predicate {
         return left;
     }
 
+    /**
+     * Gets the left operator column handle.
+     * @return left operator column handle.
+     */
+    public ColumnHandle getLeftHandle() {
+        return leftHandle;
+    }
+
+    /**
+     * Gets the right operator column handle.
+     * @return right operator column handle.
+     */
+    public ColumnHandle getRightHandle() {
+        return rightHandle;
+    }
+
     public Object getValue() {
         return value;
     }
@@ -379,6 +340,50 @@ public class Predicate {
         return isSingle;
     }
 
+    /**
+     * Compares a non-null tuple value with the constant. The constant is parsed once into
+     * the column type.
+     */
+    private int compareConstant(Tuple tuple, int ordinal) {
+        int result;
+        switch (tuple.getType(ordinal)) {
+            case INTEGER:
+                if (intValue == null) {
+                    intValue =
+                        value instanceof Number ?
+                            ((Number)value).intValue() : Integer.parseInt(value.toString());
+                }
+                result = Integer.compare(tuple.getInt(ordinal), intValue);
+                break;
+            case FLOAT:
+                if (floatValue == null) {
+                    floatValue =
+                        value instanceof Number ?
+                            ((Number)value).floatValue() : Float.parseFloat(value.toString());
+                }
+                result = Float.compare((float)tuple.getDouble(ordinal), floatValue);
+                break;
+            case DOUBLE:
+                if (doubleValue == null) {
+                    doubleValue =
+                        value instanceof Number ?
+                            ((Number)value).doubleValue() : Double.parseDouble(value.toString());
+                }
+                result = Double.compare(tuple.getDouble(ordinal), doubleValue);
+                break;
+            case BOOL:
+                result =
+                    Boolean.compare(
+                        tuple.getInt(ordinal) != 0,
+                        Boolean.parseBoolean(value.toString())
+                    );
+                break;
+            default:
+                result = tuple.getString(ordinal).compareTo(value.toString());
+        }
+        return result;
+    }
+
     private boolean validResult(int compareResult) {
         boolean result;
         switch (operation){
@@ -17,7 +17,6 @@ import com.google.common.base.Preconditions;
 import com.google.common.base.Strings;
 
 import java.util.Collection;
-import java.util.HashSet;
 import java.util.List;
 import java.util.concurrent.ConcurrentMap;
 
@@ -71,6 +70,24 @@ public abstract class Rule<E> {
      */
     public abstract Collection<Violation> detect(E tuples);
 
+    /**
+     * Batched detect operator. The iterator output hands the items over in batches, so that
+     * a rule can hoist its per call setup out of the loop. By default each item goes through
+     * {@link #detect(Object)}.
+     * @param items input items.
+     * @param sink violation output.
+     */
+    public void detectBatch(List<E> items, ViolationSink sink) {
+        for (int i = 0; i < items.size(); i ++) {
+            Collection<Violation> result = detect(items.get(i));
+            if (result != null) {
+                for (Violation violation : result) {
+                    sink.add(violation);
+                }
+            }
+        }
+    }
+
     /**
      * Repair operator.
      * @param violation violation input.
@@ -85,6 +102,17 @@ public abstract class Rule<E> {
      */
     public abstract Collection<Table> block(Collection<Table> table);
 
+    /**
+     * Co-block operator of a rule on two tables. The tables can be partitioned into
+     * {@link CoBlocks}, pairs of blocks which are iterated independently. By default the
+     * tables are iterated as a whole.
+     * @param tables the left and the right table.
+     * @return the tables, or the co-blocks of the tables.
+     */
+    public Collection<Table> coBlock(Collection<Table> tables) {
+        return tables;
+    }
+
     /**
      * Iterator operator.
      * @param tables a collection of tables.
@@ -103,7 +131,7 @@ public abstract class Rule<E> {
      */
     public abstract void iterator(
         Collection<Table> tables,
-        ConcurrentMap<String, HashSet<Integer>> newTuples,
+        ConcurrentMap<String, TidBitmap> newTuples,
         IteratorResultHandler iteratorResultHandler
     );
 
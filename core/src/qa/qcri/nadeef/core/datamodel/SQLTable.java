@@ -13,11 +13,16 @@
 
 package qa.qcri.nadeef.core.datamodel;
 
+import com.google.common.base.Joiner;
+import com.google.common.base.Optional;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Stopwatch;
 import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
+import qa.qcri.nadeef.core.utils.sql.CopyTextParser;
 import qa.qcri.nadeef.core.utils.sql.DBConnectionPool;
+import qa.qcri.nadeef.core.utils.sql.DBMetaDataTool;
 import qa.qcri.nadeef.core.utils.sql.SQLDialectBase;
 import qa.qcri.nadeef.core.utils.sql.SQLDialectFactory;
 import qa.qcri.nadeef.core.utils.sql.SQLQueryBuilder;
@@ -26,10 +31,15 @@ import qa.qcri.nadeef.tools.PerfReport;
 import qa.qcri.nadeef.tools.Logger;
 
 import java.io.IOException;
-import java.nio.charset.Charset;
+import java.io.InputStream;
 import java.sql.*;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -37,12 +47,22 @@ import java.util.concurrent.TimeUnit;
  */
 public class SQLTable extends Table {
     private static Logger tracer = Logger.getLogger(SQLTable.class);
+    private static final int MIN_PARTITION_SIZE = 1024;
+    private static final int MAX_TID_RANGES = 512;
+    private static final ThreadFactory STREAM_THREAD_FACTORY =
+        new ThreadFactoryBuilder().setNameFormat("block-stream-%d").setDaemon(true).build();
+    // loads the TID partitions of all the tables.
+    private static final ExecutorService loadPool =
+        Executors.newFixedThreadPool(
+            Runtime.getRuntime().availableProcessors(),
+            new ThreadFactoryBuilder().setNameFormat("table-load-%d").setDaemon(true).build()
+        );
 
     private DBConnectionPool connectionFactory;
     private SQLDialectBase dialectManager;
     private String tableName;
     private SQLQueryBuilder sqlQuery;
-    private List<Tuple> tuples;
+    private ColumnarTable data;
     private long updateTimestamp = -1;
     private long changeTimestamp = System.currentTimeMillis();
     private Object lock;
@@ -78,7 +98,7 @@ public class SQLTable extends Table {
     @Override
     public int size() {
         syncDataIfNeeded();
-        return tuples.size();
+        return data.size();
     }
 
     /**
@@ -105,7 +125,7 @@ public class SQLTable extends Table {
     @Override
     public Tuple get(int i) {
         syncDataIfNeeded();
-        return tuples.get(i);
+        return data.get(i);
     }
 
     /**
@@ -160,59 +180,178 @@ public class SQLTable extends Table {
     @Override public Collection<Table> groupOn(List<Column> columns) {
         // TODO: check memory constraints
         this.syncDataIfNeeded();
-        MemoryTable table = MemoryTable.of(this.tuples);
-        return table.groupOn(columns);
+        return data.groupOn(columns);
     }
 
     /**
-     * Group on operation with memory constraints.
+     * Creates a view of the loaded table, the table is loaded once for all of its views.
+     * Views share the groups of the unfiltered rows, see {@link ColumnarTable#newView()}.
+     * @return a view of the loaded table.
      */
-    public Collection<Table> groupOnConstrained(List<Column> columns) {
-        Collection<Table> result = Lists.newArrayList();
-        ResultSet distinctResult = null;
-
-        StringBuilder builder = new StringBuilder();
-        for (int i = 0; i < columns.size(); i ++) {
-            if (i > 0)
-                builder.append(",");
-            String columnName = columns.get(i).getColumnName();
-            builder.append(columnName);
-            connectionFactory.createIndexIfNotExist(tableName, columnName);
-        }
-        String sql = String.format("SELECT DISTINCT %s FROM %s", builder.toString(), tableName);
-
-        try (Connection conn = connectionFactory.getSourceConnection();
-             Statement stat = conn.createStatement()) {
-            // create index ad-hoc.
-            stat.setFetchSize(8192);
-            distinctResult = stat.executeQuery(sql);
-
-            while (distinctResult.next()) {
-                SQLTable newTable =
-                    new SQLTable(tableName, connectionFactory);
-                newTable.sqlQuery = new SQLQueryBuilder(sqlQuery);
-                for (int i = 0; i < columns.size(); i ++) {
-                    Column column = columns.get(i);
-                    Object value = distinctResult.getObject(i + 1);
-                    Predicate columnFilter =
-                        new Predicate.PredicateBuilder()
-                            .left(column)
-                            .isSingle()
-                            .constant(value)
-                            .op(Operation.EQ).build();
-                    newTable.sqlQuery.addWhere(columnFilter.toSQLString());
+    public ColumnarTable newView() {
+        syncDataIfNeeded();
+        return data.newView();
+    }
+
+    /**
+     * Loads the tuples of the given tids with the projection and the filters of this table,
+     * without loading the table. The tids are selected as tid ranges, at most
+     * <code>MAX_TID_RANGES</code> ranges per query.
+     * @param tids tids.
+     * @return tuples of the tids.
+     */
+    public List<Tuple> getTuples(TidBitmap tids) throws Exception {
+        List<Tuple> result = Lists.newArrayList();
+        List<String> ranges = Lists.newArrayList();
+        int start = tids.next(0);
+        while (start >= 0) {
+            int end = start;
+            int next = tids.next(end + 1);
+            while (next == end + 1) {
+                end = next;
+                next = tids.next(end + 1);
+            }
+
+            ranges.add(start == end ? "tid = " + start : "tid BETWEEN " + start + " AND " + end);
+            if (ranges.size() == MAX_TID_RANGES) {
+                loadRanges(ranges, result);
+                ranges.clear();
+            }
+            start = next;
+        }
+
+        if (ranges.size() > 0) {
+            loadRanges(ranges, result);
+        }
+        return result;
+    }
+
+    /**
+     * Streams the tuples into the handler without materializing the table. Rows are read
+     * through a forward-only cursor and decoded in batches of <code>general.fetchSize</code>
+     * rows, each batch is released once it is handed over. When the table is already
+     * loaded the loaded tuples are used instead. A query failing part way fails the scan
+     * with a {@link RuntimeException}.
+     * @param handler tuple handler.
+     */
+    @Override
+    public void scan(IteratorResultHandler handler) {
+        if (updateTimestamp >= changeTimestamp && data != null) {
+            super.scan(handler);
+            return;
+        }
+
+        String sql = sqlQuery.build(dialectManager);
+        Optional<String> state = getTableState();
+        Optional<ColumnStore> snapshot = Optional.absent();
+        if (state.isPresent()) {
+            snapshot =
+                TableSnapshotCache.get(
+                    connectionFactory.getSourceDBConfig(),
+                    tableName,
+                    sql,
+                    state.get()
+                );
+        }
+
+        if (snapshot.isPresent()) {
+            new ColumnarTable(snapshot.get()).scan(handler);
+            return;
+        }
+
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        int fetchSize = NadeefConfiguration.getFetchSize();
+        try (
+            Connection conn = connectionFactory.getSourceConnection();
+            Statement stat =
+                conn.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        ) {
+            // server side cursors (e.g. Postgres) are only used outside of auto-commit.
+            conn.setAutoCommit(false);
+            stat.setFetchSize(dialectManager.getFetchSize(fetchSize));
+            try (ResultSet resultSet = stat.executeQuery(sql)) {
+                Schema batchSchema = createSchema(resultSet.getMetaData());
+                int count = batchSchema.size();
+                int tidIndex = batchSchema.getTidIndex().or(-1);
+                boolean hasNext = resultSet.next();
+                while (hasNext) {
+                    ColumnStore.Builder builder = new ColumnStore.Builder(batchSchema, fetchSize);
+                    do {
+                        builder.newRow(tidIndex != -1 ? resultSet.getInt(tidIndex + 1) : 1);
+                        for (int i = 0; i < count; i ++) {
+                            builder.set(i, resultSet.getObject(i + 1));
+                        }
+                        hasNext = resultSet.next();
+                    } while (hasNext && builder.size() < fetchSize);
+
+                    new ColumnarTable(builder.build()).scan(handler);
                 }
-                result.add(newTable);
             }
+            conn.commit();
         } catch (Exception ex) {
-            tracer.error(ex.getMessage(), ex);
-        } finally {
-            if (distinctResult != null) {
-                try {
-                    distinctResult.close();
-                } catch (Exception ex) {}
+            // the handler already got a part of the table, the scan cannot finish quietly.
+            throw new RuntimeException("Streaming " + tableName + " failed.", ex);
+        }
+
+        PerfReport.appendMetric(
+            PerfReport.Metric.DBLoadTime,
+            stopwatch.elapsed(TimeUnit.MILLISECONDS)
+        );
+        stopwatch.stop();
+    }
+
+    /**
+     * Group on operation with memory constraints. The blocks are cut from one query ordered
+     * by the block columns whenever the key changes. String columns are ordered by their
+     * binary value, so the key values which only a case insensitive database collation
+     * considers equal are not interleaved. Rows are decoded into stores of at
+     * least <code>general.fetchSize</code> rows and the blocks of a store are published as
+     * soon as the store is complete, so the blocks are iterated while the query is still
+     * streamed. The query waits while a store of blocks is left unconsumed, and a failed
+     * query fails the iteration of the stream.
+     * @param columns block columns.
+     * @return a {@link BlockStream} of the blocks.
+     */
+    public Collection<Table> groupOnConstrained(List<Column> columns) {
+        Preconditions.checkArgument(columns != null && columns.size() > 0);
+        final List<String> keyColumns = Lists.newArrayList();
+        List<String> orders = Lists.newArrayList();
+        Schema tableSchema = getSchema();
+        for (Column column : columns) {
+            String columnName = column.getColumnName();
+            keyColumns.add(columnName);
+            // the blocks are cut on Java equality, the order has to agree with it.
+            if (
+                tableSchema != null &&
+                tableSchema.hasColumn(column) &&
+                tableSchema.getType(column) == DataType.STRING
+            ) {
+                orders.add(dialectManager.orderByBinary(columnName));
+            } else {
+                orders.add(columnName);
             }
         }
+
+        SQLQueryBuilder query = new SQLQueryBuilder(sqlQuery);
+        if (query.hasSelect()) {
+            query.addSelect(keyColumns);
+        }
+        query.prependOrder(orders);
+        final String sql = query.build(dialectManager);
+
+        final BlockStream result = new BlockStream(NadeefConfiguration.getFetchSize());
+        STREAM_THREAD_FACTORY.newThread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    streamBlocks(sql, keyColumns, result);
+                    result.complete();
+                } catch (Throwable ex) {
+                    // the consumer waits for the end of the stream.
+                    result.fail(ex);
+                }
+            }
+        }).start();
         return result;
     }
 
@@ -272,125 +411,377 @@ public class SQLTable extends Table {
             ResultSet resultSet = stat.executeQuery(sql);
         ) {
             // tracer.verbose(sql);
-            ResultSetMetaData metaData = resultSet.getMetaData();
-            int count = metaData.getColumnCount();
-            Column[] columns = new Column[count];
-            DataType[] types = new DataType[count];
-            for (int i = 1; i <= count; i ++) {
-                String attributeName = metaData.getColumnName(i);
-                columns[i - 1] = new Column(tableName, attributeName);
-                types[i - 1] = DataType.getDataType(metaData.getColumnTypeName(i));
+            schema = createSchema(resultSet.getMetaData());
+        } catch (Exception ex) {
+            tracer.error("Cannot get valid schema.", ex);
+        }
+    }
+
+    /**
+     * Synchronize the collection data with the underlying database. The query is split into
+     * TID ranges which are loaded concurrently over pooled connections and concatenated.
+     * A failed load fails the caller instead of leaving the table without data.
+     */
+    private void syncData() {
+        DBConfig dbConfig = connectionFactory.getSourceDBConfig();
+        String query = sqlQuery.build(dialectManager);
+        long version = TableSnapshotCache.getVersion(dbConfig, tableName);
+        Optional<String> state = getTableState();
+        Optional<ColumnStore> snapshot = Optional.absent();
+        if (state.isPresent()) {
+            snapshot = TableSnapshotCache.get(dbConfig, tableName, query, state.get());
+        }
+
+        if (snapshot.isPresent()) {
+            schema = snapshot.get().getSchema();
+            data = new ColumnarTable(snapshot.get());
+            return;
+        }
+
+        List<SQLQueryBuilder> partitions = partition();
+        List<Future<ColumnStore>> futures = Lists.newArrayList();
+        try {
+            ColumnStore store;
+            if (partitions.size() == 1) {
+                store = load(partitions.get(0));
+            } else {
+                for (final SQLQueryBuilder partition : partitions) {
+                    futures.add(loadPool.submit(new Callable<ColumnStore>() {
+                        @Override
+                        public ColumnStore call() throws Exception {
+                            return load(partition);
+                        }
+                    }));
+                }
+
+                List<ColumnStore> stores = Lists.newArrayList();
+                for (Future<ColumnStore> future : futures) {
+                    stores.add(future.get());
+                }
+                store = ColumnStore.concat(stores);
             }
 
-            schema = new Schema(tableName, columns, types);
+            schema = store.getSchema();
+            data = new ColumnarTable(store);
+            if (state.isPresent()) {
+                TableSnapshotCache.put(dbConfig, tableName, query, version, state.get(), store);
+            }
         } catch (Exception ex) {
-            tracer.error("Cannot get valid schema.", ex);
+            for (Future<ColumnStore> future : futures) {
+                future.cancel(true);
+            }
+            throw new RuntimeException("Loading " + tableName + " failed.", ex);
         }
     }
 
     /**
-     * Synchronize the collection data with the underlying database.
-     * @return Returns <code>True</code> when the synchronization is successful.
+     * Gets the row count and the max TID of the table for the snapshot cache, it is absent
+     * when the cache is disabled or the table has no TID column.
      */
-    private boolean syncData() {
-        Stopwatch stopwatch = Stopwatch.createStarted();
-        // prepare for the SQL
-        String sql = sqlQuery.build(dialectManager);
-        ResultSet resultSet = null;
+    private Optional<String> getTableState() {
+        if (!TableSnapshotCache.isEnabled()) {
+            return Optional.absent();
+        }
+
+        Optional<String> result = Optional.absent();
         try (
             Connection conn = connectionFactory.getSourceConnection();
-            // get the connection and run the SQL
-            Statement stat = conn.createStatement();
+            Statement stat = conn.createStatement()
         ) {
-            // tracer.verbose(sql);
-            stat.setFetchSize(4096);
-            resultSet = stat.executeQuery(sql);
-
-            // fill the schema
-            ResultSetMetaData metaData = resultSet.getMetaData();
-            int count = metaData.getColumnCount();
-            int tidIndex = 0;
-            Column[] columns = new Column[count];
-            DataType[] types = new DataType[count];
-            for (int i = 1; i <= count; i ++) {
-                String columnName = metaData.getColumnName(i);
-                columns[i - 1] = new Column(tableName, columnName);
-                types[i - 1] = DataType.getDataType(metaData.getColumnTypeName(i));
-                if (tidIndex == 0 && columnName.equalsIgnoreCase("tid")) {
-                    tidIndex = i;
+            String sql = dialectManager.selectTableState(tableName);
+            try (ResultSet resultSet = stat.executeQuery(sql)) {
+                if (resultSet.next()) {
+                    result = Optional.of(resultSet.getLong(1) + ":" + resultSet.getLong(2));
                 }
             }
-            schema  = new Schema(tableName, columns, types);
-
-            // fill the tuples
-            tuples = Lists.newArrayList();
-            int tupleId = -1;
-            while (resultSet.next()) {
-                List<byte[]> values = Lists.newArrayList();
-                if (tidIndex != 0) {
-                    tupleId = resultSet.getInt(tidIndex);
-                } else {
+            conn.commit();
+        } catch (SQLException ex) {
+            tracer.info("Cannot get the state of " + tableName + ", it is not cached.");
+        }
+        return result;
+    }
+
+    /**
+     * Splits the query into TID ranges of at least <code>MIN_PARTITION_SIZE</code> tuples.
+     * Ordered queries, off-heap loads and tables without a TID column are loaded in one
+     * stream.
+     */
+    private List<SQLQueryBuilder> partition() {
+        List<SQLQueryBuilder> result = Lists.newArrayList();
+        int partitionNumber = NadeefConfiguration.getLoadPartitionNumber();
+        Schema tableSchema = getSchema();
+        if (
+            partitionNumber <= 1 ||
+            sqlQuery.hasOrder() ||
+            NadeefConfiguration.getOffHeap() ||
+            tableSchema == null ||
+            !tableSchema.getTidIndex().isPresent()
+        ) {
+            result.add(sqlQuery);
+            return result;
+        }
+
+        int maxTid = 0;
+        try {
+            maxTid = DBMetaDataTool.getMaxTid(connectionFactory.getSourceDBConfig(), tableName);
+        } catch (Exception ex) {
+            tracer.error("Cannot get the max TID of " + tableName, ex);
+        }
+
+        partitionNumber = Math.min(partitionNumber, maxTid / MIN_PARTITION_SIZE);
+        if (partitionNumber <= 1) {
+            result.add(sqlQuery);
+            return result;
+        }
+
+        // the first and the last range are open, so tuples outside of [1, maxTid] are kept.
+        int width = (maxTid + partitionNumber - 1) / partitionNumber;
+        for (int i = 0; i < partitionNumber; i ++) {
+            SQLQueryBuilder query = new SQLQueryBuilder(sqlQuery);
+            if (i > 0) {
+                query.addWhere("tid > " + i * width);
+            }
+
+            if (i < partitionNumber - 1) {
+                query.addWhere("tid <= " + (i + 1) * width);
+            }
+            result.add(query);
+        }
+        return result;
+    }
+
+    /**
+     * Loads the tuples in the given tid ranges.
+     */
+    private void loadRanges(List<String> ranges, List<Tuple> result) throws Exception {
+        SQLQueryBuilder query = new SQLQueryBuilder(sqlQuery);
+        query.addWhere("(" + Joiner.on(" OR ").join(ranges) + ")");
+        ColumnarTable table = new ColumnarTable(load(query));
+        for (int i = 0; i < table.size(); i ++) {
+            result.add(table.get(i));
+        }
+    }
+
+    /**
+     * Loads the result of a query into a column store, through the bulk export of the
+     * dialect when it is supported.
+     */
+    private ColumnStore load(SQLQueryBuilder query) throws Exception {
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        // prepare for the SQL
+        String sql = query.build(dialectManager);
+        ColumnStore result;
+        try (Connection conn = connectionFactory.getSourceConnection()) {
+            // tracer.verbose(sql);
+            if (NadeefConfiguration.getBulkExport() && dialectManager.supportBulkExport()) {
+                result = export(conn, sql);
+            } else {
+                result = fetch(conn, sql);
+            }
+        }
+
+        PerfReport.appendMetric(
+            PerfReport.Metric.DBLoadTime,
+            stopwatch.elapsed(TimeUnit.MILLISECONDS)
+        );
+        stopwatch.stop();
+        return result;
+    }
+
+    /**
+     * Fetches the result of a query through the JDBC result set.
+     */
+    private ColumnStore fetch(Connection conn, String sql) throws SQLException {
+        try (Statement stat = conn.createStatement()) {
+            int fetchSize = NadeefConfiguration.getFetchSize();
+            stat.setFetchSize(dialectManager.getFetchSize(fetchSize));
+            try (ResultSet resultSet = stat.executeQuery(sql)) {
+                // fill the schema
+                Schema resultSchema = createSchema(resultSet.getMetaData());
+                int count = resultSchema.size();
+                int tidIndex = resultSchema.getTidIndex().or(-1);
+
+                // fill the column store
+                ColumnStore.Builder builder = createBuilder(resultSchema);
+                if (tidIndex == -1) {
                     tracer.info("Table does not have an TID column, use 1 as default.");
-                    tupleId = 1;
                 }
 
-                for (int i = 1; i <= count; i ++) {
-                    Object object = resultSet.getObject(i);
-                    values.add(serialize(object));
+                while (resultSet.next()) {
+                    int tupleId = tidIndex != -1 ? resultSet.getInt(tidIndex + 1) : 1;
+                    builder.newRow(tupleId);
+                    for (int i = 0; i < count; i ++) {
+                        builder.set(i, resultSet.getObject(i + 1));
+                    }
                 }
-
-                tuples.add(new Tuple(tupleId, schema, values));
+                return builder.build();
             }
-        } catch (Exception ex) {
-            tracer.error("Synchronization failed.", ex);
-        } finally {
-            try {
-                if (resultSet != null) {
-                    resultSet.close();
+        }
+    }
+
+    /**
+     * Streams the result of a query ordered by the key columns and publishes the blocks of
+     * each complete store into the stream.
+     */
+    private void streamBlocks(
+        String sql,
+        List<String> keyColumns,
+        BlockStream stream
+    ) throws SQLException, InterruptedException {
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        int fetchSize = NadeefConfiguration.getFetchSize();
+        try (
+            Connection conn = connectionFactory.getSourceConnection();
+            Statement stat =
+                conn.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        ) {
+            // server side cursors (e.g. Postgres) are only used outside of auto-commit.
+            conn.setAutoCommit(false);
+            stat.setFetchSize(dialectManager.getFetchSize(fetchSize));
+            try (ResultSet resultSet = stat.executeQuery(sql)) {
+                Schema resultSchema = createSchema(resultSet.getMetaData());
+                int count = resultSchema.size();
+                int tidIndex = resultSchema.getTidIndex().or(-1);
+                int[] keyIndexes = new int[keyColumns.size()];
+                for (int i = 0; i < keyIndexes.length; i ++) {
+                    keyIndexes[i] = resultSet.findColumn(keyColumns.get(i)) - 1;
+                }
+
+                Object[] values = new Object[count];
+                Object[] key = null;
+                ColumnStore.Builder builder = new ColumnStore.Builder(resultSchema, fetchSize);
+                List<Integer> starts = Lists.newArrayList();
+                while (resultSet.next()) {
+                    for (int i = 0; i < count; i ++) {
+                        values[i] = resultSet.getObject(i + 1);
+                    }
+
+                    if (key == null || !isSameKey(key, values, keyIndexes)) {
+                        // a store is only cut between blocks.
+                        if (builder.size() >= fetchSize) {
+                            stream.publish(cut(builder.build(), starts));
+                            builder = new ColumnStore.Builder(resultSchema, fetchSize);
+                            starts.clear();
+                        }
+
+                        key = new Object[keyIndexes.length];
+                        for (int i = 0; i < keyIndexes.length; i ++) {
+                            key[i] = values[keyIndexes[i]];
+                        }
+                        starts.add(builder.size());
+                    }
+
+                    builder.newRow(tidIndex != -1 ? ((Number)values[tidIndex]).intValue() : 1);
+                    for (int i = 0; i < count; i ++) {
+                        builder.set(i, values[i]);
+                    }
+                }
+
+                if (builder.size() > 0) {
+                    stream.publish(cut(builder.build(), starts));
                 }
-            } catch (Exception ex) {}
+            }
+            conn.commit();
         }
 
-        PerfReport.addMetric(
+        PerfReport.appendMetric(
             PerfReport.Metric.DBLoadTime,
             stopwatch.elapsed(TimeUnit.MILLISECONDS)
         );
         stopwatch.stop();
-        return true;
     }
 
-    private void syncDataIfNeeded() {
-        if (updateTimestamp < changeTimestamp) {
-            synchronized (lock) {
-                syncData();
-                updateTimestamp = changeTimestamp;
+    private static boolean isSameKey(Object[] key, Object[] values, int[] keyIndexes) {
+        for (int i = 0; i < keyIndexes.length; i ++) {
+            Object value = values[keyIndexes[i]];
+            if (key[i] == null ? value != null : !key[i].equals(value)) {
+                return false;
             }
         }
+        return true;
     }
 
     /**
-     * Serialize object to a bytes array.
+     * Cuts a store into the blocks starting at the given rows.
      */
-    private static byte[] serialize(Object obj) throws IOException {
-        byte[] result = null;
-        String stringValue;
-        if (obj != null) {
-            if (obj instanceof String) {
-                stringValue = (String)obj;
-            } else {
-                stringValue = obj.toString();
+    private static List<Table> cut(ColumnStore store, List<Integer> starts) {
+        List<Table> result = Lists.newArrayListWithCapacity(starts.size());
+        for (int i = 0; i < starts.size(); i ++) {
+            int start = starts.get(i);
+            int end = i + 1 < starts.size() ? starts.get(i + 1) : store.size();
+            int[] rows = new int[end - start];
+            for (int j = 0; j < rows.length; j ++) {
+                rows[j] = start + j;
             }
-            // TODO: We currently use hardcoded UTF-8 encoding.
-            result = stringValue.getBytes(Charset.forName("UTF-8"));
+            result.add(new ColumnarTable(store, rows));
         }
         return result;
     }
+
+    /**
+     * Exports the result of a query as a text stream and parses it into a column store. The
+     * schema is read from an empty result of the same query.
+     */
+    private ColumnStore export(Connection conn, String sql) throws Exception {
+        Schema resultSchema;
+        try (
+            Statement stat = conn.createStatement();
+            ResultSet resultSet =
+                stat.executeQuery("SELECT * FROM (" + sql + ") q" + dialectManager.limitRow(0))
+        ) {
+            resultSchema = createSchema(resultSet.getMetaData());
+        }
+
+        try (InputStream input = dialectManager.bulkExport(conn, sql)) {
+            return CopyTextParser.parse(input, resultSchema, createBuilder(resultSchema));
+        }
+    }
+
+    /**
+     * Creates the store builder of a load, it is an off-heap store with
+     * <code>general.offHeap</code>.
+     */
+    private ColumnStore.Builder createBuilder(Schema resultSchema) throws SQLException {
+        if (NadeefConfiguration.getOffHeap()) {
+            try {
+                return new MappedColumnStore.Builder(resultSchema);
+            } catch (IOException ex) {
+                throw new SQLException("Cannot create the off-heap store.", ex);
+            }
+        }
+        return new ColumnStore.Builder(resultSchema, NadeefConfiguration.getFetchSize());
+    }
+
+    /**
+     * Creates the schema from the result set meta data.
+     */
+    private Schema createSchema(ResultSetMetaData metaData) throws SQLException {
+        int count = metaData.getColumnCount();
+        Column[] columns = new Column[count];
+        DataType[] types = new DataType[count];
+        for (int i = 1; i <= count; i ++) {
+            columns[i - 1] = ColumnRegistry.intern(tableName, metaData.getColumnName(i));
+            types[i - 1] = DataType.getDataType(metaData.getColumnTypeName(i));
+        }
+        return new Schema(tableName, columns, types);
+    }
+
+    private void syncDataIfNeeded() {
+        if (updateTimestamp < changeTimestamp) {
+            synchronized (lock) {
+                syncData();
+                updateTimestamp = changeTimestamp;
+            }
+        }
+    }
     //</editor-fold>
 
     //<editor-fold desc="Finalization methods">
     public void recycle() {
-        tuples.clear();
-        tuples = null;
+        if (data != null) {
+            data.recycle();
+        }
+        data = null;
         tableName = null;
         updateTimestamp = Long.MAX_VALUE;
         connectionFactory = null;
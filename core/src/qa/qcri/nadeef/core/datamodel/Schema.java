@@ -17,6 +17,7 @@ import com.google.common.base.Optional;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.Lists;
 
+import java.util.HashMap;
 import java.util.List;
 
 /**
@@ -26,6 +27,8 @@ public class Schema {
     private String tableName;
     private Column[] columns;
     private DataType[] types;
+    private int tidIndex;
+    private HashMap<Column, Integer> index;
 
     //<editor-fold desc="Builder">
     /**
@@ -53,13 +56,13 @@ public class Schema {
         }
 
         public Builder column(String columnName, int value) {
-            columns.add(new Column(tableName, columnName));
+            columns.add(ColumnRegistry.intern(tableName, columnName));
             types.add(DataType.getDataType(value));
             return this;
         }
 
         public Builder column(String columnName, DataType type) {
-            columns.add(new Column(tableName, columnName));
+            columns.add(ColumnRegistry.intern(tableName, columnName));
             types.add(type);
             return this;
         }
@@ -84,6 +87,8 @@ public class Schema {
         Preconditions.checkArgument(columns != null && columns.length > 0);
         this.columns = columns;
         this.types = types;
+        this.tidIndex = findTidIndex();
+        this.index = buildIndex();
     }
 
     /**
@@ -95,6 +100,8 @@ public class Schema {
         this.tableName = schema.tableName;
         this.columns = schema.getColumns().clone();
         this.types = schema.getTypes().clone();
+        this.tidIndex = schema.tidIndex;
+        this.index = schema.index;
     }
 
     /**
@@ -111,12 +118,7 @@ public class Schema {
      * @return <code>True</code> when the map contains the column.
      */
     public boolean hasColumn(Column column) {
-        for (Column column_ : columns) {
-            if (column_.equals(column)) {
-                return true;
-            }
-        }
-        return false;
+        return index.containsKey(column);
     }
 
     /**
@@ -148,12 +150,7 @@ public class Schema {
      * @return column type collection.
      */
     public DataType getType(Column column) {
-        for (int i = 0; i < columns.length; i ++) {
-            if (columns[i].equals(column)) {
-                return types[i];
-            }
-        }
-        throw new IllegalArgumentException("Cannot find the column.");
+        return types[get(column)];
     }
 
     /**
@@ -162,12 +159,11 @@ public class Schema {
      * @return Get the index from column.
      */
     public int get(Column column) {
-        for (int i = 0; i < columns.length; i ++) {
-            if (columns[i].equals(column)) {
-                return i;
-            }
+        Integer result = index.get(column);
+        if (result == null) {
+            throw new IllegalArgumentException("Cannot find the column.");
         }
-        throw new IllegalArgumentException("Cannot find the column.");
+        return result;
     }
 
     /**
@@ -175,12 +171,10 @@ public class Schema {
      * @return Returns the TID index of the schema. It returns absent when there is no TID column.
      */
     public Optional<Integer> getTidIndex() {
-        for (int i = 0; i < columns.length; i ++) {
-            if (columns[i].getColumnName().equalsIgnoreCase("tid")) {
-                return Optional.of(i);
-            }
+        if (tidIndex == -1) {
+            return Optional.absent();
         }
-        return Optional.absent();
+        return Optional.of(tidIndex);
     }
 
     /**
@@ -190,12 +184,36 @@ public class Schema {
     void remove(Column column) {
         int result = get(column);
         List<Column> tmp = Lists.newArrayList();
+        List<DataType> tmpTypes = Lists.newArrayList();
         for (int i = 0; i < columns.length; i ++) {
             if (i != result) {
                 tmp.add(columns[i]);
+                tmpTypes.add(types[i]);
             }
         }
         columns = new Column[tmp.size()];
         tmp.toArray(columns);
+        types = new DataType[tmpTypes.size()];
+        tmpTypes.toArray(types);
+        tidIndex = findTidIndex();
+        index = buildIndex();
+    }
+
+    private HashMap<Column, Integer> buildIndex() {
+        HashMap<Column, Integer> result = new HashMap<>(columns.length * 2);
+        // keeps the first one when a column shows up more than once.
+        for (int i = columns.length - 1; i >= 0; i --) {
+            result.put(columns[i], i);
+        }
+        return result;
+    }
+
+    private int findTidIndex() {
+        for (int i = 0; i < columns.length; i ++) {
+            if (columns[i].getColumnName().equalsIgnoreCase("tid")) {
+                return i;
+            }
+        }
+        return -1;
     }
 }
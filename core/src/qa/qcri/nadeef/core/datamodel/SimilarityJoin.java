@@ -0,0 +1,621 @@
+/*
+ * QCRI, NADEEF LICENSE
+ * NADEEF is an extensible, generalized and easy-to-deploy data cleaning platform built at QCRI.
+ * NADEEF means "Clean" in Arabic
+ *
+ * Copyright (c) 2011-2013, Qatar Foundation for Education, Science and Community Development (on
+ * behalf of Qatar Computing Research Institute) having its principle place of business in Doha,
+ * Qatar with the registered address P.O box 5825 Doha, Qatar (hereinafter referred to as "QCRI")
+ *
+ * NADEEF has patent pending nevertheless the following is granted.
+ * NADEEF is released under the terms of the MIT License, (http://opensource.org/licenses/MIT).
+ */
+
+package qa.qcri.nadeef.core.datamodel;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import qa.qcri.nadeef.tools.Logger;
+import qa.qcri.nadeef.tools.PerfReport;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * SimilarityJoin is an exact candidate generator of similarity predicates, no pair above
+ * the thresholds is missed. Values are turned into multisets of padded q-grams (the tokens
+ * of {@link qa.qcri.nadeef.tools.Metrics}), the similarity threshold of a predicate bounds
+ * the sizes and the overlap of the q-grams of a matching pair:
+ * <ul>
+ *     <li>QG is the Dice coefficient of the q-grams, a pair of sizes x &lt;= y needs
+ *     an overlap of <code>t (x + y) / 2</code> and <code>x (2 - t) &gt;= t y</code>.</li>
+ *     <li>LS allows <code>(1 - t) max(length)</code> edits, each edit breaks at most q
+ *     q-grams.</li>
+ * </ul>
+ *
+ * The first predicate drives a PPJoin style join. Tokens are ordered by the frequency and
+ * the tuples by the size, each tuple indexes a prefix of its tokens and probes the index
+ * with a prefix, so a matching pair shares at least one prefix token. Candidates are
+ * pruned by the length, by the positions of the first shared tokens and by the full
+ * overlap of every predicate. Probes run partitioned across the cores.
+ */
+public class SimilarityJoin implements CandidateGenerator {
+    private static Logger tracer = Logger.getLogger(SimilarityJoin.class);
+    private static final int Q = 3;
+    // similarities are computed in float, the bounds are relaxed to keep the join exact.
+    private static final double EPSILON = 1e-6;
+    private static final int MIN_PARALLEL_SIZE = 1 << 12;
+    private static final int MAX_THREAD_NUM = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Similarity measure.
+     */
+    public enum Measure {
+        // Metrics.getQGramsDistance
+        QGRAM,
+        // Metrics.getLevenshtein
+        LEVENSHTEIN
+    }
+
+    /**
+     * A similarity predicate with a lower bound threshold.
+     */
+    private static class Condition {
+        final Measure measure;
+        final String leftTable;
+        final ColumnHandle leftHandle;
+        final ColumnHandle rightHandle;
+        final double threshold;
+
+        Condition(
+            Measure measure,
+            String leftTable,
+            ColumnHandle leftHandle,
+            ColumnHandle rightHandle,
+            double threshold
+        ) {
+            this.measure = measure;
+            this.leftTable = leftTable;
+            this.leftHandle = leftHandle;
+            this.rightHandle = rightHandle;
+            this.threshold = threshold;
+        }
+
+        String getValue(Tuple tuple) {
+            return tuple.getString(tuple.isFromTable(leftTable) ? leftHandle : rightHandle);
+        }
+
+        /**
+         * Returns <code>True</code> when token sets of sizes x &lt;= y can match.
+         */
+        boolean isFeasible(int x, int y) {
+            if (measure == Measure.QGRAM) {
+                return x * (2 - threshold) >= threshold * y;
+            }
+            return y - x <= getEdits(y);
+        }
+
+        /**
+         * Gets the minimal overlap of matching token sets of sizes x &lt;= y.
+         */
+        int getOverlap(int x, int y) {
+            if (measure == Measure.QGRAM) {
+                return (int)Math.ceil(threshold * (x + y) / 2 - EPSILON);
+            }
+            return y - Q * getEdits(y);
+        }
+
+        private int getEdits(int size) {
+            // a string of length l has l + q - 1 padded q-grams.
+            return (int)Math.floor((1 - threshold) * (size - Q + 1) + EPSILON);
+        }
+    }
+
+    private List<Condition> conditions = Lists.newArrayList();
+
+    //<editor-fold desc="Public methods">
+    /**
+     * Adds a similarity predicate <code>measure(left, right) &gt;= threshold</code>.
+     * @param measure similarity measure.
+     * @param leftTable table of the left column.
+     * @param leftColumn compared column of the left table.
+     * @param rightTable table of the right column.
+     * @param rightColumn compared column of the right table.
+     * @param threshold similarity threshold.
+     * @return this object.
+     */
+    public SimilarityJoin condition(
+        Measure measure,
+        String leftTable,
+        String leftColumn,
+        String rightTable,
+        String rightColumn,
+        double threshold
+    ) {
+        // a threshold of 0 matches every pair and does not filter anything.
+        if (threshold - EPSILON > 0) {
+            conditions.add(
+                new Condition(
+                    measure,
+                    leftTable,
+                    ColumnHandle.of(leftTable, leftColumn),
+                    ColumnHandle.of(rightTable, rightColumn),
+                    threshold - EPSILON
+                )
+            );
+        }
+        return this;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void iterator(Table table, IteratorResultHandler handler) {
+        Tuple[] tuples = new Tuple[table.size()];
+        for (int i = 0; i < tuples.length; i ++) {
+            tuples[i] = table.get(i);
+        }
+        iterate(tuples, 0, handler);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void iterator(Table left, Table right, IteratorResultHandler handler) {
+        Tuple[] tuples = new Tuple[left.size() + right.size()];
+        for (int i = 0; i < left.size(); i ++) {
+            tuples[i] = left.get(i);
+        }
+
+        for (int i = 0; i < right.size(); i ++) {
+            tuples[left.size() + i] = right.get(i);
+        }
+        iterate(tuples, left.size(), handler);
+    }
+    //</editor-fold>
+
+    //<editor-fold desc="Join">
+    /**
+     * Join state of one input.
+     */
+    private class Join {
+        final Tuple[] tuples;
+        final int leftSize;
+        // tokens[c][i] are the sorted token ids of tuple i in predicate c.
+        final int[][][] tokens;
+        // tuple positions of the driving predicate ordered by the size.
+        final int[] order;
+        final int[] probeOverlaps;
+        // posting offsets of each token, postings are ordered by the rank.
+        final int[] offsets;
+        final int[] postingRanks;
+        final int[] postingPositions;
+        // ranks which index all of their tokens since their overlap bound is not positive.
+        final int[] fallbacks;
+
+        Join(Tuple[] tuples, int leftSize) {
+            this.tuples = tuples;
+            this.leftSize = leftSize;
+            tokens = new int[conditions.size()][][];
+            int tokenNumber = 0;
+            for (int c = 0; c < conditions.size(); c ++) {
+                int[] count = new int[1];
+                tokens[c] = tokenize(tuples, conditions.get(c), count);
+                if (c == 0) {
+                    tokenNumber = count[0];
+                }
+            }
+
+            final int[][] records = tokens[0];
+            int n = 0;
+            for (int[] record : records) {
+                if (record != null) {
+                    n ++;
+                }
+            }
+
+            Integer[] sorted = new Integer[n];
+            for (int i = 0, j = 0; i < records.length; i ++) {
+                if (records[i] != null) {
+                    sorted[j ++] = i;
+                }
+            }
+
+            Arrays.sort(sorted, new Comparator<Integer>() {
+                @Override
+                public int compare(Integer o1, Integer o2) {
+                    int diff = records[o1].length - records[o2].length;
+                    return diff != 0 ? diff : o1 - o2;
+                }
+            });
+
+            order = new int[n];
+            for (int i = 0; i < n; i ++) {
+                order[i] = sorted[i];
+            }
+
+            // the minimal overlaps over the sizes which exist in the input.
+            Condition condition = conditions.get(0);
+            int maxSize = n == 0 ? 0 : records[order[n - 1]].length;
+            int[] sizes = distinctSizes(records, order);
+            probeOverlaps = new int[maxSize + 1];
+            int[] indexOverlaps = new int[maxSize + 1];
+            for (int size : sizes) {
+                int probeOverlap = Integer.MAX_VALUE;
+                int indexOverlap = Integer.MAX_VALUE;
+                for (int other : sizes) {
+                    if (other <= size && condition.isFeasible(other, size)) {
+                        probeOverlap = Math.min(probeOverlap, condition.getOverlap(other, size));
+                    }
+
+                    if (other >= size && condition.isFeasible(size, other)) {
+                        indexOverlap = Math.min(indexOverlap, condition.getOverlap(size, other));
+                    }
+                }
+                probeOverlaps[size] = probeOverlap;
+                indexOverlaps[size] = indexOverlap;
+            }
+
+            // build the inverted index of the index prefixes.
+            offsets = new int[tokenNumber + 1];
+            List<Integer> fallbackList = Lists.newArrayList();
+            for (int rank = 0; rank < n; rank ++) {
+                int[] record = records[order[rank]];
+                int prefix = getPrefix(record.length, indexOverlaps[record.length]);
+                if (prefix == record.length && indexOverlaps[record.length] <= 0) {
+                    fallbackList.add(rank);
+                }
+
+                for (int i = 0; i < prefix; i ++) {
+                    offsets[record[i] + 1] ++;
+                }
+            }
+
+            for (int i = 0; i < tokenNumber; i ++) {
+                offsets[i + 1] += offsets[i];
+            }
+
+            int[] cursors = Arrays.copyOf(offsets, tokenNumber);
+            postingRanks = new int[offsets[tokenNumber]];
+            postingPositions = new int[offsets[tokenNumber]];
+            for (int rank = 0; rank < n; rank ++) {
+                int[] record = records[order[rank]];
+                int prefix = getPrefix(record.length, indexOverlaps[record.length]);
+                for (int i = 0; i < prefix; i ++) {
+                    int cursor = cursors[record[i]] ++;
+                    postingRanks[cursor] = rank;
+                    postingPositions[cursor] = i;
+                }
+            }
+
+            fallbacks = new int[fallbackList.size()];
+            for (int i = 0; i < fallbacks.length; i ++) {
+                fallbacks[i] = fallbackList.get(i);
+            }
+        }
+
+        /**
+         * Probes the tuples of the ranks in [start, end) against the tuples ranked before.
+         * @return the candidate pairs.
+         */
+        List<Long> probe(int start, int end) {
+            List<Long> result = Lists.newArrayList();
+            Condition condition = conditions.get(0);
+            int[][] records = tokens[0];
+            int[] counts = new int[order.length];
+            int[] touched = new int[order.length];
+            for (int ry = start; ry < end; ry ++) {
+                int y = order[ry];
+                int[] record = records[y];
+                int sizeY = record.length;
+                int minOverlap = probeOverlaps[sizeY];
+                if (minOverlap <= 0) {
+                    // nothing can be pruned by the tokens.
+                    for (int rx = 0; rx < ry; rx ++) {
+                        addIfMatch(rx, ry, result);
+                    }
+                    continue;
+                }
+
+                int touchedSize = 0;
+                int prefix = getPrefix(sizeY, minOverlap);
+                for (int i = 0; i < prefix; i ++) {
+                    int token = record[i];
+                    for (int p = offsets[token]; p < offsets[token + 1]; p ++) {
+                        int rx = postingRanks[p];
+                        if (rx >= ry) {
+                            break;
+                        }
+
+                        int x = order[rx];
+                        int sizeX = records[x].length;
+                        if (isSameSide(x, y) || !condition.isFeasible(sizeX, sizeY)) {
+                            continue;
+                        }
+
+                        if (counts[rx] == 0) {
+                            touched[touchedSize ++] = rx;
+                        }
+
+                        if (counts[rx] >= 0) {
+                            int bound =
+                                counts[rx] + 1 +
+                                    Math.min(sizeY - i - 1, sizeX - postingPositions[p] - 1);
+                            counts[rx] =
+                                bound >= condition.getOverlap(sizeX, sizeY) ? counts[rx] + 1 : -1;
+                        }
+                    }
+                }
+
+                for (int i = 0; i < touchedSize; i ++) {
+                    int rx = touched[i];
+                    if (counts[rx] > 0 && isMatch(order[rx], y)) {
+                        result.add(((long)rx << 32) | ry);
+                    }
+                }
+
+                // tuples which may match without a shared token.
+                for (int rx : fallbacks) {
+                    if (rx >= ry) {
+                        break;
+                    }
+
+                    if (counts[rx] == 0) {
+                        addIfMatch(rx, ry, result);
+                    }
+                }
+
+                for (int i = 0; i < touchedSize; i ++) {
+                    counts[touched[i]] = 0;
+                }
+            }
+            return result;
+        }
+
+        private void addIfMatch(int rx, int ry, List<Long> result) {
+            if (!isSameSide(order[rx], order[ry]) && isMatch(order[rx], order[ry])) {
+                result.add(((long)rx << 32) | ry);
+            }
+        }
+
+        private boolean isSameSide(int x, int y) {
+            return leftSize > 0 && (x < leftSize) == (y < leftSize);
+        }
+
+        /**
+         * Returns <code>True</code> when the tuples pass the size and the overlap bounds of
+         * every predicate.
+         */
+        private boolean isMatch(int x, int y) {
+            for (int c = 0; c < conditions.size(); c ++) {
+                int[] record1 = tokens[c][x];
+                int[] record2 = tokens[c][y];
+                if (record1 == null || record2 == null) {
+                    return false;
+                }
+
+                if (record1.length > record2.length) {
+                    int[] tmp = record1;
+                    record1 = record2;
+                    record2 = tmp;
+                }
+
+                Condition condition = conditions.get(c);
+                int minOverlap = condition.getOverlap(record1.length, record2.length);
+                if (
+                    !condition.isFeasible(record1.length, record2.length) ||
+                    getOverlap(record1, record2) < minOverlap
+                ) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+    //</editor-fold>
+
+    //<editor-fold desc="Private methods">
+    private void iterate(Tuple[] tuples, int leftSize, IteratorResultHandler handler) {
+        long total =
+            leftSize > 0 ?
+                (long)leftSize * (tuples.length - leftSize) :
+                (long)tuples.length * (tuples.length - 1) / 2;
+
+        if (conditions.size() == 0) {
+            // without a threshold every pair is a candidate.
+            for (int i = 0; i < tuples.length; i ++) {
+                for (int j = Math.max(i + 1, leftSize); j < tuples.length; j ++) {
+                    if (leftSize == 0 || i < leftSize) {
+                        handler.handle(new TuplePair(tuples[i], tuples[j]));
+                    }
+                }
+            }
+            return;
+        }
+
+        final Join join = new Join(tuples, leftSize);
+        int n = join.order.length;
+        List<List<Long>> results = Lists.newArrayList();
+        int threadNumber = Math.min(MAX_THREAD_NUM, n / MIN_PARALLEL_SIZE);
+        if (threadNumber <= 1) {
+            results.add(join.probe(0, n));
+        } else {
+            ExecutorService executor =
+                Executors.newFixedThreadPool(
+                    threadNumber,
+                    new ThreadFactoryBuilder()
+                        .setNameFormat("similarity-join-%d")
+                        .setDaemon(true)
+                        .build()
+                );
+            try {
+                // later ranks probe more tuples, small partitions balance the threads.
+                int partitionNumber = threadNumber * 4;
+                List<Future<List<Long>>> futures = Lists.newArrayList();
+                for (int i = 0; i < partitionNumber; i ++) {
+                    final int start = (int)((long)n * i / partitionNumber);
+                    final int end = (int)((long)n * (i + 1) / partitionNumber);
+                    futures.add(executor.submit(new Callable<List<Long>>() {
+                        @Override
+                        public List<Long> call() {
+                            return join.probe(start, end);
+                        }
+                    }));
+                }
+
+                for (Future<List<Long>> future : futures) {
+                    results.add(future.get());
+                }
+            } catch (Exception ex) {
+                tracer.error("Parallel similarity join failed, fall back to one thread.", ex);
+                results.clear();
+                results.add(join.probe(0, n));
+            } finally {
+                executor.shutdown();
+            }
+        }
+
+        long count = 0;
+        for (List<Long> result : results) {
+            for (long pair : result) {
+                int x = join.order[(int)(pair >>> 32)];
+                int y = join.order[(int)pair];
+                if (leftSize > 0 && x >= leftSize) {
+                    handler.handle(new TuplePair(tuples[y], tuples[x]));
+                } else {
+                    handler.handle(new TuplePair(tuples[x], tuples[y]));
+                }
+                count ++;
+            }
+        }
+
+        long reduction = total == 0 ? 0 : 100 - count * 100 / total;
+        PerfReport.appendMetric(PerfReport.Metric.CandidatePairs, count);
+        PerfReport.appendMetric(PerfReport.Metric.CandidateReduction, reduction);
+        tracer.fine("Similarity join found " + count + " candidates out of " + total + " pairs.");
+    }
+
+    /**
+     * Turns the values into sorted token ids, tokens are the padded q-grams numbered by
+     * their occurrence and the ids follow the token frequency.
+     * @param count output of the number of distinct tokens.
+     */
+    private static int[][] tokenize(Tuple[] tuples, Condition condition, int[] count) {
+        String[][] grams = new String[tuples.length][];
+        final HashMap<String, Integer> frequencies = Maps.newHashMap();
+        for (int i = 0; i < tuples.length; i ++) {
+            String value = condition.getValue(tuples[i]);
+            if (value == null) {
+                continue;
+            }
+
+            grams[i] = getGrams(value);
+            for (String gram : grams[i]) {
+                Integer frequency = frequencies.get(gram);
+                frequencies.put(gram, frequency == null ? 1 : frequency + 1);
+            }
+        }
+
+        String[] distinct = frequencies.keySet().toArray(new String[frequencies.size()]);
+        Arrays.sort(distinct, new Comparator<String>() {
+            @Override
+            public int compare(String o1, String o2) {
+                int diff = frequencies.get(o1) - frequencies.get(o2);
+                return diff != 0 ? diff : o1.compareTo(o2);
+            }
+        });
+
+        HashMap<String, Integer> ids = Maps.newHashMapWithExpectedSize(distinct.length);
+        for (int i = 0; i < distinct.length; i ++) {
+            ids.put(distinct[i], i);
+        }
+        count[0] = distinct.length;
+
+        int[][] result = new int[tuples.length][];
+        for (int i = 0; i < tuples.length; i ++) {
+            if (grams[i] != null) {
+                result[i] = new int[grams[i].length];
+                for (int j = 0; j < grams[i].length; j ++) {
+                    result[i][j] = ids.get(grams[i][j]);
+                }
+                Arrays.sort(result[i]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Gets the padded q-grams of a value, repeated q-grams are numbered so the multiset
+     * becomes a set.
+     */
+    private static String[] getGrams(String value) {
+        StringBuilder builder = new StringBuilder(value.length() + 2 * (Q - 1));
+        for (int i = 0; i < Q - 1; i ++) {
+            builder.append('#');
+        }
+        builder.append(value);
+        for (int i = 0; i < Q - 1; i ++) {
+            builder.append('#');
+        }
+
+        String padded = builder.toString();
+        String[] result = new String[padded.length() - Q + 1];
+        HashMap<String, Integer> occurrences = Maps.newHashMap();
+        for (int i = 0; i < result.length; i ++) {
+            String gram = padded.substring(i, i + Q);
+            Integer occurrence = occurrences.get(gram);
+            occurrence = occurrence == null ? 0 : occurrence + 1;
+            occurrences.put(gram, occurrence);
+            result[i] = gram + '\u0000' + occurrence;
+        }
+        return result;
+    }
+
+    /**
+     * Gets the prefix length of a token set with the given minimal overlap.
+     */
+    private static int getPrefix(int size, int minOverlap) {
+        return minOverlap <= 0 ? size : Math.max(0, Math.min(size, size - minOverlap + 1));
+    }
+
+    private static int[] distinctSizes(int[][] records, int[] order) {
+        int[] result = new int[order.length];
+        int count = 0;
+        for (int position : order) {
+            int size = records[position].length;
+            if (count == 0 || result[count - 1] != size) {
+                result[count ++] = size;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    /**
+     * Gets the overlap of two sorted token arrays.
+     */
+    private static int getOverlap(int[] record1, int[] record2) {
+        int overlap = 0;
+        for (int i = 0, j = 0; i < record1.length && j < record2.length;) {
+            if (record1[i] == record2[j]) {
+                overlap ++;
+                i ++;
+                j ++;
+            } else if (record1[i] < record2[j]) {
+                i ++;
+            } else {
+                j ++;
+            }
+        }
+        return overlap;
+    }
+    //</editor-fold>
+}
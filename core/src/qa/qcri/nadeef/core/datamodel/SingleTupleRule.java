@@ -14,7 +14,6 @@
 package qa.qcri.nadeef.core.datamodel;
 
 import java.util.Collection;
-import java.util.HashSet;
 import java.util.List;
 import java.util.concurrent.ConcurrentMap;
 
@@ -65,15 +64,13 @@ public abstract class SingleTupleRule extends Rule<Tuple> {
     }
 
     /**
-     * Default iterator operation.
+     * Default iterator operation. The table is scanned, so a {@link SQLTable} streams
+     * the tuples without loading the whole table.
      * @param blocks input table collection.
      */
     @Override
     public void iterator(Collection<Table> blocks, IteratorResultHandler iteratorBlockingQueue) {
-        Table table = blocks.iterator().next();
-        for (int i = 0; i < table.size(); i ++) {
-            iteratorBlockingQueue.handle(table.get(i));
-        }
+        blocks.iterator().next().scan(iteratorBlockingQueue);
     }
 
     /**
@@ -84,21 +81,23 @@ public abstract class SingleTupleRule extends Rule<Tuple> {
      */
     public final void iterator(
         Collection<Table> tables,
-        ConcurrentMap<String, HashSet<Integer>> newTuples,
-        IteratorResultHandler iteratorResultHandler
+        ConcurrentMap<String, TidBitmap> newTuples,
+        final IteratorResultHandler iteratorResultHandler
     ) {
         Table table = tables.iterator().next();
         String tableName = table.getSchema().getTableName();
 
         if (newTuples.containsKey(tableName)) {
-            HashSet<Integer> newTuplesIDs = newTuples.get(tableName);
+            final TidBitmap newTuplesIDs = newTuples.get(tableName);
             // iterating all the tuples
-            for (int i = 0; i < table.size(); i++) {
-                Tuple tuple1 = table.get(i);
-                if (newTuplesIDs.contains(tuple1.getTid())) {
-                    iteratorResultHandler.handle(tuple1);
+            table.scan(new IteratorResultHandler() {
+                @Override
+                public <T> void handle(T item) {
+                    if (newTuplesIDs.contains(((Tuple)item).getTid())) {
+                        iteratorResultHandler.handle(item);
+                    }
                 }
-            }
+            });
         }
     }
 
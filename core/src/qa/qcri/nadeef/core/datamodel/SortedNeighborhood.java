@@ -0,0 +1,198 @@
+/*
+ * QCRI, NADEEF LICENSE
+ * NADEEF is an extensible, generalized and easy-to-deploy data cleaning platform built at QCRI.
+ * NADEEF means "Clean" in Arabic
+ *
+ * Copyright (c) 2011-2013, Qatar Foundation for Education, Science and Community Development (on
+ * behalf of Qatar Computing Research Institute) having its principle place of business in Doha,
+ * Qatar with the registered address P.O box 5825 Doha, Qatar (hereinafter referred to as "QCRI")
+ *
+ * NADEEF has patent pending nevertheless the following is granted.
+ * NADEEF is released under the terms of the MIT License, (http://opensource.org/licenses/MIT).
+ */
+
+package qa.qcri.nadeef.core.datamodel;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * SortedNeighborhood is a windowed blocking of pair rules. In each pass the tuples are
+ * sorted on a key and every tuple is only paired with the tuples in the window following
+ * it, so the number of pairs grows linearly with the table size. Several passes with
+ * different keys are unioned, a pair found by an earlier pass is not emitted again.
+ *
+ * With two tables the tuples of both tables are sorted together and only the pairs across
+ * the tables are emitted, the key of a tuple is taken from the column of its table.
+ */
+public class SortedNeighborhood implements CandidateGenerator {
+    /**
+     * One pass of the sorted neighborhood.
+     */
+    private static class Pass {
+        final String leftTable;
+        final ColumnHandle leftHandle;
+        final ColumnHandle rightHandle;
+        final int window;
+
+        Pass(String leftTable, ColumnHandle leftHandle, ColumnHandle rightHandle, int window) {
+            this.leftTable = leftTable;
+            this.leftHandle = leftHandle;
+            this.rightHandle = rightHandle;
+            this.window = window;
+        }
+
+        String getKey(Tuple tuple) {
+            return tuple.getString(tuple.isFromTable(leftTable) ? leftHandle : rightHandle);
+        }
+    }
+
+    private List<Pass> passes = Lists.newArrayList();
+
+    //<editor-fold desc="Public methods">
+    /**
+     * Adds a pass sorted on the given columns.
+     * @param leftTable table of the left column.
+     * @param leftColumn sort column of the left table.
+     * @param rightTable table of the right column.
+     * @param rightColumn sort column of the right table.
+     * @param window window size, a tuple is paired with the next <code>window - 1</code>
+     *               tuples.
+     * @return this object.
+     */
+    public SortedNeighborhood pass(
+        String leftTable,
+        String leftColumn,
+        String rightTable,
+        String rightColumn,
+        int window
+    ) {
+        Preconditions.checkArgument(window > 1, "Window size must be larger than 1.");
+        passes.add(
+            new Pass(
+                leftTable,
+                ColumnHandle.of(leftTable, leftColumn),
+                ColumnHandle.of(rightTable, rightColumn),
+                window
+            )
+        );
+        return this;
+    }
+
+    /**
+     * Returns <code>True</code> when there is at least one pass.
+     */
+    public boolean hasPass() {
+        return passes.size() > 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void iterator(Table table, IteratorResultHandler handler) {
+        Tuple[] tuples = new Tuple[table.size()];
+        for (int i = 0; i < tuples.length; i ++) {
+            tuples[i] = table.get(i);
+        }
+        iterate(tuples, 0, handler);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void iterator(Table left, Table right, IteratorResultHandler handler) {
+        Tuple[] tuples = new Tuple[left.size() + right.size()];
+        for (int i = 0; i < left.size(); i ++) {
+            tuples[i] = left.get(i);
+        }
+
+        for (int i = 0; i < right.size(); i ++) {
+            tuples[left.size() + i] = right.get(i);
+        }
+        iterate(tuples, left.size(), handler);
+    }
+    //</editor-fold>
+
+    //<editor-fold desc="Private methods">
+    /**
+     * Runs the passes over the tuples.
+     * @param tuples input tuples.
+     * @param leftSize number of the left tuples, 0 when the pairs are within one table.
+     * @param handler result handler.
+     */
+    private void iterate(Tuple[] tuples, int leftSize, IteratorResultHandler handler) {
+        // ranks[p][i] is the sorted position of tuple i in pass p.
+        int[][] ranks = new int[passes.size()][];
+        for (int p = 0; p < passes.size(); p ++) {
+            Pass pass = passes.get(p);
+            Integer[] order = sort(tuples, pass);
+            ranks[p] = new int[tuples.length];
+            for (int i = 0; i < order.length; i ++) {
+                ranks[p][order[i]] = i;
+            }
+
+            for (int i = 0; i < order.length; i ++) {
+                int end = Math.min(order.length, i + pass.window);
+                for (int j = i + 1; j < end; j ++) {
+                    int first = order[i];
+                    int second = order[j];
+                    if (leftSize > 0 && (first < leftSize) == (second < leftSize)) {
+                        continue;
+                    }
+
+                    if (!isPaired(ranks, p, first, second)) {
+                        if (leftSize > 0 && first >= leftSize) {
+                            handler.handle(new TuplePair(tuples[second], tuples[first]));
+                        } else {
+                            handler.handle(new TuplePair(tuples[first], tuples[second]));
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns <code>True</code> when the pair is already emitted by one of the earlier passes.
+     */
+    private boolean isPaired(int[][] ranks, int pass, int first, int second) {
+        for (int p = 0; p < pass; p ++) {
+            if (Math.abs(ranks[p][first] - ranks[p][second]) < passes.get(p).window) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Sorts the tuple positions on the key of the pass, null keys are put at the end.
+     */
+    private static Integer[] sort(Tuple[] tuples, Pass pass) {
+        final String[] keys = new String[tuples.length];
+        Integer[] order = new Integer[tuples.length];
+        for (int i = 0; i < tuples.length; i ++) {
+            keys[i] = pass.getKey(tuples[i]);
+            order[i] = i;
+        }
+
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer o1, Integer o2) {
+                String key1 = keys[o1];
+                String key2 = keys[o2];
+                if (key1 == null || key2 == null) {
+                    return key1 == null ? (key2 == null ? 0 : 1) : -1;
+                }
+                return key1.compareTo(key2);
+            }
+        });
+        return order;
+    }
+    //</editor-fold>
+}
@@ -16,14 +16,19 @@ package qa.qcri.nadeef.core.datamodel;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Strings;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
 
 /**
  * A Table represents a collection of {@link Tuple}.
  */
 public abstract class Table {
+    private static final int SAMPLE_SIZE = 1 << 12;
+
     protected Schema schema;
     protected String tableName;
 
@@ -66,6 +71,58 @@ public abstract class Table {
      */
     public abstract Tuple get(int i);
 
+    /**
+     * Feeds all the tuples of the table into the handler in order.
+     * @param handler tuple handler.
+     */
+    public void scan(IteratorResultHandler handler) {
+        int size = size();
+        for (int i = 0; i < size; i ++) {
+            handler.handle(get(i));
+        }
+    }
+
+    /**
+     * Estimates the share of the tuple pairs which have the same values on the columns, that
+     * is the share of pairs left after grouping on the columns. The estimate is taken over
+     * an evenly spaced sample of the tuples.
+     * @param columns key columns.
+     * @return share of the pairs in [0, 1], 1 when the table has less than two tuples.
+     */
+    public double getPairSelectivity(List<Column> columns) {
+        int size = size();
+        if (size < 2) {
+            return 1.0;
+        }
+
+        ColumnHandle[] handles = new ColumnHandle[columns.size()];
+        for (int i = 0; i < handles.length; i ++) {
+            handles[i] = ColumnHandle.of(columns.get(i));
+        }
+
+        int step = Math.max(1, size / SAMPLE_SIZE);
+        HashMap<List<String>, Integer> counts = Maps.newHashMap();
+        long sampleSize = 0;
+        for (int i = 0; i < size; i += step) {
+            Tuple tuple = get(i);
+            String[] key = new String[handles.length];
+            for (int j = 0; j < handles.length; j ++) {
+                key[j] = tuple.getString(handles[j]);
+            }
+
+            List<String> keyList = Arrays.asList(key);
+            Integer count = counts.get(keyList);
+            counts.put(keyList, count == null ? 1 : count + 1);
+            sampleSize ++;
+        }
+
+        long pairs = 0;
+        for (int count : counts.values()) {
+            pairs += (long)count * (count - 1);
+        }
+        return (double)pairs / (sampleSize * (sampleSize - 1));
+    }
+
     /**
      * Clean up the resources for this <code>Table</code>. After recycling the table instance
      * should not be used any more.
@@ -0,0 +1,313 @@
+/*
+ * QCRI, NADEEF LICENSE
+ * NADEEF is an extensible, generalized and easy-to-deploy data cleaning platform built at QCRI.
+ * NADEEF means "Clean" in Arabic
+ *
+ * Copyright (c) 2011-2013, Qatar Foundation for Education, Science and Community Development (on
+ * behalf of Qatar Computing Research Institute) having its principle place of business in Doha,
+ * Qatar with the registered address P.O box 5825 Doha, Qatar (hereinafter referred to as "QCRI")
+ *
+ * NADEEF has patent pending nevertheless the following is granted.
+ * NADEEF is released under the terms of the MIT License, (http://opensource.org/licenses/MIT).
+ */
+
+package qa.qcri.nadeef.core.datamodel;
+
+import com.google.common.base.Optional;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import qa.qcri.nadeef.tools.DBConfig;
+import qa.qcri.nadeef.tools.Logger;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * TableSnapshotCache is a process-wide cache of loaded {@link ColumnStore}s. A snapshot is
+ * keyed by the database, the table, the query of the table (projection, filter and order),
+ * the change version of the table and the state of the table in the database. NADEEF bumps
+ * the version whenever it writes into a table. The state is the row count and the max TID
+ * read before each load, so rows inserted or deleted outside of NADEEF drop the snapshot,
+ * while an outside update which keeps both is not seen.
+ *
+ * The cache is off by default and bounded by <code>general.snapshotCacheSize</code> MB,
+ * it evicts the least recently used snapshots. With <code>general.snapshotSpill</code>
+ * evicted snapshots are written into files under the output path and read back through a
+ * memory mapping. The files are scratch space of the process, they are deleted with their
+ * snapshots or on exit and are not reused by a later run.
+ */
+public final class TableSnapshotCache {
+    private static Logger tracer = Logger.getLogger(TableSnapshotCache.class);
+
+    /**
+     * Cache entry, the store is null when the snapshot is spilled into the file.
+     */
+    private static class Entry {
+        final String tableKey;
+        ColumnStore store;
+        long memorySize;
+        File file;
+
+        Entry(String tableKey, ColumnStore store) {
+            this.tableKey = tableKey;
+            this.store = store;
+            this.memorySize = store.getMemorySize();
+        }
+    }
+
+    private static final LinkedHashMap<String, Entry> entries =
+        new LinkedHashMap<>(16, 0.75f, true);
+    private static final HashMap<String, Long> versions = Maps.newHashMap();
+    private static long memorySize;
+    private static int fileCount;
+
+    private TableSnapshotCache() {}
+
+    //<editor-fold desc="Public methods">
+    /**
+     * Gets the change version of a table. The version is taken before a table is loaded,
+     * so that a concurrent change drops the loaded snapshot.
+     * @param dbConfig database config.
+     * @param tableName table name.
+     * @return version.
+     */
+    public static synchronized long getVersion(DBConfig dbConfig, String tableName) {
+        Long version = versions.get(getTableKey(dbConfig, tableName));
+        return version == null ? 0 : version;
+    }
+
+    /**
+     * Returns <code>True</code> when snapshots are cached.
+     */
+    public static boolean isEnabled() {
+        return NadeefConfiguration.getSnapshotCacheSize() > 0;
+    }
+
+    /**
+     * Gets a snapshot of a table query.
+     * @param dbConfig database config.
+     * @param tableName table name.
+     * @param query SQL query of the table.
+     * @param state the state of the table in the database.
+     * @return column store, it is absent when the snapshot is not cached.
+     */
+    public static synchronized Optional<ColumnStore> get(
+        DBConfig dbConfig,
+        String tableName,
+        String query,
+        String state
+    ) {
+        if (!isEnabled()) {
+            return Optional.absent();
+        }
+
+        String tableKey = getTableKey(dbConfig, tableName);
+        String key = getKey(tableKey, getVersion(dbConfig, tableName), state, query);
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return Optional.absent();
+        }
+
+        ColumnStore store = entry.store;
+        if (store == null) {
+            try {
+                store = readFile(entry.file);
+                entry.store = store;
+                memorySize += entry.memorySize;
+                evict(key);
+            } catch (IOException ex) {
+                tracer.error("Reading snapshot " + entry.file + " failed.", ex);
+                remove(key);
+                return Optional.absent();
+            }
+        }
+        return Optional.of(store);
+    }
+
+    /**
+     * Puts a snapshot of a table query.
+     * @param dbConfig database config.
+     * @param tableName table name.
+     * @param query SQL query of the table.
+     * @param version the table version taken before the table is loaded.
+     * @param state the state of the table in the database taken before it is loaded.
+     * @param store column store.
+     */
+    public static synchronized void put(
+        DBConfig dbConfig,
+        String tableName,
+        String query,
+        long version,
+        String state,
+        ColumnStore store
+    ) {
+        Preconditions.checkNotNull(store);
+        if (!isEnabled() || version != getVersion(dbConfig, tableName)) {
+            return;
+        }
+
+        String tableKey = getTableKey(dbConfig, tableName);
+        String key = getKey(tableKey, version, state, query);
+        remove(key);
+        Entry entry = new Entry(tableKey, store);
+        entries.put(key, entry);
+        memorySize += entry.memorySize;
+        evict(key);
+    }
+
+    /**
+     * Drops the snapshots of a table after the table is changed.
+     * @param dbConfig database config.
+     * @param tableName table name.
+     */
+    public static synchronized void invalidate(DBConfig dbConfig, String tableName) {
+        String tableKey = getTableKey(dbConfig, tableName);
+        Long version = versions.get(tableKey);
+        versions.put(tableKey, version == null ? 1 : version + 1);
+
+        List<String> keys = Lists.newArrayList();
+        for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+            if (entry.getValue().tableKey.equals(tableKey)) {
+                keys.add(entry.getKey());
+            }
+        }
+
+        for (String key : keys) {
+            remove(key);
+        }
+    }
+
+    /**
+     * Drops all the snapshots.
+     */
+    public static synchronized void clear() {
+        for (String key : Lists.newArrayList(entries.keySet())) {
+            remove(key);
+        }
+    }
+    //</editor-fold>
+
+    //<editor-fold desc="Private methods">
+    private static String getTableKey(DBConfig dbConfig, String tableName) {
+        return dbConfig.getDialect() + "|" + dbConfig.getUrl() + "|" + dbConfig.getUserName() +
+            "|" + tableName.toLowerCase();
+    }
+
+    private static String getKey(String tableKey, long version, String state, String query) {
+        return tableKey + "|" + version + "|" + state + "|" + query;
+    }
+
+    /**
+     * Evicts the least recently used snapshots until the cache fits, the given snapshot is
+     * evicted last.
+     */
+    private static void evict(String currentKey) {
+        long limit = NadeefConfiguration.getSnapshotCacheSize() * 1024L * 1024L;
+        boolean isSpill = NadeefConfiguration.getSnapshotSpill();
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while (memorySize > limit && iterator.hasNext()) {
+            Map.Entry<String, Entry> next = iterator.next();
+            Entry entry = next.getValue();
+            if (entry.store == null || next.getKey().equals(currentKey)) {
+                continue;
+            }
+
+            if (!isSpill || !spill(entry)) {
+                memorySize -= entry.memorySize;
+                deleteFile(entry);
+                iterator.remove();
+            }
+        }
+
+        // a snapshot larger than the cache is only kept in the file.
+        Entry current = entries.get(currentKey);
+        if (memorySize > limit && current != null && current.store != null) {
+            if (!isSpill || !spill(current)) {
+                remove(currentKey);
+            }
+        }
+    }
+
+    /**
+     * Moves a snapshot from the memory into its file.
+     * @return <code>True</code> when the snapshot is spilled.
+     */
+    private static boolean spill(Entry entry) {
+        try {
+            if (entry.file == null) {
+                entry.file = writeFile(entry.store);
+            }
+            entry.store = null;
+            memorySize -= entry.memorySize;
+            return true;
+        } catch (IOException ex) {
+            tracer.error("Writing snapshot failed.", ex);
+            return false;
+        }
+    }
+
+    private static void remove(String key) {
+        Entry entry = entries.remove(key);
+        if (entry != null) {
+            if (entry.store != null) {
+                memorySize -= entry.memorySize;
+            }
+            deleteFile(entry);
+        }
+    }
+
+    private static File writeFile(ColumnStore store) throws IOException {
+        Path outputPath = NadeefConfiguration.getOutputPath();
+        File directory =
+            new File(
+                outputPath == null ? System.getProperty("java.io.tmpdir") : outputPath.toString(),
+                "snapshot"
+            );
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IOException("Cannot create directory " + directory);
+        }
+
+        // the index of the snapshots lives in the memory, a file is useless to a later run.
+        File file = File.createTempFile("snapshot" + fileCount ++, ".bin", directory);
+        file.deleteOnExit();
+        try (
+            DataOutputStream output =
+                new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))
+        ) {
+            store.write(output);
+        }
+        return file;
+    }
+
+    private static ColumnStore readFile(File file) throws IOException {
+        try (
+            RandomAccessFile input = new RandomAccessFile(file, "r");
+            FileChannel channel = input.getChannel()
+        ) {
+            MappedByteBuffer buffer =
+                channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return ColumnStore.read(buffer);
+        }
+    }
+
+    private static void deleteFile(Entry entry) {
+        if (entry.file != null && !entry.file.delete()) {
+            tracer.info("Cannot delete snapshot " + entry.file);
+        }
+        entry.file = null;
+    }
+    //</editor-fold>
+}
@@ -0,0 +1,587 @@
+/*
+ * QCRI, NADEEF LICENSE
+ * NADEEF is an extensible, generalized and easy-to-deploy data cleaning platform built at QCRI.
+ * NADEEF means "Clean" in Arabic
+ *
+ * Copyright (c) 2011-2013, Qatar Foundation for Education, Science and Community Development (on
+ * behalf of Qatar Computing Research Institute) having its principle place of business in Doha,
+ * Qatar with the registered address P.O box 5825 Doha, Qatar (hereinafter referred to as "QCRI")
+ *
+ * NADEEF has patent pending nevertheless the following is granted.
+ * NADEEF is released under the terms of the MIT License, (http://opensource.org/licenses/MIT).
+ */
+
+package qa.qcri.nadeef.core.datamodel;
+
+import com.google.common.base.Preconditions;
+
+import java.util.Arrays;
+
+/**
+ * TidBitmap is a compressed set of tuple ids, organized the way roaring bitmaps are. The
+ * tids are split on their high 16 bits into chunks, a sparse chunk keeps its low 16 bits in
+ * a sorted array and a dense chunk in a 65536 bit bitmap. A range of appended tids costs a
+ * bit per tid instead of a boxed integer.
+ *
+ * A bitmap is not thread safe while it is being built, it can be read by several threads
+ * afterwards.
+ */
+public class TidBitmap {
+    // an array chunk is converted to a bitmap chunk beyond this size, where both take 8KB.
+    private static final int ARRAY_MAX = 4096;
+    private static final int AND = 0;
+    private static final int OR = 1;
+    private static final int AND_NOT = 2;
+
+    private char[] keys;
+    private Container[] containers;
+    private int count;
+
+    //<editor-fold desc="Constructor">
+    /**
+     * Creates an empty bitmap.
+     */
+    public TidBitmap() {
+        keys = new char[4];
+        containers = new Container[4];
+    }
+
+    /**
+     * Creates a bitmap of the given tids.
+     * @param tids tids.
+     * @return bitmap.
+     */
+    public static TidBitmap of(int... tids) {
+        TidBitmap result = new TidBitmap();
+        for (int tid : tids) {
+            result.add(tid);
+        }
+        return result;
+    }
+    //</editor-fold>
+
+    //<editor-fold desc="Public methods">
+    /**
+     * Adds a tid.
+     * @param tid tid.
+     */
+    public void add(int tid) {
+        Preconditions.checkArgument(tid >= 0, "Tid cannot be negative.");
+        char key = (char)(tid >>> 16);
+        int index = search(key);
+        if (index >= 0) {
+            containers[index] = containers[index].add(tid & 0xFFFF);
+        } else {
+            insert(-index - 1, key, new ArrayContainer().add(tid & 0xFFFF));
+        }
+    }
+
+    /**
+     * Adds the tids from <code>start</code> inclusive to <code>end</code> exclusive.
+     * @param start first tid.
+     * @param end tid after the last one.
+     */
+    public void addRange(int start, int end) {
+        Preconditions.checkArgument(start >= 0, "Tid cannot be negative.");
+        if (start >= end) {
+            return;
+        }
+
+        int last = end - 1;
+        for (int key = start >>> 16; key <= last >>> 16; key ++) {
+            int low = key == start >>> 16 ? start & 0xFFFF : 0;
+            int high = key == last >>> 16 ? last & 0xFFFF : 0xFFFF;
+            int index = search((char)key);
+            if (index < 0) {
+                index = -index - 1;
+                insert(index, (char)key, new ArrayContainer());
+            }
+            containers[index] = containers[index].addRange(low, high);
+        }
+    }
+
+    /**
+     * Returns <code>True</code> when the tid is in the bitmap.
+     * @param tid tid.
+     * @return <code>True</code> when the tid is in the bitmap.
+     */
+    public boolean contains(int tid) {
+        if (tid < 0) {
+            return false;
+        }
+        int index = search((char)(tid >>> 16));
+        return index >= 0 && containers[index].contains(tid & 0xFFFF);
+    }
+
+    /**
+     * Gets the number of tids.
+     * @return the number of tids.
+     */
+    public int size() {
+        int result = 0;
+        for (int i = 0; i < count; i ++) {
+            result += containers[i].cardinality();
+        }
+        return result;
+    }
+
+    /**
+     * Returns <code>True</code> when the bitmap has no tid.
+     * @return <code>True</code> when the bitmap has no tid.
+     */
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    /**
+     * Gets the number of tids which are smaller than or equal to the given tid.
+     * @param tid tid.
+     * @return rank of the tid.
+     */
+    public int rank(int tid) {
+        if (tid < 0) {
+            return 0;
+        }
+
+        char key = (char)(tid >>> 16);
+        int result = 0;
+        for (int i = 0; i < count && keys[i] <= key; i ++) {
+            if (keys[i] < key) {
+                result += containers[i].cardinality();
+            } else {
+                result += containers[i].rank(tid & 0xFFFF);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Gets the smallest tid which is larger than or equal to the given tid.
+     * @param tid tid.
+     * @return the next tid, or -1 when there is none.
+     */
+    public int next(int tid) {
+        tid = Math.max(0, tid);
+        int index = search((char)(tid >>> 16));
+        if (index >= 0) {
+            int value = containers[index].next(tid & 0xFFFF);
+            if (value >= 0) {
+                return keys[index] << 16 | value;
+            }
+            index ++;
+        } else {
+            index = -index - 1;
+        }
+        return index < count ? keys[index] << 16 | containers[index].next(0) : -1;
+    }
+
+    /**
+     * Gets the tids which are in both bitmaps.
+     * @param other other bitmap.
+     * @return intersection of the bitmaps.
+     */
+    public TidBitmap and(TidBitmap other) {
+        return combine(other, AND);
+    }
+
+    /**
+     * Gets the tids which are in either bitmap.
+     * @param other other bitmap.
+     * @return union of the bitmaps.
+     */
+    public TidBitmap or(TidBitmap other) {
+        return combine(other, OR);
+    }
+
+    /**
+     * Gets the tids which are in this bitmap but not in the other one.
+     * @param other other bitmap.
+     * @return difference of the bitmaps.
+     */
+    public TidBitmap andNot(TidBitmap other) {
+        return combine(other, AND_NOT);
+    }
+
+    /**
+     * Gets the tids in ascending order.
+     * @return tids.
+     */
+    public int[] toArray() {
+        int[] result = new int[size()];
+        int size = 0;
+        for (int tid = next(0); tid >= 0; tid = tid == Integer.MAX_VALUE ? -1 : next(tid + 1)) {
+            result[size ++] = tid;
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return "TidBitmap(" + size() + ")";
+    }
+    //</editor-fold>
+
+    //<editor-fold desc="Private methods">
+    private int search(char key) {
+        return Arrays.binarySearch(keys, 0, count, key);
+    }
+
+    private void insert(int index, char key, Container container) {
+        if (count == keys.length) {
+            keys = Arrays.copyOf(keys, count * 2);
+            containers = Arrays.copyOf(containers, count * 2);
+        }
+        System.arraycopy(keys, index, keys, index + 1, count - index);
+        System.arraycopy(containers, index, containers, index + 1, count - index);
+        keys[index] = key;
+        containers[index] = container;
+        count ++;
+    }
+
+    private TidBitmap combine(TidBitmap other, int op) {
+        TidBitmap result = new TidBitmap();
+        int i = 0;
+        int j = 0;
+        while (i < count || j < other.count) {
+            int compare;
+            if (i == count) {
+                compare = 1;
+            } else if (j == other.count) {
+                compare = -1;
+            } else {
+                compare = keys[i] - other.keys[j];
+            }
+
+            if (compare < 0) {
+                if (op != AND) {
+                    result.insert(result.count, keys[i], containers[i].copy());
+                }
+                i ++;
+            } else if (compare > 0) {
+                if (op == OR) {
+                    result.insert(result.count, other.keys[j], other.containers[j].copy());
+                }
+                j ++;
+            } else {
+                Container container;
+                if (op == AND) {
+                    container = containers[i].and(other.containers[j]);
+                } else if (op == OR) {
+                    container = containers[i].or(other.containers[j]);
+                } else {
+                    container = containers[i].andNot(other.containers[j]);
+                }
+
+                if (container.cardinality() > 0) {
+                    result.insert(result.count, keys[i], container);
+                }
+                i ++;
+                j ++;
+            }
+        }
+        return result;
+    }
+    //</editor-fold>
+
+    //<editor-fold desc="Containers">
+    /**
+     * The low 16 bits of the tids of a chunk. Updates return the container to use
+     * afterwards, which is a new one when the representation changes. Set operations return
+     * new containers.
+     */
+    private static abstract class Container {
+        abstract Container add(int value);
+
+        abstract Container addRange(int low, int high);
+
+        abstract boolean contains(int value);
+
+        abstract int cardinality();
+
+        abstract int rank(int value);
+
+        abstract int next(int value);
+
+        abstract Container copy();
+
+        abstract BitmapContainer toBitmap();
+
+        Container and(Container other) {
+            if (this instanceof ArrayContainer) {
+                return ((ArrayContainer)this).filter(other, true);
+            }
+            if (other instanceof ArrayContainer) {
+                return ((ArrayContainer)other).filter(this, true);
+            }
+            return ((BitmapContainer)this).combine((BitmapContainer)other, AND);
+        }
+
+        Container or(Container other) {
+            if (
+                this instanceof ArrayContainer &&
+                other instanceof ArrayContainer &&
+                cardinality() + other.cardinality() <= ARRAY_MAX
+            ) {
+                return ((ArrayContainer)this).union((ArrayContainer)other);
+            }
+            return toBitmap().combine(other.toBitmap(), OR);
+        }
+
+        Container andNot(Container other) {
+            if (this instanceof ArrayContainer) {
+                return ((ArrayContainer)this).filter(other, false);
+            }
+            return ((BitmapContainer)this).combine(other.toBitmap(), AND_NOT);
+        }
+    }
+
+    private static class ArrayContainer extends Container {
+        private char[] values;
+        private int size;
+
+        ArrayContainer() {
+            this(new char[4], 0);
+        }
+
+        ArrayContainer(char[] values, int size) {
+            this.values = values;
+            this.size = size;
+        }
+
+        @Override
+        Container add(int value) {
+            int index = Arrays.binarySearch(values, 0, size, (char)value);
+            if (index >= 0) {
+                return this;
+            }
+
+            if (size == ARRAY_MAX) {
+                return toBitmap().add(value);
+            }
+
+            index = -index - 1;
+            if (size == values.length) {
+                values = Arrays.copyOf(values, Math.min(ARRAY_MAX, size * 2));
+            }
+            System.arraycopy(values, index, values, index + 1, size - index);
+            values[index] = (char)value;
+            size ++;
+            return this;
+        }
+
+        @Override
+        Container addRange(int low, int high) {
+            if (size + high - low + 1 > ARRAY_MAX) {
+                return toBitmap().addRange(low, high);
+            }
+
+            // merges the range into the sorted values.
+            char[] result = new char[size + high - low + 1];
+            int resultSize = 0;
+            int i = 0;
+            while (i < size && values[i] < low) {
+                result[resultSize ++] = values[i ++];
+            }
+            for (int value = low; value <= high; value ++) {
+                result[resultSize ++] = (char)value;
+            }
+            while (i < size && values[i] <= high) {
+                i ++;
+            }
+            while (i < size) {
+                result[resultSize ++] = values[i ++];
+            }
+            values = result;
+            size = resultSize;
+            return this;
+        }
+
+        @Override
+        boolean contains(int value) {
+            return Arrays.binarySearch(values, 0, size, (char)value) >= 0;
+        }
+
+        @Override
+        int cardinality() {
+            return size;
+        }
+
+        @Override
+        int rank(int value) {
+            int index = Arrays.binarySearch(values, 0, size, (char)value);
+            return index >= 0 ? index + 1 : -index - 1;
+        }
+
+        @Override
+        int next(int value) {
+            int index = Arrays.binarySearch(values, 0, size, (char)value);
+            if (index >= 0) {
+                return value;
+            }
+            index = -index - 1;
+            return index < size ? values[index] : -1;
+        }
+
+        @Override
+        Container copy() {
+            return new ArrayContainer(Arrays.copyOf(values, Math.max(size, 1)), size);
+        }
+
+        @Override
+        BitmapContainer toBitmap() {
+            BitmapContainer result = new BitmapContainer();
+            for (int i = 0; i < size; i ++) {
+                result.add(values[i]);
+            }
+            return result;
+        }
+
+        ArrayContainer filter(Container other, boolean isKept) {
+            char[] result = new char[Math.max(size, 1)];
+            int resultSize = 0;
+            for (int i = 0; i < size; i ++) {
+                if (other.contains(values[i]) == isKept) {
+                    result[resultSize ++] = values[i];
+                }
+            }
+            return new ArrayContainer(result, resultSize);
+        }
+
+        ArrayContainer union(ArrayContainer other) {
+            char[] result = new char[Math.max(size + other.size, 1)];
+            int resultSize = 0;
+            int i = 0;
+            int j = 0;
+            while (i < size || j < other.size) {
+                if (j == other.size || i < size && values[i] < other.values[j]) {
+                    result[resultSize ++] = values[i ++];
+                } else if (i == size || other.values[j] < values[i]) {
+                    result[resultSize ++] = other.values[j ++];
+                } else {
+                    result[resultSize ++] = values[i ++];
+                    j ++;
+                }
+            }
+            return new ArrayContainer(result, resultSize);
+        }
+    }
+
+    private static class BitmapContainer extends Container {
+        private final long[] words;
+        private int cardinality;
+
+        BitmapContainer() {
+            this(new long[1024], 0);
+        }
+
+        BitmapContainer(long[] words, int cardinality) {
+            this.words = words;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        Container add(int value) {
+            long word = words[value >>> 6];
+            long bit = 1L << value;
+            if ((word & bit) == 0) {
+                words[value >>> 6] = word | bit;
+                cardinality ++;
+            }
+            return this;
+        }
+
+        @Override
+        Container addRange(int low, int high) {
+            for (int i = low >>> 6; i <= high >>> 6; i ++) {
+                long mask = -1L;
+                if (i == low >>> 6) {
+                    mask &= -1L << low;
+                }
+                if (i == high >>> 6) {
+                    mask &= -1L >>> (63 - (high & 63));
+                }
+                cardinality += Long.bitCount(mask & ~words[i]);
+                words[i] |= mask;
+            }
+            return this;
+        }
+
+        @Override
+        boolean contains(int value) {
+            return (words[value >>> 6] & 1L << value) != 0;
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        int rank(int value) {
+            int result = 0;
+            int index = value >>> 6;
+            for (int i = 0; i < index; i ++) {
+                result += Long.bitCount(words[i]);
+            }
+            return result + Long.bitCount(words[index] & -1L >>> (63 - (value & 63)));
+        }
+
+        @Override
+        int next(int value) {
+            int index = value >>> 6;
+            long word = words[index] & -1L << value;
+            while (word == 0) {
+                if (++ index == words.length) {
+                    return -1;
+                }
+                word = words[index];
+            }
+            return index * 64 + Long.numberOfTrailingZeros(word);
+        }
+
+        @Override
+        Container copy() {
+            return new BitmapContainer(words.clone(), cardinality);
+        }
+
+        @Override
+        BitmapContainer toBitmap() {
+            return this;
+        }
+
+        Container combine(BitmapContainer other, int op) {
+            long[] result = new long[words.length];
+            int resultCardinality = 0;
+            for (int i = 0; i < words.length; i ++) {
+                if (op == AND) {
+                    result[i] = words[i] & other.words[i];
+                } else if (op == OR) {
+                    result[i] = words[i] | other.words[i];
+                } else {
+                    result[i] = words[i] & ~other.words[i];
+                }
+                resultCardinality += Long.bitCount(result[i]);
+            }
+
+            if (resultCardinality > ARRAY_MAX) {
+                return new BitmapContainer(result, resultCardinality);
+            }
+
+            // sparse results go back to an array.
+            char[] values = new char[Math.max(resultCardinality, 1)];
+            int size = 0;
+            for (int i = 0; i < result.length; i ++) {
+                long word = result[i];
+                while (word != 0) {
+                    values[size ++] = (char)(i * 64 + Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+            return new ArrayContainer(values, size);
+        }
+    }
+    //</editor-fold>
+}
@@ -16,23 +16,23 @@ package qa.qcri.nadeef.core.datamodel;
 import com.google.common.base.Optional;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
-import qa.qcri.nadeef.tools.Logger;
 
 import java.nio.charset.Charset;
+import java.util.Collection;
 import java.util.List;
-import java.util.ArrayList;
 
 
 /**
- * Tuple class represents a tuple (row) in a table.
+ * Tuple class represents a tuple (row) in a table. A tuple is a light-weight view on one row
+ * of a {@link ColumnStore}.
  */
 public class Tuple {
-    private Logger tracer = Logger.getLogger(Tuple.class);
-
     //<editor-fold desc="Private Fields">
-    private List<byte[]> values;
+    private ColumnStore store;
+    private int row;
     private Schema schema;
-    private int tid;
+    // maps the schema ordinal to the column ordinal in the store.
+    private int[] columnMap;
     //</editor-fold>
 
     //<editor-fold desc="Public Members">
@@ -60,29 +60,56 @@ public class Tuple {
             throw new IllegalArgumentException("Tuple ID cannot be less than 1.");
         }
 
-        this.tid = tupleId;
+        ColumnStore.Builder builder = new ColumnStore.Builder(schema, 1);
+        builder.newRow(tupleId);
+        for (int i = 0; i < values.size(); i ++) {
+            byte[] bytes = values.get(i);
+            builder.set(i, bytes == null ? null : new String(bytes, Charset.forName("UTF-8")));
+        }
+
+        this.store = builder.build();
+        this.row = 0;
+        this.schema = schema;
+        this.columnMap = identityMap(schema.size());
+    }
+
+    /**
+     * Construct a tuple as a view on a row of a {@link ColumnStore}.
+     * @param store column store.
+     * @param row row index.
+     * @param schema tuple schema.
+     * @param columnMap schema ordinal to store column ordinal map.
+     */
+    Tuple(ColumnStore store, int row, Schema schema, int[] columnMap) {
+        this.store = store;
+        this.row = row;
         this.schema = schema;
-        this.values = values;
+        this.columnMap = columnMap;
     }
 
 	public List<byte[]> getValues(){
+        List<byte[]> values = Lists.newArrayList();
+        for (int i = 0; i < columnMap.length; i ++) {
+            String value = store.getString(columnMap[i], row);
+            values.add(value == null ? null : value.getBytes(Charset.forName("UTF-8")));
+        }
 		return values;
 	}
 
 	public Tuple cloneObj(){
-		List<byte[]> clonedValues = new ArrayList<byte[]>();
-		for (byte[] v : this.values){
-			clonedValues.add((byte[])v.clone());
-		}
-		Tuple tuple = new Tuple(tid,schema, clonedValues);
+		Tuple tuple = new Tuple(getTid(), schema, getValues());
 		return tuple;
 	}
 
 	
 	public void setCell(String columnName, byte[] value){
-		Column column = new Column(schema.getTableName(), columnName);
+		Column column = ColumnRegistry.intern(schema.getTableName(), columnName);
 		 int index = schema.get(column);
-		 values.set(index, value);
+		 store.set(
+             columnMap[index],
+             row,
+             value == null ? null : new String(value, Charset.forName("UTF-8"))
+         );
 	}
 
 	
@@ -93,35 +120,7 @@ public class Tuple {
      */
     public Object get(Column key) {
         int index = schema.get(key);
-        byte[] bytes = values.get(index);
-        Object result = null;
-        if (bytes != null) {
-            DataType type = schema.getTypes()[index];
-            String stringValue = new String(bytes, Charset.forName("UTF-8"));
-            switch (type) {
-                case STRING:
-                    result = stringValue;
-                    break;
-                case INTEGER:
-                    result = Integer.parseInt(stringValue);
-                    break;
-                case DOUBLE:
-                    result = Double.parseDouble(stringValue);
-                    break;
-                case FLOAT:
-                    result = Float.parseFloat(stringValue);
-                    break;
-                case BOOL:
-                    result = Boolean.parseBoolean(stringValue);
-                    break;
-                case TIMESTAMP:
-                    result = stringValue;
-                    break;
-                default:
-                    throw new UnsupportedOperationException("Unknown data type");
-            }
-        }
-        return result;
+        return store.getObject(columnMap[index], row);
     }
 
     /**
@@ -130,16 +129,119 @@ public class Tuple {
      * @return Output Value
      */
     public Object get(String columnName) {
-        Column column = new Column(schema.getTableName(), columnName);
+        Column column = ColumnRegistry.intern(schema.getTableName(), columnName);
         return get(column);
     }
 
+    /**
+     * Gets the int value at the given schema ordinal. The column has to be an INTEGER
+     * or a BOOL column, BOOL values are returned as 1 or 0.
+     * @param ordinal column ordinal in the tuple schema.
+     * @return int value.
+     */
+    public int getInt(int ordinal) {
+        return store.getInt(columnMap[ordinal], row);
+    }
+
+    /**
+     * Gets the double value at the given schema ordinal. The column has to be a numerical
+     * column.
+     * @param ordinal column ordinal in the tuple schema.
+     * @return double value.
+     */
+    public double getDouble(int ordinal) {
+        return store.getDouble(columnMap[ordinal], row);
+    }
+
+    /**
+     * Gets the string value at the given schema ordinal.
+     * @param ordinal column ordinal in the tuple schema.
+     * @return string value, or null.
+     */
+    public String getString(int ordinal) {
+        return store.getString(columnMap[ordinal], row);
+    }
+
+    /**
+     * Returns <code>True</code> when the value at the given schema ordinal is null.
+     * @param ordinal column ordinal in the tuple schema.
+     * @return <code>True</code> when the value is null.
+     */
+    public boolean isNull(int ordinal) {
+        return store.isNull(columnMap[ordinal], row);
+    }
+
+    /**
+     * Gets a 64 bit hash of the value at the given schema ordinal, see
+     * {@link ColumnStore#getValueHash}. Equal values of a column have the same hash in any
+     * store.
+     * @param ordinal column ordinal in the tuple schema.
+     * @return value hash.
+     */
+    public long getValueHash(int ordinal) {
+        return store.getValueHash(columnMap[ordinal], row);
+    }
+
+    /**
+     * Gets the data type at the given schema ordinal.
+     * @param ordinal column ordinal in the tuple schema.
+     * @return data type.
+     */
+    public DataType getType(int ordinal) {
+        return store.getType(columnMap[ordinal]);
+    }
+
+    /**
+     * Gets the value from the tuple.
+     * @param handle column handle.
+     * @return Output Value
+     */
+    public Object get(ColumnHandle handle) {
+        return store.getObject(columnMap[handle.getOrdinal(schema)], row);
+    }
+
+    /**
+     * Gets the int value of a column, see {@link #getInt(int)}.
+     * @param handle column handle.
+     * @return int value.
+     */
+    public int getInt(ColumnHandle handle) {
+        return getInt(handle.getOrdinal(schema));
+    }
+
+    /**
+     * Gets the double value of a column, see {@link #getDouble(int)}.
+     * @param handle column handle.
+     * @return double value.
+     */
+    public double getDouble(ColumnHandle handle) {
+        return getDouble(handle.getOrdinal(schema));
+    }
+
+    /**
+     * Gets the string value of a column.
+     * @param handle column handle.
+     * @return string value, or null.
+     */
+    public String getString(ColumnHandle handle) {
+        return getString(handle.getOrdinal(schema));
+    }
+
+    /**
+     * Returns <code>True</code> when the value of a column is null.
+     * @param handle column handle.
+     * @return <code>True</code> when the value is null.
+     */
+    public boolean isNull(ColumnHandle handle) {
+        return isNull(handle.getOrdinal(schema));
+    }
+
     /**
      * Gets the Tuple id.
      * @return tuple id.
      */
     public int getTid() {
-        return tid;
+        return store.getTid(row);
     }
 
     /**
@@ -148,7 +250,21 @@ public class Tuple {
      * @return Cell.
      */
     public Cell getCell(Column key) {
-        return new Cell(key, tid, get(key));
+        return new Cell(key, getTid(), get(key));
+    }
+
+    /**
+     * Gets the Cell given a column handle.
+     * @param handle column handle.
+     * @return Cell.
+     */
+    public Cell getCell(ColumnHandle handle) {
+        int ordinal = handle.getOrdinal(schema);
+        return new Cell(
+            schema.getColumns()[ordinal],
+            getTid(),
+            store.getObject(columnMap[ordinal], row)
+        );
     }
 
     /**
@@ -157,7 +273,7 @@ public class Tuple {
      * @return Cell.
      */
     public Cell getCell(String key) {
-        return getCell(new Column(schema.getTableName(), key));
+        return getCell(ColumnRegistry.intern(schema.getTableName(), key));
     }
 
     /**
@@ -165,15 +281,8 @@ public class Tuple {
      * @return value collections.
      */
     public ImmutableSet<Cell> getCells() {
-        Column[] columns = schema.getColumns();
         List<Cell> cells = Lists.newArrayList();
-        for (Column column : columns) {
-            if (column.getColumnName().equalsIgnoreCase("tid")) {
-                continue;
-            }
-            Cell cell = new Cell(column, tid, get(column));
-            cells.add(cell);
-        }
+        appendCells(cells);
         return ImmutableSet.copyOf(cells);
     }
 
@@ -216,42 +325,44 @@ public class Tuple {
             return false;
         }
 
-        if (this == tuple || this.values == tuple.values) {
+        if (
+            this == tuple ||
+            (store == tuple.store && row == tuple.row && columnMap == tuple.columnMap)
+        ) {
             return true;
         }
 
-        if (values.size() != tuple.values.size()) {
+        if (columnMap.length != tuple.columnMap.length) {
             return false;
         }
 
         // Tuples are the same when TID is the same within the same table.
         if (
-            tid == tuple.tid &&
+            getTid() == tuple.getTid() &&
             schema.getTableName().equalsIgnoreCase(tuple.schema.getTableName())
         ) {
             return true;
         }
 
         Optional<Integer> tidIndex = schema.getTidIndex();
-        for (int i = 0; i < values.size(); i ++) {
+        int skip = tidIndex.isPresent() ? tidIndex.get() : -1;
+        for (int i = 0; i < columnMap.length; i ++) {
             // skip the TID compare because we know that they are different.
-            if (tidIndex.isPresent() && i == tidIndex.get()) {
+            if (i == skip) {
                 continue;
             }
 
-            if (values.get(i) == tuple.values.get(i)) {
+            boolean isNull = isNull(i);
+            if (isNull || tuple.isNull(i)) {
+                if (isNull != tuple.isNull(i)) {
+                    return false;
+                }
                 continue;
             }
 
-            if (values.get(i).length != tuple.values.get(i).length) {
+            if (!isSameValue(this, i, tuple, i)) {
                 return false;
             }
-
-            for (int j = 0; j < values.get(i).length; j ++) {
-                if (values.get(i)[j] != tuple.values.get(i)[j]) {
-                    return false;
-                }
-            }
         }
         return true;
     }
@@ -262,13 +373,130 @@ public class Tuple {
      */
     void project(Schema newSchema) {
         Column[] columns = newSchema.getColumns();
-        List<byte[]> nvalues = Lists.newArrayList();
-        for (Column column : columns) {
-            int index = schema.get(column);
-            nvalues.add(values.get(index));
+        int[] newColumnMap = new int[columns.length];
+        for (int i = 0; i < columns.length; i ++) {
+            newColumnMap[i] = columnMap[schema.get(columns[i])];
         }
-        values = nvalues;
+        columnMap = newColumnMap;
         schema = newSchema;
     }
     //</editor-fold>
+
+    //<editor-fold desc="Package Members">
+    /**
+     * Gets the row index of the tuple in its store.
+     * @return row index.
+     */
+    int getRow() {
+        return row;
+    }
+
+    /**
+     * Gets the store backing the tuple.
+     * @return column store.
+     */
+    ColumnStore getStore() {
+        return store;
+    }
+
+    /**
+     * Appends the cells of the tuple except the TID cell.
+     * @param cells output cells.
+     */
+    void appendCells(Collection<Cell> cells) {
+        Column[] columns = schema.getColumns();
+        Optional<Integer> tidIndex = schema.getTidIndex();
+        int skip = tidIndex.isPresent() ? tidIndex.get() : -1;
+        int tid = getTid();
+        for (int i = 0; i < columns.length; i ++) {
+            if (i == skip) {
+                continue;
+            }
+            cells.add(new Cell(columns[i], tid, store.getObject(columnMap[i], row)));
+        }
+    }
+
+    /**
+     * Returns <code>True</code> when two non-null values are the same.
+     */
+    static boolean isSameValue(Tuple tuple1, int ordinal1, Tuple tuple2, int ordinal2) {
+        DataType type1 = tuple1.getType(ordinal1);
+        DataType type2 = tuple2.getType(ordinal2);
+        if (type1 != type2) {
+            return tuple1.getString(ordinal1).equals(tuple2.getString(ordinal2));
+        }
+
+        switch (type1) {
+            case INTEGER:
+            case BOOL:
+                return tuple1.getInt(ordinal1) == tuple2.getInt(ordinal2);
+            case DOUBLE:
+            case FLOAT:
+                return Double.doubleToLongBits(tuple1.getDouble(ordinal1)) ==
+                    Double.doubleToLongBits(tuple2.getDouble(ordinal2));
+            default:
+                // strings from the same dictionary are the same when the codes are the same.
+                if (isSameDictionary(tuple1, ordinal1, tuple2, ordinal2)) {
+                    return tuple1.store.getInt(tuple1.columnMap[ordinal1], tuple1.row) ==
+                        tuple2.store.getInt(tuple2.columnMap[ordinal2], tuple2.row);
+                }
+                return tuple1.getString(ordinal1).equals(tuple2.getString(ordinal2));
+        }
+    }
+
+    /**
+     * Compares two non-null values. Numerical values are compared by value and the others
+     * are compared by their string value.
+     */
+    static int compareValue(Tuple tuple1, int ordinal1, Tuple tuple2, int ordinal2) {
+        DataType type1 = tuple1.getType(ordinal1);
+        DataType type2 = tuple2.getType(ordinal2);
+        if (type1 == DataType.INTEGER && type2 == DataType.INTEGER ||
+            type1 == DataType.BOOL && type2 == DataType.BOOL) {
+            return Integer.compare(tuple1.getInt(ordinal1), tuple2.getInt(ordinal2));
+        }
+
+        if (isNumerical(type1) && isNumerical(type2)) {
+            return Double.compare(tuple1.getDouble(ordinal1), tuple2.getDouble(ordinal2));
+        }
+
+        if (
+            isSameDictionary(tuple1, ordinal1, tuple2, ordinal2) &&
+            tuple1.store.getInt(tuple1.columnMap[ordinal1], tuple1.row) ==
+                tuple2.store.getInt(tuple2.columnMap[ordinal2], tuple2.row)
+        ) {
+            return 0;
+        }
+        return tuple1.getString(ordinal1).compareTo(tuple2.getString(ordinal2));
+    }
+
+    static boolean isNumerical(DataType type) {
+        return type == DataType.INTEGER || type == DataType.DOUBLE || type == DataType.FLOAT;
+    }
+
+    private static boolean isSameDictionary(
+        Tuple tuple1,
+        int ordinal1,
+        Tuple tuple2,
+        int ordinal2
+    ) {
+        return tuple1.store == tuple2.store &&
+            tuple1.columnMap[ordinal1] == tuple2.columnMap[ordinal2] &&
+            (tuple1.getType(ordinal1) == DataType.STRING ||
+             tuple1.getType(ordinal1) == DataType.TIMESTAMP);
+    }
+
+    /**
+     * Creates an identity column map.
+     * @param size column count.
+     * @return identity column map.
+     */
+    static int[] identityMap(int size) {
+        int[] result = new int[size];
+        for (int i = 0; i < size; i ++) {
+            result[i] = i;
+        }
+        return result;
+    }
+    //</editor-fold>
 }
@@ -23,9 +23,10 @@ import java.util.List;
  *
  */
 class TupleComparator implements Comparator<Tuple> {
-    private List<Column> columns;
+    private ColumnHandle[] handles;
+
     private TupleComparator(List<Column> columns) {
-        this.columns = columns;
+        this.handles = ColumnHandle.of(columns);
     }
 
     /**
@@ -52,11 +53,21 @@ class TupleComparator implements Comparator<Tuple> {
      */
     @Override
     public int compare(Tuple o1, Tuple o2) {
+        Schema schema1 = o1.getSchema();
+        Schema schema2 = o2.getSchema();
         int result = 0;
-        for (Column column : columns) {
-            String s1 = o1.get(column).toString();
-            String s2 = o2.get(column).toString();
-            result = s1.compareTo(s2);
+        for (ColumnHandle handle : handles) {
+            int ordinal1 = handle.getOrdinal(schema1);
+            int ordinal2 = schema1 == schema2 ? ordinal1 : handle.getOrdinal(schema2);
+            boolean isNull1 = o1.isNull(ordinal1);
+            boolean isNull2 = o2.isNull(ordinal2);
+            if (isNull1 || isNull2) {
+                // null values are ordered first.
+                result = isNull1 == isNull2 ? 0 : (isNull1 ? -1 : 1);
+            } else {
+                result = Tuple.compareValue(o1, ordinal1, o2, ordinal2);
+            }
+
             if (result != 0) {
                 break;
             }
@@ -16,19 +16,26 @@ package qa.qcri.nadeef.core.datamodel;
 import com.google.common.base.Optional;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Strings;
-import com.google.common.collect.Sets;
+import com.google.common.collect.Lists;
 
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.Set;
+import java.util.List;
 
 /**
- * Violation class.
+ * Violation class. The violated cells are kept as packed cell keys (see {@link CellKey}),
+ * the values of the cells of a whole tuple are only read from the tuple when they are
+ * needed, e.g. when the violation is exported.
  */
 public class Violation {
     public static final int UnknownId = -1;
     private String ruleId;
-    private Set<Cell> cells;
     private Optional<Integer> vid;
+    // cell keys in ascending order.
+    private long[] keys;
+    // the tuple or the cell of each key.
+    private Object[] sources;
+    private int size;
 
     /**
      * Gets the rule Id of this violation.
@@ -45,7 +52,8 @@ public class Violation {
     public Violation(String ruleId) {
         Preconditions.checkArgument(!Strings.isNullOrEmpty(ruleId));
         this.ruleId = ruleId;
-        this.cells = Sets.newHashSet();
+        this.keys = new long[0];
+        this.sources = new Object[0];
         this.vid = Optional.absent();
     }
 
@@ -54,18 +62,20 @@ public class Violation {
      * @param ruleId rule id.
      */
     public Violation(String ruleId, int vid) {
-        Preconditions.checkArgument(!Strings.isNullOrEmpty(ruleId));
-        this.ruleId = ruleId;
-        this.cells = Sets.newHashSet();
+        this(ruleId);
         this.vid = Optional.of(vid);
     }
 
     /**
-     * Gets the row collection.
-     * @return collection row.
+     * Gets the violated cells, the cells are created with their values on each call.
+     * @return violated cells.
      */
     public Collection<Cell> getCells() {
-        return cells;
+        List<Cell> result = Lists.newArrayListWithCapacity(size);
+        for (int i = 0; i < size; i ++) {
+            result.add(getCell(i));
+        }
+        return result;
     }
 
     /**
@@ -77,25 +87,78 @@ public class Violation {
      */
     public Cell getCell(String tableName, String columnName) {
         // TODO: buggy
-        for (Cell cell : cells) {
-            Column column = cell.getColumn();
+        for (int i = 0; i < size; i ++) {
+            Column column = getColumn(i);
             if (
                 column.isFromTable(tableName) &&
                 column.getColumnName().equalsIgnoreCase(columnName)
             ) {
-                return cell;
+                return getCell(i);
             }
         }
         return null;
     }
 
+    /**
+     * Gets the number of violated cells.
+     * @return the number of violated cells.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets the packed key of a violated cell.
+     * @param i cell index.
+     * @return cell key.
+     */
+    public long getKey(int i) {
+        Preconditions.checkElementIndex(i, size);
+        return keys[i];
+    }
+
+    /**
+     * Gets the column of a violated cell.
+     * @param i cell index.
+     * @return column.
+     */
+    public Column getColumn(int i) {
+        Preconditions.checkElementIndex(i, size);
+        if (sources[i] instanceof Cell) {
+            return ((Cell)sources[i]).getColumn();
+        }
+        return CellKey.getColumn(keys[i]);
+    }
+
+    /**
+     * Gets the tuple id of a violated cell.
+     * @param i cell index.
+     * @return tuple id.
+     */
+    public int getTid(int i) {
+        return CellKey.getTid(getKey(i));
+    }
+
+    /**
+     * Gets the value of a violated cell, a cell of a whole tuple is read from the tuple.
+     * @param i cell index.
+     * @return value.
+     */
+    public Object getValue(int i) {
+        Preconditions.checkElementIndex(i, size);
+        if (sources[i] instanceof Cell) {
+            return ((Cell)sources[i]).getValue();
+        }
+        return ((Tuple)sources[i]).get(getColumn(i));
+    }
+
     /**
      * Adds a new violated cell.
      * @param cell violated cell.
      */
     public void addCell(Cell cell) {
         Preconditions.checkNotNull(cell);
-        cells.add(cell);
+        add(cell.getKey(), cell);
     }
 
     /**
@@ -104,7 +167,16 @@ public class Violation {
      */
     public void addTuple(Tuple tuple) {
         Preconditions.checkNotNull(tuple);
-        cells.addAll(tuple.getCells());
+        Schema schema = tuple.getSchema();
+        Column[] columns = schema.getColumns();
+        Optional<Integer> tidIndex = schema.getTidIndex();
+        int skip = tidIndex.isPresent() ? tidIndex.get() : -1;
+        int tid = tuple.getTid();
+        for (int i = 0; i < columns.length; i ++) {
+            if (i != skip) {
+                add(CellKey.of(columns[i], tid), tuple);
+            }
+        }
     }
 
     /**
@@ -122,4 +194,33 @@ public class Violation {
     public void setVid(int vid) {
         this.vid = Optional.of(vid);
     }
+
+    /**
+     * Adds a cell key unless it is already there, like a set keeps the first cell.
+     */
+    private void add(long key, Object source) {
+        int index = Arrays.binarySearch(keys, 0, size, key);
+        if (index >= 0) {
+            return;
+        }
+
+        index = -index - 1;
+        if (size == keys.length) {
+            int capacity = Math.max(8, size * 2);
+            keys = Arrays.copyOf(keys, capacity);
+            sources = Arrays.copyOf(sources, capacity);
+        }
+        System.arraycopy(keys, index, keys, index + 1, size - index);
+        System.arraycopy(sources, index, sources, index + 1, size - index);
+        keys[index] = key;
+        sources[index] = source;
+        size ++;
+    }
+
+    private Cell getCell(int i) {
+        if (sources[i] instanceof Cell) {
+            return (Cell)sources[i];
+        }
+        return new Cell(getColumn(i), getTid(i), getValue(i));
+    }
 }
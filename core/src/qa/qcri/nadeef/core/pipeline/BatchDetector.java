@@ -0,0 +1,70 @@
+/*
+ * QCRI, NADEEF LICENSE
+ * NADEEF is an extensible, generalized and easy-to-deploy data cleaning platform built at QCRI.
+ * NADEEF means "Clean" in Arabic
+ *
+ * Copyright (c) 2011-2013, Qatar Foundation for Education, Science and Community Development (on
+ * behalf of Qatar Computing Research Institute) having its principle place of business in Doha,
+ * Qatar with the registered address P.O box 5825 Doha, Qatar (hereinafter referred to as "QCRI")
+ *
+ * NADEEF has patent pending nevertheless the following is granted.
+ * NADEEF is released under the terms of the MIT License, (http://opensource.org/licenses/MIT).
+ */
+
+package qa.qcri.nadeef.core.pipeline;
+
+import com.google.common.collect.Lists;
+import qa.qcri.nadeef.core.datamodel.Rule;
+import qa.qcri.nadeef.core.datamodel.Violation;
+import qa.qcri.nadeef.core.datamodel.ViolationSink;
+import qa.qcri.nadeef.tools.Logger;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * BatchDetector runs {@link Rule#detectBatch} on a batch of items. A batch which throws is
+ * detected again one item at a time, so that a failing item only loses its own violations.
+ */
+class BatchDetector {
+    private static Logger tracer = Logger.getLogger(BatchDetector.class);
+
+    private BatchDetector() {}
+
+    /**
+     * Detects a batch of items.
+     * @param rule rule.
+     * @param items items, an item of the rule type.
+     * @param result violation output.
+     */
+    @SuppressWarnings("unchecked")
+    static void detect(Rule rule, List<Object> items, Collection<Violation> result) {
+        final List<Violation> violations = Lists.newArrayList();
+        ViolationSink sink = new ViolationSink() {
+            @Override
+            public void add(Violation violation) {
+                violations.add(violation);
+            }
+        };
+
+        try {
+            rule.detectBatch(items, sink);
+        } catch (Exception ex) {
+            violations.clear();
+            List<Object> item = Lists.newArrayListWithCapacity(1);
+            item.add(null);
+            for (int i = 0; i < items.size(); i ++) {
+                item.set(0, items.get(i));
+                int size = violations.size();
+                try {
+                    rule.detectBatch(item, sink);
+                } catch (Exception itemEx) {
+                    // drops the violations of the failing item.
+                    violations.subList(size, violations.size()).clear();
+                    tracer.error("Exception inside detect method.", itemEx);
+                }
+            }
+        }
+        result.addAll(violations);
+    }
+}
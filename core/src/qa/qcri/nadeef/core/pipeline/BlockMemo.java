@@ -0,0 +1,102 @@
+/*
+ * QCRI, NADEEF LICENSE
+ * NADEEF is an extensible, generalized and easy-to-deploy data cleaning platform built at QCRI.
+ * NADEEF means "Clean" in Arabic
+ *
+ * Copyright (c) 2011-2013, Qatar Foundation for Education, Science and Community Development (on
+ * behalf of Qatar Computing Research Institute) having its principle place of business in Doha,
+ * Qatar with the registered address P.O box 5825 Doha, Qatar (hereinafter referred to as "QCRI")
+ *
+ * NADEEF has patent pending nevertheless the following is granted.
+ * NADEEF is released under the terms of the MIT License, (http://opensource.org/licenses/MIT).
+ */
+
+package qa.qcri.nadeef.core.pipeline;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Maps;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import qa.qcri.nadeef.core.datamodel.Table;
+import qa.qcri.nadeef.core.datamodel.Tuple;
+import qa.qcri.nadeef.core.datamodel.Violation;
+
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * BlockMemo keeps the violations of the blocks of a detection by the fingerprint of the
+ * block content. A block of the next detection with the same fingerprint, i.e. the same
+ * tids with the same values, has the same violations, so it is not detected again and its
+ * violations are carried over instead.
+ */
+class BlockMemo {
+    private static final HashFunction hashFunction = Hashing.murmur3_128();
+    private final ConcurrentMap<HashCode, List<Violation>> violations = Maps.newConcurrentMap();
+
+    //<editor-fold desc="Package methods">
+    /**
+     * Gets the violations of a block.
+     * @param fingerprint block fingerprint.
+     * @return violations of the block, <code>null</code> when the block is not in the memo.
+     */
+    List<Violation> get(HashCode fingerprint) {
+        return violations.get(fingerprint);
+    }
+
+    /**
+     * Puts the violations of a block.
+     * @param fingerprint block fingerprint.
+     * @param blockViolations violations of the block.
+     */
+    void put(HashCode fingerprint, List<Violation> blockViolations) {
+        violations.put(fingerprint, blockViolations);
+    }
+
+    /**
+     * Gets the number of blocks in the memo.
+     * @return the number of blocks.
+     */
+    int size() {
+        return violations.size();
+    }
+
+    /**
+     * Computes the fingerprint of a block over the tids and the values of its tables. The
+     * values are taken by their hashes from the store, so no string is decoded, and the
+     * tuple hashes are summed up, so the fingerprint does not depend on the tuple order.
+     * @param tables tables of the block.
+     * @return block fingerprint.
+     */
+    static HashCode fingerprint(Collection<Table> tables) {
+        Hasher result = hashFunction.newHasher();
+        for (Table table : tables) {
+            long low = 0;
+            long high = 0;
+            for (int i = 0; i < table.size(); i ++) {
+                Tuple tuple = table.get(i);
+                Hasher hasher = hashFunction.newHasher().putInt(tuple.getTid());
+                int size = tuple.getSchema().size();
+                for (int j = 0; j < size; j ++) {
+                    hasher.putLong(tuple.getValueHash(j));
+                }
+
+                ByteBuffer hash = ByteBuffer.wrap(hasher.hash().asBytes());
+                low += hash.getLong();
+                high += hash.getLong();
+            }
+
+            result
+                .putString(table.getSchema().getTableName(), Charsets.UTF_8)
+                .putInt(table.size())
+                .putLong(low)
+                .putLong(high);
+        }
+        return result.hash();
+    }
+    //</editor-fold>
+}
@@ -0,0 +1,94 @@
+/*
+ * QCRI, NADEEF LICENSE
+ * NADEEF is an extensible, generalized and easy-to-deploy data cleaning platform built at QCRI.
+ * NADEEF means "Clean" in Arabic
+ *
+ * Copyright (c) 2011-2013, Qatar Foundation for Education, Science and Community Development (on
+ * behalf of Qatar Computing Research Institute) having its principle place of business in Doha,
+ * Qatar with the registered address P.O box 5825 Doha, Qatar (hereinafter referred to as "QCRI")
+ *
+ * NADEEF has patent pending nevertheless the following is granted.
+ * NADEEF is released under the terms of the MIT License, (http://opensource.org/licenses/MIT).
+ */
+
+package qa.qcri.nadeef.core.pipeline;
+
+import com.google.common.collect.Lists;
+import qa.qcri.nadeef.core.datamodel.CoBlocks;
+import qa.qcri.nadeef.core.datamodel.PairTupleRule;
+import qa.qcri.nadeef.core.datamodel.Rule;
+import qa.qcri.nadeef.core.datamodel.Table;
+import qa.qcri.nadeef.tools.PerfReport;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * BlockScheduler orders the blocks of a rule by their estimated cost, so that the most
+ * expensive blocks start first and a large block does not run alone at the end. It also
+ * records the per-block size and time histograms.
+ */
+class BlockScheduler {
+    private BlockScheduler() {}
+
+    /**
+     * Estimates the cost of a block, the number of pairs for pair rules and the number of
+     * tuples otherwise.
+     * @param rule rule.
+     * @param size block size.
+     * @return estimated cost.
+     */
+    static long getCost(Rule rule, int size) {
+        return rule instanceof PairTupleRule ? (long)size * (size - 1) / 2 : size;
+    }
+
+    /**
+     * Orders the blocks by descending cost.
+     * @param rule rule.
+     * @param blocks blocks.
+     * @return ordered blocks.
+     */
+    static List<Table> order(final Rule rule, Collection<Table> blocks) {
+        List<Table> result = Lists.newArrayList(blocks);
+        Collections.sort(result, new Comparator<Table>() {
+            @Override
+            public int compare(Table o1, Table o2) {
+                return Long.compare(getCost(rule, o2.size()), getCost(rule, o1.size()));
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Orders the pairs of co-blocks by descending number of tuple pairs.
+     * @param blocks co-blocks.
+     * @return ordered pairs of blocks.
+     */
+    static List<List<Table>> order(CoBlocks blocks) {
+        List<List<Table>> result = Lists.newArrayList(blocks.getPairs());
+        Collections.sort(result, new Comparator<List<Table>>() {
+            @Override
+            public int compare(List<Table> o1, List<Table> o2) {
+                return Long.compare(getCost(o2), getCost(o1));
+            }
+        });
+        return result;
+    }
+
+    private static long getCost(List<Table> pair) {
+        return (long)pair.get(0).size() * pair.get(1).size();
+    }
+
+    /**
+     * Records the iteration time of a block in the histograms.
+     * @param size block size.
+     * @param elapsed iteration time in ms.
+     */
+    static void record(int size, long elapsed) {
+        int bucket = size <= 1 ? 0 : 63 - Long.numberOfLeadingZeros(size);
+        PerfReport.addHistogram(PerfReport.Metric.BlockSizeHistogram, bucket, 1);
+        PerfReport.addHistogram(PerfReport.Metric.BlockTimeHistogram, bucket, elapsed);
+    }
+}
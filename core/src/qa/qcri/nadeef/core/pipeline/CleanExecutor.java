@@ -18,6 +18,7 @@ import com.google.common.base.Stopwatch;
 import qa.qcri.nadeef.core.datamodel.CleanPlan;
 import qa.qcri.nadeef.core.datamodel.NadeefConfiguration;
 import qa.qcri.nadeef.core.datamodel.ProgressReport;
+import qa.qcri.nadeef.core.datamodel.TidBitmap;
 import qa.qcri.nadeef.core.datamodel.Violation;
 import qa.qcri.nadeef.core.utils.sql.DBConnectionPool;
 import qa.qcri.nadeef.core.utils.sql.DBInstaller;
@@ -25,7 +26,6 @@ import qa.qcri.nadeef.tools.DBConfig;
 import qa.qcri.nadeef.tools.PerfReport;
 import qa.qcri.nadeef.tools.Logger;
 
-import java.util.HashSet;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 
@@ -79,7 +79,7 @@ public class CleanExecutor {
     //</editor-fold>
 
     //<editor-fold desc="Incremental methods">
-    public void incrementalAppend(String tableName, HashSet<Integer> newTuples) {
+    public void incrementalAppend(String tableName, TidBitmap newTuples) {
         context.addNewTuples(tableName, newTuples);
     }
     //</editor-fold>
@@ -220,6 +220,14 @@ public class CleanExecutor {
         return this;
     }
 
+    /**
+     * Drops the block violations kept from the last detection, see
+     * {@link NadeefConfiguration#getBlockMemo}.
+     */
+    public void clearBlockMemo() {
+        context.setBlockMemo(null);
+    }
+
     /**
      * Gets the CleanPlan.
      * @return the CleanPlan.
@@ -239,6 +247,8 @@ public class CleanExecutor {
         repairFlow.waitUntilFinish();
 
         context.clearNewTuples();
+        // the fixes change the block keys, the index is rebuilt on the next detection.
+        context.setBlockIndex(null);
 
         PerfReport.appendMetric(
             PerfReport.Metric.RepairTime,
@@ -14,17 +14,26 @@
 package qa.qcri.nadeef.core.pipeline;
 
 import com.google.common.base.Stopwatch;
+import com.google.common.collect.Lists;
+import com.google.common.hash.HashCode;
+import com.google.common.util.concurrent.ListenableFutureTask;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import qa.qcri.nadeef.core.datamodel.BlockStream;
+import qa.qcri.nadeef.core.datamodel.CoBlocks;
+import qa.qcri.nadeef.core.datamodel.NadeefConfiguration;
 import qa.qcri.nadeef.core.datamodel.NonBlockingCollectionIterator;
+import qa.qcri.nadeef.core.datamodel.PairTupleRule;
 import qa.qcri.nadeef.core.datamodel.Rule;
 import qa.qcri.nadeef.core.datamodel.Table;
+import qa.qcri.nadeef.core.datamodel.TidBitmap;
 import qa.qcri.nadeef.core.datamodel.Violation;
 import qa.qcri.nadeef.tools.PerfReport;
 import qa.qcri.nadeef.tools.Logger;
 
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashSet;
+import java.util.List;
 import java.util.concurrent.*;
 
 public class DirectIterator extends Operator<Collection<Table>, java.util.Iterator<Violation>> {
@@ -35,24 +44,38 @@ public class DirectIterator extends Operator<Collection<Table>, java.util.Iterat
 
     /**
      * IteratorCallable is a {@link Callable} class for iteration operation on each block.
+     * With a block memo the violations of a block are looked up by the block fingerprint in
+     * the memo of the last detection, and recorded into the memo of this detection.
      */
     class IteratorCallable implements Callable<Integer> {
         private DirectIteratorResultHandler directIteratorResultHandler;
         private Collection<Table> tables;
-        private ConcurrentMap<String, HashSet<Integer>> newTuples;
+        private ConcurrentMap<String, TidBitmap> newTuples;
         private Rule rule;
+        private NonBlockingCollectionIterator<Violation> outputIterator;
+        private BlockMemo lastMemo;
+        private BlockMemo memo;
 
         IteratorCallable(
             Collection<Table> tables,
             Rule rule,
-            ConcurrentMap<String, HashSet<Integer>> newTuples,
-            NonBlockingCollectionIterator<Violation> outputIterator
+            ConcurrentMap<String, TidBitmap> newTuples,
+            NonBlockingCollectionIterator<Violation> outputIterator,
+            BlockMemo lastMemo,
+            BlockMemo memo
         ) {
             this.newTuples = newTuples;
             this.tables = tables;
-            this.directIteratorResultHandler =
-                new DirectIteratorResultHandler(rule, outputIterator);
             this.rule = rule;
+            this.outputIterator = outputIterator;
+            this.lastMemo = lastMemo;
+            this.memo = memo;
+            // the violations of a memoized block are collected before they are output.
+            this.directIteratorResultHandler =
+                new DirectIteratorResultHandler(
+                    rule,
+                    memo == null ? outputIterator : new NonBlockingCollectionIterator<Violation>()
+                );
         }
 
         /**
@@ -64,13 +87,45 @@ public class DirectIterator extends Operator<Collection<Table>, java.util.Iterat
         @Override
         @SuppressWarnings("unchecked")
         public Integer call() throws Exception {
+            HashCode fingerprint = null;
+            if (memo != null) {
+                fingerprint = BlockMemo.fingerprint(tables);
+                List<Violation> violations = lastMemo == null ? null : lastMemo.get(fingerprint);
+                if (violations != null) {
+                    memo.put(fingerprint, violations);
+                    output(violations);
+                    return 1;
+                }
+            }
+
+            Stopwatch stopwatch = Stopwatch.createStarted();
             if (newTuples == null || newTuples.size() == 0 || rule.hasOwnIterator()) {
                 rule.iterator(tables, directIteratorResultHandler);
             } else {
                 rule.iterator(tables, newTuples, directIteratorResultHandler);
             }
+            directIteratorResultHandler.flush();
+
+            int size = 0;
+            for (Table table : tables) {
+                size += table.size();
+            }
+            BlockScheduler.record(size, stopwatch.elapsed(TimeUnit.MILLISECONDS));
+
+            if (memo != null) {
+                List<Violation> violations =
+                    Lists.newArrayList(directIteratorResultHandler.getOutput());
+                memo.put(fingerprint, violations);
+                output(violations);
+            }
             return 0;
         }
+
+        private void output(List<Violation> violations) {
+            if (violations.size() > 0) {
+                outputIterator.appendCollection(violations);
+            }
+        }
     }
 
     @Override
@@ -84,22 +139,69 @@ public class DirectIterator extends Operator<Collection<Table>, java.util.Iterat
         ExecutionContext context = getCurrentContext();
         Rule rule = context.getRule();
         NonBlockingCollectionIterator<Violation> output = new NonBlockingCollectionIterator<>();
+        ConcurrentMap<String, TidBitmap> newTuples = context.getNewTuples();
+
+        // the blocks of an incremental detection only hold a part of the table, the memo
+        // is kept for the next full detection.
+        BlockMemo lastMemo = context.getBlockMemo();
+        BlockMemo memo = null;
+        if (!isMemoized(rule)) {
+            lastMemo = null;
+            context.setBlockMemo(null);
+        } else if (newTuples.size() == 0) {
+            memo = new BlockMemo();
+        }
+
+        List<Future<Integer>> futures = Lists.newArrayList();
         try {
-            if (rule.supportTwoTables()) {
+            if (blocks instanceof CoBlocks) {
+                // Rule runs on each pair of co-blocks, the largest pairs go first.
+                for (Collection<Table> pair : BlockScheduler.order((CoBlocks)blocks))
+                    futures.add(executor.submit(
+                        new IteratorCallable(pair, rule, newTuples, output, lastMemo, memo)));
+            } else if (rule.supportTwoTables()) {
                 // Rule runs on two tables.
-                executor.submit(
-                    new IteratorCallable(blocks, rule, context.getNewTuples(), output));
+                futures.add(executor.submit(
+                    new IteratorCallable(blocks, rule, newTuples, output, lastMemo, memo)));
+            } else if (blocks instanceof BlockStream) {
+                // Rule runs on each table as it is streamed, the stream is read ahead of the
+                // running blocks by at most two blocks per thread.
+                final Semaphore permits = new Semaphore(MAX_THREAD_NUM * 2);
+                for (Table table : blocks) {
+                    permits.acquire();
+                    ListenableFutureTask<Integer> task =
+                        ListenableFutureTask.create(
+                            new IteratorCallable(
+                                Arrays.asList(table),
+                                rule,
+                                newTuples,
+                                output,
+                                lastMemo,
+                                memo
+                            )
+                        );
+                    task.addListener(new Runnable() {
+                        @Override
+                        public void run() {
+                            permits.release();
+                        }
+                    }, MoreExecutors.sameThreadExecutor());
+                    executor.execute(task);
+                    futures.add(task);
+                }
             } else {
-                // Rule runs on each table.
-                for (Table table : blocks)
-                    executor.submit(
+                // Rule runs on each table, the most expensive blocks go first.
+                for (Table table : BlockScheduler.order(rule, blocks))
+                    futures.add(executor.submit(
                         new IteratorCallable(
                             Arrays.asList(table),
                             rule,
-                            context.getNewTuples(),
-                            output
+                            newTuples,
+                            output,
+                            lastMemo,
+                            memo
                         )
-                    );
+                    ));
             }
 
             // wait until all the tasks are finished
@@ -109,6 +211,26 @@ public class DirectIterator extends Operator<Collection<Table>, java.util.Iterat
             tracer.error("Iterator is interrupted.", ex);
         } finally {
             executor.shutdown();
+            if (blocks instanceof BlockStream) {
+                ((BlockStream)blocks).close();
+            }
+        }
+
+        // a failed block fails the iteration, its violations would be missing.
+        int memoized = 0;
+        for (Future<Integer> future : futures) {
+            if (future.isDone() && !future.isCancelled()) {
+                try {
+                    memoized += future.get();
+                } catch (ExecutionException ex) {
+                    throw new RuntimeException("Iterating a block failed.", ex.getCause());
+                }
+            }
+        }
+
+        if (memo != null) {
+            context.setBlockMemo(memo);
+            PerfReport.appendMetric(PerfReport.Metric.MemoizedBlocks, memoized);
         }
 
         PerfReport.appendMetric(
@@ -119,4 +241,13 @@ public class DirectIterator extends Operator<Collection<Table>, java.util.Iterat
         stopwatch.stop();
         return output;
     }
+
+    /**
+     * Returns <code>True</code> when the block violations of the rule are memoized. Only
+     * pair rules are, the fingerprint of a block costs about as much as detecting it with a
+     * single tuple rule.
+     */
+    private static boolean isMemoized(Rule rule) {
+        return NadeefConfiguration.getBlockMemo() && rule instanceof PairTupleRule;
+    }
 }
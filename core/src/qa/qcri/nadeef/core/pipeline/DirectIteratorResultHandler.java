@@ -13,18 +13,35 @@
 
 package qa.qcri.nadeef.core.pipeline;
 
+import com.google.common.collect.Lists;
+import qa.qcri.nadeef.core.datamodel.ForkableResultHandler;
 import qa.qcri.nadeef.core.datamodel.IteratorResultHandler;
 import qa.qcri.nadeef.core.datamodel.NonBlockingCollectionIterator;
+import qa.qcri.nadeef.core.datamodel.PairResultHandler;
+import qa.qcri.nadeef.core.datamodel.PairTupleRule;
 import qa.qcri.nadeef.core.datamodel.Rule;
+import qa.qcri.nadeef.core.datamodel.Table;
 import qa.qcri.nadeef.core.datamodel.Violation;
+import qa.qcri.nadeef.core.datamodel.ViolationSink;
 import qa.qcri.nadeef.tools.Logger;
 
-import java.util.Collection;
+import java.util.List;
+
+/**
+ * DirectIteratorResultHandler detects the iterator output in the iterating thread. Items
+ * are detected in batches of {@link #BATCH_SIZE} with {@link Rule#detectBatch}, and the
+ * violations are appended to the output once per batch. {@link #flush()} needs to be called
+ * once the iteration is done.
+ */
+public class DirectIteratorResultHandler
+    implements ForkableResultHandler, PairResultHandler, ViolationSink {
+    static final int BATCH_SIZE = 1024;
+    private static Logger tracer = Logger.getLogger(DirectIteratorResultHandler.class);
 
-public class DirectIteratorResultHandler implements IteratorResultHandler {
     private Rule rule;
     private NonBlockingCollectionIterator<Violation> violations;
-    //private LinkedBlockingQueue<Violation> violations;
+    private List<Object> batch;
+    private List<Violation> pending;
 
     public DirectIteratorResultHandler(
         Rule rule,
@@ -32,19 +49,80 @@ public class DirectIteratorResultHandler implements IteratorResultHandler {
     ) {
         this.rule = rule;
         this.violations = violations;
+        this.batch = Lists.newArrayListWithCapacity(BATCH_SIZE);
+        this.pending = Lists.newArrayList();
     }
 
+    /**
+     * {@inheritDoc}
+     */
     @Override
-    @SuppressWarnings("unchecked")
     public <T> void handle(T item) {
-        Logger tracer = Logger.getLogger(DirectIteratorResultHandler.class);
+        batch.add(item);
+        if (batch.size() == BATCH_SIZE) {
+            flush();
+        }
+    }
+
+    /**
+     * {@inheritDoc} The pair is detected in place, a violation is the only allocation.
+     */
+    @Override
+    public void handlePair(Table left, int i, Table right, int j) {
         try {
-            Collection<Violation> detectResult = rule.detect(item);
-            if (detectResult.size() != 0) {
-                violations.appendCollection(detectResult);
-            }
+            ((PairTupleRule)rule).detect(left, i, right, j, this);
         } catch (Exception ex) {
             tracer.error("Exception during detection", ex);
         }
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void add(Violation violation) {
+        pending.add(violation);
+        if (pending.size() == BATCH_SIZE) {
+            flush();
+        }
+    }
+
+    /**
+     * Detects the remaining items and appends the violations to the output.
+     */
+    public void flush() {
+        if (batch.size() != 0) {
+            BatchDetector.detect(rule, batch, pending);
+            batch.clear();
+        }
+
+        if (pending.size() != 0) {
+            violations.appendCollection(pending);
+            pending = Lists.newArrayList();
+        }
+    }
+
+    /**
+     * Gets the output of the violations.
+     * @return violation output.
+     */
+    NonBlockingCollectionIterator<Violation> getOutput() {
+        return violations;
+    }
+
+    /**
+     * {@inheritDoc} Each thread buffers its own batch.
+     */
+    @Override
+    public IteratorResultHandler fork() {
+        return new DirectIteratorResultHandler(rule, violations);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void join(IteratorResultHandler handler) {
+        ((DirectIteratorResultHandler)handler).flush();
+    }
 }
@@ -15,19 +15,22 @@ package qa.qcri.nadeef.core.pipeline;
 
 import com.google.common.base.Preconditions;
 import com.google.common.collect.Maps;
+import qa.qcri.nadeef.core.datamodel.BlockIndex;
 import qa.qcri.nadeef.core.datamodel.Rule;
+import qa.qcri.nadeef.core.datamodel.TidBitmap;
 import qa.qcri.nadeef.core.utils.sql.DBConnectionPool;
 
-import java.util.HashSet;
 import java.util.concurrent.ConcurrentMap;
 
 /**
  * Execution context class which contains the shared variables during detection / repairing.
  */
 public class ExecutionContext {
-    private ConcurrentMap<String, HashSet<Integer>> newTuples;
+    private ConcurrentMap<String, TidBitmap> newTuples;
     private DBConnectionPool connectionPool;
     private Rule rule;
+    private BlockIndex blockIndex;
+    private BlockMemo blockMemo;
 
     private ExecutionContext() {
         newTuples = Maps.newConcurrentMap();
@@ -42,13 +45,37 @@ public class ExecutionContext {
         newTuples.clear();
     }
 
-    public ConcurrentMap<String, HashSet<Integer>> getNewTuples() {
+    public ConcurrentMap<String, TidBitmap> getNewTuples() {
         return newTuples;
     }
 
-    void addNewTuples(String tableName, HashSet<Integer> newTupleIds) {
+    void addNewTuples(String tableName, TidBitmap newTupleIds) {
         newTuples.put(tableName, newTupleIds);
     }
+
+    /**
+     * Gets the block index built by the last detection, it is <code>null</code> when the
+     * rule is not blocked on an index.
+     */
+    BlockIndex getBlockIndex() {
+        return blockIndex;
+    }
+
+    void setBlockIndex(BlockIndex blockIndex) {
+        this.blockIndex = blockIndex;
+    }
+
+    /**
+     * Gets the block violations of the last full detection, it is <code>null</code> before
+     * the first detection.
+     */
+    BlockMemo getBlockMemo() {
+        return blockMemo;
+    }
+
+    void setBlockMemo(BlockMemo blockMemo) {
+        this.blockMemo = blockMemo;
+    }
     //</editor-fold>
 
     public Rule getRule() {
@@ -69,7 +96,7 @@ public class ExecutionContext {
         return connectionPool;
     }
 
-    void setNewTuples(ConcurrentMap<String, HashSet<Integer>> newTuples) {
+    void setNewTuples(ConcurrentMap<String, TidBitmap> newTuples) {
         this.newTuples = newTuples;
     }
 
@@ -0,0 +1,391 @@
+/*
+ * QCRI, NADEEF LICENSE
+ * NADEEF is an extensible, generalized and easy-to-deploy data cleaning platform built at QCRI.
+ * NADEEF means "Clean" in Arabic
+ *
+ * Copyright (c) 2011-2013, Qatar Foundation for Education, Science and Community Development (on
+ * behalf of Qatar Computing Research Institute) having its principle place of business in Doha,
+ * Qatar with the registered address P.O box 5825 Doha, Qatar (hereinafter referred to as "QCRI")
+ *
+ * NADEEF has patent pending nevertheless the following is granted.
+ * NADEEF is released under the terms of the MIT License, (http://opensource.org/licenses/MIT).
+ */
+
+package qa.qcri.nadeef.core.pipeline;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import qa.qcri.nadeef.core.datamodel.BlockStream;
+import qa.qcri.nadeef.core.datamodel.CleanPlan;
+import qa.qcri.nadeef.core.datamodel.CoBlocks;
+import qa.qcri.nadeef.core.datamodel.ColumnarTable;
+import qa.qcri.nadeef.core.datamodel.NadeefConfiguration;
+import qa.qcri.nadeef.core.datamodel.NonBlockingCollectionIterator;
+import qa.qcri.nadeef.core.datamodel.Rule;
+import qa.qcri.nadeef.core.datamodel.SQLTable;
+import qa.qcri.nadeef.core.datamodel.Table;
+import qa.qcri.nadeef.core.datamodel.Violation;
+import qa.qcri.nadeef.core.utils.sql.DBConnectionPool;
+import qa.qcri.nadeef.core.utils.sql.DBInstaller;
+import qa.qcri.nadeef.tools.DBConfig;
+import qa.qcri.nadeef.tools.Logger;
+import qa.qcri.nadeef.tools.PerfReport;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * FusedCleanExecutor runs the detection of several clean plans together. Each source table
+ * is loaded once and every rule scopes its own view of the loaded table. Rules blocking on
+ * the same columns share the blocks, a shared block is iterated by all of its rules in the
+ * same task so the block is only scheduled once.
+ */
+public class FusedCleanExecutor {
+    private static final int MAX_THREAD_NUM = Runtime.getRuntime().availableProcessors();
+
+    //<editor-fold desc="Private fields">
+    private static Logger tracer = Logger.getLogger(FusedCleanExecutor.class);
+    private List<CleanPlan> cleanPlans;
+    private List<ExecutionContext> contexts;
+    private List<DBConnectionPool> connectionPools;
+    private volatile boolean isRunning;
+    private volatile double progress;
+    //</editor-fold>
+
+    /**
+     * FusedCallable iterates one block for each of the rules sharing it.
+     */
+    private static class FusedCallable implements Callable<Integer> {
+        private List<Rule> rules;
+        private List<Collection<Table>> tables;
+        private List<DirectIteratorResultHandler> handlers;
+
+        FusedCallable() {
+            this.rules = Lists.newArrayList();
+            this.tables = Lists.newArrayList();
+            this.handlers = Lists.newArrayList();
+        }
+
+        void add(
+            Rule rule,
+            Collection<Table> tables,
+            NonBlockingCollectionIterator<Violation> output
+        ) {
+            this.rules.add(rule);
+            this.tables.add(tables);
+            this.handlers.add(new DirectIteratorResultHandler(rule, output));
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Integer call() throws Exception {
+            for (int i = 0; i < rules.size(); i ++) {
+                Rule rule = rules.get(i);
+                try {
+                    rule.iterator(tables.get(i), handlers.get(i));
+                    handlers.get(i).flush();
+                } catch (Exception ex) {
+                    // the rule would export a part of its violations.
+                    throw new RuntimeException(
+                        "Iteration of rule " + rule.getRuleName() + " failed.",
+                        ex
+                    );
+                }
+            }
+            return 0;
+        }
+    }
+
+    //<editor-fold desc="Constructor">
+    /**
+     * Constructor. Use default NADEEF default config as DB config.
+     * @param cleanPlans input {@link CleanPlan}s.
+     */
+    public FusedCleanExecutor(List<CleanPlan> cleanPlans) throws Exception {
+        this(cleanPlans, NadeefConfiguration.getDbConfig());
+    }
+
+    /**
+     * Constructor.
+     * @param cleanPlans input {@link CleanPlan}s.
+     * @param dbConfig meta data dbconfig.
+     */
+    public FusedCleanExecutor(List<CleanPlan> cleanPlans, DBConfig dbConfig) throws Exception {
+        Preconditions.checkNotNull(cleanPlans);
+        this.cleanPlans = cleanPlans;
+        this.contexts = Lists.newArrayList();
+        this.connectionPools = Lists.newArrayList();
+        DBInstaller.install(dbConfig);
+
+        // plans on the same source database share the connection pool.
+        HashMap<String, DBConnectionPool> pools = Maps.newHashMap();
+        for (CleanPlan cleanPlan : cleanPlans) {
+            DBConfig sourceConfig = cleanPlan.getSourceDBConfig();
+            String key = getSourceKey(sourceConfig);
+            DBConnectionPool pool = pools.get(key);
+            if (pool == null) {
+                pool = DBConnectionPool.createDBConnectionPool(sourceConfig, dbConfig);
+                pools.put(key, pool);
+                connectionPools.add(pool);
+            }
+
+            ExecutionContext context = ExecutionContext.createExecutorContext();
+            context.setConnectionPool(pool);
+            context.setRule(cleanPlan.getRule());
+            contexts.add(context);
+        }
+    }
+    //</editor-fold>
+
+    //<editor-fold desc="Public methods">
+    /**
+     * Gets the CleanPlans.
+     * @return the CleanPlans.
+     */
+    public List<CleanPlan> getCleanPlans() {
+        return cleanPlans;
+    }
+
+    /**
+     * Returns <code>True</code> when the detection is running.
+     */
+    public boolean isRunning() {
+        return isRunning;
+    }
+
+    /**
+     * Gets the detection progress, the finished part of the fused tasks.
+     * @return detection progress.
+     */
+    public double getDetectProgress() {
+        return progress;
+    }
+
+    /**
+     * Runs the violation detection of all the plans.
+     */
+    public FusedCleanExecutor detect() {
+        Stopwatch sw = Stopwatch.createStarted();
+        HashMap<String, SQLTable> sources = Maps.newHashMap();
+        isRunning = true;
+        progress = 0.0;
+        try {
+            // scope and block each rule on its own view of the shared tables.
+            List<Collection<Table>> blocks = Lists.newArrayList();
+            for (ExecutionContext context : contexts) {
+                DBConnectionPool pool = context.getConnectionPool();
+                List<Table> tables = Lists.newArrayList();
+                @SuppressWarnings("unchecked")
+                List<String> tableNames = context.getRule().getTableNames();
+                for (String tableName : tableNames) {
+                    String key =
+                        getSourceKey(pool.getSourceDBConfig()) + "|" + tableName.toLowerCase();
+                    SQLTable source = sources.get(key);
+                    if (source == null) {
+                        source = new SQLTable(tableName, pool);
+                        sources.put(key, source);
+                    }
+                    tables.add(source.newView());
+                }
+                Collection<Table> ruleBlocks = new ScopeOperator(context).execute(tables);
+                // a block stream is handed out once, fusing compares all the blocks.
+                if (ruleBlocks instanceof BlockStream) {
+                    ruleBlocks = Lists.newArrayList(ruleBlocks);
+                }
+                blocks.add(ruleBlocks);
+            }
+
+            List<NonBlockingCollectionIterator<Violation>> outputs = iterate(blocks);
+
+            for (int i = 0; i < contexts.size(); i ++) {
+                ExecutionContext context = contexts.get(i);
+                File file = new ViolationExportToCSV(context).execute(outputs.get(i));
+                new ViolationCSVExport(context).execute(file);
+            }
+            progress = 1.0;
+        } catch (Exception ex) {
+            tracer.error("Fused detection failed.", ex);
+        } finally {
+            isRunning = false;
+            for (SQLTable source : sources.values()) {
+                source.recycle();
+            }
+        }
+
+        PerfReport.appendMetric(
+            PerfReport.Metric.DetectTime,
+            sw.elapsed(TimeUnit.MILLISECONDS)
+        );
+        sw.stop();
+        return this;
+    }
+
+    /**
+     * Shutdown the FusedCleanExecutor.
+     */
+    public void shutdown() {
+        for (DBConnectionPool pool : connectionPools) {
+            pool.shutdown();
+        }
+        connectionPools.clear();
+    }
+    //</editor-fold>
+
+    //<editor-fold desc="Private methods">
+    /**
+     * Iterates the blocks of all the rules. Rules whose blocks are over the same rows are
+     * fused into one task per block.
+     * @return the violations of each rule.
+     */
+    private List<NonBlockingCollectionIterator<Violation>> iterate(
+        List<Collection<Table>> blocks
+    ) throws InterruptedException {
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        List<NonBlockingCollectionIterator<Violation>> outputs = Lists.newArrayList();
+        for (int i = 0; i < contexts.size(); i ++) {
+            outputs.add(new NonBlockingCollectionIterator<Violation>());
+        }
+
+        // the first rule of each fusion decides the blocks.
+        List<List<Integer>> fusions = Lists.newArrayList();
+        for (int i = 0; i < contexts.size(); i ++) {
+            List<Integer> fusion = null;
+            if (!contexts.get(i).getRule().supportTwoTables()) {
+                for (List<Integer> candidate : fusions) {
+                    int first = candidate.get(0);
+                    if (
+                        !contexts.get(first).getRule().supportTwoTables() &&
+                        hasSameBlocks(blocks.get(first), blocks.get(i))
+                    ) {
+                        fusion = candidate;
+                        break;
+                    }
+                }
+            }
+
+            if (fusion == null) {
+                fusion = Lists.newArrayList();
+                fusions.add(fusion);
+            }
+            fusion.add(i);
+        }
+
+        ThreadFactory factory =
+            new ThreadFactoryBuilder().setNameFormat("fused-#" + MAX_THREAD_NUM + "-%d").build();
+        ExecutorService executor = Executors.newFixedThreadPool(MAX_THREAD_NUM, factory);
+        List<Future<Integer>> futures = Lists.newArrayList();
+        try {
+            for (List<Integer> fusion : fusions) {
+                int first = fusion.get(0);
+                Rule rule = contexts.get(first).getRule();
+                if (blocks.get(first) instanceof CoBlocks) {
+                    // each pair of co-blocks is iterated on its own.
+                    CoBlocks coBlocks = (CoBlocks)blocks.get(first);
+                    for (List<Table> pair : BlockScheduler.order(coBlocks)) {
+                        FusedCallable callable = new FusedCallable();
+                        callable.add(rule, pair, outputs.get(first));
+                        futures.add(executor.submit(callable));
+                    }
+                    continue;
+                }
+
+                if (rule.supportTwoTables()) {
+                    FusedCallable callable = new FusedCallable();
+                    callable.add(rule, blocks.get(first), outputs.get(first));
+                    futures.add(executor.submit(callable));
+                    continue;
+                }
+
+                List<List<Table>> ruleBlocks = Lists.newArrayList();
+                for (int index : fusion) {
+                    ruleBlocks.add(Lists.newArrayList(blocks.get(index)));
+                }
+
+                int blockSize = ruleBlocks.get(0).size();
+                for (int j = 0; j < blockSize; j ++) {
+                    FusedCallable callable = new FusedCallable();
+                    for (int k = 0; k < fusion.size(); k ++) {
+                        int index = fusion.get(k);
+                        callable.add(
+                            contexts.get(index).getRule(),
+                            Arrays.asList(ruleBlocks.get(k).get(j)),
+                            outputs.get(index)
+                        );
+                    }
+                    futures.add(executor.submit(callable));
+                }
+            }
+
+            // wait until all the tasks are finished, the progress is the finished tasks.
+            executor.shutdown();
+            while (!executor.awaitTermination(1l, TimeUnit.SECONDS)) {
+                int doneCount = 0;
+                for (Future<Integer> future : futures) {
+                    if (future.isDone()) {
+                        doneCount ++;
+                    }
+                }
+                progress = (double)doneCount / futures.size();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        for (Future<Integer> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException ex) {
+                throw new RuntimeException(ex.getCause().getMessage(), ex.getCause());
+            }
+        }
+
+        PerfReport.appendMetric(
+            PerfReport.Metric.IteratorTime,
+            stopwatch.elapsed(TimeUnit.MILLISECONDS)
+        );
+        stopwatch.stop();
+        return outputs;
+    }
+
+    /**
+     * Returns <code>True</code> when both block lists are over the same rows.
+     */
+    private static boolean hasSameBlocks(Collection<Table> blocks1, Collection<Table> blocks2) {
+        if (blocks1.size() != blocks2.size()) {
+            return false;
+        }
+
+        java.util.Iterator<Table> iterator1 = blocks1.iterator();
+        java.util.Iterator<Table> iterator2 = blocks2.iterator();
+        while (iterator1.hasNext()) {
+            Table block1 = iterator1.next();
+            Table block2 = iterator2.next();
+            if (
+                !(block1 instanceof ColumnarTable) ||
+                !(block2 instanceof ColumnarTable) ||
+                !((ColumnarTable)block1).hasSameRows((ColumnarTable)block2)
+            ) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String getSourceKey(DBConfig dbConfig) {
+        return dbConfig.getDialect() + "|" + dbConfig.getUrl() + "|" + dbConfig.getUserName();
+    }
+    //</editor-fold>
+}
@@ -16,16 +16,19 @@ package qa.qcri.nadeef.core.pipeline;
 import com.google.common.base.Stopwatch;
 import com.google.common.collect.Lists;
 import com.google.common.util.concurrent.*;
+import qa.qcri.nadeef.core.datamodel.BlockStream;
+import qa.qcri.nadeef.core.datamodel.CoBlocks;
 import qa.qcri.nadeef.core.datamodel.IteratorBlockingQueue;
 import qa.qcri.nadeef.core.datamodel.PairTupleRule;
 import qa.qcri.nadeef.core.datamodel.Rule;
 import qa.qcri.nadeef.core.datamodel.Table;
+import qa.qcri.nadeef.core.datamodel.TidBitmap;
 import qa.qcri.nadeef.tools.PerfReport;
 import qa.qcri.nadeef.tools.Logger;
 
 import java.lang.ref.WeakReference;
 import java.util.Collection;
-import java.util.HashSet;
+import java.util.List;
 import java.util.concurrent.*;
 
 /**
@@ -35,6 +38,7 @@ public class Iterator extends Operator<Collection<Table>, Boolean> {
     //<editor-fold desc="Private members">
     private static final int MAX_THREAD_NUM = Runtime.getRuntime().availableProcessors();
     private int blockCount;
+    private volatile Throwable failure;
 
     //</editor-fold>
 
@@ -62,7 +66,9 @@ public class Iterator extends Operator<Collection<Table>, Boolean> {
         }
 
         @Override
-        public void onFailure(Throwable throwable) {}
+        public void onFailure(Throwable throwable) {
+            failure = throwable;
+        }
     }
 
     /**
@@ -71,13 +77,13 @@ public class Iterator extends Operator<Collection<Table>, Boolean> {
     class IteratorCallable<T> implements Callable<Integer> {
         private IteratorBlockingQueue iteratorBlockingQueue;
         private WeakReference<T> ref;
-        private WeakReference<ConcurrentMap<String, HashSet<Integer>>> newTupleRef;
+        private WeakReference<ConcurrentMap<String, TidBitmap>> newTupleRef;
         private Rule rule;
 
         IteratorCallable(
             T tables,
             Rule rule,
-            ConcurrentMap<String, HashSet<Integer>> newTuples
+            ConcurrentMap<String, TidBitmap> newTuples
         ) {
             this.newTupleRef = new WeakReference<>(newTuples);
             this.ref = new WeakReference<>(tables);
@@ -94,6 +100,7 @@ public class Iterator extends Operator<Collection<Table>, Boolean> {
         @Override
         @SuppressWarnings("unchecked")
         public Integer call() throws Exception {
+            Stopwatch stopwatch = Stopwatch.createStarted();
             T instance = ref.get();
             if (instance == null) {
                 throw new RuntimeException("Tables have been freed.");
@@ -106,7 +113,7 @@ public class Iterator extends Operator<Collection<Table>, Boolean> {
                 value = (Collection<Table>)instance;
             }
 
-            ConcurrentMap<String, HashSet<Integer>> newTuples = newTupleRef.get();
+            ConcurrentMap<String, TidBitmap> newTuples = newTupleRef.get();
             if (newTuples == null || newTuples.size() == 0 || rule.hasOwnIterator()) {
                 rule.iterator(value, iteratorBlockingQueue);
             } else {
@@ -119,6 +126,7 @@ public class Iterator extends Operator<Collection<Table>, Boolean> {
             for (Table table : value) {
                 size += table.size();
             }
+            BlockScheduler.record(size, stopwatch.elapsed(TimeUnit.MILLISECONDS));
             return size;
         }
     }
@@ -141,22 +149,64 @@ public class Iterator extends Operator<Collection<Table>, Boolean> {
 
         Stopwatch stopwatch = Stopwatch.createStarted();
         blockCount = 0;
+        failure = null;
 
         ExecutionContext context = getCurrentContext();
         Rule rule = context.getRule();
         try {
-            if (rule.supportTwoTables()) {
+            if (blocks instanceof CoBlocks) {
+                // Rule runs on each pair of co-blocks, the largest pairs go first. The pairs
+                // are referenced by the co-blocks until the iteration is done.
+                List<List<Table>> pairs = BlockScheduler.order((CoBlocks)blocks);
+                List<ListenableFuture<Integer>> futures = Lists.newArrayList();
+                for (List<Table> pair : pairs) {
+                    futures.add(
+                        service.submit(new IteratorCallable(pair, rule, context.getNewTuples()))
+                    );
+                }
+
+                for (ListenableFuture<Integer> future : futures) {
+                    Futures.addCallback(future, new IteratorCallback(futures.size()));
+                }
+            } else if (rule.supportTwoTables()) {
                 // Rule runs on two tables.
                 ListenableFuture<Integer> future =
                     service.submit(new IteratorCallable(blocks, rule, context.getNewTuples()));
-                blockCount ++;
-                setPercentage(1.0f);
-            } else {
-                // Rule runs on each table.
-                for (Table table : blocks) {
+                Futures.addCallback(future, new IteratorCallback(1));
+            } else if (blocks instanceof BlockStream) {
+                // Rule runs on each table as it is streamed, the stream is read ahead of the
+                // running blocks by at most two blocks per thread.
+                final Semaphore permits = new Semaphore(MAX_THREAD_NUM * 2);
+                List<ListenableFuture<Integer>> futures = Lists.newArrayList();
+                for (final Table table : blocks) {
+                    permits.acquire();
                     ListenableFuture<Integer> future =
                         service.submit(new IteratorCallable(table, rule, context.getNewTuples()));
-                    Futures.addCallback(future, new IteratorCallback(blocks.size()));
+                    // the listener holds the block until it is iterated.
+                    future.addListener(new Runnable() {
+                        @Override
+                        public void run() {
+                            permits.release();
+                            table.recycle();
+                        }
+                    }, MoreExecutors.sameThreadExecutor());
+                    futures.add(future);
+                }
+
+                for (ListenableFuture<Integer> future : futures) {
+                    Futures.addCallback(future, new IteratorCallback(futures.size()));
+                }
+            } else {
+                // Rule runs on each table, the most expensive blocks go first.
+                List<ListenableFuture<Integer>> futures = Lists.newArrayList();
+                for (Table table : BlockScheduler.order(rule, blocks)) {
+                    futures.add(
+                        service.submit(new IteratorCallable(table, rule, context.getNewTuples()))
+                    );
+                }
+
+                for (ListenableFuture<Integer> future : futures) {
+                    Futures.addCallback(future, new IteratorCallback(futures.size()));
                 }
             }
 
@@ -165,7 +215,8 @@ public class Iterator extends Operator<Collection<Table>, Boolean> {
             while (!service.awaitTermination(10l, TimeUnit.MINUTES));
 
             // recycle the collection when dealing with pairs. This is mainly used to remove refs.
-            if (rule instanceof PairTupleRule) {
+            // A block stream is already recycled block by block.
+            if (rule instanceof PairTupleRule && !(blocks instanceof BlockStream)) {
                 for (Table block : blocks) {
                     block.recycle();
                 }
@@ -173,10 +224,18 @@ public class Iterator extends Operator<Collection<Table>, Boolean> {
 
             // mark the end of the iteration output
             IteratorBlockingQueue.markEnd();
+
+            // a failed block fails the iteration, its pairs would be missing.
+            if (failure != null) {
+                throw new RuntimeException("Iterating a block failed.", failure);
+            }
         } catch (InterruptedException ex) {
             tracer.error("Iterator is interrupted.", ex);
         } finally {
             executor.shutdown();
+            if (blocks instanceof BlockStream) {
+                ((BlockStream)blocks).close();
+            }
         }
 
         PerfReport.appendMetric(
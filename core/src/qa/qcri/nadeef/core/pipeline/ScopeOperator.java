@@ -14,17 +14,21 @@
 package qa.qcri.nadeef.core.pipeline;
 
 import com.google.common.base.Stopwatch;
-import qa.qcri.nadeef.core.datamodel.Rule;
-import qa.qcri.nadeef.core.datamodel.Table;
+import com.google.common.collect.Lists;
+import qa.qcri.nadeef.core.datamodel.*;
+import qa.qcri.nadeef.tools.Logger;
 import qa.qcri.nadeef.tools.PerfReport;
 
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 /**
  * Query engine operator, which generates optimized queries based on given hints.
  */
 public class ScopeOperator extends Operator<Collection<Table>, Collection<Table>> {
+    private static Logger tracer = Logger.getLogger(ScopeOperator.class);
 
     public ScopeOperator(ExecutionContext context) {
         super(context);
@@ -61,14 +65,107 @@ public class ScopeOperator extends Operator<Collection<Table>, Collection<Table>
         Collection<Table> result = verticalScopeResult;
 
         // Block
-        // Currently we don't support co-group, so once a rule is working with two tables we
-        // ignore the block function.
-        if (!rule.supportTwoTables()) {
-            result = rule.block(verticalScopeResult);
+        // A rule working with two tables co-blocks them into pairs of blocks instead.
+        if (rule.supportTwoTables()) {
+            result = rule.coBlock(verticalScopeResult);
+            if (result instanceof CoBlocks) {
+                PerfReport.appendMetric(
+                    PerfReport.Metric.Blocks,
+                    ((CoBlocks)result).getPairs().size()
+                );
+            }
+        } else if (isIndexBlocked(rule, verticalScopeResult)) {
+            result =
+                indexBlock(
+                    context,
+                    (PairTupleRule)rule,
+                    (SQLTable)verticalScopeResult.iterator().next()
+                );
             PerfReport.appendMetric(PerfReport.Metric.Blocks, result.size());
+        } else {
+            result = rule.block(verticalScopeResult);
+            // a block stream counts its blocks when it is complete.
+            if (!(result instanceof BlockStream)) {
+                PerfReport.appendMetric(PerfReport.Metric.Blocks, result.size());
+            }
         }
 
         stopwatch.stop();
         return result;
     }
+
+    private static boolean isIndexBlocked(Rule rule, Collection<Table> tables) {
+        return NadeefConfiguration.getBlockIndex() &&
+               rule instanceof PairTupleRule &&
+               ((PairTupleRule)rule).getBlockColumns().size() > 0 &&
+               tables.size() == 1 &&
+               tables.iterator().next() instanceof SQLTable;
+    }
+
+    /**
+     * Blocks the table on the block index of the last detection. In an incremental detection
+     * only the new tuples and the old tuples sharing a block key with them are loaded and
+     * blocked by the rule. The index is built lazily from the blocks of the first incremental
+     * detection, a full detection only drops it. The new tuples go into a copy of the index,
+     * which replaces it once their blocks are loaded.
+     */
+    private static Collection<Table> indexBlock(
+        ExecutionContext context,
+        PairTupleRule rule,
+        SQLTable table
+    ) {
+        List<Column> columns = rule.getBlockColumns();
+        String tableName = table.getSchema().getTableName();
+        TidBitmap newTids = context.getNewTuples().get(tableName);
+        if (newTids == null) {
+            context.setBlockIndex(null);
+            return rule.block(Lists.<Table>newArrayList(table));
+        }
+
+        BlockIndex index = context.getBlockIndex();
+        if (index != null && index.isIndexOf(tableName, columns)) {
+            try {
+                List<Tuple> newTuples = table.getTuples(newTids);
+                TidBitmap oldTids = index.getTids(newTuples).andNot(newTids);
+                List<Tuple> tuples = Lists.newArrayList(newTuples);
+                tuples.addAll(table.getTuples(oldTids));
+                tracer.fine(
+                    "Blocked " + newTids.size() + " new tuples with " +
+                    oldTids.size() + " old tuples on the block index."
+                );
+                if (tuples.isEmpty()) {
+                    return Collections.emptyList();
+                }
+
+                Collection<Table> result =
+                    rule.block(Lists.<Table>newArrayList(MemoryTable.of(tuples)));
+
+                // the index takes the new tuples only when their blocks are loaded.
+                BlockIndex updated = index.copy();
+                for (Tuple tuple : newTuples) {
+                    updated.add(tuple);
+                }
+                context.setBlockIndex(updated);
+                return result;
+            } catch (Exception ex) {
+                tracer.error("Loading the blocks of the new tuples failed.", ex);
+            }
+        }
+
+        Collection<Table> result = rule.block(Lists.<Table>newArrayList(table));
+        if (result instanceof BlockStream) {
+            // the blocks are only complete once they are iterated.
+            context.setBlockIndex(null);
+            return result;
+        }
+
+        index = new BlockIndex(tableName, columns);
+        for (Table block : result) {
+            for (int i = 0; i < block.size(); i ++) {
+                index.add(block.get(i));
+            }
+        }
+        context.setBlockIndex(index);
+        return result;
+    }
 }
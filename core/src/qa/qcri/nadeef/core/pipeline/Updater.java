@@ -15,11 +15,13 @@ package qa.qcri.nadeef.core.pipeline;
 
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 import com.mysql.jdbc.log.Log;
 import qa.qcri.nadeef.core.datamodel.Cell;
 import qa.qcri.nadeef.core.datamodel.Column;
 import qa.qcri.nadeef.core.datamodel.Fix;
 import qa.qcri.nadeef.core.datamodel.NadeefConfiguration;
+import qa.qcri.nadeef.core.datamodel.TableSnapshotCache;
 import qa.qcri.nadeef.core.utils.sql.DBConnectionPool;
 import qa.qcri.nadeef.tools.CommonTools;
 import qa.qcri.nadeef.tools.PerfReport;
@@ -30,6 +32,7 @@ import java.sql.PreparedStatement;
 import java.sql.Statement;
 import java.util.Collection;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.ConcurrentMap;
 
 /**
@@ -37,8 +40,9 @@ import java.util.concurrent.ConcurrentMap;
  */
 public class Updater extends Operator<Collection<Fix>, Collection<Fix>> {
     private static Logger tracer = Logger.getLogger(Updater.class);
-    private ConcurrentMap<Cell, String> updateHistory;
-    private ConcurrentMap<Cell, Boolean> unknownTag;
+    // keyed by the packed cell keys.
+    private ConcurrentMap<Long, String> updateHistory;
+    private ConcurrentMap<Long, Boolean> unknownTag;
 
     /**
      * Constructor.
@@ -68,6 +72,7 @@ public class Updater extends Operator<Collection<Fix>, Collection<Fix>> {
         ExecutionContext context = getCurrentContext();
         DBConnectionPool connectionPool = context.getConnectionPool();
         List<Fix> realFixes = Lists.newArrayList();
+        Set<String> updatedTables = Sets.newHashSet();
         try {
             nadeefConn = connectionPool.getNadeefConnection();
             sourceConn = connectionPool.getSourceConnection();
@@ -78,6 +83,7 @@ public class Updater extends Operator<Collection<Fix>, Collection<Fix>> {
                     " VALUES (default, ?, ?, ?, ?, ?, ?, current_timestamp)");
             for (Fix fix : fixes) {
                 Cell cell = fix.getLeft();
+                long key = cell.getKey();
                 Object oldValue_ = cell.getValue();
                 if (oldValue_ == null) {
                     oldValue = null;
@@ -86,24 +92,24 @@ public class Updater extends Operator<Collection<Fix>, Collection<Fix>> {
                 }
 
                 // this cell has already been changed to unknown
-                if (unknownTag.containsKey(cell)) {
+                if (unknownTag.containsKey(key)) {
                     continue;
                 }
 
                 realFixes.add(fix);
                 // check whether this cell has been changed before
-                if (updateHistory.containsKey(cell)) {
-                    String value = updateHistory.get(cell);
+                String value = updateHistory.get(key);
+                if (value != null) {
                     if (value.equals(fix.getRightValue())) {
                         continue;
                     }
                     // when a cell is set twice with different value,
                     // we set it to null for ambiguous value.
-                    unknownTag.put(cell, true);
+                    unknownTag.put(key, true);
                     rightValue = "?";
                 } else {
                     rightValue = fix.getRightValue();
-                    updateHistory.put(cell, rightValue);
+                    updateHistory.put(key, rightValue);
                 }
 
                 // check for numerical type.
@@ -117,6 +123,7 @@ public class Updater extends Operator<Collection<Fix>, Collection<Fix>> {
 
                 Column column = cell.getColumn();
                 String tableName = column.getTableName();
+                updatedTables.add(tableName);
                 String updateSql =
                     "UPDATE " + tableName +
                     " SET " + column.getColumnName() + " = " + rightValue +
@@ -145,6 +152,10 @@ public class Updater extends Operator<Collection<Fix>, Collection<Fix>> {
             nadeefConn.commit();
             PerfReport.appendMetric(PerfReport.Metric.UpdatedCellNumber, count);
         } finally {
+            for (String tableName : updatedTables) {
+                TableSnapshotCache.invalidate(connectionPool.getSourceDBConfig(), tableName);
+            }
+
             if (auditStat != null) {
                 auditStat.close();
             }
@@ -20,7 +20,6 @@ import com.google.common.collect.Lists;
 import com.google.common.util.concurrent.*;
 import qa.qcri.nadeef.core.datamodel.*;
 import qa.qcri.nadeef.tools.PerfReport;
-import qa.qcri.nadeef.tools.Logger;
 
 import java.util.Collection;
 import java.util.List;
@@ -94,37 +93,21 @@ public class ViolationDetector
         @Override
         @SuppressWarnings("unchecked")
         public Integer call() throws Exception {
-            int count = 0;
             Collection<Violation> result = Lists.newArrayList();
+            List<Object> batch = Lists.newArrayListWithCapacity(tupleList.size());
             for (int i = 0; i < tupleList.size(); i ++) {
                 Object item = tupleList.get(i);
 
                 // breakage in the buffer
-                if (item == null) {
-                    continue;
+                if (item != null) {
+                    batch.add(item);
                 }
+            }
 
-                count ++;
-                Collection<Violation> violations = null;
-                try {
-                    if (rule instanceof SingleTupleRule) {
-                        Tuple tuple = (Tuple)item;
-                        violations = rule.detect(tuple);
-                    } else if (rule instanceof PairTupleRule) {
-                        TuplePair pair = (TuplePair)item;
-                        violations = rule.detect(pair);
-                    } else {
-                        Table collection = (Table)item;
-                        violations = rule.detect(collection);
-                    }
-
-                    if (violations != null && violations.size() > 0) {
-                        result.addAll(violations);
-                    }
-                } catch (Exception ex) {
-                    Logger tracer = Logger.getLogger(this.getClass());
-                    tracer.error("Exception inside detect method.", ex);
-                }
+            int count = batch.size();
+            for (int i = 0; i < count; i += DirectIteratorResultHandler.BATCH_SIZE) {
+                int end = Math.min(count, i + DirectIteratorResultHandler.BATCH_SIZE);
+                BatchDetector.detect(rule, batch.subList(i, end), result);
             }
 
             synchronized (ViolationDetector.class) {
@@ -14,7 +14,7 @@
 package qa.qcri.nadeef.core.pipeline;
 
 import com.google.common.base.Stopwatch;
-import qa.qcri.nadeef.core.datamodel.Cell;
+import qa.qcri.nadeef.core.datamodel.Column;
 import qa.qcri.nadeef.core.datamodel.Violation;
 import qa.qcri.nadeef.core.utils.Violations;
 import qa.qcri.nadeef.core.utils.sql.DBConnectionPool;
@@ -60,18 +60,18 @@ public class ViolationExport extends Operator<Collection<Violation>, Collection<
 
                 for (Violation violation : violations) {
                     count ++;
-                    Collection<Cell> cells = violation.getCells();
-                    for (Cell cell : cells) {
+                    for (int i = 0; i < violation.size(); i ++) {
                         // skip the tuple id
-                        if (cell.hasColumnName("tid")) {
+                        Column column = violation.getColumn(i);
+                        if (column.getColumnName().equalsIgnoreCase("tid")) {
                             continue;
                         }
                         stat.setInt(1, vid);
                         stat.setString(2, violation.getRuleId());
-                        stat.setString(3, cell.getColumn().getTableName());
-                        stat.setInt(4, cell.getTid());
-                        stat.setString(5, cell.getColumn().getColumnName());
-                        Object value = cell.getValue();
+                        stat.setString(3, column.getTableName());
+                        stat.setInt(4, violation.getTid(i));
+                        stat.setString(5, column.getColumnName());
+                        Object value = violation.getValue(i);
                         if (value == null) {
                             stat.setString(6, null);
                         } else {
@@ -13,7 +13,7 @@
 
 package qa.qcri.nadeef.core.pipeline;
 
-import qa.qcri.nadeef.core.datamodel.Cell;
+import qa.qcri.nadeef.core.datamodel.Column;
 import qa.qcri.nadeef.core.datamodel.NadeefConfiguration;
 import qa.qcri.nadeef.core.datamodel.Violation;
 import qa.qcri.nadeef.tools.CommonTools;
@@ -24,7 +24,6 @@ import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.nio.file.Path;
-import java.util.Collection;
 
 /**
  * Exports Violation list to a CSV file
@@ -56,12 +55,14 @@ public class ViolationExportToCSV extends Operator<java.util.Iterator<Violation>
             while (violations.hasNext()) {
                 Violation violation = violations.next();
                 size ++;
-                Collection<Cell> cells = violation.getCells();
-                for (Cell cell : cells) {
+                // the values are read from the violated tuples here.
+                for (int i = 0; i < violation.size(); i ++) {
                     StringBuffer line = new StringBuffer();
-                    if (cell.hasColumnName("tid"))
+                    Column column = violation.getColumn(i);
+                    if (column.getColumnName().equalsIgnoreCase("tid"))
                         continue;
-                    String value = cell.getValue() == null ? "" : cell.getValue().toString();
+                    Object value_ = violation.getValue(i);
+                    String value = value_ == null ? "" : value_.toString();
                     line
                         .append(vid)
                         .append(",")
@@ -72,14 +73,14 @@ public class ViolationExportToCSV extends Operator<java.util.Iterator<Violation>
                             )).append(",")
                         .append(
                             CommonTools.escapeString(
-                                cell.getColumn().getTableName(),
+                                column.getTableName(),
                                 CommonTools.DOUBLE_QUOTE
                             )).append(",")
-                        .append(cell.getTid())
+                        .append(violation.getTid(i))
                         .append(",")
                         .append(
                             CommonTools.escapeString(
-                                cell.getColumn().getColumnName(),
+                                column.getColumnName(),
                                 CommonTools.DOUBLE_QUOTE
                             )).append(",")
                         .append(CommonTools.escapeString(value, CommonTools.DOUBLE_QUOTE))
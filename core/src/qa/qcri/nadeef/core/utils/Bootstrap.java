@@ -15,7 +15,9 @@ package qa.qcri.nadeef.core.utils;
 
 import com.google.common.base.Preconditions;
 import com.google.common.base.Strings;
+import qa.qcri.nadeef.core.datamodel.ColumnRegistry;
 import qa.qcri.nadeef.core.datamodel.NadeefConfiguration;
+import qa.qcri.nadeef.core.datamodel.TableSnapshotCache;
 import qa.qcri.nadeef.core.pipeline.NodeCacheManager;
 import qa.qcri.nadeef.tools.CommonTools;
 import qa.qcri.nadeef.tools.Logger;
@@ -42,6 +44,8 @@ public class Bootstrap {
         if (isStarted) {
             NodeCacheManager cacheManager = NodeCacheManager.getInstance();
             cacheManager.clear();
+            TableSnapshotCache.clear();
+            ColumnRegistry.clear();
             // try to collect the resources if possible
             System.gc();
             isStarted = false;
@@ -17,9 +17,10 @@ import com.google.common.base.Preconditions;
 import com.google.common.base.Stopwatch;
 import com.google.common.base.Strings;
 import com.google.common.collect.Lists;
-import com.google.common.collect.Sets;
 import com.google.common.io.Files;
 
+import qa.qcri.nadeef.core.datamodel.TableSnapshotCache;
+import qa.qcri.nadeef.core.datamodel.TidBitmap;
 import qa.qcri.nadeef.core.utils.sql.DBConnectionPool;
 import qa.qcri.nadeef.core.utils.sql.DBMetaDataTool;
 import qa.qcri.nadeef.core.utils.sql.SQLDialectBase;
@@ -33,7 +34,6 @@ import java.io.IOException;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.sql.Statement;
-import java.util.HashSet;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 
@@ -79,7 +79,7 @@ public class CSVTools {
      * @param file CSV file.
      * @return new created table name.
      */
-    public static HashSet<Integer> append(
+    public static TidBitmap append(
         DBConfig dbConfig,
         SQLDialectBase dialectManager,
         String tableName,
@@ -89,7 +89,7 @@ public class CSVTools {
         Preconditions.checkNotNull(dialectManager);
 
         Stopwatch stopwatch = Stopwatch.createStarted();
-        HashSet<Integer> result = Sets.newHashSet();
+        TidBitmap result = new TidBitmap();
         try {
             boolean hasTableExist = DBMetaDataTool.isTableExist(dbConfig, tableName);
 
@@ -110,6 +110,7 @@ public class CSVTools {
                 size = dialectManager.fallbackLoad(dbConfig, tableName, file, true);
             }
 
+            TableSnapshotCache.invalidate(dbConfig, tableName);
             logger.info(
                 "Appended " + size + " bytes in " +
                 stopwatch.elapsed(TimeUnit.MILLISECONDS) + " ms."
@@ -118,9 +119,7 @@ public class CSVTools {
 
             // build the tid set.
             int endTid = DBMetaDataTool.getMaxTid(dbConfig, tableName);
-            for (int i = startTid; i <= endTid; i ++) {
-                result.add(i);
-            }
+            result.addRange(startTid, endTid + 1);
 
         } catch (Exception ex) {
             logger.error("Cannot load file " + file.getName(), ex);
@@ -232,6 +231,7 @@ public class CSVTools {
                     size = dialectManager.fallbackLoad(dbConfig, fullTableName, file, true);
                 }
 
+                TableSnapshotCache.invalidate(dbConfig, fullTableName);
                 logger.info(
                     "Dumped " + size + " bytes in " +
                     stopwatch.elapsed(TimeUnit.MILLISECONDS) + " ms."
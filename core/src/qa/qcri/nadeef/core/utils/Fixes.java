@@ -91,7 +91,7 @@ public class Fixes {
                 String c2Attribute = resultSet.getString("c2_attribute");
                 String c2Value = resultSet.getString("c2_value");
                 Cell c1Cell =
-                    cellBuilder.column(new Column(c1TableName, c1Attribute))
+                    cellBuilder.column(ColumnRegistry.intern(c1TableName, c1Attribute))
                         .value(c1Value)
                         .tid(c1TupleId)
                         .build();
@@ -100,7 +100,7 @@ public class Fixes {
                 if (c2TableName != null) {
                     Cell c2Cell =
                         cellBuilder.column(
-                            new Column(c2TableName, c2Attribute)
+                            ColumnRegistry.intern(c2TableName, c2Attribute)
                         ).value(c2Value).tid(c2TupleId).build();
                     newFix =
                         builder
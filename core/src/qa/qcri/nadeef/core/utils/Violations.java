@@ -17,6 +17,7 @@ import com.google.common.base.Preconditions;
 import com.google.common.collect.Lists;
 import qa.qcri.nadeef.core.datamodel.Cell;
 import qa.qcri.nadeef.core.datamodel.Column;
+import qa.qcri.nadeef.core.datamodel.ColumnRegistry;
 import qa.qcri.nadeef.core.datamodel.NadeefConfiguration;
 import qa.qcri.nadeef.core.datamodel.Violation;
 import qa.qcri.nadeef.core.utils.sql.DBConnectionPool;
@@ -169,7 +170,7 @@ public class Violations {
             int tupleId = resultSet.getInt("tupleid");
             String attribute = resultSet.getString("attribute");
             String value = resultSet.getString("value");
-            Column column = new Column(tableName, attribute);
+            Column column = ColumnRegistry.intern(tableName, attribute);
             Cell cell = new Cell(column, tupleId, value);
             if (vid != lastVid || vid == -1) {
                 violation = new Violation(rid, vid);
@@ -204,7 +205,7 @@ public class Violations {
             int tupleId = Integer.parseInt(token[3]);
             String attribute = token[4].replace("\"", "");
             String value = token[5].replace("\"", "");
-            Column column = new Column(tableName, attribute);
+            Column column = ColumnRegistry.intern(tableName, attribute);
             Cell cell = new Cell(column, tupleId, value);
             if (vid != lastVid || vid == -1) {
                 violation = new Violation(rid);
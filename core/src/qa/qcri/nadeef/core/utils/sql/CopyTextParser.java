@@ -0,0 +1,245 @@
+/*
+ * QCRI, NADEEF LICENSE
+ * NADEEF is an extensible, generalized and easy-to-deploy data cleaning platform built at QCRI.
+ * NADEEF means "Clean" in Arabic
+ *
+ * Copyright (c) 2011-2013, Qatar Foundation for Education, Science and Community Development (on
+ * behalf of Qatar Computing Research Institute) having its principle place of business in Doha,
+ * Qatar with the registered address P.O box 5825 Doha, Qatar (hereinafter referred to as "QCRI")
+ *
+ * NADEEF has patent pending nevertheless the following is granted.
+ * NADEEF is released under the terms of the MIT License, (http://opensource.org/licenses/MIT).
+ */
+
+package qa.qcri.nadeef.core.utils.sql;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Optional;
+import com.google.common.base.Preconditions;
+import qa.qcri.nadeef.core.datamodel.ColumnStore;
+import qa.qcri.nadeef.core.datamodel.DataType;
+import qa.qcri.nadeef.core.datamodel.Schema;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.Timestamp;
+import java.util.Arrays;
+
+/**
+ * Parser of the Postgres text <code>COPY</code> format (tab separated columns, new line
+ * separated rows, backslash escapes and <code>\N</code> as null). The stream is parsed
+ * directly into a {@link ColumnStore}, values are converted to the same java objects the
+ * Postgres JDBC driver returns so both loading paths produce the same store.
+ */
+public class CopyTextParser {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final InputStream input;
+    private final byte[] buffer;
+    private int position;
+    private int limit;
+    private byte[] field;
+    private int length;
+    private boolean isNull;
+
+    //<editor-fold desc="Constructor">
+    private CopyTextParser(InputStream input) {
+        this.input = input;
+        this.buffer = new byte[BUFFER_SIZE];
+        this.field = new byte[256];
+    }
+    //</editor-fold>
+
+    //<editor-fold desc="Public methods">
+    /**
+     * Parses a text <code>COPY</code> stream into a column store.
+     * @param input text stream.
+     * @param schema schema of the stream.
+     * @param capacity initial row capacity.
+     * @return column store.
+     */
+    public static ColumnStore parse(InputStream input, Schema schema, int capacity)
+        throws IOException {
+        Preconditions.checkNotNull(schema);
+        return parse(input, schema, new ColumnStore.Builder(schema, capacity));
+    }
+
+    /**
+     * Parses a text <code>COPY</code> stream into the given store builder.
+     * @param input text stream.
+     * @param schema schema of the stream.
+     * @param builder store builder.
+     * @return column store.
+     */
+    public static ColumnStore parse(
+        InputStream input,
+        Schema schema,
+        ColumnStore.Builder builder
+    ) throws IOException {
+        Preconditions.checkNotNull(input);
+        Preconditions.checkNotNull(schema);
+        Preconditions.checkNotNull(builder);
+
+        CopyTextParser parser = new CopyTextParser(input);
+        DataType[] types = schema.getTypes();
+        Optional<Integer> tidIndex_ = schema.getTidIndex();
+        int tidIndex = tidIndex_.isPresent() ? tidIndex_.get() : -1;
+        Object[] values = new Object[types.length];
+        while (parser.readField()) {
+            for (int i = 0; i < types.length; i ++) {
+                if (i > 0 && !parser.readField()) {
+                    throw new IOException("Unexpected end of the COPY stream.");
+                }
+                values[i] = parser.isNull ? null : parser.convert(types[i]);
+            }
+
+            int tupleId = 1;
+            if (tidIndex != -1) {
+                tupleId = values[tidIndex] == null ? 0 : ((Number)values[tidIndex]).intValue();
+            }
+            builder.newRow(tupleId);
+            for (int i = 0; i < types.length; i ++) {
+                builder.set(i, values[i]);
+            }
+        }
+        return builder.build();
+    }
+    //</editor-fold>
+
+    //<editor-fold desc="Private methods">
+    /**
+     * Reads the next field into the field buffer.
+     * @return <code>False</code> when the stream ends.
+     */
+    private boolean readField() throws IOException {
+        length = 0;
+        isNull = false;
+        int b = read();
+        if (b == -1) {
+            return false;
+        }
+
+        while (b != -1 && b != '\t' && b != '\n') {
+            if (b == '\\') {
+                b = read();
+                switch (b) {
+                    case 'N':
+                        isNull = true;
+                        break;
+                    case 'b':
+                        append('\b');
+                        break;
+                    case 'f':
+                        append('\f');
+                        break;
+                    case 'n':
+                        append('\n');
+                        break;
+                    case 'r':
+                        append('\r');
+                        break;
+                    case 't':
+                        append('\t');
+                        break;
+                    case 'v':
+                        append(0x0B);
+                        break;
+                    case 'x':
+                        if (Character.digit(peek(), 16) != -1) {
+                            append(readNumber(read(), 16, 2));
+                        } else {
+                            append(b);
+                        }
+                        break;
+                    default:
+                        if (b >= '0' && b <= '7') {
+                            append(readNumber(b, 8, 3));
+                        } else if (b != -1) {
+                            append(b);
+                        }
+                }
+            } else {
+                append(b);
+            }
+            b = read();
+        }
+
+        // \N is only null when it is the whole field.
+        if (isNull && length > 0) {
+            isNull = false;
+        }
+        return true;
+    }
+
+    /**
+     * Reads an escaped byte of up to <code>digits</code> digits, the first digit is given.
+     */
+    private int readNumber(int first, int radix, int digits) throws IOException {
+        int value = Character.digit(first, radix);
+        for (int i = 1; i < digits; i ++) {
+            int digit = Character.digit(peek(), radix);
+            if (digit == -1) {
+                break;
+            }
+            position ++;
+            value = value * radix + digit;
+        }
+        return value & 0xFF;
+    }
+
+    private Object convert(DataType type) {
+        String value = new String(field, 0, length, Charsets.UTF_8);
+        switch (type) {
+            case INTEGER:
+                return Integer.valueOf(value);
+            case DOUBLE:
+                // Postgres float4 is mapped to DOUBLE and the JDBC driver returns a Float.
+                return Float.valueOf(value);
+            case FLOAT:
+                // Postgres float8 is mapped to FLOAT and the JDBC driver returns a Double.
+                return Double.valueOf(value);
+            case BOOL:
+                return value.equals("t");
+            case TIMESTAMP:
+                try {
+                    return Timestamp.valueOf(value);
+                } catch (IllegalArgumentException ex) {
+                    return value;
+                }
+            default:
+                return value;
+        }
+    }
+
+    private void append(int b) {
+        if (length == field.length) {
+            field = Arrays.copyOf(field, length * 2);
+        }
+        field[length ++] = (byte)b;
+    }
+
+    private int read() throws IOException {
+        if (position == limit && !fill()) {
+            return -1;
+        }
+        return buffer[position ++] & 0xFF;
+    }
+
+    private int peek() throws IOException {
+        if (position == limit && !fill()) {
+            return -1;
+        }
+        return buffer[position] & 0xFF;
+    }
+
+    private boolean fill() throws IOException {
+        int count = input.read(buffer, 0, buffer.length);
+        if (count <= 0) {
+            return false;
+        }
+        position = 0;
+        limit = count;
+        return true;
+    }
+    //</editor-fold>
+}
@@ -95,6 +95,8 @@ public class DBConnectionPool {
         result.setMaxActive(MAX_ACTIVE);
         result.setMaxIdle(MAX_ACTIVE * 3);
         result.setDefaultAutoCommit(false);
+        // dialects unwrap the driver connection for bulk operations.
+        result.setAccessToUnderlyingConnectionAllowed(true);
         return result;
     }
 
@@ -16,8 +16,10 @@ package qa.qcri.nadeef.core.utils.sql;
 import com.google.common.collect.Lists;
 import com.mysql.jdbc.log.Log;
 import qa.qcri.nadeef.core.datamodel.Column;
+import qa.qcri.nadeef.core.datamodel.ColumnRegistry;
 import qa.qcri.nadeef.core.datamodel.DataType;
 import qa.qcri.nadeef.core.datamodel.Schema;
+import qa.qcri.nadeef.core.datamodel.TableSnapshotCache;
 import qa.qcri.nadeef.tools.DBConfig;
 import qa.qcri.nadeef.tools.Logger;
 import qa.qcri.nadeef.tools.sql.SQLDialect;
@@ -55,6 +57,7 @@ public final class DBMetaDataTool {
                 stat.execute(dialectManager.dropTable(targetTableName));
             }
             dialectManager.copyTable(conn, sourceTableName, targetTableName);
+            TableSnapshotCache.invalidate(dbConfig, targetTableName);
         } finally {
             if (stat != null) {
                 stat.close();
@@ -102,7 +105,7 @@ public final class DBMetaDataTool {
             for (int i = 1; i <= count; i ++) {
                 String attributeName = metaData.getColumnName(i);
                 types[i - 1] = DataType.getDataType(metaData.getColumnTypeName(i));
-                columns[i - 1] = new Column(tableName, attributeName);
+                columns[i - 1] = ColumnRegistry.intern(tableName, attributeName);
             }
 
             result = new Schema(tableName, columns, types);
@@ -63,6 +63,25 @@ public class MySQLDialect extends SQLDialectBase {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     * MySQL only streams a result set row by row with <code>Integer.MIN_VALUE</code>,
+     * otherwise the whole result is buffered in the client.
+     */
+    @Override
+    public int getFetchSize(int fetchSize) {
+        return Integer.MIN_VALUE;
+    }
+
+    /**
+     * {@inheritDoc}
+     * The default MySQL collations are case insensitive.
+     */
+    @Override
+    public String orderByBinary(String columnName) {
+        return "CAST(" + columnName + " AS BINARY)";
+    }
+
     /**
      * {@inheritDoc}
      */
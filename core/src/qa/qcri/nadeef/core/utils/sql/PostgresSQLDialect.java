@@ -14,7 +14,9 @@
 package qa.qcri.nadeef.core.utils.sql;
 
 import com.google.common.base.Stopwatch;
+import org.apache.commons.dbcp.DelegatingConnection;
 import org.postgresql.copy.CopyManager;
+import org.postgresql.copy.PGCopyInputStream;
 import org.postgresql.core.BaseConnection;
 import org.stringtemplate.v4.ST;
 import org.stringtemplate.v4.STGroupFile;
@@ -24,6 +26,7 @@ import qa.qcri.nadeef.tools.DBConfig;
 import qa.qcri.nadeef.tools.Logger;
 
 import java.io.FileReader;
+import java.io.InputStream;
 import java.nio.file.Path;
 import java.sql.Connection;
 import java.sql.ResultSet;
@@ -89,10 +92,40 @@ public class PostgresSQLDialect extends SQLDialectBase {
         return " LIMIT " + row;
     }
 
+    /**
+     * {@inheritDoc}
+     * The database collation may follow the locale, the C collation compares the bytes.
+     */
+    @Override
+    public String orderByBinary(String columnName) {
+        return columnName + " COLLATE \"C\"";
+    }
+
     @Override public boolean supportBulkLoad() {
         return true;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean supportBulkExport() {
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     * The result is streamed with <code>COPY (query) TO STDOUT</code> in the text format.
+     */
+    @Override
+    public InputStream bulkExport(Connection conn, String sql) throws SQLException {
+        Connection pgConn = conn;
+        if (conn instanceof DelegatingConnection) {
+            pgConn = ((DelegatingConnection)conn).getInnermostDelegate();
+        }
+        return new PGCopyInputStream((BaseConnection)pgConn, "COPY (" + sql + ") TO STDOUT");
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -26,6 +26,7 @@ import qa.qcri.nadeef.tools.sql.SQLDialect;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
+import java.io.InputStream;
 import java.nio.file.Path;
 import java.sql.*;
 import java.util.concurrent.TimeUnit;
@@ -65,6 +66,44 @@ public abstract class SQLDialectBase {
         return false;
     }
 
+    /**
+     * Gets the JDBC fetch size used to stream a result set.
+     * @param fetchSize requested fetch size.
+     * @return JDBC fetch size.
+     */
+    public int getFetchSize(int fetchSize) {
+        return fetchSize;
+    }
+
+    /**
+     * Gets the ORDER BY expression which sorts a string column by its binary value, so that
+     * values which are only equal under a case or accent insensitive collation are not
+     * interleaved. The default collation compares the code points.
+     * @param columnName column name.
+     * @return ORDER BY expression.
+     */
+    public String orderByBinary(String columnName) {
+        return columnName;
+    }
+
+    /**
+     * Returns True when a query result can be exported as a text stream.
+     * @return True when bulk export is supported.
+     */
+    public boolean supportBulkExport() {
+        return false;
+    }
+
+    /**
+     * Exports the result of a query in the text format parsed by {@link CopyTextParser}.
+     * @param conn connection.
+     * @param sql query.
+     * @return text stream of the result.
+     */
+    public InputStream bulkExport(Connection conn, String sql) throws SQLException {
+        throw new UnsupportedOperationException();
+    }
+
     /**
      * Bulk load CSV file.
      * @param dbConfig DBConfig.
@@ -255,6 +294,15 @@ public abstract class SQLDialectBase {
         return "SELECT MAX(TID) FROM " + tableName;
     }
 
+    /**
+     * Selects the row count and the max TID of the table.
+     * @param tableName table name.
+     * @return SQL statement.
+     */
+    public String selectTableState(String tableName) {
+        return "SELECT COUNT(*), MAX(TID) FROM " + tableName;
+    }
+
     public String deleteAll(String tableName) {
         return "DELETE FROM " + tableName;
     }
@@ -19,6 +19,7 @@ import com.google.common.collect.Sets;
 
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
 
@@ -42,7 +43,7 @@ public class SQLQueryBuilder implements Cloneable {
         selects = Sets.newHashSet();
         wheres = Sets.newHashSet();
         froms = Sets.newHashSet();
-        orders = Sets.newHashSet();
+        orders = Sets.newLinkedHashSet();
         distincts = Sets.newHashSet();
         limit = -1;
     }
@@ -54,7 +55,7 @@ public class SQLQueryBuilder implements Cloneable {
         selects = new HashSet<>(obj.selects);
         wheres = new HashSet<>(obj.wheres);
         froms = new HashSet<>(obj.froms);
-        orders = new HashSet<>(obj.orders);
+        orders = new LinkedHashSet<>(obj.orders);
         distincts = new HashSet<>(obj.distincts);
         limit = obj.limit;
     }
@@ -81,6 +82,16 @@ public class SQLQueryBuilder implements Cloneable {
         this.orders.add(order);
     }
 
+    /**
+     * Puts the orders in front of the existing orders.
+     */
+    public void prependOrder(List<String> orders) {
+        Preconditions.checkNotNull(orders);
+        LinkedHashSet<String> newOrders = new LinkedHashSet<>(orders);
+        newOrders.addAll(this.orders);
+        this.orders = newOrders;
+    }
+
     public void addWhere(String where) {
         Preconditions.checkNotNull(where);
         this.wheres.add(where);
@@ -99,6 +110,14 @@ public class SQLQueryBuilder implements Cloneable {
         this.limit = limit;
     }
 
+    public boolean hasOrder() {
+        return orders.size() > 0;
+    }
+
+    public boolean hasSelect() {
+        return selects.size() > 0;
+    }
+
     public String build(SQLDialectBase dialectManager) {
         StringBuilder builder = new StringBuilder("SELECT ");
         if (distincts.size() > 0) {
@@ -0,0 +1,119 @@
+/** Code Generated by NADEEF.*/
+import qa.qcri.nadeef.core.datamodel.*;
+import qa.qcri.nadeef.tools.Metrics;
+import java.util.*;
+
+public class DefaultER1103963893 extends PairTupleRule {
+    private final ColumnHandle leftHandle0 = ColumnHandle.of("bank", "FN"); 
+    private final ColumnHandle rightHandle0 = ColumnHandle.of("tran", "FN"); 
+
+    private final CandidateGenerator candidates =
+        new SortedNeighborhood().pass("bank", "FN", "tran", "FN", 2).pass("bank", "LN", "tran", "LN", 2);
+    @Override
+    public void initialize(String id, List<String> tableNames) {
+        super.initialize(id, tableNames);
+    }
+
+    @Override
+    public Collection<Table> horizontalScope(Collection<Table> table) {
+        return table;
+    }
+
+    @Override
+    public Collection<Table> verticalScope(Collection<Table> table) {
+        return table;
+    }
+
+    @Override
+    public Collection<Table> block(Collection<Table> table) {
+        return table;
+    }
+
+    @Override
+    public Collection<Table> coBlock(Collection<Table> tables) {
+        // the sorted neighborhood windows span the whole tables.
+        return tables;
+    }
+    @Override
+    public void iterator(Collection<Table> tables, IteratorResultHandler iteratorResultHandler) {
+        List<Table> collectionList = new ArrayList<>(tables);
+
+        if (candidates != null) {
+            if (collectionList.size() == 1) {
+                candidates.iterator(collectionList.get(0), iteratorResultHandler);
+            } else {
+                candidates.iterator(
+                    collectionList.get(0),
+                    collectionList.get(1),
+                    iteratorResultHandler
+                );
+            }
+        } else {
+            super.iterator(tables, iteratorResultHandler);
+        }
+    }
+
+    @Override
+    public Collection<Violation> detect(TuplePair tuplePair) {
+        List<Violation> result = new ArrayList<>();
+        Tuple left = tuplePair.getLeft();
+        Tuple right = tuplePair.getRight();
+
+        if (true
+            && Metrics.getEqual(getValue(left, right, "bank", leftHandle0, 0),getValue(left, right, "tran", rightHandle0, 1))==1 
+
+        ) {
+	        Violation violation = new Violation(getRuleName());
+	        violation.addTuple(left);
+	        violation.addTuple(right);
+	        result.add(violation);
+	    }
+
+        return result;
+    }
+
+    @Override
+    public void detect(Table leftBlock, int i, Table rightBlock, int j, ViolationSink sink) {
+        Tuple left = leftBlock.get(i);
+        Tuple right = rightBlock.get(j);
+
+        if (true
+            && Metrics.getEqual(getValue(left, right, "bank", leftHandle0, 0),getValue(left, right, "tran", rightHandle0, 1))==1 
+
+        ) {
+            Violation violation = new Violation(getRuleName());
+            violation.addTuple(left);
+            violation.addTuple(right);
+            sink.add(violation);
+        }
+    }
+
+    @Override
+    public Collection<Fix> repair(Violation violation) {
+        return new ArrayList();
+    }
+
+    private String getValue(
+        Tuple left,
+        Tuple right,
+        String tableName,
+        ColumnHandle column,
+        int isLeft
+    ) {
+        String result;
+        if (isLeft == 0) {
+            if (left.isFromTable(tableName)) {
+                result = left.getString(column);
+            } else {
+                result = right.getString(column);
+            }
+        } else {
+            if (right.isFromTable(tableName)) {
+                result = right.getString(column);
+            } else {
+                result = left.getString(column);
+            }
+        }
+        return result;
+    }
+}
\ No newline at end of file
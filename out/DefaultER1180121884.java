@@ -0,0 +1,161 @@
+/** Code Generated by NADEEF.*/
+import qa.qcri.nadeef.core.datamodel.*;
+import qa.qcri.nadeef.tools.Metrics;
+import java.util.*;
+
+public class DefaultER1180121884 extends PairTupleRule {
+    private final ColumnHandle leftHandle0 = ColumnHandle.of("bank", "FN"); 
+    private final ColumnHandle rightHandle0 = ColumnHandle.of("tran", "FN"); 
+    private final ColumnHandle leftHandle1 = ColumnHandle.of("bank", "LN"); 
+    private final ColumnHandle rightHandle1 = ColumnHandle.of("tran", "LN"); 
+
+    private final CandidateGenerator candidates =
+        NadeefConfiguration.getExactSimilarityJoin() ?
+            new SimilarityJoin().condition(SimilarityJoin.Measure.QGRAM, "bank", "FN", "tran", "FN", 0.8) :
+            new MinHashLSH("bank", "FN", "tran", "FN");
+    @Override
+    public void initialize(String id, List<String> tableNames) {
+        super.initialize(id, tableNames);
+    }
+
+    @Override
+    public Collection<Table> horizontalScope(Collection<Table> table) {
+        return table;
+    }
+
+    @Override
+    public Collection<Table> verticalScope(Collection<Table> table) {
+        return table;
+    }
+
+    @Override
+    public Collection<Table> block(Collection<Table> table) {
+        return table;
+    }
+
+    @Override
+    public Collection<Table> coBlock(Collection<Table> tables) {
+        if (tables.size() != 2) {
+            return tables;
+        }
+
+        Iterator<Table> iterator = tables.iterator();
+        Table left = iterator.next();
+        Table right = iterator.next();
+        if (left.size() == 0 || right.size() == 0) {
+            return tables;
+        }
+
+        // the pairs agree on the equality predicates.
+        List<Column> leftColumns = new ArrayList<>();
+        List<Column> rightColumns = new ArrayList<>();
+        addKey(left, right, leftColumns, rightColumns, "bank", "LN", "tran", "LN"); 
+
+        return coBlockOn(tables, leftColumns, rightColumns);
+    }
+
+    private static void addKey(
+        Table left,
+        Table right,
+        List<Column> leftColumns,
+        List<Column> rightColumns,
+        String table1,
+        String column1,
+        String table2,
+        String column2
+    ) {
+        String leftName = left.getSchema().getTableName();
+        String rightName = right.getSchema().getTableName();
+        if (left.get(0).isFromTable(table1)) {
+            leftColumns.add(new Column(leftName, column1));
+            rightColumns.add(new Column(rightName, column2));
+        } else {
+            leftColumns.add(new Column(leftName, column2));
+            rightColumns.add(new Column(rightName, column1));
+        }
+    }
+    @Override
+    public void iterator(Collection<Table> tables, IteratorResultHandler iteratorResultHandler) {
+        List<Table> collectionList = new ArrayList<>(tables);
+
+        if (candidates != null) {
+            if (collectionList.size() == 1) {
+                candidates.iterator(collectionList.get(0), iteratorResultHandler);
+            } else {
+                candidates.iterator(
+                    collectionList.get(0),
+                    collectionList.get(1),
+                    iteratorResultHandler
+                );
+            }
+        } else {
+            super.iterator(tables, iteratorResultHandler);
+        }
+    }
+
+    @Override
+    public Collection<Violation> detect(TuplePair tuplePair) {
+        List<Violation> result = new ArrayList<>();
+        Tuple left = tuplePair.getLeft();
+        Tuple right = tuplePair.getRight();
+
+        if (true
+            && Metrics.getQGramsDistance(getValue(left, right, "bank", leftHandle0, 0),getValue(left, right, "tran", rightHandle0, 1))>0.8 
+            && Metrics.getEqual(getValue(left, right, "bank", leftHandle1, 0),getValue(left, right, "tran", rightHandle1, 1))==1 
+
+        ) {
+	        Violation violation = new Violation(getRuleName());
+	        violation.addTuple(left);
+	        violation.addTuple(right);
+	        result.add(violation);
+	    }
+
+        return result;
+    }
+
+    @Override
+    public void detect(Table leftBlock, int i, Table rightBlock, int j, ViolationSink sink) {
+        Tuple left = leftBlock.get(i);
+        Tuple right = rightBlock.get(j);
+
+        if (true
+            && Metrics.getQGramsDistance(getValue(left, right, "bank", leftHandle0, 0),getValue(left, right, "tran", rightHandle0, 1))>0.8 
+            && Metrics.getEqual(getValue(left, right, "bank", leftHandle1, 0),getValue(left, right, "tran", rightHandle1, 1))==1 
+
+        ) {
+            Violation violation = new Violation(getRuleName());
+            violation.addTuple(left);
+            violation.addTuple(right);
+            sink.add(violation);
+        }
+    }
+
+    @Override
+    public Collection<Fix> repair(Violation violation) {
+        return new ArrayList();
+    }
+
+    private String getValue(
+        Tuple left,
+        Tuple right,
+        String tableName,
+        ColumnHandle column,
+        int isLeft
+    ) {
+        String result;
+        if (isLeft == 0) {
+            if (left.isFromTable(tableName)) {
+                result = left.getString(column);
+            } else {
+                result = right.getString(column);
+            }
+        } else {
+            if (right.isFromTable(tableName)) {
+                result = right.getString(column);
+            } else {
+                result = left.getString(column);
+            }
+        }
+        return result;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,136 @@
+/** Code Generated by NADEEF.*/
+import qa.qcri.nadeef.core.datamodel.*;
+import java.util.*;
+
+public class Rule775912863 extends PairTupleRule {
+    protected List<Column> leftHandSide = new ArrayList();
+    protected List<Column> rightHandSide = new ArrayList();
+
+    public Rule775912863() {}
+
+    @Override
+    public void initialize(String id, List<String> tableNames) {
+        super.initialize(id, tableNames);
+        leftHandSide.add(new Column("LOCATION_COPY.zip")); 
+
+        rightHandSide.add(new Column("LOCATION_COPY.city")); 
+        rightHandSide.add(new Column("LOCATION_COPY.state")); 
+
+    }
+
+    /**
+     * Default horizontal scope operation.
+     * @param tables input tables.
+     * @return filtered tables.
+     */
+    @Override
+    public Collection<Table> horizontalScope(Collection<Table> tables) {
+        tables.iterator().next().project(leftHandSide).project(rightHandSide);
+        return tables;
+    }
+
+    /**
+     * Default block operation.
+     * @param tables a collection of tables.
+     * @return a collection of blocked tables.
+     */
+    @Override
+    public Collection<Table> block(Collection<Table> tables) {
+        Table table = tables.iterator().next();
+        Collection<Table> groupResult = table.groupOn(leftHandSide);
+        return groupResult;
+    }
+
+    @Override
+    public List<Column> getBlockColumns() {
+        return leftHandSide;
+    }
+
+    /**
+     * Default group operation. The block is sorted on the right hand side and the pairs
+     * across the runs of equal values are generated, in tiles for large blocks.
+     *
+     * @param tables input tables
+     */
+    @Override
+   	public void iterator(Collection<Table> tables, IteratorResultHandler output) {
+        Table table = tables.iterator().next();
+        table.orderBy(rightHandSide);
+        iteratorAcrossRuns(table, output);
+    }
+
+    /**
+     * Detect method.
+     * @param tuplePair tuple pair.
+     * @return violation set.
+     */
+    @Override
+    public Collection<Violation> detect(TuplePair tuplePair) {
+        List<Violation> result = new ArrayList();
+        Tuple left = tuplePair.getLeft();
+        Tuple right = tuplePair.getRight();
+
+        // Comparing tuples is redundant, but needed for correctness of detect function,
+		// when used in incremental detection
+		if(!left.hasSameValue(right)){
+	        Violation violation = new Violation(getRuleName());
+	        violation.addTuple(left);
+	        violation.addTuple(right);
+	        result.add(violation);
+	    }
+
+        return result;
+    }
+
+    /**
+     * Detect method on the positions of the tuples.
+     * @param leftBlock left block.
+     * @param i position in the left block.
+     * @param rightBlock right block.
+     * @param j position in the right block.
+     * @param sink violation output.
+     */
+    @Override
+    public void detect(Table leftBlock, int i, Table rightBlock, int j, ViolationSink sink) {
+        Tuple left = leftBlock.get(i);
+        Tuple right = rightBlock.get(j);
+        if (!left.hasSameValue(right)) {
+            Violation violation = new Violation(getRuleName());
+            violation.addTuple(left);
+            violation.addTuple(right);
+            sink.add(violation);
+        }
+    }
+
+    /**
+     * Repair of this rule.
+     *
+     * @param violation violation input.
+     * @return a candidate fix.
+     */
+    @Override
+    public Collection<Fix> repair(Violation violation) {
+        List<Fix> result = new ArrayList();
+        Collection<Cell> cells = violation.getCells();
+        HashMap<Column, Cell> candidates = new HashMap<Column, Cell>();
+        int vid = violation.getVid();
+        Fix fix;
+        Fix.Builder builder = new Fix.Builder(violation);
+        for (Cell cell : cells) {
+            Column column = cell.getColumn();
+            if (rightHandSide.contains(column)) {
+                if (candidates.containsKey(column)) {
+                    // if the right hand is already found out in another tuple
+                    Cell right = candidates.get(column);
+                    fix = builder.left(cell).right(right).build();
+                    result.add(fix);
+                } else {
+                    // it is the first time of this cell shown up, put it in the
+                    // candidate and wait for the next one shown up.
+                    candidates.put(column, cell);
+                }
+            }
+        }
+        return result;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,131 @@
+/*
+ * QCRI, NADEEF LICENSE
+ * NADEEF is an extensible, generalized and easy-to-deploy data cleaning platform built at QCRI.
+ * NADEEF means "Clean" in Arabic
+ *
+ * Copyright (c) 2011-2013, Qatar Foundation for Education, Science and Community Development (on
+ * behalf of Qatar Computing Research Institute) having its principle place of business in Doha,
+ * Qatar with the registered address P.O box 5825 Doha, Qatar (hereinafter referred to as "QCRI")
+ *
+ * NADEEF has patent pending nevertheless the following is granted.
+ * NADEEF is released under the terms of the MIT License, (http://opensource.org/licenses/MIT).
+ */
+import qa.qcri.nadeef.core.datamodel.*;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Single Tuple CFD rule.
+ *
+ */
+public class cfd1_ff_1 extends SingleTupleRule {
+    protected List<Column> lhs;
+    protected List<Column> rhs;
+    protected List<Predicate> leftFilterExpressions;
+    protected List<Predicate> rightFilterExpressions;
+    protected HashMap<Column, Predicate> filterCache;
+
+    public cfd1_ff_1() {}
+
+    @Override
+    public void initialize(String id, List<String> tableNames) {
+        super.initialize(id, tableNames);
+
+        lhs = new ArrayList<Column>();
+        rhs = new ArrayList<Column>();
+        leftFilterExpressions = new ArrayList<Predicate>();
+        rightFilterExpressions = new ArrayList<Predicate>();
+        filterCache = new HashMap<Column, Predicate>();
+
+        lhs.add(new Column("test1.a")); 
+        lhs.add(new Column("test1.b")); 
+        lhs.add(new Column("test1.c")); 
+        lhs.add(new Column("test1.d")); 
+        lhs.add(new Column("test1.e")); 
+
+        rhs.add(new Column("test1.ff")); 
+
+        leftFilterExpressions.add(Predicate.createEq(new Column("test1.b"), "b1"));
+
+        rightFilterExpressions.add(Predicate.createEq(new Column("test1.ff"), "f3"));
+
+    }
+
+    /**
+     * Default horizontal scope operation.
+     * @param tables input tables.
+     * @return filtered tables.
+     */
+    @Override
+    public Collection<Table> horizontalScope(Collection<Table> tables) {
+        tables.iterator().next().project(lhs).project(rhs);
+        return tables;
+    }
+
+    /**
+     * Default vertical scope operation.
+     * @param tables input tables.
+     * @return filtered tables.
+     */
+    @Override
+    public Collection<Table> verticalScope(Collection<Table> tables) {
+        tables.iterator().next().filter(leftFilterExpressions);
+        return tables;
+    }
+
+    /**
+     * Default iterator operation.
+     *
+     * @param tables input table
+     */
+    @Override
+    public void iterator(Collection<Table> tables, IteratorResultHandler output) {
+        tables.iterator().next().scan(output);
+    }
+
+    /**
+     * Detect rule with one tuple.
+     *
+     * @param tuple input tuple.
+     * @return Violation collection.
+     */
+    @Override
+    public Collection<Violation> detect(Tuple tuple) {
+    	List<Violation> result = new ArrayList();
+    	// Matching with lhs is redundant, but needed for correctness of detect function,
+		// when used in incremental detection.
+
+    	if(matches(leftFilterExpressions, tuple)) {
+    		if(!matches(rightFilterExpressions, tuple)) {
+    			Violation violation = new Violation(getRuleName());
+	        	violation.addTuple(tuple);
+    	    	result.add(violation);
+    		}
+    	}
+        return result;
+    }
+
+    /**
+     * Repair of this rule.
+     *
+     * @param violation violation input.
+     * @return a candidate fix.
+     */
+    @Override
+    public Collection<Fix> repair(Violation violation) {
+        List<Fix> result = new ArrayList();
+        return result;
+    }
+
+    private static boolean matches(List<Predicate> expressions, Tuple tuple) {
+        for (Predicate exp : expressions) {
+            if (!exp.isValid(tuple)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,153 @@
+import qa.qcri.nadeef.core.datamodel.*;
+
+/** Code Generated by NADEEF.*/
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Pair Tuple CFD rule.
+ */
+public class cfd1_gg_1 extends PairTupleRule {
+    protected List<Column> lhs;
+    protected List<Column> rhs;
+    protected List<Predicate> leftFilterExpressions;
+    protected HashMap<Column, Predicate> filterCache;
+
+    public cfd1_gg_1() {}
+
+    @Override
+    public void initialize(String id, List<String> tableNames) {
+        super.initialize(id, tableNames);
+
+        lhs = new ArrayList<Column>();
+        rhs = new ArrayList<Column>();
+        leftFilterExpressions = new ArrayList<Predicate>();
+        filterCache = new HashMap<Column, Predicate>();
+
+        lhs.add(new Column("test1.a")); 
+        lhs.add(new Column("test1.b")); 
+        lhs.add(new Column("test1.c")); 
+        lhs.add(new Column("test1.d")); 
+        lhs.add(new Column("test1.e")); 
+
+        rhs.add(new Column("test1.gg")); 
+
+        leftFilterExpressions.add(Predicate.createEq(new Column("test1.b"), "b1"));
+
+    }
+
+    /**
+     * Default horizontal scope operation.
+     * @param tables input tables.
+     * @return filtered tables.
+     */
+    @Override
+    public Collection<Table> horizontalScope(Collection<Table> tables) {
+        tables.iterator().next().project(lhs).project(rhs);
+        return tables;
+    }
+
+    /**
+     * Default vertical scope operation.
+     * @param tables input tables.
+     * @return filtered tables.
+     */
+    @Override
+    public Collection<Table> verticalScope(Collection<Table> tables) {
+    	tables.iterator().next().filter(leftFilterExpressions);
+        return tables;
+    }
+
+    /**
+     * Default block operation.
+     * @param tables a collection of tables.
+     * @return a collection of blocked tables.
+     */
+    @Override
+    public Collection<Table> block(Collection<Table> tables) {
+        Table table = tables.iterator().next();
+        Collection<Table> groupResult = table.groupOn(lhs);
+        return groupResult;
+    }
+
+    @Override
+    public List<Column> getBlockColumns() {
+        return lhs;
+    }
+
+    /**
+     * Default group operation. The block is sorted on the right hand side and the pairs
+     * across the runs of equal values are generated, in tiles for large blocks.
+     *
+     * @param tables input tables.
+     */
+    @Override
+    public void iterator(Collection<Table> tables, IteratorResultHandler output) {
+        Table table = tables.iterator().next();
+        table.orderBy(rhs);
+        iteratorAcrossRuns(table, output);
+    }
+
+    /**
+     * Detect rule with many tuples.
+     *
+     * @param tuplePair input tuple.
+     * @return Violation collection.
+     */
+    @Override
+    public Collection<Violation> detect(TuplePair tuplePair) {
+        List<Violation> result = new ArrayList();
+        Tuple left = tuplePair.getLeft();
+        Tuple right = tuplePair.getRight();
+
+        // Comparing tuples is redundant, but needed for correctness of detect function,
+		// when used in incremental detection
+		if(!left.hasSameValue(right)){
+			Violation violation = new Violation(getRuleName());
+	        violation.addTuple(left);
+	        violation.addTuple(right);
+	        result.add(violation);	
+		}
+
+		return result;
+    }
+
+    /**
+     * Repair of this rule.
+     *
+     * @param violation violation input.
+     * @return a candidate fix.
+     */
+    @Override
+    public Collection<Fix> repair(Violation violation) {
+        List<Fix> result = new ArrayList();
+        List<Cell> cells = new ArrayList(violation.getCells());
+        HashMap<Column, Cell> candidates = new HashMap();
+
+        Fix fix;
+        Fix.Builder builder = new Fix.Builder(violation);
+        for (Cell cell : cells) {
+            Column column = cell.getColumn();
+            if (rhs.contains(column)) {
+                if (filterCache.containsKey(column)) {
+                    // if the right hand is in the filter expression, we assign it a constant.
+                    Predicate filter = filterCache.get(column);
+                    fix = builder.left(cell).right(filter.getValue()).build();
+                    result.add(fix);
+                } else if (candidates.containsKey(column)) {
+                    // if the right hand is already found out in another tuple
+                    Cell right = candidates.get(column);
+                    fix = builder.left(cell).right(right).build();
+                    result.add(fix);
+                } else {
+                    // it is the first time of this cell shown up, put it in the candidate and
+                    // wait for the next one shown up.
+                    candidates.put(column, cell);
+                }
+            }
+        }
+        return result;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,262 @@
+/*
+ * Code Generated by NADEEF.
+ */
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.HashMap;
+
+import qa.qcri.nadeef.core.datamodel.Column;
+import qa.qcri.nadeef.core.datamodel.Cell;
+import qa.qcri.nadeef.core.datamodel.Operation;
+import qa.qcri.nadeef.core.datamodel.Fix;
+import qa.qcri.nadeef.core.datamodel.IEJoin;
+import qa.qcri.nadeef.core.datamodel.IteratorResultHandler;
+import qa.qcri.nadeef.core.datamodel.PairTupleRule;
+import qa.qcri.nadeef.core.datamodel.Predicate;
+import qa.qcri.nadeef.core.datamodel.Table;
+import qa.qcri.nadeef.core.datamodel.Tuple;
+import qa.qcri.nadeef.core.datamodel.TuplePair;
+import qa.qcri.nadeef.core.datamodel.Violation;
+import qa.qcri.nadeef.core.datamodel.ViolationSink;
+
+public class myDC2 extends PairTupleRule{
+    private List<Predicate> predicates;
+    private IEJoin candidates;
+    private List<Column> blockColumns;
+
+    public myDC2() {
+        String tableName = "TB_DUMPTEST";
+        predicates = new ArrayList<>();
+        predicates.add(Predicate.valueOf("t1.C=t2.C", tableName)); 
+        predicates.add(Predicate.valueOf("t1.A!=t2.A", tableName)); 
+
+        candidates = new IEJoin(predicates);
+
+        // pairs violating the DC agree on the columns of the equality predicates.
+        blockColumns = new ArrayList<>();
+        for (Predicate predicate : predicates) {
+            if (
+                predicate.getOperation() == Operation.EQ &&
+                !predicate.isSingle() &&
+                !predicate.isRightConstant() &&
+                predicate.getLeft().equals(predicate.getRight()) &&
+                !blockColumns.contains(predicate.getLeft())
+            ) {
+                blockColumns.add(predicate.getLeft());
+            }
+        }
+    }
+
+    @Override
+    public Collection<Table> block(Collection<Table> tables) {
+        return blockOn(tables, blockColumns);
+    }
+
+    @Override
+    public List<Column> getBlockColumns() {
+        return blockColumns;
+    }
+
+    @Override
+    public void iterator(Collection<Table> tables, IteratorResultHandler iteratorResultHandler) {
+        // inequality predicates are joined on the sorted values instead of all the pairs.
+        if (!candidates.hasInequality()) {
+            super.iterator(tables, iteratorResultHandler);
+            return;
+        }
+
+        List<Table> collectionList = new ArrayList<>(tables);
+        if (collectionList.size() == 1) {
+            candidates.iterator(collectionList.get(0), iteratorResultHandler);
+        } else {
+            candidates.iterator(
+                collectionList.get(0),
+                collectionList.get(1),
+                iteratorResultHandler
+            );
+        }
+    }
+
+    @Override
+    public Collection<Violation> detect(TuplePair tuplePair) {
+        List<Violation> result = new ArrayList<>();
+        Set<Cell> infectedCells;
+        Tuple left = tuplePair.getLeft();
+        Tuple right = tuplePair.getRight();
+
+        infectedCells = isValid(left, right);
+
+        // invert the order and try again
+        if (infectedCells == null) {
+            infectedCells = isValid(right, left);
+        }
+
+        // all the predicates are valid, then the DC is violated
+        if (infectedCells != null) {
+            Violation violation = new Violation(getRuleName());
+            for (Cell cell : infectedCells) {
+                violation.addCell(cell);
+            }
+            //violation.addCell(cell);
+            result.add(violation);
+        }
+
+        return result;
+    }
+
+    @Override
+    public void detect(Table leftBlock, int i, Table rightBlock, int j, ViolationSink sink) {
+        Tuple left = leftBlock.get(i);
+        Tuple right = rightBlock.get(j);
+
+        // the cells are only collected once the pair is known to violate the DC.
+        Set<Cell> infectedCells = null;
+        if (isViolated(left, right)) {
+            infectedCells = isValid(left, right);
+        } else if (isViolated(right, left)) {
+            infectedCells = isValid(right, left);
+        }
+
+        if (infectedCells != null) {
+            Violation violation = new Violation(getRuleName());
+            for (Cell cell : infectedCells) {
+                violation.addCell(cell);
+            }
+            sink.add(violation);
+        }
+    }
+
+    @Override
+    public Collection<Fix> repair(Violation violation) {
+        List<Cell> cells = new ArrayList<>(violation.getCells());
+        List<Fix> result = new ArrayList<>();
+        HashMap<Column, List<Cell> > columnMap = new HashMap<>();
+
+        Fix.Builder builder = new Fix.Builder(violation);
+        for (Cell cell : cells) {
+            Column column = cell.getColumn();
+            List<Cell> cellSet = null;
+            if (columnMap.containsKey(column)) {
+                cellSet = columnMap.get(column);
+            } else {
+                cellSet = new ArrayList<>();
+                columnMap.put(column, cellSet);
+            }
+            cellSet.add(cell);
+        }
+
+        for (Predicate predicate : predicates) {
+            // TODO: we don't know how to solve NEQ problem.
+            if (predicate.getOperation().equals(Operation.NEQ))
+                continue;
+            Column leftColumn = predicate.getLeft();
+            if (predicate.isRightConstant()) {
+                List<Cell> cellList = columnMap.get(leftColumn);
+                for (Cell cell : cellList) {
+                    result.add(builder
+                        .left(cell)
+                        .op(repairOperation(predicate.getOperation()))
+                        .right(predicate.getValue())
+                        .build()
+                    );
+                }
+            } else {
+                Column rightColumn = predicate.getRight();
+                List<Cell> cellListLeft = columnMap.get(leftColumn);
+                List<Cell> cellListRight = columnMap.get(rightColumn);
+                // left, right columns are the same.
+                // a potential bug when different predicates are mapping to the same column.
+                // e.g. not(t1.b < t2.c && t1.b != 2), to solve it we need to do a sanity check
+                // on the cells again!
+                if (leftColumn.equals(rightColumn)) {
+                    assert cellListLeft.size() > 1;
+                    Cell c0 = cellListLeft.get(0);
+                    Cell c1 = cellListLeft.get(1);
+
+                    if (predicate.isValid(c0, c1))
+                        result.add(
+                            builder
+                                .left(c0)
+                                .op(repairOperation(predicate.getOperation()))
+                                .right(c1)
+                                .build());
+                    else
+                        result.add(
+                            builder
+                                .left(c1)
+                                .op(repairOperation(predicate.getOperation()))
+                                .right(c0)
+                                .build());
+                } else {
+                    result.add(
+                        builder
+                        .left(cellListLeft.get(0))
+                        .op(repairOperation(predicate.getOperation()))
+                        .right(cellListRight.get(0))
+                        .build()
+                    );
+                }
+
+            }
+        }
+        return result;
+    }
+
+    private Operation repairOperation(Operation op) {
+        Operation result = null;
+        switch (op) {
+            case EQ:
+                result = Operation.NEQ;
+                break;
+            case GT:
+                result = Operation.LTE;
+                break;
+            case GTE:
+                result = Operation.LT;
+                break;
+            case LT:
+                result = Operation.GTE;
+                break;
+            case LTE:
+                result = Operation.GT;
+                break;
+            case NEQ:
+                result = Operation.EQ;
+                break;
+            default:
+                assert true : "unknown operations";
+        }
+        return result;
+    }
+
+    private boolean isViolated(Tuple left, Tuple right) {
+        for (Predicate predicate : predicates) {
+            if (!predicate.isValid(left, right)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Set<Cell> isValid(Tuple left, Tuple right) {
+        Set<Cell> infectedCells = new HashSet<>();
+        boolean isValid = true;
+        for (Predicate predicate : predicates) {
+            if (!predicate.isValid(left, right)) {
+                isValid = false;
+                break;
+            }
+
+            Cell leftCell = left.getCell(predicate.getLeftHandle());
+            infectedCells.add(leftCell);
+            if (!predicate.isRightConstant()){
+                Cell rightCell = right.getCell(predicate.getRightHandle());
+                infectedCells.add(rightCell);
+            }
+        }
+        return isValid ? infectedCells : null;
+    }
+}
\ No newline at end of file
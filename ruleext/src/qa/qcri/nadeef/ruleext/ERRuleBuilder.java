@@ -29,7 +29,13 @@ import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
- * Template engine for ER rule.
+ * Template engine for ER rule. Besides the similarity predicates a rule can have sorted
+ * neighborhood passes <code>SN(table.attribute, table.attribute, window)</code>, each pass
+ * sorts the tuples on the attributes and only pairs the tuples within the window. Without
+ * a pass, the QG and LS predicates with a lower bound threshold generate the candidate
+ * pairs through {@link qa.qcri.nadeef.core.datamodel.MinHashLSH} on the first predicate, or
+ * with <code>general.exactSimilarityJoin</code> through an exact
+ * {@link qa.qcri.nadeef.core.datamodel.SimilarityJoin} on all of them.
  */
 public class ERRuleBuilder extends RuleBuilder  {
     private static final Pattern pattern =
@@ -39,6 +45,13 @@ public class ERRuleBuilder extends RuleBuilder  {
             "\\s*([a-zA-Z_]\\w*)\\.([a-zA-Z_]\\w*)\\s*\\)" +
             "\\s*(>|<|<=|>=|=|!=)\\s*(\\d+\\.?\\d*)\\s*"
         );
+    private static final Pattern passPattern =
+        Pattern.compile(
+            "\\s*SN\\s*" +
+            "\\(\\s*([a-zA-Z_]\\w*)\\.([a-zA-Z_]\\w*)\\s*," +
+            "\\s*([a-zA-Z_]\\w*)\\.([a-zA-Z_]\\w*)\\s*," +
+            "\\s*(\\d+)\\s*\\)\\s*"
+        );
 
     @Override
     public Collection<File> compile() throws IOException {
@@ -57,7 +70,27 @@ public class ERRuleBuilder extends RuleBuilder  {
     @Override
     public Collection<File> generate() throws IOException {
         List<String> predicates = Lists.newArrayList();
+        List<String> handles = Lists.newArrayList();
+        List<String> passes = Lists.newArrayList();
+        String lsh = null;
+        List<String> joins = Lists.newArrayList();
+        List<String> keys = Lists.newArrayList();
         for (String predicateText : value) {
+            Matcher passMatcher = passPattern.matcher(predicateText);
+            if (passMatcher.matches()) {
+                passes.add(
+                    String.format(
+                        "pass(\"%s\", \"%s\", \"%s\", \"%s\", %s)",
+                        passMatcher.group(1),
+                        passMatcher.group(2),
+                        passMatcher.group(3),
+                        passMatcher.group(4),
+                        passMatcher.group(5)
+                    )
+                );
+                continue;
+            }
+
             Matcher matcher = pattern.matcher(predicateText);
             if (!matcher.matches()) {
                 throw new IllegalArgumentException(
@@ -73,12 +106,70 @@ public class ERRuleBuilder extends RuleBuilder  {
             if (op.equals("="))
                 op = "==";
             String threshold = matcher.group(7);
+            // the pairs of the rule agree on the columns when unequal values fail it.
+            if (metric.equals("EQ") && !compare(0.0, op, Double.parseDouble(threshold))) {
+                keys.add(
+                    String.format(
+                        "\"%s\", \"%s\", \"%s\", \"%s\"",
+                        leftTable,
+                        leftAttribute,
+                        rightTable,
+                        rightAttribute
+                    )
+                );
+            }
+
+            if (
+                (metric.equals("QG") || metric.equals("LS")) &&
+                (op.equals(">") || op.equals(">="))
+            ) {
+                String columns =
+                    String.format(
+                        "\"%s\", \"%s\", \"%s\", \"%s\"",
+                        leftTable,
+                        leftAttribute,
+                        rightTable,
+                        rightAttribute
+                    );
+                if (lsh == null) {
+                    lsh = columns;
+                }
+
+                joins.add(
+                    String.format(
+                        "condition(SimilarityJoin.Measure.%s, %s, %s)",
+                        metric.equals("QG") ? "QGRAM" : "LEVENSHTEIN",
+                        columns,
+                        threshold
+                    )
+                );
+            }
 
             StringBuilder sb = new StringBuilder();
+            // column handles are declared as fields, so they are resolved only once.
+            String leftHandle = "leftHandle" + predicates.size();
+            String rightHandle = "rightHandle" + predicates.size();
+            handles.add(
+                String.format(
+                    "%s = ColumnHandle.of(\"%s\", \"%s\")",
+                    leftHandle,
+                    leftTable,
+                    leftAttribute
+                )
+            );
+            handles.add(
+                String.format(
+                    "%s = ColumnHandle.of(\"%s\", \"%s\")",
+                    rightHandle,
+                    rightTable,
+                    rightAttribute
+                )
+            );
+
             String left =
-                String.format("getValue(tuplePair, \"%s\", \"%s\", 0)", leftTable, leftAttribute);
+                String.format("getValue(left, right, \"%s\", %s, 0)", leftTable, leftHandle);
             String right =
-                String.format("getValue(tuplePair, \"%s\", \"%s\", 1)", rightTable, rightAttribute);
+                String.format("getValue(left, right, \"%s\", %s, 1)", rightTable, rightHandle);
 
             switch (metric) {
                 case "EQ":
@@ -114,8 +205,14 @@ public class ERRuleBuilder extends RuleBuilder  {
             new STGroupFile("qa/qcri/nadeef/ruleext/template/ERRuleBuilder.stg", '$', '$');
         ST st = stFile.getInstanceOf("erTemplate");
         st.add("predicates", predicates);
+        st.add("handles", handles);
+        st.add("passes", passes);
+        st.add("lsh", lsh);
+        st.add("joins", joins);
+        st.add("keys", keys);
         if (Strings.isNullOrEmpty(ruleName)) {
-            ruleName = "DefaultER" + CommonTools.toHashCode(value.get(0));
+            // rules with the same predicates may differ in the passes.
+            ruleName = "DefaultER" + CommonTools.toHashCode(value.toString());
         } else {
             // remove all the empty spaces to make it a valid class name.
             ruleName = originalRuleName.replace(" ", "");
@@ -126,4 +223,21 @@ public class ERRuleBuilder extends RuleBuilder  {
         st.write(outputFile, null);
         return Lists.newArrayList(outputFile);
     }
+
+    private static boolean compare(double value, String op, double threshold) {
+        switch (op) {
+            case ">":
+                return value > threshold;
+            case "<":
+                return value < threshold;
+            case ">=":
+                return value >= threshold;
+            case "<=":
+                return value <= threshold;
+            case "==":
+                return value == threshold;
+            default:
+                return value != threshold;
+        }
+    }
 }
@@ -18,8 +18,11 @@ import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.util.concurrent.*;
 import qa.qcri.nadeef.core.datamodel.CleanPlan;
+import qa.qcri.nadeef.core.datamodel.ColumnRegistry;
+import qa.qcri.nadeef.core.datamodel.NadeefConfiguration;
 import qa.qcri.nadeef.core.datamodel.ProgressReport;
 import qa.qcri.nadeef.core.pipeline.CleanExecutor;
+import qa.qcri.nadeef.core.pipeline.FusedCleanExecutor;
 import qa.qcri.nadeef.service.thrift.TJobStatus;
 import qa.qcri.nadeef.service.thrift.TJobStatusType;
 import qa.qcri.nadeef.tools.Logger;
@@ -64,11 +67,13 @@ public class NadeefJobScheduler {
 
     private enum JobType {
         Detect,
+        FusedDetect,
         Repair
     }
 
     /**
-     * NadeefJob class represents a runnable job.
+     * NadeefJob class represents a runnable job. A fused detection job runs a
+     * {@link FusedCleanExecutor} instead of a {@link CleanExecutor}.
      */
     private static class NadeefJob {
         NadeefJob(String key, CleanExecutor executor, JobType type) {
@@ -77,8 +82,15 @@ public class NadeefJobScheduler {
             this.type = type;
         }
 
+        NadeefJob(String key, FusedCleanExecutor fusedExecutor) {
+            this.key = key;
+            this.fusedExecutor = fusedExecutor;
+            this.type = JobType.FusedDetect;
+        }
+
         public String key;
         public CleanExecutor executor;
+        public FusedCleanExecutor fusedExecutor;
         public JobType type;
     }
 
@@ -103,6 +115,13 @@ public class NadeefJobScheduler {
                 case Detect:
                     job.executor.detect();
                     break;
+                case FusedDetect:
+                    try {
+                        job.fusedExecutor.detect();
+                    } finally {
+                        job.fusedExecutor.shutdown();
+                    }
+                    break;
                 case Repair:
                     job.executor.repair();
                     break;
@@ -121,6 +140,11 @@ public class NadeefJobScheduler {
             keys.remove(key);
             runningCleaner.remove(key);
             runningRules.remove(key);
+            // no cell key is alive once the jobs are done, so the ids of the tables seen so
+            // far are dropped instead of piling up to the registry limit.
+            if (runningCleaner.isEmpty()) {
+                ColumnRegistry.clear();
+            }
         }
 
         @Override
@@ -153,6 +177,31 @@ public class NadeefJobScheduler {
         return job.key;
     }
 
+    /**
+     * Submits one detection job for several clean plans. With
+     * <code>general.fusedDetection</code> the plans are detected together by a
+     * {@link FusedCleanExecutor}, so each table is loaded once, otherwise each plan is
+     * submitted on its own.
+     * @param cleanPlans clean plans.
+     * @return job key, the key of the last job when the plans are submitted on their own.
+     */
+    public String submitDetectJob(List<CleanPlan> cleanPlans) throws Exception {
+        Preconditions.checkArgument(cleanPlans != null && cleanPlans.size() > 0);
+        if (cleanPlans.size() == 1 || !NadeefConfiguration.getFusedDetection()) {
+            String key = null;
+            for (CleanPlan cleanPlan : cleanPlans) {
+                key = submitDetectJob(cleanPlan);
+            }
+            return key;
+        }
+
+        NadeefJob job = createNewJob(cleanPlans);
+        ListenableFuture<String> future =
+            service.submit(new CleanExecutorCaller(new WeakReference<>(job)));
+        Futures.addCallback(future, new CleanCallback());
+        return job.key;
+    }
+
     /**
      * Submits a repair job.
      * @param cleanPlan clean plan.
@@ -181,6 +230,10 @@ public class NadeefJobScheduler {
         }
 
         NadeefJob job = runningCleaner.get(key);
+        if (job.type == JobType.FusedDetect) {
+            return getFusedJobStatus(job);
+        }
+
         CleanExecutor executor = job.executor;
         double progress = 0f;
         List<ProgressReport> detailProgress = null;
@@ -228,6 +281,41 @@ public class NadeefJobScheduler {
         return result;
     }
 
+    /**
+     * Gets the status of a fused detection job, it reports one progress for all the rules.
+     */
+    private static TJobStatus getFusedJobStatus(NadeefJob job) {
+        FusedCleanExecutor executor = job.fusedExecutor;
+        TJobStatus result = new TJobStatus();
+        result.setOverallProgress((int) (executor.getDetectProgress() * 100));
+        result.setNames(Lists.<String>newArrayList());
+        result.setProgress(Lists.<Integer>newArrayList());
+        if (executor.isRunning()) {
+            result.setStatus(TJobStatusType.RUNNING);
+        } else {
+            result.setStatus(TJobStatusType.WAITING);
+        }
+
+        result.setKey(job.key);
+        return result;
+    }
+
+    private static synchronized NadeefJob createNewJob(
+        List<CleanPlan> cleanPlans
+    ) throws Exception {
+        List<String> ruleNames = Lists.newArrayList();
+        for (CleanPlan cleanPlan : cleanPlans) {
+            ruleNames.add(cleanPlan.getRule().getRuleName());
+        }
+
+        String key = createNewKey(ruleNames);
+        NadeefJob job = new NadeefJob(key, new FusedCleanExecutor(cleanPlans));
+        keys.add(key);
+        runningCleaner.put(key, job);
+        runningRules.put(key, ruleNames.get(0));
+        return job;
+    }
+
     private static synchronized NadeefJob createNewJob(
         CleanPlan cleanPlan,
         JobType type
@@ -235,18 +323,7 @@ public class NadeefJobScheduler {
         Preconditions.checkNotNull(cleanPlan);
 
         String ruleName = cleanPlan.getRule().getRuleName();
-        if (runningRules.containsValue(ruleName)) {
-            tracer.info("Submitting duplicate rules.");
-        }
-
-        String key;
-
-        while (true) {
-            key = hostname + "_" + UUID.randomUUID().toString();
-            if (!runningCleaner.containsKey(key)) {
-                break;
-            }
-        }
+        String key = createNewKey(Lists.newArrayList(ruleName));
         NadeefJob job =
             new NadeefJob(
                 key,
@@ -259,4 +336,21 @@ public class NadeefJobScheduler {
         runningRules.put(key, ruleName);
         return job;
     }
+
+    private static String createNewKey(List<String> ruleNames) {
+        for (String ruleName : ruleNames) {
+            if (runningRules.containsValue(ruleName)) {
+                tracer.info("Submitting duplicate rules.");
+            }
+        }
+
+        String key;
+        while (true) {
+            key = hostname + "_" + UUID.randomUUID().toString();
+            if (!runningCleaner.containsKey(key)) {
+                break;
+            }
+        }
+        return key;
+    }
 }
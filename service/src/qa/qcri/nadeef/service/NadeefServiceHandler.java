@@ -197,11 +197,13 @@ public class NadeefServiceHandler implements TNadeefService.Iface {
                 // TODO: declarative rule only supports 1 table
                 Collection<Rule> rules =
                     buildAbstractRule(dbConfig,  rule, table1);
+                // the rules built from one rule are detected together when fusion is on.
+                List<CleanPlan> cleanPlans = Lists.newArrayList();
                 for (Rule rule_ : rules) {
                     rule_.initialize(rule.getName(), tables);
-                    cleanPlan = new CleanPlan(dbConfig, rule_);
-                    key = scheduler.submitDetectJob(cleanPlan);
+                    cleanPlans.add(new CleanPlan(dbConfig, rule_));
                 }
+                key = scheduler.submitDetectJob(cleanPlans);
             }
 
             return key;
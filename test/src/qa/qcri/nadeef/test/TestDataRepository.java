@@ -149,6 +149,10 @@ public class TestDataRepository {
         return new File("test/src/qa/qcri/nadeef/test/input/IncCleanPlan2.json");
     }
 
+    public static File getIncCleanPlanFile3() {
+        return new File("test/src/qa/qcri/nadeef/test/input/IncCleanPlan3.json");
+    }
+
     public static CleanPlan getCleanPlan()
         throws Exception {
         return CleanPlan.create(
@@ -280,6 +284,12 @@ public class TestDataRepository {
             NadeefConfiguration.getDbConfig()).get(0);
     }
 
+    public static CleanPlan getIncCleanPlan3() throws Exception {
+        return CleanPlan.create(
+            new FileReader(getIncCleanPlanFile3()),
+            NadeefConfiguration.getDbConfig()).get(0);
+    }
+
     public static List<CleanPlan> getPlan(String relativeFileName) throws Exception {
         File inputFile = new File("test/src/qa/qcri/nadeef/test/input/" + relativeFileName);
         return CleanPlan.create(new FileReader(inputFile), NadeefConfiguration.getDbConfig());
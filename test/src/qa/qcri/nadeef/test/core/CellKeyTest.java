@@ -0,0 +1,136 @@
+/*
+ * QCRI, NADEEF LICENSE
+ * NADEEF is an extensible, generalized and easy-to-deploy data cleaning platform built at QCRI.
+ * NADEEF means "Clean" in Arabic
+ *
+ * Copyright (c) 2011-2013, Qatar Foundation for Education, Science and Community Development (on
+ * behalf of Qatar Computing Research Institute) having its principle place of business in Doha,
+ * Qatar with the registered address P.O box 5825 Doha, Qatar (hereinafter referred to as "QCRI")
+ *
+ * NADEEF has patent pending nevertheless the following is granted.
+ * NADEEF is released under the terms of the MIT License, (http://opensource.org/licenses/MIT).
+ */
+
+package qa.qcri.nadeef.test.core;
+
+import com.google.common.collect.Lists;
+import org.junit.Assert;
+import org.junit.Test;
+import qa.qcri.nadeef.core.datamodel.Cell;
+import qa.qcri.nadeef.core.datamodel.CellKey;
+import qa.qcri.nadeef.core.datamodel.Column;
+import qa.qcri.nadeef.core.datamodel.ColumnHandle;
+import qa.qcri.nadeef.core.datamodel.ColumnRegistry;
+import qa.qcri.nadeef.core.datamodel.Schema;
+import qa.qcri.nadeef.core.datamodel.Tuple;
+import qa.qcri.nadeef.core.datamodel.Violation;
+
+import java.nio.charset.Charset;
+import java.sql.Types;
+import java.util.List;
+
+/**
+ * Test for the column registry and the packed cell keys.
+ */
+public class CellKeyTest {
+    @Test
+    public void testIntern() {
+        Column column = ColumnRegistry.intern("keytest", "a");
+        Assert.assertSame(column, ColumnRegistry.intern("keytest", "a"));
+        Assert.assertNotSame(column, ColumnRegistry.intern("keytest", "b"));
+
+        // equal columns get the same ids.
+        Column upper = new Column("KEYTEST", "A");
+        Assert.assertEquals(column.getTableId(), upper.getTableId());
+        Assert.assertEquals(column.getColumnId(), upper.getColumnId());
+        Assert.assertEquals(
+            column.getTableId(),
+            ColumnRegistry.intern("keytest", "b").getTableId()
+        );
+        Assert.assertNotEquals(
+            column.getColumnId(),
+            ColumnRegistry.intern("keytest", "b").getColumnId()
+        );
+    }
+
+    @Test
+    public void testCellKey() {
+        Column column = ColumnRegistry.intern("keytest", "c");
+        long key = CellKey.of(column, Integer.MAX_VALUE);
+        Assert.assertEquals(Integer.MAX_VALUE, CellKey.getTid(key));
+        Assert.assertEquals(column.getTableId(), CellKey.getTableId(key));
+        Assert.assertEquals(column.getColumnId(), CellKey.getColumnId(key));
+        Assert.assertSame(column, CellKey.getColumn(key));
+
+        Cell cell1 = new Cell(column, 7, "x");
+        Cell cell2 = new Cell(new Column("KeyTest", "C"), 7, "y");
+        Cell cell3 = new Cell(column, 8, "x");
+        Assert.assertEquals(cell1, cell2);
+        Assert.assertEquals(cell1.hashCode(), cell2.hashCode());
+        Assert.assertEquals(cell1.getKey(), cell2.getKey());
+        Assert.assertNotEquals(cell1, cell3);
+    }
+
+    @Test
+    public void testViolation() {
+        Schema schema =
+            new Schema.Builder()
+                .table("violationtest")
+                .column("A", Types.VARCHAR)
+                .column("B", Types.VARCHAR)
+                .build();
+        Tuple tuple1 = createTuple(schema, 1, "a1", null);
+        Tuple tuple2 = createTuple(schema, 2, "a2", "b2");
+        Column column = ColumnRegistry.intern("violationtest", "A");
+
+        Violation violation = new Violation("rule");
+        violation.addTuple(tuple1);
+        violation.addTuple(tuple2);
+        violation.addTuple(tuple1);
+        // like a set, the first cell of a key is kept.
+        violation.addCell(new Cell(column, 1, "other"));
+        Assert.assertEquals(4, violation.size());
+
+        for (int i = 0; i < violation.size(); i ++) {
+            Column column_ = violation.getColumn(i);
+            Tuple tuple = violation.getTid(i) == 1 ? tuple1 : tuple2;
+            Assert.assertEquals(CellKey.of(column_, violation.getTid(i)), violation.getKey(i));
+            Assert.assertEquals(tuple.get(column_), violation.getValue(i));
+        }
+
+        Assert.assertEquals(4, violation.getCells().size());
+        Assert.assertTrue(violation.getCells().contains(new Cell(column, 2, null)));
+        Assert.assertEquals("a1", violation.getCell("violationtest", "A").getValue());
+        Assert.assertNull(violation.getCell("violationtest", "C"));
+    }
+
+    @Test
+    public void testClear() {
+        Column column = ColumnRegistry.intern("cleartest", "a");
+        column.getTableId();
+        ColumnRegistry.clear();
+
+        // a column of the cleared registry is registered again.
+        Column other = ColumnRegistry.intern("othertest", "a");
+        Assert.assertNotSame(column, ColumnRegistry.intern("cleartest", "a"));
+        Assert.assertNotEquals(other.getTableId(), column.getTableId());
+        Assert.assertEquals(
+            column,
+            ColumnRegistry.getColumn(column.getTableId(), column.getColumnId())
+        );
+
+        // handles share the registered column.
+        Assert.assertSame(
+            ColumnHandle.of("cleartest", "b").getColumn(),
+            ColumnRegistry.intern("cleartest", "b")
+        );
+    }
+
+    private static Tuple createTuple(Schema schema, int tid, String a, String b) {
+        Charset charset = Charset.forName("UTF-8");
+        List<byte[]> values = Lists.newArrayList();
+        values.add(a.getBytes(charset));
+        values.add(b == null ? null : b.getBytes(charset));
+        return new Tuple(tid, schema, values);
+    }
+}
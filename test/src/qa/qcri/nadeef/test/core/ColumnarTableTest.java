@@ -0,0 +1,274 @@
+/*
+ * QCRI, NADEEF LICENSE
+ * NADEEF is an extensible, generalized and easy-to-deploy data cleaning platform built at QCRI.
+ * NADEEF means "Clean" in Arabic
+ *
+ * Copyright (c) 2011-2013, Qatar Foundation for Education, Science and Community Development (on
+ * behalf of Qatar Computing Research Institute) having its principle place of business in Doha,
+ * Qatar with the registered address P.O box 5825 Doha, Qatar (hereinafter referred to as "QCRI")
+ *
+ * NADEEF has patent pending nevertheless the following is granted.
+ * NADEEF is released under the terms of the MIT License, (http://opensource.org/licenses/MIT).
+ */
+
+
+package qa.qcri.nadeef.test.core;
+
+import com.google.common.collect.Lists;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import qa.qcri.nadeef.core.datamodel.*;
+import qa.qcri.nadeef.core.utils.Bootstrap;
+import qa.qcri.nadeef.core.utils.CSVTools;
+import qa.qcri.nadeef.test.NadeefTestBase;
+import qa.qcri.nadeef.test.TestDataRepository;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.Types;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * ColumnarTable test.
+ */
+@RunWith(Parameterized.class)
+public class ColumnarTableTest extends NadeefTestBase {
+    public ColumnarTableTest(String testConfig_) {
+        super(testConfig_);
+    }
+
+    private ColumnStore store;
+
+    @Before
+    public void setup() {
+        try {
+            Bootstrap.start(testConfig);
+
+            Schema schema =
+                new Schema.Builder()
+                    .table("test")
+                    .column("C", Types.VARCHAR)
+                    .column("A", Types.VARCHAR)
+                    .column("B", Types.VARCHAR)
+                    .build();
+            File dumpFile = TestDataRepository.getDumpTestCSVFile();
+            List<String[]> content = CSVTools.read(dumpFile, ",");
+            ColumnStore.Builder builder = new ColumnStore.Builder(schema, 4);
+            for (int i = 0; i < content.size(); i ++) {
+                String[] tokens = content.get(i);
+                builder.newRow(i + 1);
+                for (int j = 0; j < tokens.length; j ++) {
+                    builder.set(j, tokens[j]);
+                }
+            }
+            store = builder.build();
+        } catch (Exception e) {
+            e.printStackTrace();
+            Assert.fail();
+        }
+    }
+
+    @After
+    public void teardown() {
+        Bootstrap.shutdown();
+    }
+
+    @Test
+    public void testGet() {
+        ColumnarTable table = new ColumnarTable(store);
+        Assert.assertEquals(12, table.size());
+        Tuple tuple = table.get(0);
+        Assert.assertEquals(1, tuple.getTid());
+        Assert.assertEquals("c1", tuple.get("C"));
+        Assert.assertEquals("a1", tuple.get("A"));
+        Assert.assertTrue(tuple.hasSameValue(table.get(1)));
+        Assert.assertFalse(tuple.hasSameValue(table.get(11)));
+    }
+
+    @Test
+    public void testProjection() {
+        ColumnarTable table = new ColumnarTable(store);
+        table.project("C");
+        Assert.assertEquals(12, table.size());
+        Tuple tuple = table.get(0);
+        Set cellSets = tuple.getCells();
+        Assert.assertEquals(1, cellSets.size());
+        Cell cell = (Cell)cellSets.iterator().next();
+        Assert.assertEquals("test.C", cell.getColumn().getFullColumnName());
+
+        table.project("A");
+        Assert.assertEquals(2, table.get(0).getCells().size());
+    }
+
+    @Test
+    public void testFilter() {
+        ColumnarTable table = new ColumnarTable(store);
+        table.filter(
+            Predicate.createEq(new Column("test", "C"), "c1")
+        ).project(new Column("test", "C"));
+        Assert.assertEquals(7, table.size());
+        for (int i = 0; i < table.size(); i ++) {
+            Assert.assertEquals("c1", table.get(i).get("C"));
+        }
+    }
+
+    @Test
+    public void testOrderBy() {
+        ColumnarTable table = new ColumnarTable(store);
+        table.orderBy(Lists.newArrayList(new Column("test", "C"), new Column("test", "B")));
+        for (int i = 1; i < table.size(); i ++) {
+            String previous = table.get(i - 1).get("C") + "," + table.get(i - 1).get("B");
+            String current = table.get(i).get("C") + "," + table.get(i).get("B");
+            Assert.assertTrue(previous.compareTo(current) <= 0);
+        }
+    }
+
+    @Test
+    public void testGroup() {
+        ColumnarTable table = new ColumnarTable(store);
+        Collection<Table> result = table.groupOn("C");
+        Assert.assertEquals(3, result.size());
+        int count = 0;
+        for (Table t : result) {
+            String value = (String)t.get(0).get("C");
+            for (int i = 0; i < t.size(); i ++) {
+                Assert.assertEquals(value, t.get(i).get("C"));
+            }
+            count += t.size();
+        }
+        Assert.assertEquals(12, count);
+    }
+
+    @Test
+    public void testValueHash() throws IOException {
+        Schema schema =
+            new Schema.Builder()
+                .table("test")
+                .column("tid", Types.INTEGER)
+                .column("name", Types.VARCHAR)
+                .column("salary", Types.DOUBLE)
+                .build();
+        ColumnStore.Builder builder = new ColumnStore.Builder(schema);
+        builder.newRow(1).set(0, 1).set(1, "x").set(2, "1.5");
+        builder.newRow(2).set(0, 2).set(1, null).set(2, "2.5");
+        ColumnStore store1 = builder.build();
+
+        // the same code stands for another string in the second store.
+        builder = new MappedColumnStore.Builder(schema);
+        builder.newRow(1).set(0, 1).set(1, "y").set(2, "1.5");
+        builder.newRow(2).set(0, 2).set(1, "x").set(2, null);
+        ColumnStore store2 = builder.build();
+
+        Assert.assertEquals(store1.getInt(1, 0), store2.getInt(1, 0));
+        Assert.assertNotEquals(store1.getValueHash(1, 0), store2.getValueHash(1, 0));
+        Assert.assertEquals(store1.getValueHash(1, 0), store2.getValueHash(1, 1));
+        Assert.assertEquals(store1.getValueHash(2, 0), store2.getValueHash(2, 0));
+        Assert.assertNotEquals(store1.getValueHash(2, 1), store2.getValueHash(2, 1));
+        Assert.assertNotEquals(store1.getValueHash(1, 1), store1.getValueHash(1, 0));
+    }
+
+    @Test
+    public void testTypedValues() {
+        Schema schema =
+            new Schema.Builder()
+                .table("test")
+                .column("tid", Types.INTEGER)
+                .column("age", Types.INTEGER)
+                .column("salary", Types.DOUBLE)
+                .build();
+        ColumnStore.Builder builder = new ColumnStore.Builder(schema);
+        builder.newRow(1).set(0, 1).set(1, 9).set(2, "100.5");
+        builder.newRow(2).set(0, 2).set(1, "10").set(2, null);
+        ColumnarTable table = new ColumnarTable(builder.build());
+
+        Tuple tuple = table.get(1);
+        Assert.assertEquals(2, tuple.getTid());
+        Assert.assertEquals(10, tuple.getInt(1));
+        Assert.assertEquals("10", tuple.getString(1));
+        Assert.assertTrue(tuple.isNull(2));
+        Assert.assertEquals(100.5, table.get(0).getDouble(2), 0.0);
+
+        // numerical values are compared by value instead of by string.
+        Predicate predicate = Predicate.valueOf("t1.age>t2.age", "test");
+        Assert.assertTrue(predicate.isValid(table.get(1), table.get(0)));
+        Assert.assertTrue(Predicate.valueOf("t1.age>9", "test").isValid(tuple));
+        table.orderBy(new Column("test", "age"));
+        Assert.assertEquals(9, table.get(0).getInt(1));
+    }
+
+    @Test
+    public void testMappedStore() throws IOException {
+        Schema schema =
+            new Schema.Builder()
+                .table("test")
+                .column("tid", Types.INTEGER)
+                .column("name", Types.VARCHAR)
+                .build();
+        // more distinct strings than the recent strings and the first code table.
+        MappedColumnStore.Builder builder = new MappedColumnStore.Builder(schema);
+        for (int i = 0; i < 20000; i ++) {
+            builder.newRow(i + 1).set(0, i + 1).set(1, i % 7 == 0 ? null : "v" + i % 5000);
+        }
+        ColumnStore mapped = builder.build();
+
+        Assert.assertEquals(20000, mapped.size());
+        for (int i = 0; i < 20000; i ++) {
+            if (i % 7 == 0) {
+                Assert.assertTrue(mapped.isNull(1, i));
+            } else {
+                Assert.assertEquals("v" + i % 5000, mapped.getString(1, i));
+            }
+        }
+
+        // equal strings share the dictionary code.
+        Assert.assertEquals(mapped.getInt(1, 2), mapped.getInt(1, 15002));
+        Collection<Table> groups = new ColumnarTable(mapped).groupOn("name");
+        Assert.assertEquals(5000 + 1, groups.size());
+    }
+
+    @Test
+    public void testMappedStoreSmallHeap() throws Exception {
+        // a million distinct strings take more than the heap of the child process.
+        Process process =
+            new ProcessBuilder(
+                System.getProperty("java.home") + File.separator + "bin" + File.separator + "java",
+                "-Xmx32m",
+                "-cp",
+                System.getProperty("java.class.path"),
+                ColumnarTableTest.class.getName(),
+                "1000000"
+            ).inheritIO().start();
+        Assert.assertEquals(0, process.waitFor());
+    }
+
+    /**
+     * Builds an off-heap store of distinct strings, it is run with a small heap.
+     * @param args number of rows.
+     */
+    public static void main(String[] args) throws IOException {
+        int count = Integer.parseInt(args[0]);
+        Schema schema =
+            new Schema.Builder()
+                .table("test")
+                .column("tid", Types.INTEGER)
+                .column("name", Types.VARCHAR)
+                .build();
+        MappedColumnStore.Builder builder = new MappedColumnStore.Builder(schema);
+        for (int i = 0; i < count; i ++) {
+            builder.newRow(i + 1).set(0, i + 1).set(1, "distinct value of the row number " + i);
+        }
+        ColumnStore store = builder.build();
+        if (
+            store.size() != count ||
+            !store.getString(1, count - 1).equals("distinct value of the row number " + (count - 1))
+        ) {
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * QCRI, NADEEF LICENSE
+ * NADEEF is an extensible, generalized and easy-to-deploy data cleaning platform built at QCRI.
+ * NADEEF means "Clean" in Arabic
+ *
+ * Copyright (c) 2011-2013, Qatar Foundation for Education, Science and Community Development (on
+ * behalf of Qatar Computing Research Institute) having its principle place of business in Doha,
+ * Qatar with the registered address P.O box 5825 Doha, Qatar (hereinafter referred to as "QCRI")
+ *
+ * NADEEF has patent pending nevertheless the following is granted.
+ * NADEEF is released under the terms of the MIT License, (http://opensource.org/licenses/MIT).
+ */
+
+package qa.qcri.nadeef.test.core;
+
+import org.junit.Assert;
+import org.junit.Test;
+import qa.qcri.nadeef.core.datamodel.Column;
+import qa.qcri.nadeef.core.datamodel.ColumnStore;
+import qa.qcri.nadeef.core.datamodel.DataType;
+import qa.qcri.nadeef.core.datamodel.Schema;
+import qa.qcri.nadeef.core.utils.sql.CopyTextParser;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.Charset;
+import java.sql.Timestamp;
+
+/**
+ * Test for the text COPY format parser.
+ */
+public class CopyTextParserTest {
+    @Test
+    public void testParse() throws Exception {
+        Schema schema =
+            new Schema.Builder()
+                .table("test")
+                .column("tid", DataType.INTEGER)
+                .column("name", DataType.STRING)
+                .column("price", DataType.FLOAT)
+                .column("valid", DataType.BOOL)
+                .column("time", DataType.TIMESTAMP)
+                .build();
+        String content =
+            "1\ta\\tb\\\\c\t1.5\tt\t2013-01-02 03:04:05\n" +
+            "2\t\\N\t\\N\tf\t\\N\n" +
+            "3\t\\101\\x42é\t-2\tt\t2013-01-02 03:04:05.5\n";
+        ColumnStore store =
+            CopyTextParser.parse(
+                new ByteArrayInputStream(content.getBytes(Charset.forName("UTF-8"))),
+                schema,
+                1
+            );
+
+        Assert.assertEquals(3, store.size());
+        Assert.assertEquals(1, store.getTid(0));
+        Assert.assertEquals(3, store.getTid(2));
+
+        Assert.assertEquals("a\tb\\c", store.getString(1, 0));
+        Assert.assertTrue(store.isNull(1, 1));
+        Assert.assertEquals("ABé", store.getString(1, 2));
+
+        Assert.assertEquals(1.5, store.getDouble(2, 0), 0.0);
+        Assert.assertTrue(store.isNull(2, 1));
+        Assert.assertEquals(-2.0, store.getDouble(2, 2), 0.0);
+
+        Assert.assertEquals(true, store.getObject(3, 0));
+        Assert.assertEquals(false, store.getObject(3, 1));
+
+        Assert.assertEquals(
+            Timestamp.valueOf("2013-01-02 03:04:05").toString(),
+            store.getString(4, 0)
+        );
+        Assert.assertTrue(store.isNull(4, 1));
+    }
+}
@@ -22,6 +22,7 @@ import org.junit.runners.Parameterized;
 import qa.qcri.nadeef.core.datamodel.CleanPlan;
 import qa.qcri.nadeef.core.datamodel.NadeefConfiguration;
 import qa.qcri.nadeef.core.pipeline.CleanExecutor;
+import qa.qcri.nadeef.core.pipeline.FusedCleanExecutor;
 import qa.qcri.nadeef.core.utils.Bootstrap;
 import qa.qcri.nadeef.core.utils.CSVTools;
 import qa.qcri.nadeef.core.utils.Violations;
@@ -30,8 +31,10 @@ import qa.qcri.nadeef.core.utils.sql.SQLDialectFactory;
 import qa.qcri.nadeef.test.NadeefTestBase;
 import qa.qcri.nadeef.test.TestDataRepository;
 import qa.qcri.nadeef.tools.DBConfig;
+import qa.qcri.nadeef.tools.PerfReport;
 import qa.qcri.nadeef.tools.sql.SQLDialect;
 
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -82,8 +85,20 @@ public class DetectionTest extends NadeefTestBase {
         try {
             CleanPlan cleanPlan = TestDataRepository.getCleanPlan();
             executor = new CleanExecutor(cleanPlan);
+            PerfReport.clear();
             executor.detect();
             verifyViolationResult(12);
+
+            // every block is timed once.
+            long blocks = 0;
+            for (Long count : PerfReport.get(PerfReport.Metric.Blocks)) {
+                blocks += count;
+            }
+            long timedBlocks = 0;
+            for (Long count : PerfReport.get(PerfReport.Metric.BlockSizeHistogram)) {
+                timedBlocks += count;
+            }
+            Assert.assertEquals(blocks, timedBlocks);
         } catch (Exception e) {
             e.printStackTrace();
             Assert.fail(e.getMessage());
@@ -103,6 +118,34 @@ public class DetectionTest extends NadeefTestBase {
         }
     }
 
+    @Test
+    public void memoizedDetectionTest() {
+        NadeefConfiguration.setBlockMemo(true);
+        try {
+            CleanPlan cleanPlan = TestDataRepository.getCleanPlan2();
+            executor = new CleanExecutor(cleanPlan);
+            executor.detect();
+            verifyViolationResult(84);
+
+            // the table is unchanged, every block is carried over.
+            DBInstaller.cleanExecutionDB();
+            PerfReport.clear();
+            executor.detect();
+            verifyViolationResult(84);
+            long blocks = PerfReport.get(PerfReport.Metric.Blocks).get(0);
+            Assert.assertTrue(blocks > 0);
+            Assert.assertEquals(
+                blocks,
+                (long)PerfReport.get(PerfReport.Metric.MemoizedBlocks).get(0)
+            );
+        } catch (Exception e) {
+            e.printStackTrace();
+            Assert.fail(e.getMessage());
+        } finally {
+            NadeefConfiguration.setBlockMemo(false);
+        }
+    }
+
     @Test
     public void cleanExecutorTest3() {
         try {
@@ -213,6 +256,27 @@ public class DetectionTest extends NadeefTestBase {
         }
     }
 
+    @Test
+    public void fusedDetectionTest() {
+        FusedCleanExecutor fusedExecutor = null;
+        try {
+            List<CleanPlan> cleanPlans = new ArrayList<>();
+            cleanPlans.add(TestDataRepository.getCleanPlan2());
+            cleanPlans.addAll(TestDataRepository.getCleanPlan5());
+            cleanPlans.add(TestDataRepository.getCleanPlan2());
+            fusedExecutor = new FusedCleanExecutor(cleanPlans);
+            fusedExecutor.detect();
+            verifyViolationResult(84 + 104 + 84);
+        } catch (Exception e) {
+            e.printStackTrace();
+            Assert.fail(e.getMessage());
+        } finally {
+            if (fusedExecutor != null) {
+                fusedExecutor.shutdown();
+            }
+        }
+    }
+
     private void verifyViolationResult(int expectRow)
         throws Exception {
         int rowCount = Violations.getViolationRowCount(NadeefConfiguration.getDbConfig());
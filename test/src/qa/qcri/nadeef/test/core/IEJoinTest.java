@@ -0,0 +1,220 @@
+/*
+ * QCRI, NADEEF LICENSE
+ * NADEEF is an extensible, generalized and easy-to-deploy data cleaning platform built at QCRI.
+ * NADEEF means "Clean" in Arabic
+ *
+ * Copyright (c) 2011-2013, Qatar Foundation for Education, Science and Community Development (on
+ * behalf of Qatar Computing Research Institute) having its principle place of business in Doha,
+ * Qatar with the registered address P.O box 5825 Doha, Qatar (hereinafter referred to as "QCRI")
+ *
+ * NADEEF has patent pending nevertheless the following is granted.
+ * NADEEF is released under the terms of the MIT License, (http://opensource.org/licenses/MIT).
+ */
+
+package qa.qcri.nadeef.test.core;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import org.junit.Assert;
+import org.junit.Test;
+import qa.qcri.nadeef.core.datamodel.*;
+
+import java.nio.charset.Charset;
+import java.sql.Types;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Test for the inequality join, the join must emit every pair violating the inequalities
+ * exactly once.
+ */
+public class IEJoinTest {
+    private static final String[] OPERATIONS = { ">", ">=", "<", "<=" };
+
+    @Test
+    public void testSelfJoin() {
+        Table table = createTable(400, 1, false);
+        for (String op1 : OPERATIONS) {
+            for (String op2 : OPERATIONS) {
+                List<Predicate> predicates = Lists.newArrayList();
+                predicates.add(Predicate.valueOf("t1.A" + op1 + "t2.A", "ie"));
+                predicates.add(Predicate.valueOf("t1.B" + op2 + "t2.C", "ie"));
+                List<Predicate> inequalities = Lists.newArrayList(predicates);
+                predicates.add(Predicate.valueOf("t1.B!=t2.B", "ie"));
+
+                // the other predicates are checked by the rule.
+                Set<String> expected = Sets.newHashSet();
+                for (int i = 0; i < table.size(); i ++) {
+                    for (int j = i + 1; j < table.size(); j ++) {
+                        Tuple tuple1 = table.get(i);
+                        Tuple tuple2 = table.get(j);
+                        if (isValid(inequalities, tuple1, tuple2) ||
+                            isValid(inequalities, tuple2, tuple1)) {
+                            expected.add(getKey(tuple1, tuple2));
+                        }
+                    }
+                }
+
+                Set<String> candidates = collect(new IEJoin(predicates), table, null);
+                Assert.assertEquals(expected, candidates);
+            }
+        }
+    }
+
+    @Test
+    public void testOneInequality() {
+        Table table = createTable(200, 2, false);
+        List<Predicate> predicates = Lists.newArrayList();
+        predicates.add(Predicate.valueOf("t1.A<t2.C", "ie"));
+
+        Set<String> candidates = collect(new IEJoin(predicates), table, null);
+        int count = 0;
+        for (int i = 0; i < table.size(); i ++) {
+            for (int j = i + 1; j < table.size(); j ++) {
+                Tuple tuple1 = table.get(i);
+                Tuple tuple2 = table.get(j);
+                if (isValid(predicates, tuple1, tuple2) || isValid(predicates, tuple2, tuple1)) {
+                    Assert.assertTrue(candidates.contains(getKey(tuple1, tuple2)));
+                    count ++;
+                }
+            }
+        }
+        Assert.assertEquals(count, candidates.size());
+    }
+
+    @Test
+    public void testNullAndTwoTables() {
+        Table left = createTable(150, 3, true);
+        Table right = createTable(150, 4, true);
+        List<Predicate> predicates = Lists.newArrayList();
+        predicates.add(Predicate.valueOf("t1.A>t2.A", "ie"));
+        predicates.add(Predicate.valueOf("t1.B<=t2.B", "ie"));
+
+        Set<String> candidates = collect(new IEJoin(predicates), left, right);
+        for (int i = 0; i < left.size(); i ++) {
+            for (int j = 0; j < right.size(); j ++) {
+                Tuple tuple1 = left.get(i);
+                Tuple tuple2 = right.get(j);
+                if (isValid(predicates, tuple1, tuple2) || isValid(predicates, tuple2, tuple1)) {
+                    Assert.assertTrue(candidates.contains(getKey(tuple1, tuple2)));
+                }
+            }
+        }
+        Assert.assertTrue(candidates.size() < left.size() * right.size());
+    }
+
+    @Test
+    public void testForkedSweep() {
+        // large enough to partition the sweep on more than one core.
+        Table table = createTable(5000, 5, false);
+        List<Predicate> predicates = Lists.newArrayList();
+        predicates.add(Predicate.valueOf("t1.A>t2.A", "ie"));
+        predicates.add(Predicate.valueOf("t1.B<t2.C", "ie"));
+
+        final SumHandler expected = new SumHandler();
+        new IEJoin(predicates).iterator(table, new IteratorResultHandler() {
+            @Override
+            public <T> void handle(T item) {
+                expected.handle(item);
+            }
+        });
+
+        SumHandler forked = new SumHandler();
+        new IEJoin(predicates).iterator(table, forked);
+        Assert.assertEquals(expected.count, forked.count);
+        Assert.assertEquals(expected.sum, forked.sum);
+        if (Runtime.getRuntime().availableProcessors() > 1) {
+            Assert.assertTrue(forked.forkCount > 1);
+        }
+    }
+
+    /**
+     * Counts the pairs and sums their keys, so the pairs are compared without keeping them.
+     */
+    private static class SumHandler implements ForkableResultHandler {
+        long count;
+        long sum;
+        int forkCount;
+
+        @Override
+        public <T> void handle(T item) {
+            TuplePair pair = (TuplePair)item;
+            count ++;
+            sum += getKey(pair.getLeft(), pair.getRight()).hashCode();
+        }
+
+        @Override
+        public IteratorResultHandler fork() {
+            forkCount ++;
+            return new SumHandler();
+        }
+
+        @Override
+        public void join(IteratorResultHandler handler) {
+            count += ((SumHandler)handler).count;
+            sum += ((SumHandler)handler).sum;
+        }
+    }
+
+    private static boolean isValid(List<Predicate> predicates, Tuple tuple1, Tuple tuple2) {
+        for (Predicate predicate : predicates) {
+            if (!predicate.isValid(tuple1, tuple2)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Set<String> collect(IEJoin join, Table left, Table right) {
+        final Set<String> result = Sets.newHashSet();
+        IteratorResultHandler handler = new IteratorResultHandler() {
+            @Override
+            public <T> void handle(T item) {
+                TuplePair pair = (TuplePair)item;
+                Assert.assertTrue(result.add(getKey(pair.getLeft(), pair.getRight())));
+            }
+        };
+
+        if (right == null) {
+            join.iterator(left, handler);
+        } else {
+            join.iterator(left, right, handler);
+        }
+        return result;
+    }
+
+    private static String getKey(Tuple tuple1, Tuple tuple2) {
+        int tid1 = Math.min(tuple1.getTid(), tuple2.getTid());
+        int tid2 = Math.max(tuple1.getTid(), tuple2.getTid());
+        return tid1 + "|" + tid2;
+    }
+
+    /**
+     * Creates a table of small random integers, so that there are equal values.
+     */
+    private static Table createTable(int size, long seed, boolean hasNull) {
+        Schema schema =
+            new Schema.Builder()
+                .table("ie")
+                .column("A", Types.INTEGER)
+                .column("B", Types.INTEGER)
+                .column("C", Types.INTEGER)
+                .build();
+        Random random = new Random(seed);
+        List<Tuple> tuples = Lists.newArrayList();
+        for (int i = 0; i < size; i ++) {
+            List<byte[]> values = Lists.newArrayList();
+            for (int j = 0; j < 3; j ++) {
+                if (hasNull && random.nextInt(20) == 0) {
+                    values.add(null);
+                } else {
+                    String value = Integer.toString(random.nextInt(50));
+                    values.add(value.getBytes(Charset.forName("UTF-8")));
+                }
+            }
+            tuples.add(new Tuple((int)seed * size + i + 1, schema, values));
+        }
+        return MemoryTable.of(tuples);
+    }
+}
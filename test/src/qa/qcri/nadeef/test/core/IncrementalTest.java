@@ -22,18 +22,20 @@ import org.junit.runners.Parameterized;
 import qa.qcri.nadeef.core.datamodel.CleanPlan;
 import qa.qcri.nadeef.core.datamodel.NadeefConfiguration;
 import qa.qcri.nadeef.core.datamodel.Rule;
+import qa.qcri.nadeef.core.datamodel.TidBitmap;
 import qa.qcri.nadeef.core.pipeline.CleanExecutor;
 import qa.qcri.nadeef.core.utils.Bootstrap;
 import qa.qcri.nadeef.core.utils.CSVTools;
+import qa.qcri.nadeef.core.utils.Violations;
 import qa.qcri.nadeef.core.utils.sql.DBInstaller;
 import qa.qcri.nadeef.core.utils.sql.SQLDialectBase;
 import qa.qcri.nadeef.core.utils.sql.SQLDialectFactory;
 import qa.qcri.nadeef.test.NadeefTestBase;
 import qa.qcri.nadeef.test.TestDataRepository;
 import qa.qcri.nadeef.tools.DBConfig;
+import qa.qcri.nadeef.tools.PerfReport;
 
 import java.io.File;
-import java.util.HashSet;
 
 /**
  * Test for incremental detection.
@@ -78,7 +80,7 @@ public class IncrementalTest extends NadeefTestBase {
             SQLDialectBase dialectManager =
                 SQLDialectFactory.getDialectManagerInstance(dbConfig.getDialect());
             File incFile = new File("test/src/qa/qcri/nadeef/test/input/dumptest_inc1.csv");
-            HashSet<Integer> newTuples =
+            TidBitmap newTuples =
                 CSVTools.append(dbConfig, dialectManager, tableName, incFile);
             executor.incrementalAppend(tableName, newTuples);
             executor.detect();
@@ -104,6 +106,55 @@ public class IncrementalTest extends NadeefTestBase {
         }
     }
 
+    @Test
+    public void testIncPair3() {
+        CleanExecutor executor = null;
+        try {
+            CleanPlan cleanPlan = TestDataRepository.getIncCleanPlan3();
+            executor = new CleanExecutor(cleanPlan);
+            executor.detect();
+            int count = Violations.getViolationRowCount(NadeefConfiguration.getDbConfig());
+            Assert.assertEquals(162, count);
+
+            DBConfig dbConfig = cleanPlan.getSourceDBConfig();
+            Rule rule = cleanPlan.getRule();
+            String tableName = (String)rule.getTableNames().get(0);
+            SQLDialectBase dialectManager =
+                SQLDialectFactory.getDialectManagerInstance(dbConfig.getDialect());
+
+            // the first incremental detection blocks the whole table and builds the index.
+            File incFile = new File("test/src/qa/qcri/nadeef/test/input/dumptest_inc1.csv");
+            TidBitmap newTuples =
+                CSVTools.append(dbConfig, dialectManager, tableName, incFile);
+            executor.incrementalAppend(tableName, newTuples);
+            PerfReport.clear();
+            executor.detect();
+
+            count = Violations.getViolationRowCount(NadeefConfiguration.getDbConfig());
+            Assert.assertEquals(234, count);
+            Assert.assertEquals(4L, (long)PerfReport.get(PerfReport.Metric.Blocks).get(0));
+
+            // the second one only loads the c2, c3 and c4 blocks through the index.
+            incFile = new File("test/src/qa/qcri/nadeef/test/input/dumptest_inc2.csv");
+            newTuples =
+                CSVTools.append(dbConfig, dialectManager, tableName, incFile);
+            executor.incrementalAppend(tableName, newTuples);
+            PerfReport.clear();
+            executor.detect();
+
+            count = Violations.getViolationRowCount(NadeefConfiguration.getDbConfig());
+            Assert.assertEquals(318, count);
+            Assert.assertEquals(3L, (long)PerfReport.get(PerfReport.Metric.Blocks).get(0));
+        } catch (Exception ex) {
+            ex.printStackTrace();
+            Assert.fail(ex.getMessage());
+        } finally {
+            if (executor != null) {
+                executor.shutdown();
+            }
+        }
+    }
+
     @Test
     public void testIncPair2() {
         CleanExecutor executor = null;
@@ -123,11 +174,11 @@ public class IncrementalTest extends NadeefTestBase {
             SQLDialectBase dialectManager =
                 SQLDialectFactory.getDialectManagerInstance(dbConfig.getDialect());
             File incFile = new File("test/src/qa/qcri/nadeef/test/input/bank1_inc1.csv");
-            HashSet<Integer> newTuples =
+            TidBitmap newTuples =
                 CSVTools.append(dbConfig, dialectManager, bankTableName, incFile);
             executor.incrementalAppend(bankTableName, newTuples);
             File tranFile = new File("test/src/qa/qcri/nadeef/test/input/tran1_inc1.csv");
-            HashSet<Integer> newTuples2 =
+            TidBitmap newTuples2 =
                 CSVTools.append(dbConfig, dialectManager, transTableName, tranFile);
             executor.incrementalAppend(transTableName, newTuples2);
 
@@ -138,11 +189,11 @@ public class IncrementalTest extends NadeefTestBase {
 
             // append data into two tables
             incFile = new File("test/src/qa/qcri/nadeef/test/input/bank1_inc2.csv");
-            HashSet<Integer> newTuples3 =
+            TidBitmap newTuples3 =
                 CSVTools.append(dbConfig, dialectManager, bankTableName, incFile);
             executor.incrementalAppend(bankTableName, newTuples3);
             tranFile = new File("test/src/qa/qcri/nadeef/test/input/tran1_inc2.csv");
-            HashSet<Integer> newTuples4 =
+            TidBitmap newTuples4 =
                 CSVTools.append(dbConfig, dialectManager, transTableName, tranFile);
             executor.incrementalAppend(transTableName, newTuples4);
 
@@ -128,4 +128,51 @@ public class MemoryTableTest extends NadeefTestBase {
 
         }
     }
+
+    @Test
+    public void testGroupOnColumns() {
+        Schema schema =
+            new Schema.Builder()
+                .table("test")
+                .column("A", Types.VARCHAR)
+                .column("B", Types.VARCHAR)
+                .build();
+        List<Tuple> tuples = Lists.newArrayList();
+        tuples.add(createTuple(1, schema, "a_b", "c"));
+        tuples.add(createTuple(2, schema, "a", "b_c"));
+        tuples.add(createTuple(3, schema, "a", "b_c"));
+        MemoryTable table = MemoryTable.of(tuples);
+        List<Column> columns = Lists.newArrayList(new Column("test", "A"), new Column("test", "B"));
+        List<Table> result = Lists.newArrayList(table.groupOn(columns));
+        Assert.assertEquals(2, result.size());
+        Assert.assertEquals(1, result.get(0).size());
+        Assert.assertEquals(2, result.get(1).size());
+    }
+
+    @Test
+    public void testPairSelectivity() {
+        MemoryTable table = MemoryTable.of(testTuples);
+        List<Column> columns = Lists.newArrayList(new Column("test", "C"));
+        double selectivity = table.getPairSelectivity(columns);
+        Assert.assertTrue(selectivity > 0.0 && selectivity < 1.0);
+
+        List<Table> groups = Lists.newArrayList(table.groupOn(columns));
+        long pairs = 0;
+        for (Table group : groups) {
+            pairs += (long)group.size() * (group.size() - 1);
+        }
+        Assert.assertEquals(
+            (double)pairs / (table.size() * (table.size() - 1)),
+            selectivity,
+            1e-9
+        );
+    }
+
+    private static Tuple createTuple(int tid, Schema schema, String... tokens) {
+        List<byte[]> values = Lists.newArrayList();
+        for (String token : tokens) {
+            values.add(token.getBytes(Charset.forName("UTF-8")));
+        }
+        return new Tuple(tid, schema, values);
+    }
 }
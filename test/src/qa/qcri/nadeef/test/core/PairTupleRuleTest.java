@@ -0,0 +1,293 @@
+/*
+ * QCRI, NADEEF LICENSE
+ * NADEEF is an extensible, generalized and easy-to-deploy data cleaning platform built at QCRI.
+ * NADEEF means "Clean" in Arabic
+ *
+ * Copyright (c) 2011-2013, Qatar Foundation for Education, Science and Community Development (on
+ * behalf of Qatar Computing Research Institute) having its principle place of business in Doha,
+ * Qatar with the registered address P.O box 5825 Doha, Qatar (hereinafter referred to as "QCRI")
+ *
+ * NADEEF has patent pending nevertheless the following is granted.
+ * NADEEF is released under the terms of the MIT License, (http://opensource.org/licenses/MIT).
+ */
+
+package qa.qcri.nadeef.test.core;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import qa.qcri.nadeef.core.datamodel.*;
+import qa.qcri.nadeef.core.pipeline.DirectIteratorResultHandler;
+import qa.qcri.nadeef.core.utils.Bootstrap;
+import qa.qcri.nadeef.test.NadeefTestBase;
+
+import java.nio.charset.Charset;
+import java.sql.Types;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * PairTupleRule test.
+ */
+@RunWith(Parameterized.class)
+public class PairTupleRuleTest extends NadeefTestBase {
+    public PairTupleRuleTest(String testConfig_) {
+        super(testConfig_);
+    }
+
+    @Before
+    public void setup() {
+        try {
+            Bootstrap.start(testConfig);
+        } catch (Exception ex) {
+            ex.printStackTrace();
+            Assert.fail(ex.getMessage());
+        }
+    }
+
+    @After
+    public void tearDown() {
+        Bootstrap.shutdown();
+    }
+
+    @Test
+    public void testTiledIterator() {
+        Table left = createTable("left", 101);
+        Table right = createTable("right", 37);
+        NadeefConfiguration.setTilePairs(50);
+        try {
+            CollectHandler handler = new CollectHandler();
+            new EmptyRule().iterator(Lists.newArrayList(left), handler);
+            Assert.assertEquals(101 * 100 / 2, handler.pairs.size());
+            Assert.assertTrue(handler.forkCount > 1);
+
+            handler = new CollectHandler();
+            new EmptyRule().iterator(Lists.newArrayList(left, right), handler);
+            Assert.assertEquals(101 * 37, handler.pairs.size());
+            Assert.assertTrue(handler.forkCount > 1);
+        } finally {
+            NadeefConfiguration.setTilePairs(1 << 20);
+        }
+    }
+
+    @Test
+    public void testPairHandler() {
+        final Table table = createTable("left", 40);
+        final int[] count = new int[1];
+        PairResultHandler handler = new PairResultHandler() {
+            @Override
+            public void handlePair(Table left, int i, Table right, int j) {
+                Assert.assertTrue(left == table && right == table && i < j);
+                count[0] ++;
+            }
+
+            @Override
+            public <T> void handle(T item) {
+                Assert.fail("Pairs are handed over as positions.");
+            }
+        };
+
+        new EmptyRule().iterator(Lists.newArrayList(table), handler);
+        Assert.assertEquals(40 * 39 / 2, count[0]);
+    }
+
+    @Test
+    public void testDetectBatch() {
+        Table table = createTable("left", 2500);
+        final int[] batchCount = new int[1];
+        PairTupleRule rule = new EmptyRule() {
+            @Override
+            public Collection<Violation> detect(TuplePair pair) {
+                if (pair.getLeft().getTid() == 7) {
+                    throw new IllegalArgumentException("Failing pair.");
+                }
+                return Lists.newArrayList(new Violation("batch"));
+            }
+
+            @Override
+            public void detectBatch(List<TuplePair> items, ViolationSink sink) {
+                batchCount[0] ++;
+                super.detectBatch(items, sink);
+            }
+        };
+
+        NonBlockingCollectionIterator<Violation> output = new NonBlockingCollectionIterator<>();
+        DirectIteratorResultHandler handler = new DirectIteratorResultHandler(rule, output);
+        for (int i = 0; i < table.size(); i ++) {
+            handler.handle(new TuplePair(table.get(i), table.get((i + 1) % table.size())));
+        }
+        handler.flush();
+
+        // the batch with the failing pair is detected again one pair at a time.
+        int count = 0;
+        while (output.hasNext()) {
+            output.next();
+            count ++;
+        }
+        Assert.assertEquals(2499, count);
+        Assert.assertEquals(3 + 1024, batchCount[0]);
+    }
+
+    @Test
+    public void testCoBlock() {
+        Table left = createTable("left", 101);
+        Table right = createTable("right", 37);
+        NadeefConfiguration.setTilePairs(50);
+        try {
+            Collection<Table> blocks = new EmptyRule().coBlock(Lists.newArrayList(left, right));
+            Assert.assertTrue(blocks instanceof CoBlocks);
+            List<List<Table>> pairs = ((CoBlocks)blocks).getPairs();
+            Assert.assertTrue(pairs.size() > 1);
+
+            // every pair of tuples is in exactly one pair of blocks.
+            CollectHandler handler = new CollectHandler();
+            for (List<Table> pair : pairs) {
+                Assert.assertEquals("left", pair.get(0).getSchema().getTableName());
+                new EmptyRule().iterator(pair, handler);
+            }
+            Assert.assertEquals(101 * 37, handler.pairs.size());
+        } finally {
+            NadeefConfiguration.setTilePairs(1 << 20);
+        }
+    }
+
+    @Test
+    public void testCoBlockOn() {
+        Table left = createTable("left", 100);
+        Table right = createTable("right", 30);
+        Column leftColumn = new Column("left", "B");
+        Column rightColumn = new Column("right", "B");
+        CoBlocks blocks =
+            (CoBlocks)new EmptyRule().coBlockOn(
+                Lists.newArrayList(left, right),
+                Lists.newArrayList(leftColumn),
+                Lists.newArrayList(rightColumn)
+            );
+
+        // B is the value modulo 7, every key is on both sides.
+        Assert.assertEquals(7, blocks.getPairs().size());
+        int size = 0;
+        for (List<Table> pair : blocks.getPairs()) {
+            String key = pair.get(0).get(0).getString(ColumnHandle.of(leftColumn));
+            for (int i = 0; i < pair.get(0).size(); i ++) {
+                Tuple tuple = pair.get(0).get(i);
+                Assert.assertEquals(key, tuple.getString(ColumnHandle.of(leftColumn)));
+            }
+            for (int i = 0; i < pair.get(1).size(); i ++) {
+                Tuple tuple = pair.get(1).get(i);
+                Assert.assertEquals(key, tuple.getString(ColumnHandle.of(rightColumn)));
+            }
+            size += pair.get(0).size() * pair.get(1).size();
+        }
+        Assert.assertEquals(2 * 15 * 5 + 5 * 14 * 4, size);
+    }
+
+    @Test
+    public void testCoBlockOnNull() {
+        Table left = createTable("left", 100, true);
+        Table right = createTable("right", 30, true);
+        Column leftColumn = new Column("left", "B");
+        Column rightColumn = new Column("right", "B");
+        CoBlocks blocks =
+            (CoBlocks)new EmptyRule().coBlockOn(
+                Lists.newArrayList(left, right),
+                Lists.newArrayList(leftColumn),
+                Lists.newArrayList(rightColumn)
+            );
+
+        // null agrees with null, so the null blocks are paired like the other keys.
+        Assert.assertEquals(7, blocks.getPairs().size());
+        boolean hasNull = false;
+        for (List<Table> pair : blocks.getPairs()) {
+            if (pair.get(0).get(0).getString(ColumnHandle.of(leftColumn)) == null) {
+                Assert.assertEquals(15, pair.get(0).size());
+                Assert.assertEquals(5, pair.get(1).size());
+                Assert.assertNull(pair.get(1).get(0).getString(ColumnHandle.of(rightColumn)));
+                hasNull = true;
+            }
+        }
+        Assert.assertTrue(hasNull);
+    }
+
+    /**
+     * Collects the pairs from all the forked handlers, a pair must be handed over once.
+     */
+    private static class CollectHandler implements ForkableResultHandler {
+        final Set<String> pairs = Collections.synchronizedSet(Sets.<String>newHashSet());
+        int forkCount;
+
+        @Override
+        public <T> void handle(T item) {
+            TuplePair pair = (TuplePair)item;
+            String key =
+                pair.getLeft().getSchema().getTableName() + pair.getLeft().getTid() + "|" +
+                pair.getRight().getSchema().getTableName() + pair.getRight().getTid();
+            Assert.assertTrue(pair.getLeft() != pair.getRight());
+            Assert.assertTrue(pairs.add(key));
+        }
+
+        @Override
+        public synchronized IteratorResultHandler fork() {
+            forkCount ++;
+            return this;
+        }
+
+        @Override
+        public void join(IteratorResultHandler handler) {}
+    }
+
+    private static class EmptyRule extends PairTupleRule {
+        @Override
+        public Collection<Table> coBlockOn(
+            Collection<Table> tables,
+            List<Column> leftColumns,
+            List<Column> rightColumns
+        ) {
+            return super.coBlockOn(tables, leftColumns, rightColumns);
+        }
+
+        @Override
+        public Collection<Violation> detect(TuplePair pair) {
+            return Lists.newArrayList();
+        }
+
+        @Override
+        public Collection<Fix> repair(Violation violation) {
+            return Lists.newArrayList();
+        }
+    }
+
+    private static Table createTable(String tableName, int size) {
+        return createTable(tableName, size, false);
+    }
+
+    /**
+     * Creates a table of A = i and B = i % 7, B is null instead of 0 when hasNull is set.
+     */
+    private static Table createTable(String tableName, int size, boolean hasNull) {
+        Schema schema =
+            new Schema.Builder()
+                .table(tableName)
+                .column("A", Types.VARCHAR)
+                .column("B", Types.VARCHAR)
+                .build();
+        List<Tuple> tuples = Lists.newArrayList();
+        for (int i = 0; i < size; i ++) {
+            List<byte[]> values = Lists.newArrayList();
+            values.add(Integer.toString(i).getBytes(Charset.forName("UTF-8")));
+            values.add(
+                hasNull && i % 7 == 0 ?
+                    null : Integer.toString(i % 7).getBytes(Charset.forName("UTF-8"))
+            );
+            tuples.add(new Tuple(i + 1, schema, values));
+        }
+        return MemoryTable.of(tuples);
+    }
+}
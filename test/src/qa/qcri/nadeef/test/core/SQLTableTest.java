@@ -14,6 +14,7 @@
 package qa.qcri.nadeef.test.core;
 
 import com.google.common.base.Stopwatch;
+import com.google.common.collect.Sets;
 import org.junit.After;
 import org.junit.Assert;
 import org.junit.Before;
@@ -29,11 +30,13 @@ import qa.qcri.nadeef.core.utils.sql.SQLDialectFactory;
 import qa.qcri.nadeef.test.NadeefTestBase;
 import qa.qcri.nadeef.test.TestDataRepository;
 import qa.qcri.nadeef.tools.DBConfig;
+import qa.qcri.nadeef.tools.PerfReport;
 
 import java.io.File;
 import java.sql.Connection;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 import java.util.Set;
@@ -118,6 +121,168 @@ public class SQLTableTest extends NadeefTestBase {
             (tableName + ".c").equalsIgnoreCase(cell.getColumn().getFullColumnName()));
     }
 
+    @Test
+    public void testScan() {
+        SQLTable collection = new SQLTable(tableName10k, connectionFactory);
+        final List<Integer> tids = new ArrayList<>();
+        collection.scan(new IteratorResultHandler() {
+            @Override
+            public <T> void handle(T item) {
+                tids.add(((Tuple)item).getTid());
+            }
+        });
+
+        SQLTable loaded = new SQLTable(tableName10k, connectionFactory);
+        Assert.assertEquals(loaded.size(), tids.size());
+        for (int i = 0; i < loaded.size(); i ++) {
+            Assert.assertEquals(loaded.get(i).getTid(), (int)tids.get(i));
+        }
+
+        collection = new SQLTable(tableName, connectionFactory);
+        collection.filter(Predicate.createEq(new Column(tableName, "c"), "c1"));
+        tids.clear();
+        collection.scan(new IteratorResultHandler() {
+            @Override
+            public <T> void handle(T item) {
+                tids.add(((Tuple)item).getTid());
+            }
+        });
+        Assert.assertEquals(7, tids.size());
+    }
+
+    @Test
+    public void testPartitionedLoad() {
+        NadeefConfiguration.setLoadPartitionNumber(1);
+        SQLTable single = new SQLTable(tableName10k, connectionFactory);
+        Assert.assertTrue(single.size() > 4096);
+
+        PerfReport.clear();
+        TableSnapshotCache.clear();
+        NadeefConfiguration.setLoadPartitionNumber(4);
+        SQLTable partitioned = new SQLTable(tableName10k, connectionFactory);
+        Assert.assertEquals(single.size(), partitioned.size());
+        Assert.assertEquals(4, PerfReport.get(PerfReport.Metric.DBLoadTime).size());
+
+        Column[] columns = single.getSchema().getColumns();
+        for (int i = 0; i < single.size(); i ++) {
+            Tuple expected = single.get(i);
+            Tuple actual = partitioned.get(i);
+            Assert.assertEquals(expected.getTid(), actual.getTid());
+            for (Column column : columns) {
+                Assert.assertEquals(expected.get(column), actual.get(column));
+            }
+        }
+        NadeefConfiguration.setLoadPartitionNumber(Runtime.getRuntime().availableProcessors());
+    }
+
+    @Test
+    public void testPartitionedLoadFailure() {
+        NadeefConfiguration.setLoadPartitionNumber(4);
+        try {
+            SQLTable table = new SQLTable(tableName10k, connectionFactory);
+            table.getSchema();
+            table.project(new Column(tableName10k, "nocolumn"));
+            table.size();
+            Assert.fail("A failed partition should fail the load.");
+        } catch (RuntimeException ex) {
+            Assert.assertEquals("Loading " + tableName10k + " failed.", ex.getMessage());
+        } finally {
+            NadeefConfiguration.setLoadPartitionNumber(
+                Runtime.getRuntime().availableProcessors()
+            );
+        }
+    }
+
+    @Test
+    public void testOffHeapLoad() {
+        SQLTable onHeap = new SQLTable(tableName10k, connectionFactory);
+        Assert.assertTrue(onHeap.size() > 4096);
+
+        TableSnapshotCache.clear();
+        NadeefConfiguration.setOffHeap(true);
+        try {
+            SQLTable offHeap = new SQLTable(tableName10k, connectionFactory);
+            Assert.assertEquals(onHeap.size(), offHeap.size());
+
+            Column[] columns = onHeap.getSchema().getColumns();
+            for (int i = 0; i < onHeap.size(); i ++) {
+                Tuple expected = onHeap.get(i);
+                Tuple actual = offHeap.get(i);
+                Assert.assertEquals(expected.getTid(), actual.getTid());
+                for (Column column : columns) {
+                    Assert.assertEquals(expected.get(column), actual.get(column));
+                }
+            }
+
+            Column column = columns[columns.length - 1];
+            Assert.assertEquals(onHeap.groupOn(column).size(), offHeap.groupOn(column).size());
+        } finally {
+            NadeefConfiguration.setOffHeap(false);
+            TableSnapshotCache.clear();
+        }
+    }
+
+    @Test
+    public void testSnapshotCache() {
+        try {
+            NadeefConfiguration.setSnapshotCacheSize(256);
+            TableSnapshotCache.clear();
+            PerfReport.clear();
+            SQLTable table = new SQLTable(tableName, connectionFactory);
+            Assert.assertEquals(12, table.size());
+            table = new SQLTable(tableName, connectionFactory);
+            Assert.assertEquals(12, table.size());
+            Assert.assertEquals(1, PerfReport.get(PerfReport.Metric.DBLoadTime).size());
+
+            // a different projection is a different snapshot.
+            table = new SQLTable(tableName, connectionFactory);
+            table.project(new Column(tableName, "c"));
+            Assert.assertEquals(12, table.size());
+            Assert.assertEquals(2, PerfReport.get(PerfReport.Metric.DBLoadTime).size());
+
+            // changing the table drops the snapshots.
+            DBConfig dbConfig = NadeefConfiguration.getDbConfig();
+            CSVTools.append(
+                dbConfig,
+                SQLDialectFactory.getDialectManagerInstance(dbConfig.getDialect()),
+                tableName,
+                TestDataRepository.getDumpTestCSVFile()
+            );
+            table = new SQLTable(tableName, connectionFactory);
+            Assert.assertEquals(24, table.size());
+
+            // a change made outside of NADEEF drops the snapshots as well.
+            try (
+                Connection conn = connectionFactory.getSourceConnection();
+                Statement stat = conn.createStatement()
+            ) {
+                stat.execute("DELETE FROM " + tableName + " WHERE tid = 1");
+                conn.commit();
+            }
+            table = new SQLTable(tableName, connectionFactory);
+            Assert.assertEquals(23, table.size());
+
+            // spilled snapshots are read back from the snapshot files.
+            NadeefConfiguration.setSnapshotCacheSize(1);
+            NadeefConfiguration.setSnapshotSpill(true);
+            SQLTable table10k = new SQLTable(tableName10k, connectionFactory);
+            table10k.size();
+            PerfReport.clear();
+            table = new SQLTable(tableName, connectionFactory);
+            Assert.assertEquals(23, table.size());
+            table10k = new SQLTable(tableName10k, connectionFactory);
+            Assert.assertEquals(10000, table10k.size());
+            Assert.assertNull(PerfReport.get(PerfReport.Metric.DBLoadTime));
+        } catch (Exception ex) {
+            ex.printStackTrace();
+            Assert.fail(ex.getMessage());
+        } finally {
+            NadeefConfiguration.setSnapshotCacheSize(0);
+            NadeefConfiguration.setSnapshotSpill(false);
+            TableSnapshotCache.clear();
+        }
+    }
+
     @Test
     public void testGroup() {
         SQLTable collection = new SQLTable(tableName, connectionFactory);
@@ -179,6 +344,91 @@ public class SQLTableTest extends NadeefTestBase {
             }
         }
     }
+    @Test
+    public void testGroupStream() {
+        Column column0 = new Column(tableName10k, "hospitalowner");
+        Column column1 = new Column(tableName10k, "condition");
+        List<Column> columns = new ArrayList<>();
+        columns.add(column0);
+        columns.add(column1);
+        SQLTable table = new SQLTable(tableName10k, connectionFactory);
+        table.project(columns);
+        int fetchSize = NadeefConfiguration.getFetchSize();
+        try {
+            // small stores make the blocks published in several batches.
+            NadeefConfiguration.setFetchSize(64);
+            Collection<Table> expected =
+                new SQLTable(tableName10k, connectionFactory).groupOn(columns);
+            Collection<Table> blocks = table.groupOnConstrained(columns);
+            int count = 0;
+            for (Table block : blocks) {
+                Tuple tuple = block.get(0);
+                for (int i = 1; i < block.size(); i ++) {
+                    Assert.assertEquals(tuple.get(column0), block.get(i).get(column0));
+                    Assert.assertEquals(tuple.get(column1), block.get(i).get(column1));
+                }
+                count += block.size();
+            }
+            Assert.assertEquals(expected.size(), blocks.size());
+            Assert.assertEquals(10000, count);
+        } finally {
+            NadeefConfiguration.setFetchSize(fetchSize);
+        }
+    }
+
+    @Test
+    public void testGroupStreamMixedCase() throws Exception {
+        DBConfig dbConfig = NadeefConfiguration.getDbConfig();
+        SQLDialectBase dialectManager =
+            SQLDialectFactory.getDialectManagerInstance(dbConfig.getDialect());
+        String mixedTableName =
+            CSVTools.dump(
+                dbConfig,
+                dialectManager,
+                new File("test/src/qa/qcri/nadeef/test/input/mixedcase.csv"));
+        try {
+            // a case insensitive collation must not interleave "a" and "A" into more blocks.
+            Column column = new Column(mixedTableName, "c");
+            SQLTable table = new SQLTable(mixedTableName, connectionFactory);
+            Collection<Table> blocks = table.groupOnConstrained(Arrays.asList(column));
+            Set<String> keys = Sets.newHashSet();
+            int count = 0;
+            for (Table block : blocks) {
+                String key = (String)block.get(0).get(column);
+                for (int i = 1; i < block.size(); i ++) {
+                    Assert.assertEquals(key, block.get(i).get(column));
+                }
+                Assert.assertTrue(keys.add(key));
+                count += block.size();
+            }
+            Assert.assertEquals(4, blocks.size());
+            Assert.assertEquals(7, count);
+        } finally {
+            try (
+                Connection conn = connectionFactory.getSourceConnection();
+                Statement stat = conn.createStatement()
+            ) {
+                stat.execute(dialectManager.dropTable(mixedTableName));
+                conn.commit();
+            }
+        }
+    }
+
+    @Test
+    public void testGroupStreamFailure() {
+        SQLTable table = new SQLTable(tableName10k, connectionFactory);
+        Collection<Table> blocks =
+            table.groupOnConstrained(Arrays.asList(new Column(tableName10k, "nocolumn")));
+        try {
+            for (Table block : blocks) {
+                block.size();
+            }
+            Assert.fail("A failed query should fail the iteration.");
+        } catch (RuntimeException ex) {
+            Assert.assertEquals("Streaming blocks failed.", ex.getMessage());
+        }
+    }
+
     // @Test
     public void testSize() throws InterruptedException {
         Stopwatch stopwatch = Stopwatch.createStarted();
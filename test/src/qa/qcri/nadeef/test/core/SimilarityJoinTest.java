@@ -0,0 +1,160 @@
+/*
+ * QCRI, NADEEF LICENSE
+ * NADEEF is an extensible, generalized and easy-to-deploy data cleaning platform built at QCRI.
+ * NADEEF means "Clean" in Arabic
+ *
+ * Copyright (c) 2011-2013, Qatar Foundation for Education, Science and Community Development (on
+ * behalf of Qatar Computing Research Institute) having its principle place of business in Doha,
+ * Qatar with the registered address P.O box 5825 Doha, Qatar (hereinafter referred to as "QCRI")
+ *
+ * NADEEF has patent pending nevertheless the following is granted.
+ * NADEEF is released under the terms of the MIT License, (http://opensource.org/licenses/MIT).
+ */
+
+package qa.qcri.nadeef.test.core;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import org.junit.Assert;
+import org.junit.Test;
+import qa.qcri.nadeef.core.datamodel.*;
+import qa.qcri.nadeef.tools.Metrics;
+
+import java.nio.charset.Charset;
+import java.sql.Types;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Test for the exact similarity join, the join must find every pair above the threshold.
+ */
+public class SimilarityJoinTest {
+    @Test
+    public void testSelfJoin() {
+        Table table = createTable("sjleft", 300, 1);
+        for (double threshold : new double[] { 0.5, 0.8 }) {
+            for (SimilarityJoin.Measure measure : SimilarityJoin.Measure.values()) {
+                SimilarityJoin join =
+                    new SimilarityJoin()
+                        .condition(measure, "sjleft", "A", "sjleft", "A", threshold);
+                Set<String> candidates = collect(join, table, null);
+                int expected = 0;
+                for (int i = 0; i < table.size(); i ++) {
+                    for (int j = i + 1; j < table.size(); j ++) {
+                        if (isMatch(measure, table.get(i), table.get(j), threshold, 0)) {
+                            Assert.assertTrue(candidates.contains(getKey(table.get(i), table.get(j))));
+                            expected ++;
+                        }
+                    }
+                }
+                Assert.assertTrue(expected > 0);
+                Assert.assertTrue(candidates.size() < table.size() * (table.size() - 1) / 2);
+            }
+        }
+    }
+
+    @Test
+    public void testTwoTableJoin() {
+        Table left = createTable("sjleft", 200, 2);
+        Table right = createTable("sjright", 200, 2);
+        for (SimilarityJoin.Measure measure : SimilarityJoin.Measure.values()) {
+            SimilarityJoin join =
+                new SimilarityJoin()
+                    .condition(measure, "sjleft", "A", "sjright", "A", 0.7)
+                    .condition(measure, "sjleft", "B", "sjright", "B", 0.6);
+            Set<String> candidates = collect(join, left, right);
+            for (int i = 0; i < left.size(); i ++) {
+                for (int j = 0; j < right.size(); j ++) {
+                    Tuple tuple1 = left.get(i);
+                    Tuple tuple2 = right.get(j);
+                    if (
+                        isMatch(measure, tuple1, tuple2, 0.7, 0) &&
+                        isMatch(measure, tuple1, tuple2, 0.6, 1)
+                    ) {
+                        Assert.assertTrue(candidates.contains(getKey(tuple1, tuple2)));
+                    }
+                }
+            }
+        }
+    }
+
+    private static boolean isMatch(
+        SimilarityJoin.Measure measure,
+        Tuple tuple1,
+        Tuple tuple2,
+        double threshold,
+        int ordinal
+    ) {
+        String value1 = tuple1.getString(ordinal);
+        String value2 = tuple2.getString(ordinal);
+        double similarity =
+            measure == SimilarityJoin.Measure.QGRAM ?
+                Metrics.getQGramsDistance(value1, value2) :
+                Metrics.getLevenshtein(value1, value2);
+        return similarity >= threshold;
+    }
+
+    private static Set<String> collect(SimilarityJoin join, Table left, Table right) {
+        final Set<String> result = Sets.newHashSet();
+        IteratorResultHandler handler = new IteratorResultHandler() {
+            @Override
+            public <T> void handle(T item) {
+                TuplePair pair = (TuplePair)item;
+                Assert.assertTrue(result.add(getKey(pair.getLeft(), pair.getRight())));
+            }
+        };
+
+        if (right == null) {
+            join.iterator(left, handler);
+        } else {
+            join.iterator(left, right, handler);
+        }
+        return result;
+    }
+
+    private static String getKey(Tuple tuple1, Tuple tuple2) {
+        String key1 = tuple1.getSchema().getTableName() + tuple1.getTid();
+        String key2 = tuple2.getSchema().getTableName() + tuple2.getTid();
+        return key1.compareTo(key2) < 0 ? key1 + "|" + key2 : key2 + "|" + key1;
+    }
+
+    /**
+     * Creates a table of random words and their misspellings.
+     */
+    private static Table createTable(String tableName, int size, long seed) {
+        Schema schema =
+            new Schema.Builder()
+                .table(tableName)
+                .column("A", Types.VARCHAR)
+                .column("B", Types.VARCHAR)
+                .build();
+        Random random = new Random(seed);
+        List<String> words = Lists.newArrayList();
+        List<Tuple> tuples = Lists.newArrayList();
+        for (int i = 0; i < size; i ++) {
+            String word;
+            if (words.size() > 0 && random.nextInt(3) == 0) {
+                // misspell a previous word.
+                StringBuilder builder = new StringBuilder(words.get(random.nextInt(words.size())));
+                int position = random.nextInt(builder.length());
+                builder.setCharAt(position, (char)('a' + random.nextInt(4)));
+                word = builder.toString();
+            } else {
+                StringBuilder builder = new StringBuilder();
+                int length = 3 + random.nextInt(10);
+                for (int j = 0; j < length; j ++) {
+                    builder.append((char)('a' + random.nextInt(4)));
+                }
+                word = builder.toString();
+            }
+            words.add(word);
+
+            List<byte[]> values = Lists.newArrayList();
+            values.add(word.getBytes(Charset.forName("UTF-8")));
+            values.add(word.substring(0, word.length() / 2 + 1).getBytes(Charset.forName("UTF-8")));
+            tuples.add(new Tuple(i + 1, schema, values));
+        }
+        return MemoryTable.of(tuples);
+    }
+}
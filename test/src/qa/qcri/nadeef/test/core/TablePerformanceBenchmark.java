@@ -15,6 +15,7 @@ package qa.qcri.nadeef.test.core;
 
 
 import com.google.common.base.Stopwatch;
+import com.google.common.collect.Lists;
 import org.junit.After;
 import org.junit.Assert;
 import org.junit.Before;
@@ -24,6 +25,7 @@ import org.junit.runners.Parameterized;
 import qa.qcri.nadeef.core.datamodel.NadeefConfiguration;
 import qa.qcri.nadeef.core.datamodel.SQLTable;
 import qa.qcri.nadeef.core.datamodel.Table;
+import qa.qcri.nadeef.core.datamodel.TableSnapshotCache;
 import qa.qcri.nadeef.core.utils.Bootstrap;
 import qa.qcri.nadeef.core.utils.CSVTools;
 import qa.qcri.nadeef.core.utils.sql.DBConnectionPool;
@@ -34,9 +36,12 @@ import qa.qcri.nadeef.tools.DBConfig;
 import qa.qcri.nadeef.tools.PerfReport;
 
 import java.io.File;
+import java.nio.charset.Charset;
 import java.sql.Connection;
+import java.sql.ResultSet;
 import java.sql.Statement;
 import java.util.Collection;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 @RunWith(Parameterized.class)
@@ -131,4 +136,88 @@ public class TablePerformanceBenchmark extends NadeefTestBase {
         watch.stop();
         Assert.assertEquals(10000, count);
     }
+
+    @Test
+    public void testLoadThroughput() {
+        NadeefConfiguration.setLoadPartitionNumber(1);
+        for (boolean isBulkExport : new boolean[] { false, true }) {
+            NadeefConfiguration.setBulkExport(isBulkExport);
+            // warm up.
+            new SQLTable(tableName10k, connectionFactory).size();
+
+            Stopwatch watch = Stopwatch.createStarted();
+            int rounds = 5;
+            int rows = 0;
+            for (int i = 0; i < rounds; i ++) {
+                TableSnapshotCache.clear();
+                rows += new SQLTable(tableName10k, connectionFactory).size();
+            }
+            long elapsedTime = Math.max(watch.elapsed(TimeUnit.MILLISECONDS), 1);
+            watch.stop();
+            System.out.println(
+                String.format(
+                    "Loading %s with bulk export %s: %d rows/sec.",
+                    tableName10k,
+                    isBulkExport ? "on" : "off",
+                    rows * 1000L / elapsedTime
+                )
+            );
+            Assert.assertEquals(10000 * rounds, rows);
+        }
+        NadeefConfiguration.setBulkExport(true);
+        NadeefConfiguration.setLoadPartitionNumber(Runtime.getRuntime().availableProcessors());
+    }
+
+    @Test
+    public void testMemoryFootprint() {
+        // the previous layout keeps one byte array per cell in each tuple.
+        List<List<byte[]>> rows = Lists.newArrayList();
+        long before = getUsedMemory();
+        try (
+            Connection conn = connectionFactory.getSourceConnection();
+            Statement stat = conn.createStatement();
+            ResultSet resultSet = stat.executeQuery("SELECT * FROM " + tableName10k)
+        ) {
+            int count = resultSet.getMetaData().getColumnCount();
+            while (resultSet.next()) {
+                List<byte[]> values = Lists.newArrayList();
+                for (int i = 1; i <= count; i ++) {
+                    Object object = resultSet.getObject(i);
+                    values.add(
+                        object == null ?
+                            null : object.toString().getBytes(Charset.forName("UTF-8"))
+                    );
+                }
+                rows.add(values);
+            }
+        } catch (Exception ex) {
+            ex.printStackTrace();
+            Assert.fail(ex.getMessage());
+        }
+        long byteArraySize = getUsedMemory() - before;
+
+        before = getUsedMemory();
+        SQLTable table = new SQLTable(tableName10k, connectionFactory);
+        table.size();
+        long columnarSize = getUsedMemory() - before;
+        System.out.println(
+            String.format(
+                "Loading %d rows uses %d KB with byte arrays and %d KB with column store.",
+                rows.size(),
+                byteArraySize / 1024,
+                columnarSize / 1024
+            )
+        );
+        // keeps both layouts reachable until both are measured.
+        Assert.assertEquals(rows.size(), table.size());
+        Assert.assertTrue(columnarSize < byteArraySize);
+    }
+
+    private static long getUsedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i ++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
 }
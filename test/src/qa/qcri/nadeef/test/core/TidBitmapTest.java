@@ -0,0 +1,92 @@
+/*
+ * QCRI, NADEEF LICENSE
+ * NADEEF is an extensible, generalized and easy-to-deploy data cleaning platform built at QCRI.
+ * NADEEF means "Clean" in Arabic
+ *
+ * Copyright (c) 2011-2013, Qatar Foundation for Education, Science and Community Development (on
+ * behalf of Qatar Computing Research Institute) having its principle place of business in Doha,
+ * Qatar with the registered address P.O box 5825 Doha, Qatar (hereinafter referred to as "QCRI")
+ *
+ * NADEEF has patent pending nevertheless the following is granted.
+ * NADEEF is released under the terms of the MIT License, (http://opensource.org/licenses/MIT).
+ */
+
+package qa.qcri.nadeef.test.core;
+
+import com.google.common.collect.Sets;
+import com.google.common.primitives.Ints;
+import org.junit.Assert;
+import org.junit.Test;
+import qa.qcri.nadeef.core.datamodel.TidBitmap;
+
+import java.util.Random;
+import java.util.TreeSet;
+
+/**
+ * Test for the tid bitmap, checked against a sorted set of tids.
+ */
+public class TidBitmapTest {
+    @Test
+    public void testAddAndRank() {
+        Random random = new Random(11);
+        TidBitmap bitmap = new TidBitmap();
+        TreeSet<Integer> expected = Sets.newTreeSet();
+
+        // sparse tids, a dense chunk and a range over chunk boundaries.
+        for (int i = 0; i < 3000; i ++) {
+            int tid = random.nextInt(1 << 20);
+            bitmap.add(tid);
+            expected.add(tid);
+        }
+        for (int i = 0; i < 6000; i ++) {
+            int tid = (3 << 16) + random.nextInt(1 << 13);
+            bitmap.add(tid);
+            expected.add(tid);
+        }
+        bitmap.addRange(100000, 300000);
+        for (int i = 100000; i < 300000; i ++) {
+            expected.add(i);
+        }
+
+        check(expected, bitmap);
+        for (int i = 0; i < 2000; i ++) {
+            int tid = random.nextInt(1 << 20);
+            Assert.assertEquals(expected.contains(tid), bitmap.contains(tid));
+            Assert.assertEquals(expected.headSet(tid, true).size(), bitmap.rank(tid));
+            Integer next = expected.ceiling(tid);
+            Assert.assertEquals(next == null ? -1 : next, bitmap.next(tid));
+        }
+    }
+
+    @Test
+    public void testSetOperations() {
+        Random random = new Random(7);
+        TidBitmap bitmap1 = new TidBitmap();
+        TidBitmap bitmap2 = new TidBitmap();
+        TreeSet<Integer> set1 = Sets.newTreeSet();
+        TreeSet<Integer> set2 = Sets.newTreeSet();
+        for (int i = 0; i < 20000; i ++) {
+            int tid = random.nextInt(1 << 18);
+            bitmap1.add(tid);
+            set1.add(tid);
+            tid = random.nextInt(1 << 17);
+            bitmap2.add(tid);
+            set2.add(tid);
+        }
+        bitmap2.addRange(5000, 70000);
+        for (int i = 5000; i < 70000; i ++) {
+            set2.add(i);
+        }
+
+        check(Sets.newTreeSet(Sets.intersection(set1, set2)), bitmap1.and(bitmap2));
+        check(Sets.newTreeSet(Sets.union(set1, set2)), bitmap1.or(bitmap2));
+        check(Sets.newTreeSet(Sets.difference(set1, set2)), bitmap1.andNot(bitmap2));
+        check(Sets.newTreeSet(Sets.difference(set2, set1)), bitmap2.andNot(bitmap1));
+        Assert.assertTrue(bitmap1.andNot(bitmap1).isEmpty());
+    }
+
+    private static void check(TreeSet<Integer> expected, TidBitmap bitmap) {
+        Assert.assertEquals(expected.size(), bitmap.size());
+        Assert.assertArrayEquals(Ints.toArray(expected), bitmap.toArray());
+    }
+}
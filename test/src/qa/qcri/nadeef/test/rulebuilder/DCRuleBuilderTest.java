@@ -57,6 +57,7 @@ public class DCRuleBuilderTest {
         values.add("not(t1.D=t2.D)");
         values.add("not(t1.A='TEST')");
         values.add("not(t1.B<=1)");
+        values.add("not(t1.A>t2.A&t1.B<t2.B)");
         try {
             for (int i = 0; i < values.size(); i ++){
                 DCRuleBuilder dcRuleBuilder = new DCRuleBuilder();
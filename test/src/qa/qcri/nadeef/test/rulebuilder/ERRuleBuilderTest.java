@@ -0,0 +1,295 @@
+/*
+ * QCRI, NADEEF LICENSE
+ * NADEEF is an extensible, generalized and easy-to-deploy data cleaning platform built at QCRI.
+ * NADEEF means "Clean" in Arabic
+ *
+ * Copyright (c) 2011-2013, Qatar Foundation for Education, Science and Community Development (on
+ * behalf of Qatar Computing Research Institute) having its principle place of business in Doha,
+ * Qatar with the registered address P.O box 5825 Doha, Qatar (hereinafter referred to as "QCRI")
+ *
+ * NADEEF has patent pending nevertheless the following is granted.
+ * NADEEF is released under the terms of the MIT License, (http://opensource.org/licenses/MIT).
+ */
+
+package qa.qcri.nadeef.test.rulebuilder;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import qa.qcri.nadeef.core.datamodel.*;
+import qa.qcri.nadeef.core.utils.Bootstrap;
+import qa.qcri.nadeef.ruleext.ERRuleBuilder;
+import qa.qcri.nadeef.test.NadeefTestBase;
+import qa.qcri.nadeef.tools.PerfReport;
+
+import java.nio.charset.Charset;
+import java.sql.Types;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Test for ER Rule writer.
+ */
+@RunWith(Parameterized.class)
+public class ERRuleBuilderTest extends NadeefTestBase {
+    public ERRuleBuilderTest(String testConfig_) {
+        super(testConfig_);
+    }
+
+    @Before
+    public void setup() {
+        try {
+            Bootstrap.start(testConfig);
+        } catch (Exception ex) {
+            ex.printStackTrace();
+        }
+    }
+
+    @After
+    public void tearDown() {
+        Bootstrap.shutdown();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testSortedNeighborhood() {
+        try {
+            List<Table> tables = Lists.newArrayList();
+            tables.add(createTable(
+                "bank",
+                new String[] { "David", "Jordan" },
+                new String[] { "Paul", "Simon" }
+            ));
+            tables.add(createTable(
+                "tran",
+                new String[] { "David", "Jordan" },
+                new String[] { "Paul", "Simon" },
+                new String[] { "David", "Jordan" },
+                new String[] { "Peter", "Austin" }
+            ));
+
+            // one pass only pairs the neighbors on the first name.
+            Rule rule = buildRule("EQ(bank.FN, tran.FN)=1", "SN(bank.FN, tran.FN, 2)");
+            final List<TuplePair> pairs = Lists.newArrayList();
+            rule.iterator(tables, createHandler(pairs));
+            Assert.assertEquals(3, pairs.size());
+            int count = 0;
+            for (TuplePair pair : pairs) {
+                Assert.assertTrue(pair.getLeft().isFromTable("bank"));
+                count += ((Collection<Violation>)rule.detect(pair)).size();
+            }
+            Assert.assertEquals(2, count);
+
+            // the second pass adds the pairs which are not found by the first pass.
+            rule =
+                buildRule(
+                    "EQ(bank.FN, tran.FN)=1",
+                    "SN(bank.FN, tran.FN, 2)",
+                    "SN(bank.LN, tran.LN, 2)"
+                );
+            pairs.clear();
+            rule.iterator(tables, createHandler(pairs));
+            Assert.assertEquals(4, pairs.size());
+        } catch (Exception e) {
+            e.printStackTrace();
+            Assert.fail(e.getMessage());
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testMinHash() {
+        try {
+            List<Table> tables = Lists.newArrayList();
+            tables.add(createTable(
+                "bank",
+                new String[] { "12 Holywell Street", "Jordan" },
+                new String[] { "5 Ratcliffe Terrace", "Simon" }
+            ));
+            tables.add(createTable(
+                "tran",
+                new String[] { "12 Holywell Street", "Jordan" },
+                new String[] { "5 Ratcliffe Terrace", "Simon" },
+                new String[] { "12 Holywell Stret", "Jordan" },
+                new String[] { "7 Market Street", "Austin" },
+                new String[] { "9 Banbury Road", "Austin" }
+            ));
+
+            // the similarity predicate builds the LSH candidates.
+            Rule rule = buildRule("QG(bank.FN, tran.FN) > 0.8", "EQ(bank.LN, tran.LN)=1");
+            final List<TuplePair> pairs = Lists.newArrayList();
+            rule.iterator(tables, createHandler(pairs));
+            Assert.assertTrue(pairs.size() < 10);
+            int count = 0;
+            for (TuplePair pair : pairs) {
+                Assert.assertTrue(pair.getLeft().isFromTable("bank"));
+                count += ((Collection<Violation>)rule.detect(pair)).size();
+            }
+            Assert.assertEquals(3, count);
+        } catch (Exception e) {
+            e.printStackTrace();
+            Assert.fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testMinHashHeavyBucket() {
+        // identical values collide in every band, each pair is still emitted once.
+        String[][] leftRows = new String[30][];
+        for (int i = 0; i < leftRows.length; i ++) {
+            leftRows[i] = new String[] { "12 Holywell Street", "Jordan" };
+        }
+        String[][] rightRows = new String[40][];
+        for (int i = 0; i < rightRows.length; i ++) {
+            rightRows[i] = new String[] { "12 Holywell Street", "Simon" };
+        }
+
+        PerfReport.clear();
+        final List<TuplePair> pairs = Lists.newArrayList();
+        new MinHashLSH("bank", "FN", "tran", "FN", 8, 2).iterator(
+            createTable("bank", leftRows),
+            createTable("tran", rightRows),
+            createHandler(pairs)
+        );
+
+        Set<String> keys = Sets.newHashSet();
+        for (TuplePair pair : pairs) {
+            Assert.assertTrue(pair.getLeft().isFromTable("bank"));
+            Assert.assertTrue(keys.add(pair.getLeft().getTid() + "|" + pair.getRight().getTid()));
+        }
+        Assert.assertEquals(30 * 40, pairs.size());
+        Assert.assertEquals(
+            30L * 40,
+            (long)PerfReport.get(PerfReport.Metric.CandidatePairs).get(0)
+        );
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testSimilarityJoin() {
+        NadeefConfiguration.setExactSimilarityJoin(true);
+        try {
+            List<Table> tables = Lists.newArrayList();
+            tables.add(createTable(
+                "bank",
+                new String[] { "12 Holywell Street", "Jordan" },
+                new String[] { "5 Ratcliffe Terrace", "Simon" }
+            ));
+            tables.add(createTable(
+                "tran",
+                new String[] { "12 Holywell Street", "Jordan" },
+                new String[] { "5 Ratcliffe Terrace", "Simon" },
+                new String[] { "12 Holywell Stret", "Jordan" },
+                new String[] { "7 Market Street", "Austin" },
+                new String[] { "9 Banbury Road", "Austin" }
+            ));
+
+            // the exact join only emits the pairs above the thresholds.
+            Rule rule = buildRule("QG(bank.FN, tran.FN) > 0.8", "LS(bank.LN, tran.LN) >= 1");
+            final List<TuplePair> pairs = Lists.newArrayList();
+            rule.iterator(tables, createHandler(pairs));
+            Assert.assertEquals(3, pairs.size());
+            int count = 0;
+            for (TuplePair pair : pairs) {
+                Assert.assertTrue(pair.getLeft().isFromTable("bank"));
+                count += ((Collection<Violation>)rule.detect(pair)).size();
+            }
+            Assert.assertEquals(3, count);
+        } catch (Exception e) {
+            e.printStackTrace();
+            Assert.fail(e.getMessage());
+        } finally {
+            NadeefConfiguration.setExactSimilarityJoin(false);
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testCoBlock() {
+        NadeefConfiguration.setTilePairs(2);
+        try {
+            List<Table> tables = Lists.newArrayList();
+            tables.add(createTable(
+                "bank",
+                new String[] { "David", "Jordan" },
+                new String[] { "Paul", "Simon" },
+                new String[] { "Peter", "Simon" }
+            ));
+            tables.add(createTable(
+                "tran",
+                new String[] { "David", "Jordan" },
+                new String[] { "Paul", "Simon" },
+                new String[] { "David", "Jordan" },
+                new String[] { "Peter", "Austin" }
+            ));
+
+            // the equality predicate pairs the blocks of the same last name.
+            Rule rule = buildRule("EQ(tran.LN, bank.LN)=1");
+            Collection<Table> blocks = rule.coBlock(tables);
+            Assert.assertTrue(blocks instanceof CoBlocks);
+            List<List<Table>> blockPairs = ((CoBlocks)blocks).getPairs();
+            Assert.assertEquals(2, blockPairs.size());
+            final List<TuplePair> pairs = Lists.newArrayList();
+            for (List<Table> blockPair : blockPairs) {
+                rule.iterator(blockPair, createHandler(pairs));
+            }
+            Assert.assertEquals(1 * 2 + 2 * 1, pairs.size());
+            int count = 0;
+            for (TuplePair pair : pairs) {
+                count += ((Collection<Violation>)rule.detect(pair)).size();
+            }
+            Assert.assertEquals(4, count);
+
+            // the candidates take the whole tables instead of row ranges.
+            rule = buildRule("QG(bank.FN, tran.FN) > 0.8");
+            Assert.assertSame(tables, rule.coBlock(tables));
+        } catch (Exception e) {
+            e.printStackTrace();
+            Assert.fail(e.getMessage());
+        } finally {
+            NadeefConfiguration.setTilePairs(1 << 20);
+        }
+    }
+
+    private static Rule buildRule(String... values) throws Exception {
+        return new ERRuleBuilder()
+            .table(Lists.newArrayList("bank", "tran"))
+            .value(Lists.newArrayList(values))
+            .build()
+            .iterator()
+            .next();
+    }
+
+    private static IteratorResultHandler createHandler(final List<TuplePair> pairs) {
+        return new IteratorResultHandler() {
+            @Override
+            public <T> void handle(T item) {
+                pairs.add((TuplePair)item);
+            }
+        };
+    }
+
+    private static Table createTable(String tableName, String[]... rows) {
+        Schema schema =
+            new Schema.Builder()
+                .table(tableName)
+                .column("FN", Types.VARCHAR)
+                .column("LN", Types.VARCHAR)
+                .build();
+        List<Tuple> tuples = Lists.newArrayList();
+        for (int i = 0; i < rows.length; i ++) {
+            List<byte[]> values = Lists.newArrayList();
+            for (String value : rows[i]) {
+                values.add(value.getBytes(Charset.forName("UTF-8")));
+            }
+            tuples.add(new Tuple(i + 1, schema, values));
+        }
+        return MemoryTable.of(tuples);
+    }
+}
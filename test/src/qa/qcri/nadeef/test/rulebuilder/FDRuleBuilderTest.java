@@ -13,6 +13,7 @@
 
 package qa.qcri.nadeef.test.rulebuilder;
 
+import com.google.common.collect.Lists;
 import com.google.common.io.Files;
 import org.junit.After;
 import org.junit.Assert;
@@ -20,15 +21,16 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.Parameterized;
-import qa.qcri.nadeef.core.datamodel.Rule;
-import qa.qcri.nadeef.core.datamodel.Schema;
+import qa.qcri.nadeef.core.datamodel.*;
 import qa.qcri.nadeef.core.utils.Bootstrap;
 import qa.qcri.nadeef.ruleext.FDRuleBuilder;
 import qa.qcri.nadeef.test.NadeefTestBase;
 
 import java.io.File;
+import java.nio.charset.Charset;
 import java.sql.Types;
 import java.util.Collection;
+import java.util.List;
 
 /**
  * Test for FD Rule writer.
@@ -155,4 +157,87 @@ public class FDRuleBuilderTest extends NadeefTestBase {
             Assert.fail(e.getMessage());
         }
     }
+
+    @Test
+    public void testFDSkewedBlock() {
+        Schema schema =
+            new Schema.Builder()
+                .table("table")
+                .column("A", Types.VARCHAR)
+                .column("B", Types.VARCHAR)
+                .build();
+        // one block on A, 300 tuples share a B value and the others are in runs of 10.
+        List<Tuple> tuples = Lists.newArrayList();
+        for (int i = 0; i < 400; i ++) {
+            tuples.add(createTuple(i + 1, schema, "a", i < 300 ? "x" : "b" + (i % 10)));
+        }
+
+        try {
+            PairTupleRule rule =
+                (PairTupleRule)new FDRuleBuilder()
+                    .name("Skewed")
+                    .table("table")
+                    .schema(schema)
+                    .value("A|B")
+                    .build()
+                    .iterator()
+                    .next();
+            long expected = 400 * 399 / 2 - 300 * 299 / 2 - 10 * (10 * 9 / 2);
+
+            CountHandler sequential = new CountHandler();
+            rule.iterator(Lists.<Table>newArrayList(MemoryTable.of(tuples)), sequential);
+            Assert.assertEquals(expected, sequential.count);
+            Assert.assertEquals(0, sequential.forkCount);
+
+            NadeefConfiguration.setTilePairs(500);
+            CountHandler forked = new CountHandler();
+            rule.iterator(Lists.<Table>newArrayList(MemoryTable.of(tuples)), forked);
+            Assert.assertEquals(expected, forked.count);
+            Assert.assertEquals(sequential.sum, forked.sum);
+            Assert.assertTrue(forked.forkCount > 1);
+        } catch (Exception e) {
+            e.printStackTrace();
+            Assert.fail(e.getMessage());
+        } finally {
+            NadeefConfiguration.setTilePairs(1 << 20);
+        }
+    }
+
+    /**
+     * Counts the pairs and sums their tids, so the pairs are compared without keeping them.
+     */
+    private static class CountHandler implements ForkableResultHandler {
+        long count;
+        long sum;
+        int forkCount;
+
+        @Override
+        public <T> void handle(T item) {
+            TuplePair pair = (TuplePair)item;
+            int left = Math.min(pair.getLeft().getTid(), pair.getRight().getTid());
+            int right = Math.max(pair.getLeft().getTid(), pair.getRight().getTid());
+            count ++;
+            sum += (long)left * 1000 + right;
+        }
+
+        @Override
+        public synchronized IteratorResultHandler fork() {
+            forkCount ++;
+            return new CountHandler();
+        }
+
+        @Override
+        public synchronized void join(IteratorResultHandler handler) {
+            count += ((CountHandler)handler).count;
+            sum += ((CountHandler)handler).sum;
+        }
+    }
+
+    private static Tuple createTuple(int tid, Schema schema, String... values) {
+        List<byte[]> bytes = Lists.newArrayList();
+        for (String value : values) {
+            bytes.add(value.getBytes(Charset.forName("UTF-8")));
+        }
+        return new Tuple(tid, schema, bytes);
+    }
 }
@@ -22,6 +22,8 @@ import org.junit.runners.Parameterized;
 import qa.qcri.nadeef.core.datamodel.CleanPlan;
 import qa.qcri.nadeef.core.datamodel.NadeefConfiguration;
 import qa.qcri.nadeef.core.utils.Bootstrap;
+import qa.qcri.nadeef.core.utils.Violations;
+import qa.qcri.nadeef.core.utils.sql.DBInstaller;
 import qa.qcri.nadeef.service.NadeefJobScheduler;
 import qa.qcri.nadeef.service.thrift.TJobStatus;
 import qa.qcri.nadeef.service.thrift.TJobStatusType;
@@ -29,6 +31,8 @@ import qa.qcri.nadeef.test.NadeefTestBase;
 import qa.qcri.nadeef.test.TestDataRepository;
 
 import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * JobScheduler test.
@@ -102,4 +106,32 @@ public class NadeefJobSchedulerTest extends NadeefTestBase{
             Assert.fail();
         }
     }
+
+    @Test
+    public void testFusedDetectJob() {
+        try {
+            NadeefConfiguration.setFusedDetection(true);
+            DBInstaller.uninstall(NadeefConfiguration.getDbConfig());
+            List<CleanPlan> cleanPlans = new ArrayList<>();
+            cleanPlans.add(TestDataRepository.getCleanPlan2());
+            cleanPlans.add(TestDataRepository.getCleanPlan2());
+
+            NadeefJobScheduler scheduler = NadeefJobScheduler.getInstance();
+            String key = scheduler.submitDetectJob(cleanPlans);
+            while (scheduler.getJobStatus(key).getStatus() != TJobStatusType.NOTAVAILABLE) {
+                Thread.sleep(1000);
+            }
+
+            // both plans are detected by the one fused job.
+            Assert.assertEquals(
+                84 * 2,
+                Violations.getViolationRowCount(NadeefConfiguration.getDbConfig())
+            );
+        } catch (Exception ex) {
+            ex.printStackTrace();
+            Assert.fail(ex.getMessage());
+        } finally {
+            NadeefConfiguration.setFusedDetection(false);
+        }
+    }
 }
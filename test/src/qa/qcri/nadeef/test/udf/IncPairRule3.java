@@ -0,0 +1,70 @@
+/*
+ * QCRI, NADEEF LICENSE
+ * NADEEF is an extensible, generalized and easy-to-deploy data cleaning platform built at QCRI.
+ * NADEEF means "Clean" in Arabic
+ *
+ * Copyright (c) 2011-2013, Qatar Foundation for Education, Science and Community Development (on
+ * behalf of Qatar Computing Research Institute) having its principle place of business in Doha,
+ * Qatar with the registered address P.O box 5825 Doha, Qatar (hereinafter referred to as "QCRI")
+ *
+ * NADEEF has patent pending nevertheless the following is granted.
+ * NADEEF is released under the terms of the MIT License, (http://opensource.org/licenses/MIT).
+ */
+
+package qa.qcri.nadeef.test.udf;
+
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import qa.qcri.nadeef.core.datamodel.*;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * IncPairRule1 which gives its block columns, so the incremental detections re-block
+ * on the block index.
+ */
+public class IncPairRule3 extends PairTupleRule {
+    @Override
+    public void initialize(String id, List<String> tableNames) {
+        super.initialize(id, tableNames);
+    }
+
+    @Override
+    public Collection<Table> block(Collection<Table> tables) {
+        Table table = Iterables.get(tables, 0);
+        return table.groupOn("C");
+    }
+
+    @Override
+    public List<Column> getBlockColumns() {
+        return Lists.newArrayList(new Column(getTableNames().get(0), "C"));
+    }
+
+    /**
+     * Detect method.
+     * @param tuplePair tuple pair.
+     * @return violation set.
+     */
+    @Override
+    public Collection<Violation> detect(TuplePair tuplePair) {
+
+        Tuple left = tuplePair.getLeft();
+        Tuple right = tuplePair.getRight();
+        Violation violation = new Violation(getRuleName());
+        violation.addTuple(left);
+        violation.addTuple(right);
+        return Lists.newArrayList(violation);
+    }
+
+    /**
+     * Repair of this rule.
+     *
+     * @param violation violation input.
+     * @return a candidate fix.
+     */
+    @Override
+    public Collection<Fix> repair(Violation violation) {
+        return null;
+    }
+}
@@ -49,11 +49,21 @@ public class PerfReport {
         AfterScopeTuple,
         // Number of blocks after Block
         Blocks,
+        // Number of blocks whose violations are carried over from the last detection
+        MemoizedBlocks,
+        // Number of blocks per log2 of the block size
+        BlockSizeHistogram,
+        // Iteration time of the blocks per log2 of the block size
+        BlockTimeHistogram,
 
         // Iteration time
         IteratorTime,
         // Tuple generator
         IterationCount,
+        // Candidate pairs of a candidate generator
+        CandidatePairs,
+        // Percentage of the pairs pruned by a candidate generator
+        CandidateReduction,
 
         // DB load time
         DBLoadTime,
@@ -125,6 +135,25 @@ public class PerfReport {
         }
     }
 
+    /**
+     * Accumulate a value in one bucket of a histogram entry, the entry grows to the bucket.
+     * @param metric type.
+     * @param bucket bucket index.
+     * @param value value.
+     */
+    public static synchronized void addHistogram(Metric metric, int bucket, long value) {
+        List<Long> values = metrics.get(metric);
+        if (values == null) {
+            values = Lists.newArrayList();
+            metrics.put(metric, values);
+        }
+
+        while (values.size() <= bucket) {
+            values.add(0L);
+        }
+        values.set(bucket, values.get(bucket) + value);
+    }
+
     public static List<Long> get(Metric metric) {
         return metrics.get(metric);
     }
@@ -203,8 +232,18 @@ public class PerfReport {
         sb.append("\n");
         sb.append(formatEntry(Metric.Blocks, "Blocks", ""));
         sb.append("\n");
+        sb.append(formatEntry(Metric.MemoizedBlocks, "Memoized blocks", ""));
+        sb.append("\n");
+        sb.append(formatEntry(Metric.BlockSizeHistogram, "Blocks per log2 size", ""));
+        sb.append("\n");
+        sb.append(formatEntry(Metric.BlockTimeHistogram, "Block time per log2 size", "ms"));
+        sb.append("\n");
         sb.append(formatEntry(Metric.IteratorTime, "Iterator time", "ms"));
         sb.append("\n");
+        sb.append(formatEntry(Metric.CandidatePairs, "Candidate pairs", ""));
+        sb.append("\n");
+        sb.append(formatEntry(Metric.CandidateReduction, "Candidate reduction", "%"));
+        sb.append("\n");
         sb.append(formatEntry(Metric.DBLoadTime, "DB load time", "ms"));
         sb.append("\n");
         sb.append(formatEntry(Metric.DetectTime, "Detect time", "ms"));